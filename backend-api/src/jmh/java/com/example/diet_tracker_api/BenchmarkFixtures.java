@@ -0,0 +1,62 @@
+package com.example.diet_tracker_api;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Data and objects shared by the benchmarks.
+ */
+public final class BenchmarkFixtures {
+
+    /**
+     * Body of a valid meal creation request.
+     */
+    public static final String MEAL_IN_JSON = """
+            {"mealDate":"2020-11-29","mealTime":"LUNCH","mealContent":"VEGETARIAN"}""";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Builds an ObjectMapper configured as the one Spring Boot provides to the
+     * application.
+     *
+     * @return ObjectMapper instance
+     */
+    public static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    /**
+     * Builds a list of persisted-like meals, spread over a few users and dates.
+     *
+     * @param size Number of meals
+     * @return Meal list
+     */
+    public static List<Meal> meals(int size) {
+        var meals = new ArrayList<Meal>(size);
+        for (int i = 0; i < size; i++) {
+            meals.add(Meal.builder()
+                    .id((long) i + 1)
+                    .userId("user-" + (i % 10))
+                    .mealDate(LocalDate.of(2020, 1, 1).plusDays(i / 3))
+                    .mealTime(MealTime.values()[i % MealTime.values().length])
+                    .mealContent(MealContent.values()[i % MealContent.values().length])
+                    .version(0L)
+                    .changeSeq((long) i + 1)
+                    .build());
+        }
+        return meals;
+    }
+}
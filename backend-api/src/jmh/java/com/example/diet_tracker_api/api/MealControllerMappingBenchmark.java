@@ -0,0 +1,80 @@
+package com.example.diet_tracker_api.api;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import com.example.diet_tracker_api.BenchmarkFixtures;
+import com.example.diet_tracker_api.dto.MealInDTO;
+import com.example.diet_tracker_api.dto.MealOutDTO;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.service.MealCursor;
+import com.example.diet_tracker_api.service.MealPage;
+
+/**
+ * AbstractMealController mapping stage of the /meals requests: building the
+ * entity to create, and the response of a meal list endpoint at several page
+ * sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MealControllerMappingBenchmark {
+
+    private MealUserController controller;
+
+    private MealInDTO mealIn;
+
+    /**
+     * Page of meals returned by the service.
+     */
+    @State(Scope.Benchmark)
+    public static class Page {
+        @Param({ "1", "100", "1000" })
+        private int size;
+
+        private MealPage mealPage;
+
+        @Setup
+        public void setup() {
+            List<Meal> meals = BenchmarkFixtures.meals(size);
+            mealPage = new MealPage(meals, MealCursor.after(meals.get(meals.size() - 1)));
+        }
+    }
+
+    @Setup
+    public void setup() {
+        // Only the mapping methods are called: no service, exporter or streamer needed
+        controller = new MealUserController(null, new MealMapper(), null, null, Optional.empty(), null);
+        mealIn = new MealInDTO(LocalDate.of(2020, 11, 29), MealTime.LUNCH, MealContent.VEGETARIAN);
+    }
+
+    @Benchmark
+    public Meal convertToEntity() {
+        return controller.convertToEntity(mealIn);
+    }
+
+    @Benchmark
+    public ResponseEntity<List<MealOutDTO>> convertToPageResponse(Page page) {
+        return controller.convertToPageResponse(page.mealPage);
+    }
+}
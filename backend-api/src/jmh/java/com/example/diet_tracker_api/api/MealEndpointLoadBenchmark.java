@@ -0,0 +1,183 @@
+package com.example.diet_tracker_api.api;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.diet_tracker_api.DietTrackerApiApplication;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.service.MealService;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * Load test of the /meals endpoints, comparing the platform-thread, the
+ * virtual-thread and the reactive (WebFlux & R2DBC) execution modes.
+ * The whole application is started on a random port (H2 database of the "it"
+ * profile, token keys loaded from a snapshot file), then requested by as many
+ * concurrent clients as JMH threads: 200 by default, Tomcat's platform thread
+ * pool size, other levels being set through -t (e.g. -Djmh.args="MealEndpointLoadBenchmark -t 1000").
+ * Sample time mode reports the latency percentiles (p0.99) of each mode, the
+ * maximum concurrency being the highest thread count whose p99 stays
+ * acceptable.
+ * The virtual-thread mode needs a Java 21+ runtime.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(200)
+@Fork(1)
+public class MealEndpointLoadBenchmark {
+
+    private static final String ISSUER = "http://localhost/realms/load-test-realm";
+
+    private static final String USER_ID = "load-test-user";
+
+    private static final int MEAL_COUNT = 1000;
+
+    /**
+     * Execution mode: platform, virtual (virtual threads) or reactive (reactive
+     * profile).
+     */
+    @Param({ "platform", "virtual", "reactive" })
+    private String mode;
+
+    private Path jwksSnapshot;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private HttpRequest getMealsRequest;
+
+    private HttpRequest getMealStatsRequest;
+
+    @Setup(Level.Trial)
+    public void startApplication() throws IOException, JOSEException {
+        var virtualThreads = "virtual".equals(mode);
+        if (virtualThreads && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("The virtual-thread mode needs a Java 21+ runtime");
+        }
+        var key = new RSAKeyGenerator(2048).keyID("load-test").generate();
+        jwksSnapshot = Files.createTempFile("load-test-jwks", ".json");
+        Files.writeString(jwksSnapshot, new JWKSet(key).toPublicJWKSet().toString());
+
+        var application = new SpringApplicationBuilder(DietTrackerApiApplication.class).profiles("it");
+        if ("reactive".equals(mode)) {
+            application.profiles("reactive");
+        }
+        // Command line arguments, overriding application.properties
+        context = application.run("--server.port=0",
+                "--server.ssl.enabled=false",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.security.oauth2.resourceserver.jwt.issuer-uri=" + ISSUER,
+                // Unreachable: the keys are only read from the snapshot
+                "--spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost:1/certs",
+                "--diet-tracker.security.jwks.snapshot-file=" + jwksSnapshot,
+                "--logging.level.root=WARN");
+        context.getBean(MealService.class).createMeals(USER_ID, meals());
+
+        var port = context.getEnvironment().getRequiredProperty("local.server.port");
+        var authorization = "Bearer " + userToken(key);
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        getMealsRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/meals?limit=100"))
+                .header("Authorization", authorization)
+                .build();
+        getMealStatsRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/meals/stats?groupBy=MONTH"))
+                .header("Authorization", authorization)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() throws IOException {
+        context.close();
+        Files.deleteIfExists(jwksSnapshot);
+    }
+
+    private static List<Meal> meals() {
+        var meals = new ArrayList<Meal>(MEAL_COUNT);
+        for (int i = 0; i < MEAL_COUNT; i++) {
+            meals.add(Meal.builder()
+                    .mealDate(LocalDate.of(2020, 1, 1).plusDays(i / 3))
+                    .mealTime(MealTime.values()[i % MealTime.values().length])
+                    .mealContent(MealContent.values()[i % MealContent.values().length])
+                    .build());
+        }
+        return meals;
+    }
+
+    private static String userToken(RSAKey key) throws JOSEException {
+        var claims = new JWTClaimsSet.Builder()
+                .subject(USER_ID)
+                .issuer(ISSUER)
+                .expirationTime(Date.from(Instant.now().plusSeconds(3600)))
+                .claim("realm_access", Map.of("roles", List.of("DIET_APP_USER")))
+                .build();
+        var jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        var response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+
+    /**
+     * First page of the user's meal list, read from the DB.
+     */
+    @Benchmark
+    public int getUserMeals() throws IOException, InterruptedException {
+        return send(getMealsRequest);
+    }
+
+    /**
+     * Monthly statistics of the user's meals, read from the rollups.
+     */
+    @Benchmark
+    public int getUserMealStats() throws IOException, InterruptedException {
+        return send(getMealStatsRequest);
+    }
+}
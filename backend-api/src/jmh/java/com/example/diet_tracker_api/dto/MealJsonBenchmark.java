@@ -0,0 +1,81 @@
+package com.example.diet_tracker_api.dto;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.diet_tracker_api.BenchmarkFixtures;
+import com.example.diet_tracker_api.api.MealMapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Jackson stages of the /meals requests: reading a MealInDTO request body and
+ * writing a List<MealOutDTO> response body, at several list sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MealJsonBenchmark {
+
+    private ObjectReader mealInReader;
+
+    private byte[] mealInJson;
+
+    /**
+     * Response content of a meal list endpoint.
+     */
+    @State(Scope.Benchmark)
+    public static class MealList {
+        /**
+         * Number of meals: a single one, the default and maximum page sizes,
+         * and an export-like history.
+         */
+        @Param({ "1", "100", "1000", "10000" })
+        private int size;
+
+        private ObjectWriter mealListWriter;
+
+        private List<MealOutDTO> meals;
+
+        @Setup
+        public void setup() {
+            var mealMapper = new MealMapper();
+            mealListWriter = BenchmarkFixtures.objectMapper().writerFor(new TypeReference<List<MealOutDTO>>() {
+            });
+            meals = BenchmarkFixtures.meals(size).stream().map(mealMapper::toOutDTO).toList();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        mealInReader = BenchmarkFixtures.objectMapper().readerFor(MealInDTO.class);
+        mealInJson = BenchmarkFixtures.MEAL_IN_JSON.getBytes();
+    }
+
+    @Benchmark
+    public MealInDTO deserializeMealIn() throws IOException {
+        return mealInReader.readValue(mealInJson);
+    }
+
+    @Benchmark
+    public byte[] serializeMealOutList(MealList mealList) throws IOException {
+        return mealList.mealListWriter.writeValueAsBytes(mealList.meals);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.diet_tracker_api.dto;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+
+/**
+ * Bean validation stage of the /meals creation and edition requests (@Valid
+ * MealInDTO), on a valid input and on an input violating every constraint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MealValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+
+    private Validator validator;
+
+    private MealInDTO validMealIn;
+
+    private MealInDTO invalidMealIn;
+
+    @Setup
+    public void setup() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        validMealIn = new MealInDTO(LocalDate.of(2020, 11, 29), MealTime.LUNCH, MealContent.VEGETARIAN);
+        invalidMealIn = new MealInDTO();
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<MealInDTO>> validateValidMealIn() {
+        return validator.validate(validMealIn);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<MealInDTO>> validateInvalidMealIn() {
+        return validator.validate(invalidMealIn);
+    }
+}
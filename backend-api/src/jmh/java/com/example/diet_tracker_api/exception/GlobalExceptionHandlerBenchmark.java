@@ -0,0 +1,107 @@
+package com.example.diet_tracker_api.exception;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+
+import com.example.diet_tracker_api.BenchmarkFixtures;
+import com.example.diet_tracker_api.api.MealUserController;
+import com.example.diet_tracker_api.dto.MealInDTO;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+
+/**
+ * GlobalExceptionHandler error body construction, for each handled error.
+ * The exceptions are built once: only their handling is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GlobalExceptionHandlerBenchmark {
+
+    private GlobalExceptionHandler handler;
+
+    private WebRequest request;
+
+    private MealNotFoundException mealNotFound;
+
+    private HttpMessageNotReadableException invalidFormat;
+
+    private MethodArgumentNotValidException missingFields;
+
+    private MethodArgumentTypeMismatchException typeMismatch;
+
+    @Setup
+    public void setup() throws Exception {
+        handler = new GlobalExceptionHandler();
+        request = new ServletWebRequest(new MockHttpServletRequest());
+
+        mealNotFound = new MealNotFoundException("user-1", 42L);
+
+        var invalidBody = BenchmarkFixtures.MEAL_IN_JSON.replace("LUNCH", "BRUNCH");
+        try {
+            BenchmarkFixtures.objectMapper().readValue(invalidBody, MealInDTO.class);
+            throw new IllegalStateException("Expected an InvalidFormatException");
+        } catch (InvalidFormatException e) {
+            invalidFormat = new HttpMessageNotReadableException("JSON parse error", e,
+                    new MockHttpInputMessage(invalidBody.getBytes()));
+        }
+
+        var createMeal = new MethodParameter(
+                MealUserController.class.getMethod("createMeal", Jwt.class, MealInDTO.class), 1);
+        var bindingResult = new BeanPropertyBindingResult(new MealInDTO(), "mealInDTO");
+        try (var validator = new LocalValidatorFactoryBean()) {
+            validator.afterPropertiesSet();
+            validator.validate(bindingResult.getTarget(), bindingResult);
+        }
+        missingFields = new MethodArgumentNotValidException(createMeal, bindingResult);
+
+        var getMeal = new MethodParameter(
+                MealUserController.class.getMethod("getUserMealById", Jwt.class, Long.class), 1);
+        typeMismatch = new MethodArgumentTypeMismatchException("abc", Long.class, "id", getMeal,
+                new NumberFormatException("For input string: \"abc\""));
+    }
+
+    @Benchmark
+    public String handleMealNotFound() {
+        return handler.handleItemNotFoundExceptions(mealNotFound);
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> handleInvalidFormat() throws Exception {
+        return handler.handleException(invalidFormat, request);
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> handleMissingFields() throws Exception {
+        return handler.handleException(missingFields, request);
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> handleTypeMismatch() throws Exception {
+        return handler.handleException(typeMismatch, request);
+    }
+}
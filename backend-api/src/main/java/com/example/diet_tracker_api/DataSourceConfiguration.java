@@ -0,0 +1,106 @@
+package com.example.diet_tracker_api;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.example.diet_tracker_api.service.RecentMealWrites;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Read/write split of the JDBC connections, enabled by setting
+ * diet-tracker.datasource.replica.jdbc-url: read-only transactions are served
+ * by the replica pool, the other ones by the primary pool (spring.datasource.*
+ * properties).
+ * A transaction's connection is only taken from a pool on its first
+ * statement, once its read-only flag is known. Reads of the meals of users
+ * written in the read-your-writes window still go to the primary pool, see
+ * RecentMealWrites.
+ * Both pools are beans, reporting their own hikaricp.* (tagged by pool) and
+ * jdbc.connections.* (tagged by name) metrics.
+ */
+@Configuration
+@ConditionalOnProperty("diet-tracker.datasource.replica.jdbc-url")
+public class DataSourceConfiguration {
+    /**
+     * Routing key of the primary pool.
+     */
+    private static final String PRIMARY = "primary";
+
+    /**
+     * Routing key of the replica pool.
+     */
+    private static final String REPLICA = "replica";
+
+    /**
+     * Provides the pool of connections to the primary database, which Boot
+     * would otherwise provide as the only DataSource.
+     *
+     * @param properties DataSource properties
+     * @return Primary pool, configured by the spring.datasource.hikari.*
+     *         properties
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        var dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(PRIMARY);
+        return dataSource;
+    }
+
+    /**
+     * Provides the pool of read-only connections to the replica database.
+     *
+     * @return Replica pool, configured by the diet-tracker.datasource.replica.*
+     *         properties
+     */
+    @Bean
+    @ConfigurationProperties("diet-tracker.datasource.replica")
+    HikariDataSource replicaDataSource() {
+        var dataSource = DataSourceBuilder.create().type(HikariDataSource.class).build();
+        dataSource.setPoolName(REPLICA);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    /**
+     * Provides the DataSource used by JPA and the SQL initialization.
+     *
+     * @param primaryDataSource Primary pool
+     * @param replicaDataSource Replica pool
+     * @return DataSource routing read-only connections to the replica
+     */
+    @Bean
+    @Primary
+    DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        var readOnlyDataSource = new ReadOnlyRoutingDataSource();
+        readOnlyDataSource.setTargetDataSources(Map.of(PRIMARY, primaryDataSource, REPLICA, replicaDataSource));
+        readOnlyDataSource.afterPropertiesSet();
+        var dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(readOnlyDataSource);
+        return dataSource;
+    }
+
+    /**
+     * DataSource of the read-only transactions: the replica, unless the
+     * transaction's reads were pinned to the primary.
+     */
+    static class ReadOnlyRoutingDataSource extends AbstractRoutingDataSource {
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return RecentMealWrites.arePrimaryReadsRequired() ? PRIMARY : REPLICA;
+        }
+    }
+}
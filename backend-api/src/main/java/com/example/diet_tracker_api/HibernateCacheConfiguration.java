@@ -0,0 +1,85 @@
+package com.example.diet_tracker_api;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.Properties;
+
+import javax.cache.CacheManager;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.diet_tracker_api.model.Meal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Hibernate second-level cache, held by a local Caffeine JCache cache manager.
+ * Only the Meal entity is cached, in a bounded region (Meal.CACHE_REGION)
+ * keyed by meal id; regions are never created on the fly, so that the JPA
+ * tests import this configuration too. Queries are not cached: their results
+ * would be invalidated by every write to the meal table.
+ * The caches are local: the writes of other nodes (and of the reactive
+ * variant) do not invalidate them, their entries expiring after
+ * diet-tracker.hibernate-cache.time-to-live instead.
+ * Regions record their own Caffeine statistics, at no cost per session unlike
+ * the Hibernate ones: they are reported by /actuator/hibernatecache and by the
+ * cache.* metrics tagged with the region name.
+ */
+@Configuration
+public class HibernateCacheConfiguration {
+    /**
+     * Provides the cache manager of the Hibernate regions. Each application
+     * context gets its own manager, closed with the context.
+     *
+     * @param maximumSize Maximum number of entries per region
+     * @param timeToLive  Time after which a region entry expires
+     * @return Cache manager holding the Hibernate regions
+     */
+    @Bean(destroyMethod = "close")
+    CacheManager hibernateCacheManager(
+            @Value("${diet-tracker.hibernate-cache.maximum-size:10000}") long maximumSize,
+            @Value("${diet-tracker.hibernate-cache.time-to-live:10m}") Duration timeToLive) {
+        var provider = new CaffeineCachingProvider();
+        var cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader(),
+                new Properties());
+        var region = new CaffeineConfiguration<Object, Object>();
+        region.setMaximumSize(OptionalLong.of(maximumSize));
+        region.setExpireAfterWrite(OptionalLong.of(timeToLive.toNanos()));
+        region.setNativeStatisticsEnabled(true);
+        cacheManager.createCache(Meal.CACHE_REGION, region);
+        return cacheManager;
+    }
+
+    /**
+     * Hands the Hibernate cache manager to the JCache region factory set by the
+     * spring.jpa.properties.hibernate.cache.* properties.
+     *
+     * @param hibernateCacheManager Cache manager holding the Hibernate regions
+     * @return Hibernate properties customizer
+     */
+    @Bean
+    HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    /**
+     * Publishes the Caffeine statistics of each Hibernate region as cache.*
+     * metrics, tagged cache:&lt;region&gt;.
+     *
+     * @param hibernateCacheManager Cache manager holding the Hibernate regions
+     * @return Meter binder of the regions
+     */
+    @Bean
+    MeterBinder hibernateCacheMetrics(CacheManager hibernateCacheManager) {
+        return registry -> hibernateCacheManager.getCacheNames().forEach(regionName -> CaffeineCacheMetrics
+                .monitor(registry, hibernateCacheManager.getCache(regionName).unwrap(Cache.class), regionName));
+    }
+}
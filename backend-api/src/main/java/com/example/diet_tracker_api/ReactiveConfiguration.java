@@ -0,0 +1,93 @@
+package com.example.diet_tracker_api;
+
+import static io.r2dbc.spi.ConnectionFactoryOptions.PASSWORD;
+import static io.r2dbc.spi.ConnectionFactoryOptions.USER;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+
+/**
+ * Configuration of the reactive variant of the API (reactive profile): the
+ * meals endpoints are served by WebFlux on Netty, and the meals are read and
+ * written with R2DBC, configured by the spring.r2dbc.* properties.
+ * The JPA stack stays in place for the other tasks (rollup rebuilds, data
+ * loading), so the R2DBC connection pool is not a default candidate: Boot's
+ * R2DBC auto-configuration, script initialization and transaction manager
+ * stay on the JDBC DataSource and JPA.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@EnableConfigurationProperties(R2dbcProperties.class)
+public class ReactiveConfiguration {
+    /**
+     * Provides the Netty server, which Boot would otherwise replace with
+     * Tomcat, also on the classpath.
+     *
+     * @return Netty server factory, configured by the server.* properties
+     */
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Provides the pool of R2DBC connections, only injected by name.
+     *
+     * @param properties R2DBC properties
+     * @return Connection pool
+     */
+    @Bean(defaultCandidate = false, destroyMethod = "dispose")
+    ConnectionPool reactiveConnectionPool(R2dbcProperties properties) {
+        var options = ConnectionFactoryOptions.parse(properties.getUrl()).mutate();
+        if (properties.getUsername() != null) {
+            options.option(USER, properties.getUsername());
+        }
+        if (properties.getPassword() != null) {
+            options.option(PASSWORD, properties.getPassword());
+        }
+        var pool = properties.getPool();
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .name("meals-r2dbc")
+                .initialSize(pool.getInitialSize())
+                .maxSize(pool.getMaxSize())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .build());
+    }
+
+    /**
+     * Provides the R2DBC client used by the reactive DAOs.
+     *
+     * @param reactiveConnectionPool Connection pool
+     * @return R2DBC client
+     */
+    @Bean
+    DatabaseClient databaseClient(@Qualifier("reactiveConnectionPool") ConnectionPool reactiveConnectionPool) {
+        return DatabaseClient.create(reactiveConnectionPool);
+    }
+
+    /**
+     * Provides the transactional operator of the R2DBC connections. Its
+     * transaction manager is not a bean, leaving JPA's the only one.
+     *
+     * @param reactiveConnectionPool Connection pool
+     * @return Transactional operator
+     */
+    @Bean
+    TransactionalOperator transactionalOperator(@Qualifier("reactiveConnectionPool") ConnectionPool reactiveConnectionPool) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(reactiveConnectionPool));
+    }
+}
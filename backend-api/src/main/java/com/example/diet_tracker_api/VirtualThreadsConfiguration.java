@@ -0,0 +1,31 @@
+package com.example.diet_tracker_api;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the virtual-thread execution mode (virtual-threads
+ * profile, or spring.threads.virtual.enabled set directly). Below Java 21,
+ * Boot silently ignores the property and keeps Tomcat's platform threads,
+ * while the connection pool is sized for the virtual-thread mode: the
+ * application refuses to start instead.
+ */
+@Configuration
+@ConditionalOnProperty("spring.threads.virtual.enabled")
+public class VirtualThreadsConfiguration {
+    VirtualThreadsConfiguration() {
+        requireVirtualThreads(Runtime.version());
+    }
+
+    /**
+     * Checks that the runtime supports virtual threads.
+     *
+     * @param version Java runtime version
+     * @throws IllegalStateException if the runtime is older than Java 21
+     */
+    static void requireVirtualThreads(Runtime.Version version) {
+        if (version.feature() < 21) {
+            throw new IllegalStateException("The virtual-thread mode needs a Java 21+ runtime, not " + version);
+        }
+    }
+}
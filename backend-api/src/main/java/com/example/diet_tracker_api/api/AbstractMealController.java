@@ -1,12 +1,24 @@
 package com.example.diet_tracker_api.api;
 
-import org.modelmapper.ModelMapper;
+import java.util.List;
 
+import org.springframework.http.ResponseEntity;
+
+import com.example.diet_tracker_api.dto.MealCalendarDTO;
+import com.example.diet_tracker_api.dto.MealChangesDTO;
 import com.example.diet_tracker_api.dto.MealIdDTO;
 import com.example.diet_tracker_api.dto.MealInDTO;
 import com.example.diet_tracker_api.dto.MealOutDTO;
+import com.example.diet_tracker_api.dto.MealPatchDTO;
+import com.example.diet_tracker_api.dto.MealStatsDTO;
+import com.example.diet_tracker_api.dto.MealStreaksDTO;
 import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.service.MealCalendar;
+import com.example.diet_tracker_api.service.MealChanges;
+import com.example.diet_tracker_api.service.MealPage;
 import com.example.diet_tracker_api.service.MealService;
+import com.example.diet_tracker_api.service.MealStats;
+import com.example.diet_tracker_api.service.MealStreaks;
 
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
@@ -16,24 +28,130 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 public abstract class AbstractMealController {
+    /**
+     * Response header carrying the cursor of the next page of a meal list.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    /**
+     * Page size used when the client does not provide one.
+     */
+    protected static final String DEFAULT_PAGE_SIZE = "100";
+    /**
+     * Maximum page size a client can ask for.
+     */
+    protected static final long MAX_PAGE_SIZE = 1000;
+    /**
+     * Maximum number of meals a client can create in one batch request.
+     */
+    protected static final int MAX_BATCH_SIZE = 10000;
     /**
      * Diet Service autowired object.
      */
     protected MealService mealService;
     /**
-     * Automatic mapper.
+     * Meal Entity <-> DTOs mapper.
      */
-    private ModelMapper modelMapper;
+    private MealMapper mealMapper;
 
     protected final MealOutDTO convertToDTO(Meal meal) {
-        return modelMapper.map(meal, MealOutDTO.class);
+        return mealMapper.toOutDTO(meal);
     }
 
     protected final MealIdDTO convertToIdDTO(Meal meal) {
-        return modelMapper.map(meal, MealIdDTO.class);
+        return mealMapper.toIdDTO(meal);
+    }
+
+    /**
+     * Builds the response of a meal list endpoint: the page content as body,
+     * and the next page cursor (if any) as a header.
+     *
+     * @param page Page of meals
+     * @return Response entity
+     */
+    protected final ResponseEntity<List<MealOutDTO>> convertToPageResponse(MealPage page) {
+        var response = ResponseEntity.ok();
+        if (page.next() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.next().encode());
+        }
+        return response.body(page.meals().stream().map(this::convertToDTO).toList());
+    }
+
+    /**
+     * Returns the strong ETag of the user's current meal list version. As the
+     * version changes with every write, any page of the meal list is unchanged
+     * as long as its ETag is.
+     * It must be checked against the request (WebRequest.checkNotModified)
+     * before the meal list is read.
+     *
+     * @param userId User id to whom the meals belong
+     * @return ETag
+     */
+    protected final String getUserMealsETag(String userId) {
+        return MealETags.ofUserMeals(mealService.getUserMealsVersion(userId));
+    }
+
+    /**
+     * Returns the strong ETag of a meal calendar, derived from its content: the
+     * timeline it is built from may not have applied the writes of the meal
+     * list version yet (or ever, for other instances' writes).
+     *
+     * @param calendar Meal calendar
+     * @return ETag
+     */
+    protected final String getCalendarETag(MealCalendar calendar) {
+        return MealETags.ofCalendar(calendar);
+    }
+
+    /**
+     * Returns the strong ETag of a meal, i.e. its quoted version.
+     *
+     * @param meal Meal
+     * @return ETag
+     */
+    protected final String getMealETag(Meal meal) {
+        return MealETags.ofMeal(meal);
+    }
+
+    /**
+     * Returns the meal version an If-Match header asks for.
+     *
+     * @param ifMatch If-Match header value, null if absent
+     * @return Expected meal version, null if any version is accepted (no header
+     *         or "*")
+     */
+    protected final Long parseMealETag(String ifMatch) {
+        return MealETags.parseMealVersion(ifMatch);
     }
 
     protected final Meal convertToEntity(MealInDTO mealInDTO) {
-        return modelMapper.map(mealInDTO, Meal.class);
+        return mealMapper.toEntity(mealInDTO);
+    }
+
+    protected final Meal convertToEntity(MealPatchDTO mealPatchDTO) {
+        return mealMapper.toEntity(mealPatchDTO);
+    }
+
+    protected final List<Meal> convertToEntities(List<MealInDTO> mealInDTOs) {
+        return mealInDTOs.stream().map(this::convertToEntity).toList();
+    }
+
+    protected final List<MealStatsDTO> convertToStatsDTOs(List<MealStats> mealStats) {
+        return mealStats.stream().map(mealMapper::toStatsDTO).toList();
+    }
+
+    protected final MealCalendarDTO convertToCalendarDTO(MealCalendar mealCalendar) {
+        return mealMapper.toCalendarDTO(mealCalendar);
+    }
+
+    protected final MealChangesDTO convertToChangesDTO(MealChanges mealChanges) {
+        return mealMapper.toChangesDTO(mealChanges);
+    }
+
+    protected final MealStreaksDTO convertToStreaksDTO(MealStreaks mealStreaks) {
+        return mealMapper.toStreaksDTO(mealStreaks);
+    }
+
+    protected final List<MealIdDTO> convertToIdDTOs(List<Meal> meals) {
+        return meals.stream().map(this::convertToIdDTO).toList();
     }
 }
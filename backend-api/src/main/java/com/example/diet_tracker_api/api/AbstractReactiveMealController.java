@@ -0,0 +1,104 @@
+package com.example.diet_tracker_api.api;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+
+import com.example.diet_tracker_api.dto.MealChangesDTO;
+import com.example.diet_tracker_api.dto.MealIdDTO;
+import com.example.diet_tracker_api.dto.MealInDTO;
+import com.example.diet_tracker_api.dto.MealOutDTO;
+import com.example.diet_tracker_api.dto.MealPatchDTO;
+import com.example.diet_tracker_api.dto.MealStatsDTO;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.service.MealChanges;
+import com.example.diet_tracker_api.service.MealPage;
+import com.example.diet_tracker_api.service.MealStats;
+import com.example.diet_tracker_api.service.ReactiveMealService;
+
+import lombok.AllArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Base of the reactive controllers, serving the same contract as the
+ * AbstractMealController subclasses (reactive profile).
+ */
+@AllArgsConstructor
+public abstract class AbstractReactiveMealController {
+    /**
+     * Reactive meal service.
+     */
+    protected ReactiveMealService mealService;
+    /**
+     * Meal Entity <-> DTOs mapper.
+     */
+    private MealMapper mealMapper;
+
+    protected final MealOutDTO convertToDTO(Meal meal) {
+        return mealMapper.toOutDTO(meal);
+    }
+
+    protected final MealIdDTO convertToIdDTO(Meal meal) {
+        return mealMapper.toIdDTO(meal);
+    }
+
+    /**
+     * Builds the response of a meal list endpoint: the page content as body,
+     * and the next page cursor (if any) as a header. The page is collected
+     * before the response is written, since the cursor is only known once its
+     * last meal is read.
+     *
+     * @param page Page of meals
+     * @return Response entity
+     */
+    protected final ResponseEntity<List<MealOutDTO>> convertToPageResponse(MealPage page) {
+        var response = ResponseEntity.ok();
+        if (page.next() != null) {
+            response.header(AbstractMealController.NEXT_CURSOR_HEADER, page.next().encode());
+        }
+        return response.body(page.meals().stream().map(this::convertToDTO).toList());
+    }
+
+    /**
+     * Returns the strong ETag of the user's current meal list version (see
+     * AbstractMealController.getUserMealsETag).
+     *
+     * @param userId User id to whom the meals belong
+     * @return ETag
+     */
+    protected final Mono<String> getUserMealsETag(String userId) {
+        return mealService.getUserMealsVersion(userId).map(MealETags::ofUserMeals);
+    }
+
+    protected final String getMealETag(Meal meal) {
+        return MealETags.ofMeal(meal);
+    }
+
+    protected final Long parseMealETag(String ifMatch) {
+        return MealETags.parseMealVersion(ifMatch);
+    }
+
+    protected final Meal convertToEntity(MealInDTO mealInDTO) {
+        return mealMapper.toEntity(mealInDTO);
+    }
+
+    protected final Meal convertToEntity(MealPatchDTO mealPatchDTO) {
+        return mealMapper.toEntity(mealPatchDTO);
+    }
+
+    protected final List<Meal> convertToEntities(List<MealInDTO> mealInDTOs) {
+        return mealInDTOs.stream().map(this::convertToEntity).toList();
+    }
+
+    protected final MealChangesDTO convertToChangesDTO(MealChanges mealChanges) {
+        return mealMapper.toChangesDTO(mealChanges);
+    }
+
+    protected final List<MealStatsDTO> convertToStatsDTOs(List<MealStats> mealStats) {
+        return mealStats.stream().map(mealMapper::toStatsDTO).toList();
+    }
+
+    protected final List<MealIdDTO> convertToIdDTOs(List<Meal> meals) {
+        return meals.stream().map(this::convertToIdDTO).toList();
+    }
+}
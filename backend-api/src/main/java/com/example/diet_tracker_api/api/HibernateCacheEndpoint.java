@@ -0,0 +1,88 @@
+package com.example.diet_tracker_api.api;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.cache.CacheManager;
+
+import org.hibernate.SessionFactory;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Actuator endpoint (/actuator/hibernatecache) reporting the hit ratio of each
+ * Hibernate cache region (GET), or emptying the regions (DELETE), e.g. once
+ * meals are changed behind Hibernate's back.
+ * The statistics are the Caffeine ones of the regions, recorded whether the
+ * Hibernate statistics are enabled or not.
+ */
+@Component
+@Endpoint(id = "hibernatecache")
+public class HibernateCacheEndpoint {
+    /**
+     * Hibernate session factory.
+     */
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Cache manager holding the Hibernate regions.
+     */
+    private final CacheManager hibernateCacheManager;
+
+    /**
+     * Constructor.
+     *
+     * @param entityManagerFactory  JPA entity manager factory
+     * @param hibernateCacheManager Cache manager holding the Hibernate regions
+     */
+    public HibernateCacheEndpoint(EntityManagerFactory entityManagerFactory, CacheManager hibernateCacheManager) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.hibernateCacheManager = hibernateCacheManager;
+    }
+
+    /**
+     * Statistics of a cache region since startup.
+     *
+     * @param hits      Number of lookups served by the region
+     * @param misses    Number of lookups the region could not serve
+     * @param evictions Number of entries evicted from the region for its size
+     *                  or expiry
+     * @param size      Approximate number of entries in the region
+     * @param hitRatio  Share of the lookups served by the region, null before
+     *                  the first lookup
+     */
+    public record RegionStatistics(long hits, long misses, long evictions, long size, Double hitRatio) {
+    }
+
+    /**
+     * Returns the statistics of each cache region.
+     *
+     * @return Statistics by region name
+     */
+    @ReadOperation
+    public Map<String, RegionStatistics> statistics() {
+        var regions = new TreeMap<String, RegionStatistics>();
+        for (var regionName : hibernateCacheManager.getCacheNames()) {
+            var region = hibernateCacheManager.getCache(regionName).unwrap(Cache.class);
+            var stats = region.stats();
+            regions.put(regionName, new RegionStatistics(stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                    region.estimatedSize(), stats.requestCount() == 0 ? null : stats.hitRate()));
+        }
+        return regions;
+    }
+
+    /**
+     * Drops all cached meals: they are read from the DB again on their next
+     * lookup.
+     */
+    @DeleteOperation
+    public void evictAll() {
+        sessionFactory.getCache().evictAllRegions();
+    }
+}
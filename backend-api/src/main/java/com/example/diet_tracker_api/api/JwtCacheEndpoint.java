@@ -0,0 +1,43 @@
+package com.example.diet_tracker_api.api;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.example.diet_tracker_api.security.CachingJwtAuthenticationProvider;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Actuator endpoint (/actuator/jwtcache) reporting the size of (GET) or
+ * emptying (DELETE) the verified token cache, e.g. once a signing key is
+ * revoked.
+ */
+@Component
+@Endpoint(id = "jwtcache")
+@RequiredArgsConstructor
+public class JwtCacheEndpoint {
+    /**
+     * Caching bearer token authentication provider.
+     */
+    private final CachingJwtAuthenticationProvider cachingJwtAuthenticationProvider;
+
+    /**
+     * Returns the approximate number of cached tokens.
+     *
+     * @return Number of cached tokens
+     */
+    @ReadOperation
+    public long size() {
+        return cachingJwtAuthenticationProvider.estimatedSize();
+    }
+
+    /**
+     * Drops all cached tokens: they are verified again on their next use.
+     */
+    @DeleteOperation
+    public void invalidate() {
+        cachingJwtAuthenticationProvider.invalidateAll();
+    }
+}
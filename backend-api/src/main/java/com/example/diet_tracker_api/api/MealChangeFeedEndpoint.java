@@ -0,0 +1,33 @@
+package com.example.diet_tracker_api.api;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.example.diet_tracker_api.service.MealChangeFeed;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Actuator endpoint (/actuator/mealchangefeed) reporting the subscribers of
+ * the meal change feed and the messages sent to them (GET).
+ */
+@Component
+@Endpoint(id = "mealchangefeed")
+@RequiredArgsConstructor
+public class MealChangeFeedEndpoint {
+    /**
+     * Meal change feed.
+     */
+    private final MealChangeFeed mealChangeFeed;
+
+    /**
+     * Returns the number of subscribers and of messages sent.
+     *
+     * @return Current statistics
+     */
+    @ReadOperation
+    public MealChangeFeed.Statistics statistics() {
+        return mealChangeFeed.statistics();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.diet_tracker_api.api;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.diet_tracker_api.dto.MealIdDTO;
+import com.example.diet_tracker_api.dto.MealOutDTO;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.service.MealChangeEvent;
+import com.example.diet_tracker_api.service.MealChangeFeed;
+import com.example.diet_tracker_api.service.MealChangeSink;
+
+/**
+ * Streams the changes of a user's meals as Server-Sent Events: "upsert"
+ * (MealOutDTO) and "delete" (MealIdDTO) events whose id is the change
+ * sequence, "resync" events telling to sync from GET /meals/changes, and
+ * heartbeat comments. The request thread is released once subscribed.
+ */
+@Component
+public class MealChangeStreamer {
+    /**
+     * Meal change feed.
+     */
+    private final MealChangeFeed mealChangeFeed;
+
+    /**
+     * Time after which a stream is closed, the client reconnecting.
+     */
+    private final Duration timeToLive;
+
+    /**
+     * Constructor.
+     *
+     * @param mealChangeFeed Meal change feed
+     * @param timeToLive     Time after which a stream is closed
+     */
+    public MealChangeStreamer(MealChangeFeed mealChangeFeed,
+            @Value("${diet-tracker.change-feed.time-to-live:30m}") Duration timeToLive) {
+        this.mealChangeFeed = mealChangeFeed;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Subscribes a new stream to the changes of a user's meals.
+     *
+     * @param userId   Id of the user whose meal changes are streamed
+     * @param mapper   Meal Entity -> MealOutDTO mapper
+     * @param idMapper   Meal Entity -> MealIdDTO mapper
+     * @return Emitter of the stream, completed on shutdown or after time-to-live
+     */
+    public SseEmitter stream(String userId, Function<Meal, MealOutDTO> mapper, Function<Meal, MealIdDTO> idMapper) {
+        var emitter = new SseEmitter(timeToLive.toMillis());
+        var subscription = mealChangeFeed.subscribe(userId, new MealChangeSink() {
+            @Override
+            public void send(MealChangeEvent event) throws IOException {
+                var data = switch (event.type()) {
+                    case UPSERT -> mapper.apply(event.meal());
+                    case DELETE -> idMapper.apply(event.meal());
+                };
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.changeSeq()))
+                        .name(event.type().name().toLowerCase())
+                        .data(data, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void resync() throws IOException {
+                // Browsers drop the events without data
+                emitter.send(SseEmitter.event().name("resync").data(Map.of(), MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void heartbeat() throws IOException {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        return emitter;
+    }
+}
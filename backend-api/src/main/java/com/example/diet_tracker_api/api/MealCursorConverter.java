@@ -0,0 +1,20 @@
+package com.example.diet_tracker_api.api;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import com.example.diet_tracker_api.service.MealCursor;
+
+/**
+ * Converts the opaque cursor request parameters into MealCursor instances.
+ * Invalid values end up as a regular parameter type mismatch (400).
+ */
+@Component
+public class MealCursorConverter implements Converter<String, MealCursor> {
+
+    @Override
+    public MealCursor convert(@NonNull String source) {
+        return MealCursor.decode(source);
+    }
+}
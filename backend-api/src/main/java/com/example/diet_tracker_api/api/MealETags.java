@@ -0,0 +1,73 @@
+package com.example.diet_tracker_api.api;
+
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.service.MealCalendar;
+
+/**
+ * Conversions between the meal (list) versions and the strong ETags exposing
+ * them, shared by the servlet and the reactive controllers. Calendars, built
+ * from the in-memory timelines, have ETags of their own content.
+ */
+final class MealETags {
+    /**
+     * Version matched by an If-Match ETag which is not a meal ETag (weak,
+     * listed or malformed): versions start at 0, so it never matches.
+     */
+    private static final Long UNMATCHED_VERSION = -1L;
+
+    private MealETags() {
+    }
+
+    /**
+     * Returns the ETag of a user's meal list version.
+     *
+     * @param userMealsVersion Version of the user's meal list
+     * @return ETag
+     */
+    static String ofUserMeals(String userMealsVersion) {
+        return "\"" + userMealsVersion + "\"";
+    }
+
+    /**
+     * Returns the ETag of a meal calendar, i.e. its quoted year and slots
+     * fingerprint.
+     *
+     * @param calendar Meal calendar
+     * @return ETag
+     */
+    static String ofCalendar(MealCalendar calendar) {
+        return "\"" + calendar.year() + "-" + Long.toHexString(calendar.fingerprint()) + "\"";
+    }
+
+    /**
+     * Returns the ETag of a meal, i.e. its quoted version.
+     *
+     * @param meal Meal
+     * @return ETag
+     */
+    static String ofMeal(Meal meal) {
+        return "\"" + meal.getVersion() + "\"";
+    }
+
+    /**
+     * Returns the meal version an If-Match header asks for.
+     *
+     * @param ifMatch If-Match header value, null if absent
+     * @return Expected meal version, null if any version is accepted (no header
+     *         or "*")
+     */
+    static Long parseMealVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        var eTag = ifMatch.trim();
+        if (eTag.length() > 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+            try {
+                return Long.valueOf(eTag.substring(1, eTag.length() - 1));
+            } catch (NumberFormatException e) {
+                // Not one of our ETags
+            }
+        }
+        return UNMATCHED_VERSION;
+    }
+}
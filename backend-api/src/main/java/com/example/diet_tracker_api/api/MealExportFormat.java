@@ -0,0 +1,33 @@
+package com.example.diet_tracker_api.api;
+
+import org.springframework.http.MediaType;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Enum of supported meal history export formats.
+ */
+@Getter
+@AllArgsConstructor
+public enum MealExportFormat {
+    /**
+     * Newline-delimited JSON: one MealOutDTO JSON object per line.
+     */
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+
+    /**
+     * Comma-separated values, with a header line.
+     */
+    CSV(new MediaType("text", "csv"), "csv");
+
+    /**
+     * Media type of the exported content.
+     */
+    private final MediaType mediaType;
+
+    /**
+     * File extension of the exported content.
+     */
+    private final String fileExtension;
+}
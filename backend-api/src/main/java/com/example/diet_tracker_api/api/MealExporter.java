@@ -0,0 +1,130 @@
+package com.example.diet_tracker_api.api;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.diet_tracker_api.dto.MealOutDTO;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.service.MealService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Streams a user's meal history straight to the response output stream, one
+ * Meal at a time, without building the whole list in memory.
+ */
+@Component
+@RequiredArgsConstructor
+public class MealExporter {
+    /**
+     * CSV header line, matching the MealOutDTO fields.
+     */
+    static final String CSV_HEADER = "id,userId,mealDate,mealTime,mealContent";
+
+    /**
+     * Meal service.
+     */
+    private final MealService mealService;
+
+    /**
+     * JSON mapper, configured as the one used for the regular responses.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Builds the streaming response exporting all the user's meals.
+     *
+     * @param userId Id of the user whose meals are exported
+     * @param format Export format
+     * @param mapper Meal Entity -> MealOutDTO mapper
+     * @return Response whose body is written once the request thread is released
+     */
+    public ResponseEntity<StreamingResponseBody> export(String userId, MealExportFormat format,
+            Function<Meal, MealOutDTO> mapper) {
+        StreamingResponseBody body = switch (format) {
+            case NDJSON -> outputStream -> writeNdjson(outputStream, userId, mapper);
+            case CSV -> outputStream -> writeCsv(outputStream, userId, mapper);
+        };
+        var contentDisposition = ContentDisposition.attachment()
+                .filename("meals." + format.getFileExtension())
+                .build();
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition.toString())
+                .body(body);
+    }
+
+    private void writeNdjson(OutputStream outputStream, String userId, Function<Meal, MealOutDTO> mapper)
+            throws IOException {
+        // Flushing is left to the generator buffer, not done after each line
+        var dtoWriter = objectMapper.writerFor(MealOutDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (var generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            mealService.exportUserMeals(userId, meal -> {
+                try {
+                    dtoWriter.writeValue(generator, mapper.apply(meal));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void writeCsv(OutputStream outputStream, String userId, Function<Meal, MealOutDTO> mapper)
+            throws IOException {
+        try (var writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            mealService.exportUserMeals(userId, meal -> writeCsvLine(writer, mapper.apply(meal)));
+        }
+    }
+
+    /**
+     * Writes a meal as a CSV line, matching CSV_HEADER.
+     *
+     * @param writer Writer the line is written to
+     * @param meal   Meal to write
+     */
+    static void writeCsvLine(Writer writer, MealOutDTO meal) {
+        try {
+            writer.write(String.valueOf(meal.getId()));
+            writer.write(',');
+            writer.write(escapeCsv(meal.getUserId()));
+            writer.write(',');
+            writer.write(String.valueOf(meal.getMealDate()));
+            writer.write(',');
+            writer.write(String.valueOf(meal.getMealTime()));
+            writer.write(',');
+            writer.write(String.valueOf(meal.getMealContent()));
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Quotes a CSV value if needed (RFC 4180).
+     */
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
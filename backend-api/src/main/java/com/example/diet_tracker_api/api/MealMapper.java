@@ -0,0 +1,161 @@
+package com.example.diet_tracker_api.api;
+
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.example.diet_tracker_api.dto.MealCalendarDTO;
+import com.example.diet_tracker_api.dto.MealChangesDTO;
+import com.example.diet_tracker_api.dto.MealIdDTO;
+import com.example.diet_tracker_api.dto.MealInDTO;
+import com.example.diet_tracker_api.dto.MealOutDTO;
+import com.example.diet_tracker_api.dto.MealPatchDTO;
+import com.example.diet_tracker_api.dto.MealStatsDTO;
+import com.example.diet_tracker_api.dto.MealStreakDTO;
+import com.example.diet_tracker_api.dto.MealStreaksDTO;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.service.MealCalendar;
+import com.example.diet_tracker_api.service.MealChanges;
+import com.example.diet_tracker_api.service.MealStats;
+import com.example.diet_tracker_api.service.MealStreak;
+import com.example.diet_tracker_api.service.MealStreaks;
+
+/**
+ * Meal Entity <-> DTOs mapper.
+ * Mappings are written by hand: no reflection and no intermediate object, only
+ * the target instance is allocated.
+ */
+@Component
+public class MealMapper {
+    /**
+     * Meal times, in the order of each calendar day's slots.
+     */
+    private static final List<MealTime> CALENDAR_MEAL_TIMES = List.of(MealTime.values());
+
+    /**
+     * Meal contents, in code order: a calendar slot's digit is its content
+     * code.
+     */
+    private static final List<MealContent> CALENDAR_MEAL_CONTENTS = List.of(MealContent.values());
+
+    /**
+     * Maps a Meal entity to its output representation.
+     *
+     * @param meal Meal entity
+     * @return MealOutDTO representation
+     */
+    public MealOutDTO toOutDTO(Meal meal) {
+        return new MealOutDTO(
+                meal.getId(),
+                meal.getUserId(),
+                meal.getMealDate(),
+                meal.getMealTime(),
+                meal.getMealContent());
+    }
+
+    /**
+     * Maps a Meal entity to its id-only representation.
+     *
+     * @param meal Meal entity
+     * @return MealIdDTO representation
+     */
+    public MealIdDTO toIdDTO(Meal meal) {
+        return new MealIdDTO(meal.getId());
+    }
+
+    /**
+     * Maps a user's meal statistics over one period to their output
+     * representation.
+     *
+     * @param mealStats Meal statistics
+     * @return MealStatsDTO representation
+     */
+    public MealStatsDTO toStatsDTO(MealStats mealStats) {
+        return new MealStatsDTO(
+                mealStats.period(),
+                mealStats.total(),
+                mealStats.mealContents(),
+                mealStats.mealTimes());
+    }
+
+    /**
+     * Maps a user's streaks to their output representation.
+     *
+     * @param mealStreaks Meal streaks
+     * @return MealStreaksDTO representation
+     */
+    public MealStreaksDTO toStreaksDTO(MealStreaks mealStreaks) {
+        return new MealStreaksDTO(toStreakDTO(mealStreaks.longest()), toStreakDTO(mealStreaks.latest()));
+    }
+
+    /**
+     * Maps a meal calendar to its dense representation, one digit per slot.
+     *
+     * @param mealCalendar Meal calendar
+     * @return MealCalendarDTO representation
+     */
+    public MealCalendarDTO toCalendarDTO(MealCalendar mealCalendar) {
+        var days = new char[mealCalendar.length() * CALENDAR_MEAL_TIMES.size()];
+        int i = 0;
+        for (int day = 0; day < mealCalendar.length(); day++) {
+            for (var mealTime : CALENDAR_MEAL_TIMES) {
+                var mealContent = mealCalendar.mealContent(day, mealTime);
+                days[i++] = (char) ('0' + (mealContent == null ? 0 : mealContent.getCode()));
+            }
+        }
+        return new MealCalendarDTO(mealCalendar.year(), CALENDAR_MEAL_TIMES, CALENDAR_MEAL_CONTENTS,
+                new String(days));
+    }
+
+    /**
+     * Maps the changes of a user's meals to their output representation.
+     *
+     * @param mealChanges Meal changes
+     * @return MealChangesDTO representation
+     */
+    public MealChangesDTO toChangesDTO(MealChanges mealChanges) {
+        return new MealChangesDTO(
+                mealChanges.upserts().stream().map(this::toOutDTO).toList(),
+                mealChanges.deletedIds(),
+                mealChanges.changeSeq(),
+                mealChanges.more());
+    }
+
+    private static MealStreakDTO toStreakDTO(MealStreak mealStreak) {
+        return mealStreak == null ? null
+                : new MealStreakDTO(mealStreak.start(), mealStreak.end(), mealStreak.days());
+    }
+
+    /**
+     * Maps a Meal input to a new Meal entity.
+     * The id is left unset (it is generated by the DB), and so is the userId (it
+     * is set by the service).
+     *
+     * @param mealInDTO Meal input
+     * @return New Meal entity
+     */
+    public Meal toEntity(MealInDTO mealInDTO) {
+        var meal = new Meal();
+        meal.setMealDate(mealInDTO.getMealDate());
+        meal.setMealTime(mealInDTO.getMealTime());
+        meal.setMealContent(mealInDTO.getMealContent());
+        return meal;
+    }
+
+    /**
+     * Maps a partial Meal input to a Meal entity holding only the provided
+     * values, absent ones being left null.
+     *
+     * @param mealPatchDTO Partial meal input
+     * @return Partial Meal entity
+     */
+    public Meal toEntity(MealPatchDTO mealPatchDTO) {
+        var meal = new Meal();
+        meal.setMealDate(mealPatchDTO.getMealDate());
+        meal.setMealTime(mealPatchDTO.getMealTime());
+        meal.setMealContent(mealPatchDTO.getMealContent());
+        return meal;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.diet_tracker_api.api;
+
+import java.util.Locale;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import com.example.diet_tracker_api.model.MealPeriod;
+
+/**
+ * Converts the groupBy request parameters into MealPeriod values,
+ * ignoring case (groupBy=week and groupBy=WEEK are both accepted).
+ * Invalid values end up as a regular parameter type mismatch (400).
+ */
+@Component
+public class MealPeriodConverter implements Converter<String, MealPeriod> {
+
+    @Override
+    public MealPeriod convert(@NonNull String source) {
+        return MealPeriod.valueOf(source.trim().toUpperCase(Locale.ROOT));
+    }
+}
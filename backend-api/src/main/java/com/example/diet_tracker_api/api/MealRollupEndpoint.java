@@ -0,0 +1,45 @@
+package com.example.diet_tracker_api.api;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import com.example.diet_tracker_api.service.MealRollupRebuildJob;
+import com.example.diet_tracker_api.service.MealRollupReport;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Actuator endpoint (/actuator/mealrollups) checking (GET) or rebuilding
+ * (POST) the meal rollups of all users.
+ */
+@Component
+@Endpoint(id = "mealrollups")
+@RequiredArgsConstructor
+public class MealRollupEndpoint {
+    /**
+     * Meal rollup rebuild job.
+     */
+    private final MealRollupRebuildJob mealRollupRebuildJob;
+
+    /**
+     * Checks the rollups of all users against the meal table.
+     *
+     * @return Report listing the users whose rollups do not match their meals
+     */
+    @ReadOperation
+    public MealRollupReport verify() {
+        return mealRollupRebuildJob.verifyAll();
+    }
+
+    /**
+     * Recomputes the rollups of all users from the meal table.
+     *
+     * @return Report of the rebuild
+     */
+    @WriteOperation
+    public MealRollupReport rebuild() {
+        return mealRollupRebuildJob.rebuildAll();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.diet_tracker_api.api;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.example.diet_tracker_api.service.MealTimelines;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Actuator endpoint (/actuator/mealtimelines) reporting the memory footprint
+ * and build times of the in-memory meal timelines (GET), or dropping them
+ * (DELETE), e.g. once meals are changed behind the application's back.
+ */
+@Component
+@Endpoint(id = "mealtimelines")
+@RequiredArgsConstructor
+public class MealTimelinesEndpoint {
+    /**
+     * In-memory meal timelines.
+     */
+    private final MealTimelines mealTimelines;
+
+    /**
+     * Returns the memory footprint and build times of the timelines.
+     *
+     * @return Current statistics
+     */
+    @ReadOperation
+    public MealTimelines.Statistics statistics() {
+        return mealTimelines.statistics();
+    }
+
+    /**
+     * Drops all timelines: they are built again on their next access.
+     */
+    @DeleteOperation
+    public void invalidateAll() {
+        mealTimelines.invalidateAll();
+    }
+}
@@ -1,69 +1,283 @@
 package com.example.diet_tracker_api.api;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
-import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.diet_tracker_api.dto.MealCalendarDTO;
+import com.example.diet_tracker_api.dto.MealChangesDTO;
 import com.example.diet_tracker_api.dto.MealIdDTO;
 import com.example.diet_tracker_api.dto.MealInDTO;
 import com.example.diet_tracker_api.dto.MealOutDTO;
+import com.example.diet_tracker_api.dto.MealPatchDTO;
+import com.example.diet_tracker_api.dto.MealStatsDTO;
+import com.example.diet_tracker_api.dto.MealStreaksDTO;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.service.MealCursor;
+import com.example.diet_tracker_api.service.MealFilter;
 import com.example.diet_tracker_api.service.MealService;
+import com.example.diet_tracker_api.service.MealStatsService;
+import com.example.diet_tracker_api.service.MealWriteBehindBuffer;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 
 /* Controller in charge of handling all requests coming to /meals.
  */
 
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @RequestMapping(value = "/meals", produces = MediaType.APPLICATION_JSON_VALUE)
 @PreAuthorize("hasAnyAuthority('DIET_APP_USER')")
 public class MealUserController extends AbstractMealController {
+    /**
+     * Meal history exporter.
+     */
+    private final MealExporter mealExporter;
+    /**
+     * Meal statistics service.
+     */
+    private final MealStatsService mealStatsService;
+    /**
+     * Write-behind ingestion of the created meals, null unless enabled.
+     */
+    private final MealWriteBehindBuffer mealWriteBehindBuffer;
+    /**
+     * Meal change streamer.
+     */
+    private final MealChangeStreamer mealChangeStreamer;
+
     /**
      * Constructor for the controller.
      *
-     * @param mealService Meal service
-     * @param modelMapper Meal Entity <-> DTOs mapper.
+     * @param mealService           Meal service
+     * @param mealMapper            Meal Entity <-> DTOs mapper.
+     * @param mealExporter          Meal history exporter
+     * @param mealStatsService      Meal statistics service
+     * @param mealWriteBehindBuffer Write-behind ingestion, if enabled
+     * @param mealChangeStreamer    Meal change streamer
      */
-    public MealUserController(MealService mealService, ModelMapper modelMapper) {
-        super(mealService, modelMapper);
+    public MealUserController(MealService mealService, MealMapper mealMapper, MealExporter mealExporter,
+            MealStatsService mealStatsService, Optional<MealWriteBehindBuffer> mealWriteBehindBuffer,
+            MealChangeStreamer mealChangeStreamer) {
+        super(mealService, mealMapper);
+        this.mealExporter = mealExporter;
+        this.mealStatsService = mealStatsService;
+        this.mealWriteBehindBuffer = mealWriteBehindBuffer.orElse(null);
+        this.mealChangeStreamer = mealChangeStreamer;
     }
 
     /**
-     * Endpoint to get all saved meals for the current user.
+     * Endpoint to get a page of saved meals for the current user.
      *
-     * @param jwt JWT token providing authentication
-     * @return List of MealOutDTO representations for all saved meals.
+     * @param jwt         JWT token providing authentication
+     * @param from        First meal date to include (optional)
+     * @param to          Last meal date to include (optional)
+     * @param mealTime    Meal time to match (optional)
+     * @param mealContent Meal content to match (optional)
+     * @param after       Cursor returned with the previous page (none for the first page)
+     * @param limit       Maximum number of meals to return
+     * @param request     Current request, checked for an up to date If-None-Match
+     * @return List of MealOutDTO representations for the page's meals, or no
+     *         content if the client's copy is up to date.
      */
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "A list of Meal details returned", content = {
-                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = MealOutDTO.class))) }) })
-    @Operation(summary = "Get a list of all meals")
-    public List<MealOutDTO> getUserMeals(@AuthenticationPrincipal Jwt jwt) {
+            @ApiResponse(responseCode = "200", description = "A page of Meal details returned", headers = {
+                    @Header(name = NEXT_CURSOR_HEADER, description = "Cursor of the next page, absent on the last page"),
+                    @Header(name = HttpHeaders.ETAG, description = "Version of the user's meal list") }, content = {
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = MealOutDTO.class))) }),
+            @ApiResponse(responseCode = "304", description = "Meal list unchanged since the If-None-Match ETag", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid filter, cursor or limit", content = @Content) })
+    @Operation(summary = "Get a page of meals, ordered by meal date")
+    public ResponseEntity<List<MealOutDTO>> getUserMeals(@AuthenticationPrincipal Jwt jwt,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "First meal date to include", example = "2020-11-01") LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "Last meal date to include", example = "2020-11-30") LocalDate to,
+            @RequestParam(required = false) @Parameter(description = "Meal time to match") MealTime mealTime,
+            @RequestParam(required = false) @Parameter(description = "Meal content to match") MealContent mealContent,
+            @RequestParam(required = false) @Parameter(description = "Cursor returned with the previous page", schema = @Schema(type = "string")) MealCursor after,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) @Min(1) @Max(MAX_PAGE_SIZE) @Parameter(description = "Maximum number of meals to return") int limit,
+            WebRequest request) {
+        var userId = jwt.getSubject();
+        // Polling clients mostly get a 304 from the version alone, a single primary key read
+        if (request.checkNotModified(getUserMealsETag(userId))) {
+            return null;
+        }
+        var filter = new MealFilter(from, to, mealTime, mealContent);
+        return convertToPageResponse(mealService.getUserMeals(userId, filter, after, limit));
+    }
+
+    /**
+     * Endpoint to get the changes of the current user's meals since their last
+     * sync, for offline clients.
+     *
+     * @param jwt   JWT token providing authentication
+     * @param since Change sequence returned by the last sync (none for a full sync)
+     * @param limit Maximum number of changes to return
+     * @return MealChangesDTO holding the meals upserted and the ids deleted,
+     *         with the change sequence to sync from next time.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Changes returned", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = MealChangesDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid change sequence or limit", content = @Content) })
+    @Operation(summary = "Get the meals created, edited or deleted since a change sequence")
+    public MealChangesDTO getUserMealChanges(@AuthenticationPrincipal Jwt jwt,
+            @RequestParam(required = false) @Min(0) @Parameter(description = "Change sequence returned by the last sync", example = "42") Long since,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) @Min(1) @Max(MAX_PAGE_SIZE) @Parameter(description = "Maximum number of changes to return") int limit) {
+        var userId = jwt.getSubject();
+        return convertToChangesDTO(mealService.getUserMealChanges(userId, since, limit));
+    }
+
+    /**
+     * Endpoint to stream the changes of the current user's meals as they are
+     * committed, for connected clients. The first event tells to sync from
+     * /meals/changes.
+     *
+     * @param jwt JWT token providing authentication
+     * @return Server-Sent Events stream of the meal changes.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Meal changes streamed", content = {
+                    @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE) }),
+            @ApiResponse(responseCode = "503", description = "Too many subscribers, retry after the Retry-After delay", content = @Content) })
+    @Operation(summary = "Stream the meals created, edited or deleted from now on")
+    public SseEmitter streamUserMealChanges(@AuthenticationPrincipal Jwt jwt) {
         var userId = jwt.getSubject();
-        return mealService.getUserMeals(userId).stream().map(this::convertToDTO).collect(Collectors.toList());
+        return mealChangeStreamer.stream(userId, this::convertToDTO, this::convertToIdDTO);
+    }
+
+    /**
+     * Endpoint to export the whole meal history of the current user.
+     *
+     * @param jwt    JWT token providing authentication
+     * @param format Export format
+     * @return Streamed export of all the user's meals.
+     */
+    @GetMapping(value = "/export", produces = { MediaType.APPLICATION_NDJSON_VALUE, "text/csv" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Meal history streamed", content = {
+                    @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = MealOutDTO.class)),
+                    @Content(mediaType = "text/csv") }),
+            @ApiResponse(responseCode = "400", description = "Invalid format", content = @Content) })
+    @Operation(summary = "Export all meals, ordered by meal date")
+    public ResponseEntity<StreamingResponseBody> exportUserMeals(@AuthenticationPrincipal Jwt jwt,
+            @RequestParam(defaultValue = "NDJSON") @Parameter(description = "Export format") MealExportFormat format) {
+        var userId = jwt.getSubject();
+        return mealExporter.export(userId, format, this::convertToDTO);
+    }
+
+    /**
+     * Endpoint to get the current user's meal counts per period.
+     *
+     * @param jwt     JWT token providing authentication
+     * @param from    First meal date to include (optional)
+     * @param to      Last meal date to include (optional)
+     * @param groupBy Period to group the meals by
+     * @return List of MealStatsDTO, one per period containing meals.
+     */
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Meal counts returned", content = {
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = MealStatsDTO.class))) }),
+            @ApiResponse(responseCode = "400", description = "Invalid dates or grouping", content = @Content) })
+    @Operation(summary = "Get meal counts per meal content and meal time, for each period")
+    public List<MealStatsDTO> getUserMealStats(@AuthenticationPrincipal Jwt jwt,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "First meal date to include", example = "2020-11-01") LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "Last meal date to include", example = "2020-11-30") LocalDate to,
+            @RequestParam(defaultValue = "DAY") @Parameter(description = "Period to group the meals by") MealPeriod groupBy) {
+        var userId = jwt.getSubject();
+        return convertToStatsDTOs(mealStatsService.getUserMealStats(userId, from, to, groupBy));
+    }
+
+    /**
+     * Endpoint to get the grid of the current user's meals of a year.
+     *
+     * @param jwt     JWT token providing authentication
+     * @param year    Calendar year
+     * @param request Current request, checked for an up to date If-None-Match
+     * @return MealCalendarDTO holding one digit per meal time of each day, or
+     *         no content if the client's copy is up to date.
+     */
+    @GetMapping(value = "/calendar", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Calendar returned", headers = {
+                    @Header(name = HttpHeaders.ETAG, description = "Fingerprint of the calendar") }, content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = MealCalendarDTO.class)) }),
+            @ApiResponse(responseCode = "304", description = "Calendar unchanged since the If-None-Match ETag", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid year", content = @Content) })
+    @Operation(summary = "Get the meal time & content of each day of a year")
+    public MealCalendarDTO getUserMealCalendar(@AuthenticationPrincipal Jwt jwt,
+            @RequestParam @Min(1) @Max(9999) @Parameter(description = "Calendar year", example = "2020") int year,
+            WebRequest request) {
+        var userId = jwt.getSubject();
+        // Each year is cached by the client, until its content changes
+        var calendar = mealStatsService.getUserMealCalendar(userId, year);
+        if (request.checkNotModified(getCalendarETag(calendar))) {
+            return null;
+        }
+        return convertToCalendarDTO(calendar);
+    }
+
+    /**
+     * Endpoint to get the current user's runs of consecutive days with meals.
+     *
+     * @param jwt  JWT token providing authentication
+     * @param from First meal date to include (optional)
+     * @param to   Last meal date to include (optional)
+     * @return MealStreaksDTO holding the longest and latest runs.
+     */
+    @GetMapping(value = "/streaks", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Streaks returned", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = MealStreaksDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid dates", content = @Content) })
+    @Operation(summary = "Get the longest and latest runs of consecutive days with meals")
+    public MealStreaksDTO getUserMealStreaks(@AuthenticationPrincipal Jwt jwt,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "First meal date to include", example = "2020-01-01") LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "Last meal date to include", example = "2020-12-31") LocalDate to) {
+        var userId = jwt.getSubject();
+        return convertToStreaksDTO(mealStatsService.getUserMealStreaks(userId, from, to));
     }
 
     /**
@@ -71,23 +285,34 @@ public class MealUserController extends AbstractMealController {
      *
      * @param jwt Request JWT token (for authentication)
      * @param id  Meal id in the DB
-     * @return MealOutDTO representation of the matching Meal.
+     * @param request Current request, checked for an up to date If-None-Match
+     * @return MealOutDTO representation of the matching Meal, or no content if
+     *         the client's copy is up to date.
      */
     @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Meal details returned", content = {
+            @ApiResponse(responseCode = "200", description = "Meal details returned", headers = {
+                    @Header(name = HttpHeaders.ETAG, description = "Version of the meal") }, content = {
                     @Content(mediaType = "application/json", schema = @Schema(implementation = MealOutDTO.class)) }),
+            @ApiResponse(responseCode = "304", description = "Meal unchanged since the If-None-Match ETag", content = @Content),
             @ApiResponse(responseCode = "400", description = "Invalid id format", content = @Content),
             @ApiResponse(responseCode = "404", description = "Meal not found", content = @Content) })
     @Operation(summary = "Get the details of a meal")
     public MealOutDTO getUserMealById(@AuthenticationPrincipal Jwt jwt,
-            @PathVariable() @Parameter(name = "id", description = "Meal id", example = "1") Long id) {
+            @PathVariable() @Parameter(name = "id", description = "Meal id", example = "1") Long id,
+            WebRequest request) {
         var userId = jwt.getSubject();
-        return convertToDTO(mealService.getUserMealById(userId, id));
+        var meal = mealService.getUserMealById(userId, id);
+        if (request.checkNotModified(getMealETag(meal))) {
+            return null;
+        }
+        return convertToDTO(meal);
     }
 
     /**
      * Endpoint to post a new meal instance.
+     * With the write-behind ingestion, the meal is only buffered (202): it is
+     * stored shortly afterwards, under the returned id.
      *
      * @param jwt       Request JWT token (for authentication)
      * @param mealInDTO Input to use to create the Meal instance.
@@ -97,12 +322,43 @@ public class MealUserController extends AbstractMealController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Meal created", content = {
                     @Content(mediaType = "application/json", schema = @Schema(implementation = MealIdDTO.class)) }),
-            @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content) })
+            @ApiResponse(responseCode = "202", description = "Meal buffered (write-behind ingestion)", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = MealIdDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Ingestion buffer full, retry after the Retry-After delay",
+                    content = @Content) })
     @Operation(summary = "Create a meal from the provided input")
+    public ResponseEntity<MealIdDTO> createMeal(@AuthenticationPrincipal Jwt jwt,
+            @Valid @RequestBody MealInDTO mealInDTO) {
+        var userId = jwt.getSubject();
+        if (mealWriteBehindBuffer != null) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(convertToIdDTO(mealWriteBehindBuffer.enqueue(userId, convertToEntity(mealInDTO))));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(convertToIdDTO(mealService.createMeal(userId, convertToEntity(mealInDTO))));
+    }
+
+    /**
+     * Endpoint to post several new meal instances at once.
+     *
+     * @param jwt        Request JWT token (for authentication)
+     * @param mealInDTOs Inputs to use to create the Meal instances.
+     * @return Ids of the created Meals, in the input order.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Meals created", content = {
+                    @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = MealIdDTO.class))) }),
+            @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content) })
+    @Operation(summary = "Create meals from the provided inputs, in a single transaction")
     @ResponseStatus(code = HttpStatus.CREATED)
-    public MealIdDTO createMeal(@AuthenticationPrincipal Jwt jwt, @Valid @RequestBody MealInDTO mealInDTO) {
+    public List<MealIdDTO> createMeals(@AuthenticationPrincipal Jwt jwt,
+            @RequestBody @Size(min = 1, max = MAX_BATCH_SIZE) List<@Valid MealInDTO> mealInDTOs) {
         var userId = jwt.getSubject();
-        return convertToIdDTO(mealService.createMeal(userId, convertToEntity(mealInDTO)));
+        return convertToIdDTOs(mealService.createMeals(userId, convertToEntities(mealInDTOs)));
     }
 
     /**
@@ -110,17 +366,20 @@ public class MealUserController extends AbstractMealController {
      *
      * @param jwt Request JWT token (for authentication)
      * @param id
+     * @param ifMatch Optional ETag of the meal version to delete
      */
     @DeleteMapping(value = "/{id}")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Meal deleted"),
-            @ApiResponse(responseCode = "404", description = "Meal not found", content = @Content) })
+            @ApiResponse(responseCode = "404", description = "Meal not found", content = @Content),
+            @ApiResponse(responseCode = "412", description = "Meal changed since the If-Match ETag", content = @Content) })
     @Operation(summary = "Delete a meal")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteMealById(@AuthenticationPrincipal Jwt jwt,
-            @PathVariable() @Parameter(name = "id", description = "Meal id", example = "1") Long id) {
+            @PathVariable() @Parameter(name = "id", description = "Meal id", example = "1") Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the meal version to delete") String ifMatch) {
         var userId = jwt.getSubject();
-        mealService.deleteMealById(userId, id);
+        mealService.deleteMealById(userId, id, parseMealETag(ifMatch));
     }
 
     /**
@@ -128,22 +387,59 @@ public class MealUserController extends AbstractMealController {
      *
      * @param jwt       Request JWT token (for authentication)
      * @param mealId    Meal id in the DB
+     * @param ifMatch   Optional ETag of the meal version to edit
      * @param mealInDTO MealInDTO object containing the wanted new information.
-     * @return MealOutDTO representation of the edited instance.
-     *
+     * @return MealIdDTO representation of the edited instance, with its new
+     *         version as ETag.
      */
     @PutMapping(value = "/{mealId}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "201", description = "Meal edited", content = {
+            @ApiResponse(responseCode = "201", description = "Meal edited", headers = {
+                    @Header(name = HttpHeaders.ETAG, description = "New version of the meal") }, content = {
                     @Content(mediaType = "application/json", schema = @Schema(implementation = MealIdDTO.class)) }),
-            @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content) })
+            @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Meal not found", content = @Content),
+            @ApiResponse(responseCode = "412", description = "Meal changed since the If-Match ETag", content = @Content) })
     @Operation(summary = "Edit the details of a meal")
-    @ResponseStatus(HttpStatus.CREATED)
-    public MealIdDTO editMealById(@AuthenticationPrincipal Jwt jwt,
+    public ResponseEntity<MealIdDTO> editMealById(@AuthenticationPrincipal Jwt jwt,
             @PathVariable() @Parameter(name = "mealId", description = "Meal id", example = "1") Long mealId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the meal version to edit") String ifMatch,
             @Valid @RequestBody MealInDTO mealInDTO) {
         var userId = jwt.getSubject();
-        return convertToIdDTO(mealService.editMealById(userId, mealId, convertToEntity(mealInDTO)));
+        var meal = convertToEntity(mealInDTO);
+        meal.setVersion(parseMealETag(ifMatch));
+        var editedMeal = mealService.editMealById(userId, mealId, meal);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(getMealETag(editedMeal)).body(convertToIdDTO(editedMeal));
+    }
 
+    /**
+     * Endpoint to partially edit a specific meal by id: only the provided
+     * fields are changed.
+     *
+     * @param jwt          Request JWT token (for authentication)
+     * @param mealId       Meal id in the DB
+     * @param ifMatch      Optional ETag of the meal version to edit
+     * @param mealPatchDTO MealPatchDTO object containing the fields to change.
+     * @return MealOutDTO representation of the edited instance, with its new
+     *         version as ETag.
+     */
+    @PatchMapping(value = "/{mealId}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Meal edited", headers = {
+                    @Header(name = HttpHeaders.ETAG, description = "New version of the meal") }, content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = MealOutDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Meal not found", content = @Content),
+            @ApiResponse(responseCode = "412", description = "Meal changed since the If-Match ETag", content = @Content) })
+    @Operation(summary = "Edit some of the details of a meal")
+    public ResponseEntity<MealOutDTO> patchMealById(@AuthenticationPrincipal Jwt jwt,
+            @PathVariable() @Parameter(name = "mealId", description = "Meal id", example = "1") Long mealId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the meal version to edit") String ifMatch,
+            @RequestBody MealPatchDTO mealPatchDTO) {
+        var userId = jwt.getSubject();
+        var patch = convertToEntity(mealPatchDTO);
+        patch.setVersion(parseMealETag(ifMatch));
+        var editedMeal = mealService.patchMealById(userId, mealId, patch);
+        return ResponseEntity.ok().eTag(getMealETag(editedMeal)).body(convertToDTO(editedMeal));
     }
 }
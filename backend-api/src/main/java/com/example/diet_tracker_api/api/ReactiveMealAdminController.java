@@ -0,0 +1,323 @@
+package com.example.diet_tracker_api.api;
+
+import static com.example.diet_tracker_api.api.AbstractMealController.DEFAULT_PAGE_SIZE;
+import static com.example.diet_tracker_api.api.AbstractMealController.MAX_BATCH_SIZE;
+import static com.example.diet_tracker_api.api.AbstractMealController.MAX_PAGE_SIZE;
+import static com.example.diet_tracker_api.api.AbstractMealController.NEXT_CURSOR_HEADER;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.diet_tracker_api.dto.MealIdDTO;
+import com.example.diet_tracker_api.dto.MealInDTO;
+import com.example.diet_tracker_api.dto.MealOutDTO;
+import com.example.diet_tracker_api.dto.MealPatchDTO;
+import com.example.diet_tracker_api.dto.MealStatsDTO;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.service.MealCursor;
+import com.example.diet_tracker_api.service.MealFilter;
+import com.example.diet_tracker_api.service.ReactiveMealService;
+import com.example.diet_tracker_api.service.ReactiveMealStatsService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of MealAdminController (reactive profile): same
+ * endpoints, served without blocking any thread.
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequestMapping(value = "/admin/meals", produces = MediaType.APPLICATION_JSON_VALUE)
+@PreAuthorize("hasAnyAuthority('DIET_APP_ADMIN')")
+public class ReactiveMealAdminController extends AbstractReactiveMealController {
+    /**
+     * Meal history exporter.
+     */
+    private final ReactiveMealExporter mealExporter;
+    /**
+     * Meal statistics service.
+     */
+    private final ReactiveMealStatsService mealStatsService;
+
+    /**
+     * Constructor for the controller.
+     *
+     * @param mealService      Meal service
+     * @param mealMapper       Meal Entity <-> DTOs mapper.
+     * @param mealExporter     Meal history exporter
+     * @param mealStatsService Meal statistics service
+     */
+    public ReactiveMealAdminController(ReactiveMealService mealService, MealMapper mealMapper,
+            ReactiveMealExporter mealExporter, ReactiveMealStatsService mealStatsService) {
+        super(mealService, mealMapper);
+        this.mealExporter = mealExporter;
+        this.mealStatsService = mealStatsService;
+    }
+
+    /**
+     * Endpoint to get a page of saved meals for a given user.
+     *
+     * @param userId      Id of the user whose content is being managed by the admin
+     * @param from        First meal date to include (optional)
+     * @param to          Last meal date to include (optional)
+     * @param mealTime    Meal time to match (optional)
+     * @param mealContent Meal content to match (optional)
+     * @param after       Cursor returned with the previous page (none for the first page)
+     * @param limit       Maximum number of meals to return
+     * @param exchange    Current exchange, checked for an up to date If-None-Match
+     * @return List of MealOutDTO representations for the page's meals, or no
+     *         content if the client's copy is up to date.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "A page of Meal details returned", headers = {
+                    @Header(name = NEXT_CURSOR_HEADER, description = "Cursor of the next page, absent on the last page"),
+                    @Header(name = HttpHeaders.ETAG, description = "Version of the user's meal list") }, content = {
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = MealOutDTO.class))) }),
+            @ApiResponse(responseCode = "304", description = "Meal list unchanged since the If-None-Match ETag", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid filter, cursor or limit", content = @Content) })
+    @Operation(summary = "Get a page of meals, ordered by meal date")
+    public Mono<ResponseEntity<List<MealOutDTO>>> getUserMeals(@RequestParam String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "First meal date to include", example = "2020-11-01") LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "Last meal date to include", example = "2020-11-30") LocalDate to,
+            @RequestParam(required = false) @Parameter(description = "Meal time to match") MealTime mealTime,
+            @RequestParam(required = false) @Parameter(description = "Meal content to match") MealContent mealContent,
+            @RequestParam(required = false) @Parameter(description = "Cursor returned with the previous page", schema = @Schema(type = "string")) MealCursor after,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) @Min(1) @Max(MAX_PAGE_SIZE) @Parameter(description = "Maximum number of meals to return") int limit,
+            ServerWebExchange exchange) {
+        // Polling clients mostly get a 304 from the version alone, a single primary key read
+        return getUserMealsETag(userId).flatMap(eTag -> {
+            if (exchange.checkNotModified(eTag)) {
+                return Mono.empty();
+            }
+            var filter = new MealFilter(from, to, mealTime, mealContent);
+            return mealService.getUserMeals(userId, filter, after, limit).map(this::convertToPageResponse);
+        });
+    }
+
+    /**
+     * Endpoint to export the whole meal history of a given user.
+     *
+     * @param userId Id of the user whose content is being managed by the admin
+     * @param format Export format
+     * @return Streamed export of all the user's meals.
+     */
+    @GetMapping(value = "/export", produces = { MediaType.APPLICATION_NDJSON_VALUE, "text/csv" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Meal history streamed", content = {
+                    @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = MealOutDTO.class)),
+                    @Content(mediaType = "text/csv") }),
+            @ApiResponse(responseCode = "400", description = "Invalid format", content = @Content) })
+    @Operation(summary = "Export all meals, ordered by meal date")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> exportUserMeals(@RequestParam String userId,
+            @RequestParam(defaultValue = "NDJSON") @Parameter(description = "Export format") MealExportFormat format) {
+        return mealExporter.export(userId, format, this::convertToDTO);
+    }
+
+    /**
+     * Endpoint to get a given user's meal counts per period.
+     *
+     * @param userId  Id of the user whose content is being managed by the admin
+     * @param from    First meal date to include (optional)
+     * @param to      Last meal date to include (optional)
+     * @param groupBy Period to group the meals by
+     * @return List of MealStatsDTO, one per period containing meals.
+     */
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Meal counts returned", content = {
+                    @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = MealStatsDTO.class))) }),
+            @ApiResponse(responseCode = "400", description = "Invalid dates or grouping", content = @Content) })
+    @Operation(summary = "Get a user's meal counts per meal content and meal time, for each period")
+    public Mono<List<MealStatsDTO>> getUserMealStats(@RequestParam String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "First meal date to include", example = "2020-11-01") LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Parameter(description = "Last meal date to include", example = "2020-11-30") LocalDate to,
+            @RequestParam(defaultValue = "DAY") @Parameter(description = "Period to group the meals by") MealPeriod groupBy) {
+        return mealStatsService.getUserMealStats(userId, from, to, groupBy).map(this::convertToStatsDTOs);
+    }
+
+    /**
+     * Endpoint to get details about a user's specific meal by id.
+     *
+     * @param userId Id of the user whose content is being managed by the admin
+     * @param mealId Meal id in the DB
+     * @param exchange Current exchange, checked for an up to date If-None-Match
+     * @return MealOutDTO representation of the matching Meal, or no content if
+     *         the client's copy is up to date.
+     */
+    @GetMapping(value = "/{mealId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Meal details returned", headers = {
+                    @Header(name = HttpHeaders.ETAG, description = "Version of the meal") }, content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = MealOutDTO.class)) }),
+            @ApiResponse(responseCode = "304", description = "Meal unchanged since the If-None-Match ETag", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid id format", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Meal not found", content = @Content) })
+    @Operation(summary = "Get the details of a meal")
+    public Mono<MealOutDTO> getUserMealById(@RequestParam String userId,
+            @PathVariable() @Parameter(name = "mealId", description = "Meal id", example = "1") Long mealId,
+            ServerWebExchange exchange) {
+        return mealService.getUserMealById(userId, mealId)
+                .flatMap(meal -> exchange.checkNotModified(getMealETag(meal))
+                        ? Mono.empty()
+                        : Mono.just(convertToDTO(meal)));
+    }
+
+    /**
+     * Endpoint to post a new meal instance for a given user.
+     *
+     * @param userId    Id of the user whose content is being managed by the admin
+     * @param mealInDTO Input to use to create the Meal instance.
+     * @return MealOutDTO representation of the created Meal.
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Meal created", content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = MealIdDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content) })
+    @Operation(summary = "Create a meal from the provided input")
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public Mono<MealIdDTO> createMeal(@RequestParam String userId, @Valid @RequestBody MealInDTO mealInDTO) {
+        return mealService.createMeal(userId, convertToEntity(mealInDTO)).map(this::convertToIdDTO);
+    }
+
+    /**
+     * Endpoint to post several new meal instances at once for a given user.
+     *
+     * @param userId     Id of the user whose content is being managed by the admin
+     * @param mealInDTOs Inputs to use to create the Meal instances.
+     * @return Ids of the created Meals, in the input order.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Meals created", content = {
+                    @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = MealIdDTO.class))) }),
+            @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content) })
+    @Operation(summary = "Create meals from the provided inputs, in a single transaction")
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public Mono<List<MealIdDTO>> createMeals(@RequestParam String userId,
+            @RequestBody @Size(min = 1, max = MAX_BATCH_SIZE) List<@Valid MealInDTO> mealInDTOs) {
+        return mealService.createMeals(userId, convertToEntities(mealInDTOs)).map(this::convertToIdDTOs);
+    }
+
+    /**
+     * Endpoint to delete a given user's specific meal by id.
+     *
+     * @param userId Id of the user whose content is being managed by the admin
+     * @param mealId
+     * @param ifMatch Optional ETag of the meal version to delete
+     */
+    @DeleteMapping(value = "/{mealId}")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Meal deleted"),
+            @ApiResponse(responseCode = "404", description = "Meal not found", content = @Content),
+            @ApiResponse(responseCode = "412", description = "Meal changed since the If-Match ETag", content = @Content) })
+    @Operation(summary = "Delete a meal")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteMealById(@RequestParam String userId,
+            @PathVariable() @Parameter(name = "mealId", description = "Meal id", example = "1") Long mealId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the meal version to delete") String ifMatch) {
+        return mealService.deleteMealById(userId, mealId, parseMealETag(ifMatch));
+    }
+
+    /**
+     * Endpoint to edit a specific meal by id.
+     *
+     * @param userId    Id of the user whose content is being managed by the admin
+     * @param mealId    Meal id in the DB
+     * @param ifMatch   Optional ETag of the meal version to edit
+     * @param mealInDTO MealInDTO object containing the wanted new information.
+     * @return MealIdDTO representation of the edited instance, with its new
+     *         version as ETag.
+     */
+    @PutMapping(value = "/{mealId}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Meal edited", headers = {
+                    @Header(name = HttpHeaders.ETAG, description = "New version of the meal") }, content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = MealIdDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Meal not found", content = @Content),
+            @ApiResponse(responseCode = "412", description = "Meal changed since the If-Match ETag", content = @Content) })
+    @Operation(summary = "Edit the details of a meal")
+    public Mono<ResponseEntity<MealIdDTO>> editMealById(@RequestParam String userId,
+            @PathVariable() @Parameter(name = "mealId", description = "Meal id", example = "1") Long mealId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the meal version to edit") String ifMatch,
+            @Valid @RequestBody MealInDTO mealInDTO) {
+        var meal = convertToEntity(mealInDTO);
+        meal.setVersion(parseMealETag(ifMatch));
+        return mealService.editMealById(userId, mealId, meal)
+                .map(editedMeal -> ResponseEntity.status(HttpStatus.CREATED)
+                        .eTag(getMealETag(editedMeal))
+                        .body(convertToIdDTO(editedMeal)));
+    }
+
+    /**
+     * Endpoint to partially edit a specific meal by id: only the provided
+     * fields are changed.
+     *
+     * @param userId       Id of the user whose content is being managed by the admin
+     * @param mealId       Meal id in the DB
+     * @param ifMatch      Optional ETag of the meal version to edit
+     * @param mealPatchDTO MealPatchDTO object containing the fields to change.
+     * @return MealOutDTO representation of the edited instance, with its new
+     *         version as ETag.
+     */
+    @PatchMapping(value = "/{mealId}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Meal edited", headers = {
+                    @Header(name = HttpHeaders.ETAG, description = "New version of the meal") }, content = {
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = MealOutDTO.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid request", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Meal not found", content = @Content),
+            @ApiResponse(responseCode = "412", description = "Meal changed since the If-Match ETag", content = @Content) })
+    @Operation(summary = "Edit some of the details of a meal")
+    public Mono<ResponseEntity<MealOutDTO>> patchMealById(@RequestParam String userId,
+            @PathVariable() @Parameter(name = "mealId", description = "Meal id", example = "1") Long mealId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the meal version to edit") String ifMatch,
+            @RequestBody MealPatchDTO mealPatchDTO) {
+        var patch = convertToEntity(mealPatchDTO);
+        patch.setVersion(parseMealETag(ifMatch));
+        return mealService.patchMealById(userId, mealId, patch)
+                .map(editedMeal -> ResponseEntity.ok().eTag(getMealETag(editedMeal)).body(convertToDTO(editedMeal)));
+    }
+}
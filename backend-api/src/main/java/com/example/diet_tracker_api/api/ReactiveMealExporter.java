@@ -0,0 +1,89 @@
+package com.example.diet_tracker_api.api;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.example.diet_tracker_api.dto.MealOutDTO;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.service.ReactiveMealService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of MealExporter: the meal history is streamed as
+ * buffers of lines, each written to the response as soon as its meals are
+ * read, with the same content.
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveMealExporter {
+    /**
+     * Number of meals (lines) written to the response in one buffer.
+     */
+    static final int LINES_PER_BUFFER = 100;
+
+    /**
+     * Reactive meal service.
+     */
+    private final ReactiveMealService mealService;
+
+    /**
+     * JSON mapper, configured as the one used for the regular responses.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Builds the streaming response exporting all the user's meals.
+     *
+     * @param userId Id of the user whose meals are exported
+     * @param format Export format
+     * @param mapper Meal Entity -> MealOutDTO mapper
+     * @return Response whose body is written as the meals are read
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> export(String userId, MealExportFormat format,
+            Function<Meal, MealOutDTO> mapper) {
+        var meals = mealService.exportUserMeals(userId).map(mapper);
+        Flux<String> lines = switch (format) {
+            case NDJSON -> meals.handle((meal, sink) -> {
+                try {
+                    sink.next(objectMapper.writeValueAsString(meal) + '\n');
+                } catch (JsonProcessingException e) {
+                    sink.error(e);
+                }
+            });
+            case CSV -> meals.map(ReactiveMealExporter::toCsvLine).startWith(MealExporter.CSV_HEADER + '\n');
+        };
+        var contentDisposition = ContentDisposition.attachment()
+                .filename("meals." + format.getFileExtension())
+                .build();
+        return Mono.just(ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition.toString())
+                .body(lines.buffer(LINES_PER_BUFFER).map(ReactiveMealExporter::toDataBuffer)));
+    }
+
+    private static String toCsvLine(MealOutDTO meal) {
+        var writer = new StringWriter();
+        MealExporter.writeCsvLine(writer, meal);
+        return writer.toString();
+    }
+
+    private static DataBuffer toDataBuffer(Iterable<String> lines) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(String.join("", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.diet_tracker_api.dto;
+
+import java.util.List;
+
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO used when describing a year-long grid of a user's meals, as a dense
+ * string rather than a list of meals.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MealCalendarDTO {
+    /**
+     * Calendar year.
+     */
+    @Schema(description = "Calendar year", example = "2020")
+    private int year;
+
+    /**
+     * Meal times, in the order of each day's slots.
+     */
+    @Schema(description = "Meal times, in the order of each day's slots")
+    private List<MealTime> mealTimes;
+
+    /**
+     * Meal contents, digit n standing for the n-th one.
+     */
+    @Schema(description = "Meal contents, slot digit n standing for the n-th one")
+    private List<MealContent> mealContents;
+
+    /**
+     * One digit per meal time of each day of the year.
+     */
+    @Schema(description = "One digit per meal time of each day of the year, from January 1st: 0 for no meal, "
+            + "n for the n-th meal content (the most meaty one if several)", example = "070000100...")
+    private String days;
+}
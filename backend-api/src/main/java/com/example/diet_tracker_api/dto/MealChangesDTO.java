@@ -0,0 +1,43 @@
+package com.example.diet_tracker_api.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO used when describing the changes of a user's meals since their last
+ * sync.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MealChangesDTO {
+    /**
+     * Meals created or edited since the last sync.
+     */
+    @Schema(description = "Meals created or edited since the last sync, in their current state")
+    private List<MealOutDTO> upserts;
+
+    /**
+     * Ids of the meals deleted since the last sync.
+     */
+    @Schema(description = "Ids of the meals deleted since the last sync")
+    private List<Long> deletedIds;
+
+    /**
+     * Change sequence to sync from next time.
+     */
+    @Schema(description = "Change sequence to pass as since on the next sync", example = "42")
+    private long changeSeq;
+
+    /**
+     * Whether more changes are waiting.
+     */
+    @Schema(description = "Whether more changes follow, to be fetched right away from changeSeq")
+    private boolean more;
+}
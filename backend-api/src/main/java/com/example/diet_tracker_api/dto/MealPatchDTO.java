@@ -0,0 +1,41 @@
+package com.example.diet_tracker_api.dto;
+
+import java.time.LocalDate;
+
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO used when receiving a partial update of a Meal instance.
+ * Absent (null) fields are left unchanged.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MealPatchDTO {
+
+    /**
+     * Meal date.
+     */
+    @Schema(description = "Meal Date in Local Timezone, unchanged if absent", example = "2020-11-29")
+    private LocalDate mealDate;
+
+    /**
+     * Meal time (lunch, etc.).
+     */
+    @Schema(description = "Meal Time, unchanged if absent", example = "LUNCH")
+    private MealTime mealTime;
+
+    /**
+     * Meal content (beef, etc.).
+     */
+    @Schema(description = "Meal Content, unchanged if absent", example = "VEGETARIAN")
+    private MealContent mealContent;
+}
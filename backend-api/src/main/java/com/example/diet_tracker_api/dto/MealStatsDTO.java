@@ -0,0 +1,46 @@
+package com.example.diet_tracker_api.dto;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO used when describing a user's meal counts over one period.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MealStatsDTO {
+    /**
+     * First day of the period.
+     */
+    @Schema(description = "First day of the period", example = "2020-11-23")
+    private LocalDate period;
+
+    /**
+     * Number of meals over the period.
+     */
+    @Schema(description = "Number of meals over the period", example = "14")
+    private long total;
+
+    /**
+     * Number of meals per meal content.
+     */
+    @Schema(description = "Number of meals per meal content", example = "{\"VEGAN\": 4, \"VEGETARIAN\": 6, \"FISH\": 2, \"CHICKEN\": 2, \"PORK\": 0, \"LAMB\": 0, \"BEEF\": 0}")
+    private Map<MealContent, Long> mealContents;
+
+    /**
+     * Number of meals per meal time.
+     */
+    @Schema(description = "Number of meals per meal time", example = "{\"BREAKFAST\": 0, \"LUNCH\": 7, \"DINNER\": 7}")
+    private Map<MealTime, Long> mealTimes;
+}
@@ -0,0 +1,36 @@
+package com.example.diet_tracker_api.dto;
+
+import java.time.LocalDate;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO used when describing a run of consecutive days with meals.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MealStreakDTO {
+    /**
+     * First day of the run.
+     */
+    @Schema(description = "First day of the run", example = "2020-11-02")
+    private LocalDate start;
+
+    /**
+     * Last day of the run.
+     */
+    @Schema(description = "Last day of the run", example = "2020-11-15")
+    private LocalDate end;
+
+    /**
+     * Number of days of the run.
+     */
+    @Schema(description = "Number of days of the run", example = "14")
+    private long days;
+}
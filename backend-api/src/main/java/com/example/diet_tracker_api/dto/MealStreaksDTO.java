@@ -0,0 +1,28 @@
+package com.example.diet_tracker_api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO used when describing a user's runs of consecutive days with meals.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MealStreaksDTO {
+    /**
+     * Longest run, null if no meal was logged.
+     */
+    @Schema(description = "Longest run of consecutive days with meals (the earliest one if several), null if none")
+    private MealStreakDTO longest;
+
+    /**
+     * Latest run, null if no meal was logged.
+     */
+    @Schema(description = "Latest run of consecutive days with meals, null if none")
+    private MealStreakDTO latest;
+}
@@ -3,52 +3,87 @@ package com.example.diet_tracker_api.exception;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.modelmapper.MappingException;
 import org.springframework.beans.TypeMismatchException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.lang.NonNull;
+import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
+import org.springframework.validation.method.ParameterErrors;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 
 @ControllerAdvice
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
     /**
-     * Handler for all the exceptions raised by the Model Mapper instance.
+     * Handler for all NOT_FOUND-related exceptions.
      *
      * @param exception RuntimeException raised
      * @return ResponseEntity with the exception msg
      */
-    @ExceptionHandler(value = { MappingException.class })
-    public ResponseEntity<Object> handleMappingExceptionExceptions(RuntimeException exception) {
-        return new ResponseEntity<>(exception.getMessage(), HttpStatus.BAD_REQUEST);
+    @ExceptionHandler(value = { MealNotFoundException.class })
+    @ResponseStatus(code = HttpStatus.NOT_FOUND)
+    @ResponseBody
+    public String handleItemNotFoundExceptions(RuntimeException exception) {
+        return exception.getMessage();
     }
 
     /**
-     * Handler for all NOT_FOUND-related exceptions.
+     * Handler for all PRECONDITION_FAILED-related exceptions.
      *
      * @param exception RuntimeException raised
      * @return ResponseEntity with the exception msg
      */
-    @ExceptionHandler(value = { MealNotFoundException.class })
-    @ResponseStatus(code = HttpStatus.NOT_FOUND)
+    @ExceptionHandler(value = { MealVersionMismatchException.class })
+    @ResponseStatus(code = HttpStatus.PRECONDITION_FAILED)
     @ResponseBody
-    public String handleItemNotFoundExceptions(RuntimeException exception) {
+    public String handleVersionMismatchExceptions(RuntimeException exception) {
         return exception.getMessage();
     }
 
+    /**
+     * Handler for the rejections of the write-behind ingestion, telling the
+     * client when to retry.
+     *
+     * @param exception MealIngestionBufferFullException raised
+     * @return ResponseEntity with the exception msg
+     */
+    @ExceptionHandler(value = { MealIngestionBufferFullException.class })
+    public ResponseEntity<String> handleIngestionBufferFullExceptions(MealIngestionBufferFullException exception) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(exception.getMessage());
+    }
+
+    /**
+     * Handler for the rejections of the meal change feed subscribers, telling
+     * the client when to retry.
+     *
+     * @param exception MealChangeFeedFullException raised
+     * @return ResponseEntity with the exception msg
+     */
+    @ExceptionHandler(value = { MealChangeFeedFullException.class })
+    public ResponseEntity<String> handleChangeFeedFullExceptions(MealChangeFeedFullException exception) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(exception.getMessage());
+    }
+
     /**
      * Custom handling of errors related to an invalid request body value.
      * /!\ If multiple invalid values are found, the InvalidFormatException is
@@ -61,7 +96,16 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
             @NonNull HttpStatusCode status,
             @NonNull WebRequest request) {
 
-        Throwable cause = ex.getCause();
+        return new ResponseEntity<>(messageNotReadableErrors(ex.getCause()), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Builds the errors of an unreadable request body.
+     *
+     * @param cause Cause of the read failure
+     * @return Error message of the invalid field, or a generic one
+     */
+    static Map<String, String> messageNotReadableErrors(Throwable cause) {
         Map<String, String> errors = new HashMap<>();
 
         if (cause instanceof InvalidFormatException) {
@@ -73,8 +117,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         } else {
             errors.put("error", "Malformed JSON request");
         }
-
-        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+        return errors;
     }
 
     /**
@@ -84,14 +127,23 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     protected ResponseEntity<Object> handleMethodArgumentNotValid(@NonNull MethodArgumentNotValidException ex,
             @NonNull HttpHeaders headers, @NonNull HttpStatusCode status, @NonNull WebRequest request) {
 
+        return new ResponseEntity<>(fieldErrors(ex.getBindingResult()), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Builds the errors of an invalid request body.
+     *
+     * @param bindingResult Validation result of the body
+     * @return Error message of each invalid field
+     */
+    static Map<String, String> fieldErrors(BindingResult bindingResult) {
         Map<String, String> errors = new HashMap<>();
-        ex.getBindingResult().getAllErrors().forEach(error -> {
+        bindingResult.getAllErrors().forEach(error -> {
             String fieldName = ((FieldError) error).getField();
             String errorMessage = error.getDefaultMessage();
             errors.put(fieldName, errorMessage);
         });
-
-        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+        return errors;
     }
 
     /**
@@ -104,11 +156,57 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
             @NonNull HttpStatusCode status,
             @NonNull WebRequest request) {
 
+        return new ResponseEntity<>(typeMismatchErrors(ex.getPropertyName(), ex.getValue()), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Builds the errors of a request parameter value which cannot be converted.
+     *
+     * @param parameterName Name of the parameter
+     * @param value         Invalid value
+     * @return Error message of the parameter
+     */
+    static Map<String, String> typeMismatchErrors(String parameterName, Object value) {
         Map<String, String> errors = new HashMap<>();
-        String fieldName = ex.getPropertyName();
-        String errorMessage = "Invalid value for parameter '" + fieldName + "': " + ex.getValue();
-        errors.put(fieldName, errorMessage);
+        String errorMessage = "Invalid value for parameter '" + parameterName + "': " + value;
+        errors.put(parameterName, errorMessage);
+        return errors;
+    }
 
-        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    /**
+     * Custom handling of errors related to a constraint violation on a request
+     * parameter (e.g. an out-of-range page size) or on an element of a request
+     * body list (reported as "param[index].field").
+     */
+    @Override
+    protected ResponseEntity<Object> handleHandlerMethodValidationException(
+            @NonNull HandlerMethodValidationException ex,
+            @NonNull HttpHeaders headers,
+            @NonNull HttpStatusCode status,
+            @NonNull WebRequest request) {
+
+        return new ResponseEntity<>(parameterValidationErrors(ex), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Builds the errors of constraint violations on request parameters.
+     *
+     * @param ex Method validation exception
+     * @return Error message of each invalid parameter or list element field
+     */
+    static Map<String, String> parameterValidationErrors(HandlerMethodValidationException ex) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getParameterValidationResults().forEach(result -> {
+            String parameterName = result.getMethodParameter().getParameterName();
+            if (result instanceof ParameterErrors parameterErrors && parameterErrors.getContainerIndex() != null) {
+                String elementName = parameterName + "[" + parameterErrors.getContainerIndex() + "].";
+                parameterErrors.getFieldErrors()
+                        .forEach(error -> errors.put(elementName + error.getField(), error.getDefaultMessage()));
+            } else {
+                result.getResolvableErrors()
+                        .forEach(error -> errors.put(parameterName, error.getDefaultMessage()));
+            }
+        });
+        return errors;
     }
 }
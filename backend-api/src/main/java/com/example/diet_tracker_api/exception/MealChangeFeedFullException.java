@@ -0,0 +1,29 @@
+package com.example.diet_tracker_api.exception;
+
+import lombok.Getter;
+
+/**
+ * Exception raised when a client cannot subscribe to the meal change feed, as
+ * it holds its maximum number of subscribers (or is stopped): the client
+ * should retry later.
+ */
+@Getter
+public class MealChangeFeedFullException extends RuntimeException {
+    /**
+     * Number of seconds after which the client may retry.
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructor method used when raising the exception.
+     *
+     * @param userId            User Id
+     * @param retryAfterSeconds Number of seconds after which the client may
+     *                          retry
+     */
+    public MealChangeFeedFullException(String userId, long retryAfterSeconds) {
+        super(String.format("Meal change feed is full, subscriber of userId=%s rejected", userId));
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+}
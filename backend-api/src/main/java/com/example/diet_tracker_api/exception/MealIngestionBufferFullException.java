@@ -0,0 +1,28 @@
+package com.example.diet_tracker_api.exception;
+
+import lombok.Getter;
+
+/**
+ * Exception raised when a Meal cannot be buffered by the write-behind
+ * ingestion, its buffer being full (or closed): the client should retry later.
+ */
+@Getter
+public class MealIngestionBufferFullException extends RuntimeException {
+    /**
+     * Number of seconds after which the client may retry.
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructor method used when raising the exception.
+     *
+     * @param userId            User Id
+     * @param retryAfterSeconds Number of seconds after which the client may
+     *                          retry
+     */
+    public MealIngestionBufferFullException(String userId, long retryAfterSeconds) {
+        super(String.format("Meal ingestion buffer is full, meal of userId=%s rejected", userId));
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+}
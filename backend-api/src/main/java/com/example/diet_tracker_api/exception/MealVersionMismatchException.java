@@ -0,0 +1,18 @@
+package com.example.diet_tracker_api.exception;
+
+/**
+ * Exception raised when a Meal is edited or deleted based on a version which
+ * is no longer its current one, i.e. the Meal was changed in the meantime.
+ */
+public class MealVersionMismatchException extends RuntimeException {
+    /**
+     * Constructor method used when raising the exception.
+     *
+     * @param userId User Id
+     * @param id     Meal id
+     */
+    public MealVersionMismatchException(String userId, Long id) {
+        super(String.format("Meal with id=%d for userId=%s was modified meanwhile", id, userId));
+    }
+
+}
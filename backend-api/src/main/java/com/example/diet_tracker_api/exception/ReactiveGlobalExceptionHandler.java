@@ -0,0 +1,110 @@
+package com.example.diet_tracker_api.exception;
+
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
+import org.springframework.web.reactive.result.method.annotation.ResponseEntityExceptionHandler;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of GlobalExceptionHandler (reactive profile), answering
+ * with the same error bodies.
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveGlobalExceptionHandler extends ResponseEntityExceptionHandler {
+
+    /**
+     * Handler for all NOT_FOUND-related exceptions.
+     *
+     * @param exception RuntimeException raised
+     * @return ResponseEntity with the exception msg
+     */
+    @ExceptionHandler(value = { MealNotFoundException.class })
+    @ResponseStatus(code = HttpStatus.NOT_FOUND)
+    @ResponseBody
+    public String handleItemNotFoundExceptions(RuntimeException exception) {
+        return exception.getMessage();
+    }
+
+    /**
+     * Handler for all PRECONDITION_FAILED-related exceptions.
+     *
+     * @param exception RuntimeException raised
+     * @return ResponseEntity with the exception msg
+     */
+    @ExceptionHandler(value = { MealVersionMismatchException.class })
+    @ResponseStatus(code = HttpStatus.PRECONDITION_FAILED)
+    @ResponseBody
+    public String handleVersionMismatchExceptions(RuntimeException exception) {
+        return exception.getMessage();
+    }
+
+    /**
+     * Custom handling of errors related to an invalid request body value or an
+     * invalid (path) parameter value: WebFlux reports both as a
+     * ServerWebInputException, told apart by its cause.
+     */
+    @Override
+    protected Mono<ResponseEntity<Object>> handleServerWebInputException(
+            @NonNull ServerWebInputException ex,
+            @NonNull HttpHeaders headers,
+            @NonNull HttpStatusCode status,
+            @NonNull ServerWebExchange exchange) {
+
+        if (ex.getCause() instanceof TypeMismatchException typeMismatchException && ex.getMethodParameter() != null) {
+            return Mono.just(new ResponseEntity<>(GlobalExceptionHandler.typeMismatchErrors(
+                    ex.getMethodParameter().getParameterName(), typeMismatchException.getValue()),
+                    HttpStatus.BAD_REQUEST));
+        }
+        if (ex.getCause() instanceof DecodingException decodingException) {
+            return Mono.just(new ResponseEntity<>(
+                    GlobalExceptionHandler.messageNotReadableErrors(decodingException.getCause()),
+                    HttpStatus.BAD_REQUEST));
+        }
+        return super.handleServerWebInputException(ex, headers, status, exchange);
+    }
+
+    /**
+     * Custom handling of errors related to missing fields.
+     */
+    @Override
+    protected Mono<ResponseEntity<Object>> handleWebExchangeBindException(
+            @NonNull WebExchangeBindException ex,
+            @NonNull HttpHeaders headers,
+            @NonNull HttpStatusCode status,
+            @NonNull ServerWebExchange exchange) {
+
+        return Mono.just(new ResponseEntity<>(GlobalExceptionHandler.fieldErrors(ex), HttpStatus.BAD_REQUEST));
+    }
+
+    /**
+     * Custom handling of errors related to a constraint violation on a request
+     * parameter or on an element of a request body list.
+     */
+    @Override
+    protected Mono<ResponseEntity<Object>> handleHandlerMethodValidationException(
+            @NonNull HandlerMethodValidationException ex,
+            @NonNull HttpHeaders headers,
+            @NonNull HttpStatusCode status,
+            @NonNull ServerWebExchange exchange) {
+
+        return Mono.just(new ResponseEntity<>(GlobalExceptionHandler.parameterValidationErrors(ex),
+                HttpStatus.BAD_REQUEST));
+    }
+}
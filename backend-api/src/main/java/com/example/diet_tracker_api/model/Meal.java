@@ -2,40 +2,83 @@ package com.example.diet_tracker_api.model;
 
 import java.time.LocalDate;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
-import jakarta.persistence.EnumType;
-import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 /**
  * Meal representation in the DB.
  */
 @Entity
+@Table(indexes = {
+        // Backs the keyset pagination of a user's meals
+        @Index(name = "idx_meal_user_date_id", columnList = "user_id, meal_date, id"),
+        // Covers the date range / meal time / meal content filters of a user's meals
+        @Index(name = "idx_meal_user_date_time_content", columnList = "user_id, meal_date, meal_time, meal_content"),
+        // Backs the reads of a user's meals changed since a change sequence (delta sync)
+        @Index(name = "idx_meal_user_change_seq", columnList = "user_id, change_seq") })
+// Held in the second-level cache, see HibernateCacheConfiguration
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Meal.CACHE_REGION)
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Meal {
+    /**
+     * Second-level cache region of the meals.
+     */
+    public static final String CACHE_REGION = "meal";
+
     /**
      * Auto-generated item id.
+     * Ids are taken from a pooled sequence (a table on MySQL) by blocks of 50,
+     * so that inserts can be sent as JDBC batches, which IDENTITY columns
+     * prevent.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "meal_seq")
+    @SequenceGenerator(name = "meal_seq", sequenceName = "meal_seq", allocationSize = 50)
     private Long id;
 
     /**
-     * Meal owner id.
+     * Meal owner id, stored as BINARY(16) (see UserIdConverter): it leads
+     * every index of the table.
      */
     @NotNull
+    @Convert(converter = UserIdConverter.class)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = UserIdConverter.LENGTH)
     private String userId;
 
+    /**
+     * Meal owner id as written, when its stored bytes do not read back as it
+     * (see UserIdConverter.textOf), null otherwise. Set along with the user id.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private String userIdText;
+
     /**
      * Meal date.
      */
@@ -43,17 +86,71 @@ public class Meal {
     private LocalDate mealDate;
 
     /**
-     * Meal time.
+     * Meal time, stored as its TINYINT code.
      */
     @NotNull
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = MealTimeCodeConverter.class)
     private MealTime mealTime;
 
     /**
-     * Meal content.
+     * Meal content, stored as its TINYINT code.
      */
     @NotNull
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = MealContentCodeConverter.class)
     private MealContent mealContent;
 
+    /**
+     * Version of the meal, incremented by every edit. It is exposed as the
+     * meal's ETag, so that concurrent edits are detected without locking.
+     */
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
+
+    /**
+     * Change sequence of the meal's last write, taken from its owner's
+     * MealChangeCounter: syncing clients ask for the meals changed since the
+     * last sequence they got. Meals written behind the application's back
+     * default to 0.
+     */
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private long changeSeq;
+
+    /**
+     * Returns the meal owner id, as written.
+     *
+     * @return Meal owner id
+     */
+    public String getUserId() {
+        return userIdText != null ? userIdText : userId;
+    }
+
+    /**
+     * Sets the meal owner id, and the text kept next to its stored bytes.
+     *
+     * @param userId Meal owner id
+     */
+    public void setUserId(String userId) {
+        this.userId = userId;
+        this.userIdText = UserIdConverter.textOf(userId);
+    }
+
+    /**
+     * Builder setting the text kept next to the stored user id along with it.
+     */
+    public static class MealBuilder {
+        /**
+         * Sets the meal owner id, and the text kept next to its stored bytes.
+         *
+         * @param userId Meal owner id
+         * @return This builder
+         */
+        public MealBuilder userId(String userId) {
+            this.userId = userId;
+            this.userIdText = UserIdConverter.textOf(userId);
+            return this;
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package com.example.diet_tracker_api.model;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Last change sequence handed out to a user's meal writes.
+ * Each write moves its user's counter within its own transaction, the row
+ * staying locked until the commit: a user's changes are committed in change
+ * sequence order, so that a sync never skips a change committed late.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MealChangeCounter {
+    /**
+     * Meal owner id, stored as BINARY(16) (see UserIdConverter).
+     */
+    @Id
+    @Convert(converter = UserIdConverter.class)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = UserIdConverter.LENGTH)
+    private String userId;
+
+    /**
+     * Last change sequence handed out.
+     */
+    @Column(nullable = false)
+    private long changeSeq;
+}
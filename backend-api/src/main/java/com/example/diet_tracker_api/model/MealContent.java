@@ -7,35 +7,70 @@ public enum MealContent {
     /**
      * Meal entierly vegan (no animal products).
      */
-    VEGAN,
+    VEGAN(1),
 
     /**
      * Meal entierly vegetarian (no meat).
      */
-    VEGETARIAN,
+    VEGETARIAN(2),
 
     /**
      * Fish-based meal.
      */
-    FISH,
+    FISH(3),
 
     /**
      * Chicken-based meal.
      */
-    CHICKEN,
+    CHICKEN(4),
 
     /**
      * Pork-based meal.
      */
-    PORK,
+    PORK(5),
 
     /**
      * Lamb-based meal.
      */
-    LAMB,
+    LAMB(6),
 
     /**
      * Beef-based meal.
      */
-    BEEF;
+    BEEF(7);
+
+    /**
+     * Code of the meal content in the DB: codes are stored, so they must never be
+     * changed nor reused.
+     */
+    private final byte code;
+
+    MealContent(int code) {
+        this.code = (byte) code;
+    }
+
+    /**
+     * Returns the code of the meal content in the DB.
+     *
+     * @return Stable code
+     */
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the meal content stored with the given code.
+     *
+     * @param code Code read from the DB
+     * @return MealContent having this code
+     * @throws IllegalArgumentException if no meal content has this code
+     */
+    public static MealContent fromCode(byte code) {
+        for (var value : values()) {
+            if (value.code == code) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Unknown MealContent code: " + code);
+    }
 }
@@ -0,0 +1,21 @@
+package com.example.diet_tracker_api.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores the meal contents as their stable MealContent code, in a TINYINT column.
+ */
+@Converter
+public class MealContentCodeConverter implements AttributeConverter<MealContent, Byte> {
+
+    @Override
+    public Byte convertToDatabaseColumn(MealContent attribute) {
+        return attribute == null ? null : attribute.getCode();
+    }
+
+    @Override
+    public MealContent convertToEntityAttribute(Byte dbData) {
+        return dbData == null ? null : MealContent.fromCode(dbData);
+    }
+}
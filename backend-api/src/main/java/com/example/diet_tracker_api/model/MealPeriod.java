@@ -0,0 +1,107 @@
+package com.example.diet_tracker_api.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Enum of the periods meals can be counted over.
+ */
+public enum MealPeriod {
+    /**
+     * One period per day.
+     */
+    DAY(1) {
+        @Override
+        public LocalDate periodStart(LocalDate date) {
+            return date;
+        }
+
+        @Override
+        public LocalDate nextPeriodStart(LocalDate date) {
+            return date.plusDays(1);
+        }
+    },
+
+    /**
+     * One period per ISO week, starting on Monday.
+     */
+    WEEK(2) {
+        @Override
+        public LocalDate periodStart(LocalDate date) {
+            return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+
+        @Override
+        public LocalDate nextPeriodStart(LocalDate date) {
+            return date.with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        }
+    },
+
+    /**
+     * One period per calendar month.
+     */
+    MONTH(3) {
+        @Override
+        public LocalDate periodStart(LocalDate date) {
+            return date.withDayOfMonth(1);
+        }
+
+        @Override
+        public LocalDate nextPeriodStart(LocalDate date) {
+            return date.withDayOfMonth(1).plusMonths(1);
+        }
+    };
+
+    /**
+     * Code of the period in the DB: codes are stored, so they must never be
+     * changed nor reused.
+     */
+    private final byte code;
+
+    MealPeriod(int code) {
+        this.code = (byte) code;
+    }
+
+    /**
+     * Returns the code of the period in the DB.
+     *
+     * @return Stable code
+     */
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the period stored with the given code.
+     *
+     * @param code Code read from the DB
+     * @return MealPeriod having this code
+     * @throws IllegalArgumentException if no period has this code
+     */
+    public static MealPeriod fromCode(byte code) {
+        for (var value : values()) {
+            if (value.code == code) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Unknown MealPeriod code: " + code);
+    }
+
+    /**
+     * Returns the first day of the period containing the given date.
+     *
+     * @param date Any date
+     * @return First day of the date's period
+     */
+    public abstract LocalDate periodStart(LocalDate date);
+
+    /**
+     * Returns the first day of the period following the one containing the
+     * given date.
+     *
+     * @param date Any date
+     * @return First day of the next period
+     */
+    public abstract LocalDate nextPeriodStart(LocalDate date);
+}
@@ -0,0 +1,21 @@
+package com.example.diet_tracker_api.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores the periods as their stable MealPeriod code, in a TINYINT column.
+ */
+@Converter
+public class MealPeriodCodeConverter implements AttributeConverter<MealPeriod, Byte> {
+
+    @Override
+    public Byte convertToDatabaseColumn(MealPeriod attribute) {
+        return attribute == null ? null : attribute.getCode();
+    }
+
+    @Override
+    public MealPeriod convertToEntityAttribute(Byte dbData) {
+        return dbData == null ? null : MealPeriod.fromCode(dbData);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.diet_tracker_api.model;
+
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of a user's meals of a given meal time & content over one period.
+ * Rollups are kept up to date along with the meal table, so that meal
+ * statistics do not need to go through the user's whole meal history.
+ */
+@Entity
+@Table(indexes = {
+        // Covers the statistics read of a user's rollups over a range of periods
+        @Index(name = "idx_meal_rollup_user_period", columnList = "user_id, period_type, period_start, meal_time, meal_content, meal_count") })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MealRollup {
+    /**
+     * Rollup key.
+     */
+    @EmbeddedId
+    private MealRollupId id;
+
+    /**
+     * Number of meals.
+     */
+    @NotNull
+    private Long mealCount;
+}
@@ -0,0 +1,57 @@
+package com.example.diet_tracker_api.model;
+
+import java.time.LocalDate;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Key of a meal rollup: the user, the period and the counted meal time &
+ * content.
+ */
+@Embeddable
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MealRollupId {
+    /**
+     * Meal owner id, stored as BINARY(16) (see UserIdConverter).
+     */
+    @Convert(converter = UserIdConverter.class)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = UserIdConverter.LENGTH)
+    private String userId;
+
+    /**
+     * Kind of period (day, week or month), stored as its TINYINT code.
+     */
+    @Convert(converter = MealPeriodCodeConverter.class)
+    @Column(name = "period_type")
+    private MealPeriod period;
+
+    /**
+     * First day of the period.
+     */
+    private LocalDate periodStart;
+
+    /**
+     * Meal time, stored as its TINYINT code.
+     */
+    @Convert(converter = MealTimeCodeConverter.class)
+    private MealTime mealTime;
+
+    /**
+     * Meal content, stored as its TINYINT code.
+     */
+    @Convert(converter = MealContentCodeConverter.class)
+    private MealContent mealContent;
+}
@@ -7,15 +7,50 @@ public enum MealTime {
     /**
      * Breakfast meal.
      */
-    BREAKFAST,
+    BREAKFAST(1),
 
     /**
      * Lunch meal.
      */
-    LUNCH,
+    LUNCH(2),
 
     /**
      * Dinner meal.
      */
-    DINNER;
+    DINNER(3);
+
+    /**
+     * Code of the meal time in the DB: codes are stored, so they must never be
+     * changed nor reused.
+     */
+    private final byte code;
+
+    MealTime(int code) {
+        this.code = (byte) code;
+    }
+
+    /**
+     * Returns the code of the meal time in the DB.
+     *
+     * @return Stable code
+     */
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the meal time stored with the given code.
+     *
+     * @param code Code read from the DB
+     * @return MealTime having this code
+     * @throws IllegalArgumentException if no meal time has this code
+     */
+    public static MealTime fromCode(byte code) {
+        for (var value : values()) {
+            if (value.code == code) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Unknown MealTime code: " + code);
+    }
 }
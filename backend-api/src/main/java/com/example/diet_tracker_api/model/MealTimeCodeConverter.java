@@ -0,0 +1,21 @@
+package com.example.diet_tracker_api.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores the meal times as their stable MealTime code, in a TINYINT column.
+ */
+@Converter
+public class MealTimeCodeConverter implements AttributeConverter<MealTime, Byte> {
+
+    @Override
+    public Byte convertToDatabaseColumn(MealTime attribute) {
+        return attribute == null ? null : attribute.getCode();
+    }
+
+    @Override
+    public MealTime convertToEntityAttribute(Byte dbData) {
+        return dbData == null ? null : MealTime.fromCode(dbData);
+    }
+}
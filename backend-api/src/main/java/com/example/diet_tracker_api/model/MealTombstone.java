@@ -0,0 +1,50 @@
+package com.example.diet_tracker_api.model;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Trace of a deleted meal, telling syncing clients to drop their copy.
+ */
+@Entity
+@Table(indexes = {
+        // Backs the reads of a user's deletions since a change sequence
+        @Index(name = "idx_meal_tombstone_user_change_seq", columnList = "user_id, change_seq") })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MealTombstone {
+    /**
+     * Id of the deleted meal (meal ids are never reused).
+     */
+    @Id
+    private Long id;
+
+    /**
+     * Meal owner id, stored as BINARY(16) (see UserIdConverter).
+     */
+    @NotNull
+    @Convert(converter = UserIdConverter.class)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = UserIdConverter.LENGTH)
+    private String userId;
+
+    /**
+     * Change sequence of the deletion.
+     */
+    @Column(nullable = false)
+    private long changeSeq;
+}
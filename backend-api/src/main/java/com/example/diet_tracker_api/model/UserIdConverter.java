@@ -0,0 +1,101 @@
+package com.example.diet_tracker_api.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores the user ids, which are UUIDs (Keycloak subjects), as their 16
+ * bytes in a BINARY(16) column rather than as 36 characters.
+ * Any other id (including UUIDs not in lower case) is stored as its
+ * name-based UUID (UUID.nameUUIDFromBytes), which selects its own rows only:
+ * the id itself is then kept next to it (see textOf), so that every id reads
+ * back as written.
+ */
+@Converter
+public class UserIdConverter implements AttributeConverter<String, byte[]> {
+    /**
+     * Number of bytes of a stored user id.
+     */
+    public static final int LENGTH = 16;
+
+    /**
+     * Canonical text form of a UUID, as UUID.toString writes it
+     * (UUID.fromString accepts shorter and upper case ones).
+     */
+    private static final Pattern UUID_PATTERN = Pattern
+            .compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    @Override
+    public byte[] convertToDatabaseColumn(String attribute) {
+        return attribute == null ? null : toBytes(attribute);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] dbData) {
+        return dbData == null ? null : fromBytes(dbData);
+    }
+
+    /**
+     * Returns the stored form of a user id, for the statements not run by
+     * Hibernate.
+     *
+     * @param userId User id
+     * @return 16 bytes of the user id's UUID
+     */
+    public static byte[] toBytes(String userId) {
+        var uuid = isCanonical(userId)
+                ? UUID.fromString(userId)
+                : UUID.nameUUIDFromBytes(userId.getBytes(StandardCharsets.UTF_8));
+        return ByteBuffer.allocate(LENGTH)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * Returns the text to keep next to a stored user id, for the ids its
+     * bytes do not read back as.
+     *
+     * @param userId User id, or null
+     * @return The user id if it is not a lower case UUID, null otherwise
+     */
+    public static String textOf(String userId) {
+        return userId == null || isCanonical(userId) ? null : userId;
+    }
+
+    /**
+     * Returns the stored form of a user id as text, so that in-memory state
+     * keyed by user id selects the same rows as the stored one.
+     *
+     * @param userId User id
+     * @return User id in its stored (UUID) form
+     */
+    public static String normalize(String userId) {
+        return fromBytes(toBytes(userId));
+    }
+
+    /**
+     * Tells whether a user id is a lower case UUID, read back as written from
+     * its bytes.
+     */
+    private static boolean isCanonical(String userId) {
+        return UUID_PATTERN.matcher(userId).matches();
+    }
+
+    /**
+     * Returns the user id of a stored one, for the statements not run by
+     * Hibernate.
+     *
+     * @param bytes 16 bytes of a user id's UUID
+     * @return User id, as a lower case UUID
+     */
+    public static String fromBytes(byte[] bytes) {
+        var buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+}
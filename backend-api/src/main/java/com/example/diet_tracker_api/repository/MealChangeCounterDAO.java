@@ -0,0 +1,11 @@
+package com.example.diet_tracker_api.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.example.diet_tracker_api.model.MealChangeCounter;
+
+/**
+ * DAO for the meal change counters.
+ */
+public interface MealChangeCounterDAO extends JpaRepository<MealChangeCounter, String>, MealChangeCounterDAOCustom {
+}
@@ -0,0 +1,35 @@
+package com.example.diet_tracker_api.repository;
+
+/**
+ * Meal change counter DAO operations not provided by Spring Data.
+ */
+public interface MealChangeCounterDAOCustom {
+    /**
+     * Moves a user's change counter, creating it if missing, and returns the
+     * last sequence handed out. The counter row stays locked until the end of
+     * the current transaction.
+     *
+     * @param userId User id to whom the written meals belong
+     * @param count  Number of sequences to hand out
+     * @return Last sequence handed out, the previous ones being the count - 1
+     *         sequences before it
+     */
+    long allocate(String userId, int count);
+
+    /**
+     * Locks a user's change counter until the end of the current transaction,
+     * creating it if missing, without handing out any sequence: the user's meal
+     * writes wait for the transaction to complete.
+     *
+     * @param userId User id to whom the meals belong
+     */
+    void lock(String userId);
+
+    /**
+     * Returns the last sequence handed out to a user, as committed.
+     *
+     * @param userId User id to whom the meals belong
+     * @return Last sequence handed out, 0 if none
+     */
+    long findChangeSeq(String userId);
+}
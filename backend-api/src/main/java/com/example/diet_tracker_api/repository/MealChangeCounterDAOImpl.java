@@ -0,0 +1,49 @@
+package com.example.diet_tracker_api.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.diet_tracker_api.model.UserIdConverter;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * JDBC implementation of the custom meal change counter DAO operations.
+ */
+@RequiredArgsConstructor
+public class MealChangeCounterDAOImpl implements MealChangeCounterDAOCustom {
+    /**
+     * Upsert moving a change counter (MySQL syntax, also supported by H2 in
+     * MySQL mode).
+     */
+    static final String UPSERT_SQL = "INSERT INTO meal_change_counter (user_id, change_seq) VALUES (?, ?)"
+            + " ON DUPLICATE KEY UPDATE change_seq = change_seq + VALUES(change_seq)";
+
+    /**
+     * Read of the counter moved by the upsert, within the same transaction.
+     */
+    static final String SELECT_SQL = "SELECT change_seq FROM meal_change_counter WHERE user_id = ?";
+
+    /**
+     * JDBC template, taking part in the current JPA transaction.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public long allocate(String userId, int count) {
+        var userIdBytes = UserIdConverter.toBytes(userId);
+        jdbcTemplate.update(UPSERT_SQL, userIdBytes, count);
+        return jdbcTemplate.queryForObject(SELECT_SQL, Long.class, (Object) userIdBytes);
+    }
+
+    @Override
+    public void lock(String userId) {
+        // Updating the row to its own value still locks it
+        jdbcTemplate.update(UPSERT_SQL, UserIdConverter.toBytes(userId), 0);
+    }
+
+    @Override
+    public long findChangeSeq(String userId) {
+        var changeSeqs = jdbcTemplate.queryForList(SELECT_SQL, Long.class, (Object) UserIdConverter.toBytes(userId));
+        return changeSeqs.isEmpty() ? 0 : changeSeqs.get(0);
+    }
+}
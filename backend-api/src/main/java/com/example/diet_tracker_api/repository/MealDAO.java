@@ -2,39 +2,96 @@ package com.example.diet_tracker_api.repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.diet_tracker_api.model.Meal;
 
+import jakarta.persistence.QueryHint;
+
 /**
  * DAO for for meals.
  */
-public interface MealDAO extends JpaRepository<Meal, Long> {
+public interface MealDAO extends JpaRepository<Meal, Long>, JpaSpecificationExecutor<Meal>, MealDAOCustom {
+    /**
+     * Number of rows fetched per round trip when streaming meals.
+     */
+    String STREAM_FETCH_SIZE = "500";
+
+    /**
+     * Keyset order of a user's meal list.
+     */
+    Sort KEYSET_ORDER = Sort.by("mealDate", "id");
+
+    /**
+     * Finds the first meals matching the specification, ordered by (mealDate, id).
+     * Combined with a seek predicate on (mealDate, id), this provides keyset
+     * pagination: the query cost does not depend on how many meals precede the
+     * page.
+     *
+     * @param specification Meal selection criteria
+     * @param limit         Maximum number of meals to return
+     * @return List of matching Meals
+     */
+    default List<Meal> findPage(Specification<Meal> specification, Limit limit) {
+        return findBy(specification, query -> query.sortBy(KEYSET_ORDER).limit(limit.max()).all());
+    }
+
     /**
-     * Finds all meals whose userId column matches the provided userId value.
+     * Streams all meals of a user, ordered by (mealDate, id).
+     * Rows are fetched from the DB by chunks while the stream is consumed; the
+     * stream must be consumed within a transaction and closed afterwards.
+     * The streamed meals are neither read from nor put in the second-level
+     * cache, which they would flush.
      *
      * @param userId userId who created the Meal instance
-     * @return List of Meals for the given userId
+     * @return Stream of Meals for the given userId
      */
-    List<Meal> findByUserId(String userId);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, value = "BYPASS"),
+            @QueryHint(name = SpecHints.HINT_SPEC_CACHE_STORE_MODE, value = "BYPASS") })
+    Stream<Meal> streamByUserIdOrderByMealDateAscIdAsc(String userId);
 
     /**
-     * Finds a given meal matching the (meal) id & userId.
+     * Finds the first meals of a user written after a change sequence, in
+     * change sequence order, from the (user_id, change_seq) index.
      *
-     * @param id     Meal id to match
-     * @param userId user id to match
-     * @return The optional matching meal
+     * @param userId userId who created the Meal instances
+     * @param since  Change sequence to exclude, along with the earlier ones
+     * @param limit  Maximum number of meals to return
+     * @return List of Meals
      */
-    Optional<Meal> findByIdAndUserId(Long id, String userId);
+    List<Meal> findByUserIdAndChangeSeqGreaterThanOrderByChangeSeq(String userId, long since, Limit limit);
+
+    /**
+     * Finds the ids of all users having meals.
+     *
+     * @return List of user ids
+     */
+    @Query("select distinct m.userId from Meal m")
+    List<String> findDistinctUserIds();
 
     /**
-     * Finds whether a given meal matching the (meal) id & userId exists.
+     * Finds a given meal matching the (meal) id & userId, reading the database
+     * rather than the second-level cache, which may lag behind the writes of
+     * other nodes.
      *
      * @param id     Meal id to match
      * @param userId user id to match
-     * @return Whether the meal exists or not
+     * @return The optional matching meal
      */
-    Boolean existsByIdAndUserId(Long id, String userId);
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, value = "BYPASS"))
+    Optional<Meal> findByIdAndUserId(Long id, String userId);
 
 }
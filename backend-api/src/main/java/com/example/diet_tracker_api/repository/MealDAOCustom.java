@@ -0,0 +1,43 @@
+package com.example.diet_tracker_api.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.example.diet_tracker_api.model.Meal;
+
+/**
+ * Meal DAO operations not provided by Spring Data.
+ */
+public interface MealDAOCustom {
+    /**
+     * Counts a user's meals per (mealDate, mealTime, mealContent) between two
+     * optional dates, ordered by mealDate.
+     * Only the counts are read, from the (user_id, meal_date, meal_time,
+     * meal_content) index: no Meal entity is loaded. Only the bounds actually
+     * provided end up in the SQL query, so that the index range is known to
+     * the DB when it plans the query.
+     *
+     * @param userId userId who created the Meal instances
+     * @param from   First meal date to include, null for no lower bound
+     * @param to     Last meal date to include, null for no upper bound
+     * @return List of meal counts
+     */
+    List<MealPeriodCount> countByUserIdPerDay(String userId, LocalDate from, LocalDate to);
+
+    /**
+     * Allocates a meal id ahead of the meal insertion, from the same sequence
+     * (and block of ids) as the ids assigned by JPA.
+     *
+     * @return New meal id
+     */
+    Long allocateId();
+
+    /**
+     * Inserts meals whose ids were allocated beforehand, as multi-row INSERT
+     * statements. The meals are not attached to the persistence context.
+     *
+     * @param meals Meals to insert, each holding its id, user id, values and
+     *              change sequence
+     */
+    void insertAll(List<Meal> meals);
+}
@@ -0,0 +1,120 @@
+package com.example.diet_tracker_api.repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.query.NativeQuery;
+
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.UserIdConverter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.Predicate;
+
+/**
+ * Hibernate implementation of the custom meal DAO operations.
+ */
+public class MealDAOImpl implements MealDAOCustom {
+    /**
+     * Maximum number of meals inserted by one statement.
+     */
+    static final int INSERT_ROWS = 500;
+
+    /**
+     * Insert statement prefix, followed by one VALUES tuple per meal.
+     */
+    private static final String INSERT_SQL = "INSERT INTO meal"
+            + " (id, user_id, user_id_text, meal_date, meal_time, meal_content, version, change_seq) VALUES ";
+
+    /**
+     * VALUES tuple of a meal, starting at version 0 as the meals persisted by
+     * JPA.
+     */
+    private static final String VALUES_SQL = "(?, ?, ?, ?, ?, ?, 0, ?)";
+
+    /**
+     * Hibernate session factory.
+     */
+    private final SessionFactoryImplementor sessionFactory;
+
+    /**
+     * Shared entity manager, taking part in the current transaction.
+     */
+    private final EntityManager entityManager;
+
+    /**
+     * Constructor.
+     *
+     * @param entityManagerFactory JPA entity manager factory
+     * @param entityManager        Shared entity manager
+     */
+    public MealDAOImpl(EntityManagerFactory entityManagerFactory, EntityManager entityManager) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<MealPeriodCount> countByUserIdPerDay(String userId, LocalDate from, LocalDate to) {
+        var criteriaBuilder = entityManager.getCriteriaBuilder();
+        var query = criteriaBuilder.createQuery(MealPeriodCount.class);
+        var root = query.from(Meal.class);
+        var predicates = new ArrayList<Predicate>();
+        predicates.add(criteriaBuilder.equal(root.get("userId"), userId));
+        if (from != null) {
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("mealDate"), from));
+        }
+        if (to != null) {
+            predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("mealDate"), to));
+        }
+        query.select(criteriaBuilder.construct(MealPeriodCount.class, root.get("mealDate"), root.get("mealTime"),
+                root.get("mealContent"), criteriaBuilder.count(root)))
+                .where(predicates.toArray(Predicate[]::new))
+                .groupBy(root.get("mealDate"), root.get("mealTime"), root.get("mealContent"))
+                .orderBy(criteriaBuilder.asc(root.get("mealDate")));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public Long allocateId() {
+        var generator = (BeforeExecutionGenerator) sessionFactory.getMappingMetamodel()
+                .getEntityDescriptor(Meal.class)
+                .getGenerator();
+        // The pooled optimizer only reaches the sequence once per block of ids
+        try (var session = sessionFactory.openStatelessSession()) {
+            return (Long) generator.generate((SharedSessionContractImplementor) session, null, null,
+                    EventType.INSERT);
+        }
+    }
+
+    @Override
+    public void insertAll(List<Meal> meals) {
+        for (int start = 0; start < meals.size(); start += INSERT_ROWS) {
+            var rows = meals.subList(start, Math.min(start + INSERT_ROWS, meals.size()));
+            var sql = new StringBuilder(INSERT_SQL);
+            for (int row = 0; row < rows.size(); row++) {
+                sql.append(row == 0 ? "" : ", ").append(VALUES_SQL);
+            }
+            // Synchronized with the Meal entity, so that Hibernate invalidates its cached queries and meals
+            var insert = entityManager.createNativeQuery(sql.toString())
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedEntityClass(Meal.class);
+            int position = 1;
+            for (var meal : rows) {
+                insert.setParameter(position++, meal.getId());
+                insert.setParameter(position++, UserIdConverter.toBytes(meal.getUserId()));
+                insert.setParameter(position++, UserIdConverter.textOf(meal.getUserId()), String.class);
+                insert.setParameter(position++, meal.getMealDate());
+                insert.setParameter(position++, meal.getMealTime().getCode());
+                insert.setParameter(position++, meal.getMealContent().getCode());
+                insert.setParameter(position++, meal.getChangeSeq());
+            }
+            insert.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.diet_tracker_api.repository;
+
+import java.time.LocalDate;
+
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+
+/**
+ * Number of a user's meals sharing the same period, meal time and meal
+ * content.
+ *
+ * @param period      First day of the period
+ * @param mealTime    Meal time
+ * @param mealContent Meal content
+ * @param count       Number of meals
+ */
+public record MealPeriodCount(LocalDate period, MealTime mealTime, MealContent mealContent, Long count) {
+}
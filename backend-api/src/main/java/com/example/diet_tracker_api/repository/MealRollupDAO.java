@@ -0,0 +1,42 @@
+package com.example.diet_tracker_api.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import com.example.diet_tracker_api.model.MealRollup;
+import com.example.diet_tracker_api.model.MealRollupId;
+
+/**
+ * DAO for meal rollups.
+ */
+public interface MealRollupDAO extends JpaRepository<MealRollup, MealRollupId>, MealRollupDAOCustom {
+
+    /**
+     * Finds all the non-zero rollups of a user.
+     *
+     * @param userId userId who created the Meal instances
+     * @return List of the user's rollups
+     */
+    @Query("select r from MealRollup r where r.id.userId = :userId and r.mealCount > 0")
+    List<MealRollup> findNonZeroByUserId(String userId);
+
+    /**
+     * Finds the ids of all users having non-zero rollups.
+     *
+     * @return List of user ids
+     */
+    @Query("select distinct r.id.userId from MealRollup r where r.mealCount > 0")
+    List<String> findDistinctUserIds();
+
+    /**
+     * Deletes all the rollups of a user.
+     *
+     * @param userId userId whose rollups are deleted
+     */
+    @Modifying
+    @Query("delete from MealRollup r where r.id.userId = :userId")
+    void deleteByUserId(String userId);
+}
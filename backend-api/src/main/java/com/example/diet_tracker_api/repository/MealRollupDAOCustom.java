@@ -0,0 +1,36 @@
+package com.example.diet_tracker_api.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealRollupId;
+
+/**
+ * Meal rollup DAO operations not provided by Spring Data.
+ */
+public interface MealRollupDAOCustom {
+    /**
+     * Reads a user's non-zero meal counts for the periods starting in a range
+     * of dates, ordered by period.
+     * Only the bounds actually provided end up in the SQL query, so that the
+     * index range is known to the DB when it plans the query.
+     *
+     * @param userId userId who created the Meal instances
+     * @param period Kind of period
+     * @param from   First period start to include, null for no lower bound
+     * @param until  First period start to exclude, null for no upper bound
+     * @return List of meal counts
+     */
+    List<MealPeriodCount> findCounts(String userId, MealPeriod period, LocalDate from, LocalDate until);
+
+    /**
+     * Adds the given (possibly negative) deltas to the matching rollup counts,
+     * creating the missing rollups.
+     * All the deltas are sent as one JDBC batch of upserts.
+     *
+     * @param deltas Count delta per rollup key
+     */
+    void addToCounts(Map<MealRollupId, Long> deltas);
+}
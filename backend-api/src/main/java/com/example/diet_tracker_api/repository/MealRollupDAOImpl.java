@@ -0,0 +1,82 @@
+package com.example.diet_tracker_api.repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealRollup;
+import com.example.diet_tracker_api.model.MealRollupId;
+import com.example.diet_tracker_api.model.UserIdConverter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.Predicate;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * JDBC and Criteria implementation of the custom meal rollup DAO operations.
+ */
+@RequiredArgsConstructor
+public class MealRollupDAOImpl implements MealRollupDAOCustom {
+    /**
+     * Upsert adding a delta to a rollup count (MySQL syntax, also supported by
+     * H2 in MySQL mode).
+     */
+    static final String UPSERT_SQL = "INSERT INTO meal_rollup"
+            + " (user_id, period_type, period_start, meal_time, meal_content, meal_count)"
+            + " VALUES (?, ?, ?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE meal_count = meal_count + VALUES(meal_count)";
+
+    /**
+     * JDBC template, taking part in the current JPA transaction.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Shared entity manager, taking part in the current transaction.
+     */
+    private final EntityManager entityManager;
+
+    @Override
+    public List<MealPeriodCount> findCounts(String userId, MealPeriod period, LocalDate from, LocalDate until) {
+        var criteriaBuilder = entityManager.getCriteriaBuilder();
+        var query = criteriaBuilder.createQuery(MealPeriodCount.class);
+        var root = query.from(MealRollup.class);
+        var id = root.get("id");
+        var predicates = new ArrayList<Predicate>();
+        predicates.add(criteriaBuilder.equal(id.get("userId"), userId));
+        predicates.add(criteriaBuilder.equal(id.get("period"), period));
+        if (from != null) {
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(id.get("periodStart"), from));
+        }
+        if (until != null) {
+            predicates.add(criteriaBuilder.lessThan(id.get("periodStart"), until));
+        }
+        predicates.add(criteriaBuilder.greaterThan(root.get("mealCount"), 0L));
+        query.select(criteriaBuilder.construct(MealPeriodCount.class, id.get("periodStart"), id.get("mealTime"),
+                id.get("mealContent"), root.get("mealCount")))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(criteriaBuilder.asc(id.get("periodStart")));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public void addToCounts(Map<MealRollupId, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        var rows = new ArrayList<Object[]>(deltas.size());
+        deltas.forEach((id, delta) -> rows.add(new Object[] {
+                UserIdConverter.toBytes(id.getUserId()),
+                id.getPeriod().getCode(),
+                Date.valueOf(id.getPeriodStart()),
+                id.getMealTime().getCode(),
+                id.getMealContent().getCode(),
+                delta }));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.diet_tracker_api.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.example.diet_tracker_api.model.MealTombstone;
+
+/**
+ * DAO for the tombstones of the deleted meals.
+ */
+public interface MealTombstoneDAO extends JpaRepository<MealTombstone, Long>, MealTombstoneDAOCustom {
+    /**
+     * Finds the first deletions of a user's meals after a change sequence,
+     * in change sequence order, from the (user_id, change_seq) index.
+     *
+     * @param userId User id to whom the deleted meals belonged
+     * @param since  Change sequence to exclude, along with the earlier ones
+     * @param limit  Maximum number of tombstones to return
+     * @return List of tombstones
+     */
+    List<MealTombstone> findByUserIdAndChangeSeqGreaterThanOrderByChangeSeq(String userId, long since, Limit limit);
+}
@@ -0,0 +1,16 @@
+package com.example.diet_tracker_api.repository;
+
+import com.example.diet_tracker_api.model.MealTombstone;
+
+/**
+ * Meal tombstone DAO operations not provided by Spring Data.
+ */
+public interface MealTombstoneDAOCustom {
+    /**
+     * Inserts a tombstone with a single INSERT statement, without the SELECT
+     * that saving an entity with an assigned id runs first.
+     *
+     * @param tombstone Tombstone of a deleted meal
+     */
+    void insert(MealTombstone tombstone);
+}
@@ -0,0 +1,30 @@
+package com.example.diet_tracker_api.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.diet_tracker_api.model.MealTombstone;
+import com.example.diet_tracker_api.model.UserIdConverter;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * JDBC implementation of the custom meal tombstone DAO operations.
+ */
+@RequiredArgsConstructor
+public class MealTombstoneDAOImpl implements MealTombstoneDAOCustom {
+    /**
+     * Tombstone insert.
+     */
+    static final String INSERT_SQL = "INSERT INTO meal_tombstone (id, user_id, change_seq) VALUES (?, ?, ?)";
+
+    /**
+     * JDBC template, taking part in the current JPA transaction.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insert(MealTombstone tombstone) {
+        jdbcTemplate.update(INSERT_SQL, tombstone.getId(), UserIdConverter.toBytes(tombstone.getUserId()),
+                tombstone.getChangeSeq());
+    }
+}
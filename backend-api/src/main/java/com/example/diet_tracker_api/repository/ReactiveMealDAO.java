@@ -0,0 +1,407 @@
+package com.example.diet_tracker_api.repository;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.model.MealTombstone;
+import com.example.diet_tracker_api.model.UserIdConverter;
+import com.example.diet_tracker_api.service.MealCursor;
+import com.example.diet_tracker_api.service.MealFilter;
+
+import io.r2dbc.spi.Readable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive DAO for meals, running the MealDAO queries with R2DBC for the
+ * reactive variant of the API: no thread waits for the DB.
+ * Rows are mapped to detached Meal instances by hand, there is no persistence
+ * context.
+ */
+@Repository
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveMealDAO {
+    /**
+     * Number of ids taken at once from meal_seq, matching its allocationSize:
+     * the id blocks are shared with Hibernate's pooled-lo optimizer, which
+     * hands out the ids of each block starting with the value read.
+     */
+    static final int ID_BLOCK_SIZE = 50;
+
+    /**
+     * Number of meals inserted by one multi-row INSERT statement.
+     */
+    static final int INSERT_CHUNK_SIZE = 50;
+
+    /**
+     * Number of rows fetched per round trip when streaming meals.
+     */
+    static final int STREAM_FETCH_SIZE = Integer.parseInt(MealDAO.STREAM_FETCH_SIZE);
+
+    private static final String SELECT_MEALS = "SELECT id, user_id, user_id_text, meal_date, meal_time"
+            + ", meal_content, version, change_seq FROM meal";
+
+    /**
+     * R2DBC client, taking part in the current reactive transaction.
+     */
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Transactional operator, running the meal_seq table updates in their own
+     * short transaction.
+     */
+    private final TransactionalOperator transactionalOperator;
+
+    /**
+     * Whether meal_seq is a table (MySQL) rather than a sequence (H2).
+     */
+    private final boolean sequenceTable;
+
+    /**
+     * Constructor for the DAO.
+     *
+     * @param databaseClient        R2DBC client
+     * @param transactionalOperator Transactional operator of the R2DBC
+     *                              connection factory
+     */
+    public ReactiveMealDAO(DatabaseClient databaseClient, TransactionalOperator transactionalOperator) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.sequenceTable = "MySQL".equalsIgnoreCase(databaseClient.getConnectionFactory().getMetadata().getName());
+    }
+
+    /**
+     * Finds the first meals of a user matching the filter and located after the
+     * cursor (if any), ordered by (mealDate, id), as MealDAO.findPage does with
+     * the MealSpecifications.
+     * Only the criteria actually provided end up in the SQL query.
+     *
+     * @param userId User id to whom the meals belong
+     * @param filter Filter criteria
+     * @param after  Cursor of the previous page, null for the first page
+     * @param limit  Maximum number of meals to return
+     * @return Matching Meals
+     */
+    public Flux<Meal> findPage(String userId, MealFilter filter, MealCursor after, int limit) {
+        var sql = new StringBuilder(SELECT_MEALS).append(" WHERE user_id = :userId");
+        var bindings = new HashMap<String, Object>();
+        bindings.put("userId", UserIdConverter.toBytes(userId));
+        if (filter.from() != null) {
+            sql.append(" AND meal_date >= :from");
+            bindings.put("from", filter.from());
+        }
+        if (filter.to() != null) {
+            sql.append(" AND meal_date <= :to");
+            bindings.put("to", filter.to());
+        }
+        if (filter.mealTime() != null) {
+            sql.append(" AND meal_time = :mealTime");
+            bindings.put("mealTime", filter.mealTime().getCode());
+        }
+        if (filter.mealContent() != null) {
+            sql.append(" AND meal_content = :mealContent");
+            bindings.put("mealContent", filter.mealContent().getCode());
+        }
+        if (after != null) {
+            // Seek predicate: (meal_date, id) > (after.mealDate, after.id)
+            sql.append(" AND (meal_date > :afterDate OR (meal_date = :afterDate AND id > :afterId))");
+            bindings.put("afterDate", after.mealDate());
+            bindings.put("afterId", after.id());
+        }
+        sql.append(" ORDER BY meal_date, id LIMIT :limit");
+        bindings.put("limit", limit);
+        return databaseClient.sql(sql.toString())
+                .bindValues(bindings)
+                .map(ReactiveMealDAO::toMeal)
+                .all();
+    }
+
+    /**
+     * Streams all meals of a user, ordered by (mealDate, id).
+     * Rows are fetched from the DB by chunks, as they are requested downstream.
+     *
+     * @param userId userId who created the Meal instances
+     * @return Meals for the given userId
+     */
+    public Flux<Meal> streamByUserIdOrderByMealDateAscIdAsc(String userId) {
+        return databaseClient.sql(SELECT_MEALS + " WHERE user_id = :userId ORDER BY meal_date, id")
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .bind("userId", UserIdConverter.toBytes(userId))
+                .map(ReactiveMealDAO::toMeal)
+                .all();
+    }
+
+    /**
+     * Finds a given meal matching the (meal) id & userId.
+     *
+     * @param id     Meal id to match
+     * @param userId user id to match
+     * @return The matching meal, empty if none matches
+     */
+    public Mono<Meal> findByIdAndUserId(Long id, String userId) {
+        return databaseClient.sql(SELECT_MEALS + " WHERE id = :id AND user_id = :userId")
+                .bind("id", id)
+                .bind("userId", UserIdConverter.toBytes(userId))
+                .map(ReactiveMealDAO::toMeal)
+                .one();
+    }
+
+    /**
+     * Finds the first meals of a user written after a change sequence, in
+     * change sequence order, from the (user_id, change_seq) index, as
+     * MealDAO.findByUserIdAndChangeSeqGreaterThanOrderByChangeSeq does.
+     *
+     * @param userId User id to whom the meals belong
+     * @param since  Change sequence to exclude, along with the earlier ones
+     * @param limit  Maximum number of meals to return
+     * @return Meals, in change sequence order
+     */
+    public Flux<Meal> findByUserIdAndChangeSeqGreaterThanOrderByChangeSeq(String userId, long since, int limit) {
+        return databaseClient.sql(SELECT_MEALS + " WHERE user_id = :userId AND change_seq > :since"
+                + " ORDER BY change_seq LIMIT :limit")
+                .bind("userId", UserIdConverter.toBytes(userId))
+                .bind("since", since)
+                .bind("limit", limit)
+                .map(ReactiveMealDAO::toMeal)
+                .all();
+    }
+
+    /**
+     * Finds the first deletions of a user's meals after a change sequence, in
+     * change sequence order, from the (user_id, change_seq) index, as
+     * MealTombstoneDAO.findByUserIdAndChangeSeqGreaterThanOrderByChangeSeq
+     * does.
+     *
+     * @param userId User id to whom the deleted meals belonged
+     * @param since  Change sequence to exclude, along with the earlier ones
+     * @param limit  Maximum number of tombstones to return
+     * @return Tombstones, in change sequence order
+     */
+    public Flux<MealTombstone> findTombstonesByUserIdAndChangeSeqGreaterThanOrderByChangeSeq(String userId,
+            long since, int limit) {
+        return databaseClient.sql("SELECT id, user_id, change_seq FROM meal_tombstone"
+                + " WHERE user_id = :userId AND change_seq > :since ORDER BY change_seq LIMIT :limit")
+                .bind("userId", UserIdConverter.toBytes(userId))
+                .bind("since", since)
+                .bind("limit", limit)
+                .map(row -> new MealTombstone(
+                        row.get("id", Long.class),
+                        UserIdConverter.fromBytes(row.get("user_id", byte[].class)),
+                        row.get("change_seq", Long.class)))
+                .all();
+    }
+
+    /**
+     * Takes ids for new meals from meal_seq, by blocks of ID_BLOCK_SIZE.
+     * It must not be called within the transaction inserting the meals: on
+     * MySQL, the meal_seq row stays locked until the end of the transaction
+     * moving it.
+     *
+     * @param count Number of ids to take
+     * @return Unused meal ids
+     */
+    public Mono<List<Long>> allocateIds(int count) {
+        var blocks = (count + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+        return reserveIdBlocks(blocks)
+                .flatMapIterable(start -> LongStream.range(start, start + ID_BLOCK_SIZE).boxed().toList())
+                .take(count)
+                .collectList();
+    }
+
+    /**
+     * Reserves blocks of ids, returning the first id of each block.
+     */
+    private Flux<Long> reserveIdBlocks(int blocks) {
+        if (blocks == 0) {
+            return Flux.empty();
+        }
+        if (!sequenceTable) {
+            return Flux.range(0, blocks)
+                    .concatMap(block -> databaseClient.sql("SELECT NEXT VALUE FOR meal_seq")
+                            .map(row -> row.get(0, Long.class))
+                            .one());
+        }
+        // The next value is moved past all the blocks at once, as Hibernate does for one block
+        return databaseClient.sql("SELECT next_val FROM meal_seq FOR UPDATE")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(start -> databaseClient.sql("UPDATE meal_seq SET next_val = :next")
+                        .bind("next", start + (long) blocks * ID_BLOCK_SIZE)
+                        .then()
+                        .thenReturn(start))
+                .as(transactionalOperator::transactional)
+                .flatMapMany(start -> Flux.range(0, blocks).map(block -> start + (long) block * ID_BLOCK_SIZE));
+    }
+
+    /**
+     * Moves a user's change counter, as MealChangeCounterDAO.allocate does,
+     * within the current transaction.
+     *
+     * @param userId User id to whom the written meals belong
+     * @param count  Number of sequences to hand out
+     * @return Last sequence handed out
+     */
+    public Mono<Long> allocateChangeSeqs(String userId, int count) {
+        var userIdBytes = UserIdConverter.toBytes(userId);
+        return databaseClient.sql("INSERT INTO meal_change_counter (user_id, change_seq) VALUES (:userId, :count)"
+                + " ON DUPLICATE KEY UPDATE change_seq = change_seq + VALUES(change_seq)")
+                .bind("userId", userIdBytes)
+                .bind("count", (long) count)
+                .then()
+                .then(databaseClient.sql("SELECT change_seq FROM meal_change_counter WHERE user_id = :userId")
+                        .bind("userId", userIdBytes)
+                        .map(row -> row.get(0, Long.class))
+                        .one());
+    }
+
+    /**
+     * Returns the last sequence handed out to a user, as
+     * MealChangeCounterDAO.findChangeSeq does.
+     *
+     * @param userId User id to whom the meals belong
+     * @return Last sequence handed out, 0 if none
+     */
+    public Mono<Long> findChangeSeq(String userId) {
+        return databaseClient.sql("SELECT change_seq FROM meal_change_counter WHERE user_id = :userId")
+                .bind("userId", UserIdConverter.toBytes(userId))
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .defaultIfEmpty(0L);
+    }
+
+    /**
+     * Inserts the tombstone of a deleted meal.
+     *
+     * @param meal      Deleted meal
+     * @param changeSeq Change sequence of the delete
+     * @return Completion signal
+     */
+    public Mono<Void> insertTombstone(Meal meal, long changeSeq) {
+        return databaseClient.sql("INSERT INTO meal_tombstone (id, user_id, change_seq)"
+                + " VALUES (:id, :userId, :changeSeq)")
+                .bind("id", meal.getId())
+                .bind("userId", UserIdConverter.toBytes(meal.getUserId()))
+                .bind("changeSeq", changeSeq)
+                .then();
+    }
+
+    /**
+     * Inserts meals whose id is already allocated, with multi-row INSERT
+     * statements of INSERT_CHUNK_SIZE meals.
+     *
+     * @param meals Meals to insert
+     * @return Completion signal
+     */
+    public Mono<Void> insertAll(List<Meal> meals) {
+        return Flux.fromIterable(meals)
+                .buffer(INSERT_CHUNK_SIZE)
+                .concatMap(this::insertChunk)
+                .then();
+    }
+
+    private Mono<Long> insertChunk(List<Meal> chunk) {
+        var sql = new StringBuilder(
+                "INSERT INTO meal (id, user_id, user_id_text, meal_date, meal_time, meal_content, version, change_seq)"
+                        + " VALUES ");
+        var bindings = new HashMap<String, Object>();
+        for (int i = 0; i < chunk.size(); i++) {
+            var meal = chunk.get(i);
+            sql.append(i == 0 ? "(" : ", (")
+                    .append(":id").append(i)
+                    .append(", :userId").append(i)
+                    .append(", :userIdText").append(i)
+                    .append(", :mealDate").append(i)
+                    .append(", :mealTime").append(i)
+                    .append(", :mealContent").append(i)
+                    .append(", :version").append(i)
+                    .append(", :changeSeq").append(i)
+                    .append(')');
+            bindings.put("id" + i, meal.getId());
+            bindings.put("userId" + i, UserIdConverter.toBytes(meal.getUserId()));
+            bindings.put("userIdText" + i,
+                    Parameter.fromOrEmpty(UserIdConverter.textOf(meal.getUserId()), String.class));
+            bindings.put("mealDate" + i, meal.getMealDate());
+            bindings.put("mealTime" + i, meal.getMealTime().getCode());
+            bindings.put("mealContent" + i, meal.getMealContent().getCode());
+            bindings.put("version" + i, meal.getVersion());
+            bindings.put("changeSeq" + i, meal.getChangeSeq());
+        }
+        return databaseClient.sql(sql.toString())
+                .bindValues(bindings)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Deletes a given meal matching the (meal) id & userId, in a single DELETE
+     * statement, provided it is still at the given version.
+     *
+     * @param id      Meal id to match
+     * @param userId  user id to match
+     * @param version Meal version to match
+     * @return Number of deleted meals, 0 if none matches
+     */
+    public Mono<Long> deleteByIdAndUserIdAndVersion(Long id, String userId, Long version) {
+        return databaseClient.sql("DELETE FROM meal WHERE id = :id AND user_id = :userId AND version = :version")
+                .bind("id", id)
+                .bind("userId", UserIdConverter.toBytes(userId))
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Overwrites the values of a given meal matching the (meal) id & userId,
+     * in a single UPDATE statement, provided it is still at the given version.
+     * The version is incremented.
+     *
+     * @param id          Meal id to match
+     * @param userId      user id to match
+     * @param version     Meal version to match
+     * @param mealDate    New meal date
+     * @param mealTime    New meal time
+     * @param mealContent New meal content
+     * @param changeSeq   Change sequence of the edit
+     * @return Number of updated meals, 0 if none matches
+     */
+    public Mono<Long> updateByIdAndUserIdAndVersion(Long id, String userId, Long version, LocalDate mealDate,
+            MealTime mealTime, MealContent mealContent, long changeSeq) {
+        return databaseClient.sql("UPDATE meal SET meal_date = :mealDate"
+                + ", meal_time = :mealTime, meal_content = :mealContent, version = version + 1"
+                + ", change_seq = :changeSeq"
+                + " WHERE id = :id AND user_id = :userId AND version = :version")
+                .bind("mealDate", mealDate)
+                .bind("mealTime", mealTime.getCode())
+                .bind("mealContent", mealContent.getCode())
+                .bind("changeSeq", changeSeq)
+                .bind("id", id)
+                .bind("userId", UserIdConverter.toBytes(userId))
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static Meal toMeal(Readable row) {
+        return new Meal(
+                row.get("id", Long.class),
+                UserIdConverter.fromBytes(row.get("user_id", byte[].class)),
+                row.get("user_id_text", String.class),
+                row.get("meal_date", LocalDate.class),
+                MealTime.fromCode(row.get("meal_time", Byte.class)),
+                MealContent.fromCode(row.get("meal_content", Byte.class)),
+                row.get("version", Long.class),
+                row.get("change_seq", Long.class));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.diet_tracker_api.repository;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealRollupId;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.model.UserIdConverter;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive DAO for meal rollups, running the MealRollupDAO queries used by the
+ * reactive variant of the API with R2DBC.
+ */
+@Repository
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveMealRollupDAO {
+    /**
+     * Number of rollup deltas applied by one multi-row upsert statement.
+     */
+    static final int UPSERT_CHUNK_SIZE = 50;
+
+    /**
+     * R2DBC client, taking part in the current reactive transaction.
+     */
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Reads a user's non-zero meal counts for the periods starting in a range
+     * of dates, ordered by period.
+     *
+     * @param userId userId who created the Meal instances
+     * @param period Kind of period
+     * @param from   First period start to include, null for no lower bound
+     * @param until  First period start to exclude, null for no upper bound
+     * @return Meal counts
+     */
+    public Flux<MealPeriodCount> findCounts(String userId, MealPeriod period, LocalDate from, LocalDate until) {
+        var sql = new StringBuilder("SELECT period_start, meal_time, meal_content, meal_count FROM meal_rollup"
+                + " WHERE user_id = :userId AND period_type = :period");
+        var bindings = new HashMap<String, Object>();
+        bindings.put("userId", UserIdConverter.toBytes(userId));
+        bindings.put("period", period.getCode());
+        if (from != null) {
+            sql.append(" AND period_start >= :from");
+            bindings.put("from", from);
+        }
+        if (until != null) {
+            sql.append(" AND period_start < :until");
+            bindings.put("until", until);
+        }
+        sql.append(" AND meal_count > 0 ORDER BY period_start");
+        return databaseClient.sql(sql.toString())
+                .bindValues(bindings)
+                .map(row -> new MealPeriodCount(
+                        row.get("period_start", LocalDate.class),
+                        MealTime.fromCode(row.get("meal_time", Byte.class)),
+                        MealContent.fromCode(row.get("meal_content", Byte.class)),
+                        row.get("meal_count", Long.class)))
+                .all();
+    }
+
+    /**
+     * Adds deltas to rollup counts, creating the missing rollups, as
+     * MealRollupDAOImpl does with a JDBC batch.
+     *
+     * @param deltas Count delta of each rollup
+     * @return Completion signal
+     */
+    public Mono<Void> addToCounts(Map<MealRollupId, Long> deltas) {
+        return Flux.fromIterable(deltas.entrySet())
+                .buffer(UPSERT_CHUNK_SIZE)
+                .concatMap(this::upsertChunk)
+                .then();
+    }
+
+    private Mono<Long> upsertChunk(List<Map.Entry<MealRollupId, Long>> chunk) {
+        var sql = new StringBuilder("INSERT INTO meal_rollup"
+                + " (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES ");
+        var bindings = new HashMap<String, Object>();
+        for (int i = 0; i < chunk.size(); i++) {
+            var id = chunk.get(i).getKey();
+            sql.append(i == 0 ? "(" : ", (")
+                    .append(":userId").append(i)
+                    .append(", :period").append(i)
+                    .append(", :periodStart").append(i)
+                    .append(", :mealTime").append(i)
+                    .append(", :mealContent").append(i)
+                    .append(", :delta").append(i)
+                    .append(')');
+            bindings.put("userId" + i, UserIdConverter.toBytes(id.getUserId()));
+            bindings.put("period" + i, id.getPeriod().getCode());
+            bindings.put("periodStart" + i, id.getPeriodStart());
+            bindings.put("mealTime" + i, id.getMealTime().getCode());
+            bindings.put("mealContent" + i, id.getMealContent().getCode());
+            bindings.put("delta" + i, chunk.get(i).getValue());
+        }
+        // MySQL syntax, also supported by H2 in MySQL mode
+        sql.append(" ON DUPLICATE KEY UPDATE meal_count = meal_count + VALUES(meal_count)");
+        return databaseClient.sql(sql.toString())
+                .bindValues(bindings)
+                .fetch()
+                .rowsUpdated();
+    }
+}
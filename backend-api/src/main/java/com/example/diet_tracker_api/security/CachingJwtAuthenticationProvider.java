@@ -0,0 +1,175 @@
+package com.example.diet_tracker_api.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+/**
+ * Authentication provider caching the authentications of bearer tokens, so
+ * that a token reused by many requests is decoded, has its signature verified
+ * and its authorities converted only once.
+ * Cached authentications are keyed by the SHA-256 digest of the token, and
+ * kept until the token expires, or for at most maxTimeToLive: once a signing
+ * key is rotated out, the tokens it signed are rejected again after that
+ * delay at most, or right after invalidateKeys() (called when the key leaves
+ * the JWK set) or invalidateAll() is called.
+ */
+public class CachingJwtAuthenticationProvider implements AuthenticationProvider {
+    /**
+     * Provider actually decoding and verifying the tokens.
+     */
+    private final AuthenticationProvider delegate;
+
+    /**
+     * Verified authentications, by token digest.
+     */
+    private final Cache<String, JwtAuthenticationToken> authentications;
+
+    /**
+     * Number of invalidations, telling whether one ran while a token was being
+     * verified.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Constructor for the provider.
+     *
+     * @param delegate      Provider actually decoding and verifying the tokens,
+     *                      returning JwtAuthenticationTokens
+     * @param maximumSize   Maximum number of cached authentications
+     * @param maxTimeToLive Maximum time an authentication is cached for
+     * @param clock         Clock the token expiry is compared to
+     */
+    public CachingJwtAuthenticationProvider(AuthenticationProvider delegate, long maximumSize,
+            Duration maxTimeToLive, Clock clock) {
+        this.delegate = delegate;
+        this.authentications = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, JwtAuthenticationToken>() {
+                    @Override
+                    public long expireAfterCreate(String digest, JwtAuthenticationToken authentication,
+                            long currentTime) {
+                        return timeToLive(authentication, maxTimeToLive, clock).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String digest, JwtAuthenticationToken authentication,
+                            long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String digest, JwtAuthenticationToken authentication,
+                            long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns the authentication of the bearer token, from the cache if the
+     * token was already verified.
+     * Each request gets its own copy of the cached authentication, carrying
+     * the request's details.
+     *
+     * @param authentication Bearer token authentication request
+     * @return Verified authentication
+     */
+    @Override
+    public Authentication authenticate(Authentication authentication) {
+        var bearer = (BearerTokenAuthenticationToken) authentication;
+        var digest = digest(bearer.getToken());
+        var verified = authentications.getIfPresent(digest);
+        if (verified == null) {
+            // Verified outside of the cache's compute lock (a monitor), which would pin the virtual thread
+            // running the request and block the ones authenticating other tokens of the same hash bin.
+            // Concurrent first uses of a token are all verified, which is only redundant work.
+            var invalidationsBefore = invalidations.get();
+            verified = (JwtAuthenticationToken) delegate.authenticate(bearer);
+            authentications.put(digest, verified);
+            if (invalidations.get() != invalidationsBefore) {
+                // Possibly verified by a key removed meanwhile, after the invalidation went through the cache
+                authentications.invalidate(digest);
+            }
+        }
+
+        var result = new JwtAuthenticationToken(verified.getToken(), verified.getAuthorities(), verified.getName());
+        result.setDetails(bearer.getDetails());
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return BearerTokenAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+
+    /**
+     * Drops all cached authentications, e.g. once a signing key is revoked.
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        authentications.invalidateAll();
+    }
+
+    /**
+     * Drops the cached authentications of the tokens signed by the given keys,
+     * e.g. once they are removed from the JWK set. Tokens without a key id,
+     * whose verification key cannot be told, are dropped as well.
+     *
+     * @param keyIds Ids of the removed keys
+     */
+    public void invalidateKeys(Set<String> keyIds) {
+        invalidations.incrementAndGet();
+        authentications.asMap().values().removeIf(authentication -> {
+            var keyId = authentication.getToken().getHeaders().get("kid");
+            return keyId == null || keyIds.contains(keyId);
+        });
+    }
+
+    /**
+     * Returns the approximate number of cached authentications.
+     *
+     * @return Number of cached authentications
+     */
+    public long estimatedSize() {
+        return authentications.estimatedSize();
+    }
+
+    private static Duration timeToLive(JwtAuthenticationToken authentication, Duration maxTimeToLive, Clock clock) {
+        Instant expiresAt = authentication.getToken().getExpiresAt();
+        if (expiresAt == null) {
+            return maxTimeToLive;
+        }
+        var untilExpiry = Duration.between(clock.instant(), expiresAt);
+        if (untilExpiry.isNegative()) {
+            return Duration.ZERO;
+        }
+        return untilExpiry.compareTo(maxTimeToLive) < 0 ? untilExpiry : maxTimeToLive;
+    }
+
+    private static String digest(String token) {
+        try {
+            var sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform provides SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,56 +1,150 @@
 package com.example.diet_tracker_api.security;
 
-import static org.springframework.security.config.Customizer.withDefaults;
-
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.ReactiveAuthenticationManagerAdapter;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.util.StringUtils;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
 
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Security configuration: bearer tokens are verified by the shared JWT
+ * beans below, whichever web stack serves the requests (servlet, or reactive
+ * with the reactive profile). They replace the resource server beans of Boot,
+ * whose reactive auto-configuration is excluded.
+ */
 @Configuration
-@EnableWebSecurity
-@EnableMethodSecurity
+@EnableConfigurationProperties(OAuth2ResourceServerProperties.class)
 public class GlobalSecurityConfiguration {
     /**
-     * Defines the application's security filter chain.
-     *
-     * @param http HttpSecurity object
-     * @return the object with security filter chain specs defined
-     * @throws Exception
+     * Security of the servlet (default) web stack.
      */
-    @Bean
-    SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        return http
-                // Acces to OpenAPI doc does not required authentication
-                .authorizeHttpRequests(
-                        authorizeRequests -> authorizeRequests
-                                .requestMatchers("/swagger-ui/**", "/swagger-ui.html",
-                                        "/api-docs*/**")
-                                .permitAll())
-                // Acces to the actuator endpoints do not require authentication
-                .authorizeHttpRequests(
-                        authorizeRequests -> authorizeRequests
-                                .requestMatchers("/actuator/health")
-                                .permitAll())
-                // All other requests need to be authenticated
-                .authorizeHttpRequests(authorize -> authorize.anyRequest().authenticated())
-                .oauth2ResourceServer(oauth2 -> oauth2.jwt(withDefaults()))
-                .build();
+    @Configuration
+    @ConditionalOnWebApplication(type = Type.SERVLET)
+    @EnableWebSecurity
+    @EnableMethodSecurity
+    static class ServletSecurityConfiguration {
+        /**
+         * Defines the application's security filter chain.
+         *
+         * @param http                             HttpSecurity object
+         * @param cachingJwtAuthenticationProvider Provider authenticating the bearer
+         *                                         tokens
+         * @return the object with security filter chain specs defined
+         * @throws Exception
+         */
+        @Bean
+        SecurityFilterChain securityFilterChain(HttpSecurity http,
+                CachingJwtAuthenticationProvider cachingJwtAuthenticationProvider) throws Exception {
+            return http
+                    // Acces to OpenAPI doc does not required authentication
+                    .authorizeHttpRequests(
+                            authorizeRequests -> authorizeRequests
+                                    .requestMatchers("/swagger-ui/**", "/swagger-ui.html",
+                                            "/api-docs*/**")
+                                    .permitAll())
+                    // Acces to the actuator endpoints do not require authentication
+                    .authorizeHttpRequests(
+                            authorizeRequests -> authorizeRequests
+                                    .requestMatchers("/actuator/health")
+                                    .permitAll())
+                    // Other actuator endpoints (e.g. meal rollups rebuild) are restricted to admins
+                    .authorizeHttpRequests(
+                            authorizeRequests -> authorizeRequests
+                                    .requestMatchers("/actuator/**")
+                                    .hasAuthority("DIET_APP_ADMIN"))
+                    // All other requests need to be authenticated
+                    .authorizeHttpRequests(authorize -> authorize.anyRequest().authenticated())
+                    // Tokens are verified once, then authenticated from the cache until they expire
+                    .oauth2ResourceServer(oauth2 -> oauth2.jwt(
+                            jwt -> jwt.authenticationManager(new ProviderManager(cachingJwtAuthenticationProvider))))
+                    .build();
+        }
     }
 
+    /**
+     * Security of the reactive web stack (reactive profile), with the same
+     * access rules.
+     */
+    @Configuration
+    @ConditionalOnWebApplication(type = Type.REACTIVE)
+    @EnableWebFluxSecurity
+    @EnableReactiveMethodSecurity
+    static class ReactiveSecurityConfiguration {
+        /**
+         * Defines the application's security web filter chain.
+         *
+         * @param http                             ServerHttpSecurity object
+         * @param cachingJwtAuthenticationProvider Provider authenticating the
+         *                                         bearer tokens
+         * @return the object with security filter chain specs defined
+         */
+        @Bean
+        SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                CachingJwtAuthenticationProvider cachingJwtAuthenticationProvider) {
+            // Tokens are verified against in-memory keys (or found in the cache): no I/O, so the
+            // provider runs on the calling event loop thread instead of a bounded elastic one
+            var authenticationManager = new ReactiveAuthenticationManagerAdapter(
+                    new ProviderManager(cachingJwtAuthenticationProvider));
+            authenticationManager.setScheduler(Schedulers.immediate());
+            return http
+                    .authorizeExchange(exchanges -> exchanges
+                            // Acces to OpenAPI doc does not required authentication
+                            .pathMatchers("/swagger-ui/**", "/swagger-ui.html", "/webjars/**", "/api-docs*/**")
+                            .permitAll()
+                            // Acces to the actuator endpoints do not require authentication
+                            .pathMatchers("/actuator/health")
+                            .permitAll()
+                            // Other actuator endpoints (e.g. meal rollups rebuild) are restricted to admins
+                            .pathMatchers("/actuator/**")
+                            .hasAuthority("DIET_APP_ADMIN")
+                            // All other requests need to be authenticated
+                            .anyExchange()
+                            .authenticated())
+                    // Tokens are verified once, then authenticated from the cache until they expire
+                    .oauth2ResourceServer(oauth2 -> oauth2.jwt(
+                            jwt -> jwt.authenticationManager(authenticationManager)))
+                    .build();
+        }
+    }
     /**
      * Provides a JWT object into a collection of GrantedAuthority's converter.
      * This converter specifically extracts the realm access item's roles and
@@ -76,4 +170,85 @@ public class GlobalSecurityConfiguration {
 
         return jwtAuthenticationConverter;
     }
+
+    /**
+     * Provides the bearer token authentication provider: tokens are decoded and
+     * verified by the JWT decoder, then their authorities are extracted by the
+     * Keycloak converter, and the result is cached per token. The tokens of
+     * the keys a JWK set refresh removes are dropped from the cache.
+     *
+     * @param jwtDecoder                            JWT decoder, verifying the
+     *                                              token signature and claims
+     * @param refreshingJwkSource                   Source of the verification
+     *                                              keys, reporting the removed
+     *                                              ones
+     * @param jwtAuthenticationConverterForKeycloak Keycloak authorities converter
+     * @param maximumSize                           Maximum number of cached tokens
+     * @param maxTimeToLive                         Maximum time a token is cached
+     *                                              for, bounding how long a
+     *                                              rotated out key is honored
+     *                                              if it is not removed from
+     *                                              the JWK set
+     * @return Caching authentication provider
+     */
+    @Bean
+    CachingJwtAuthenticationProvider cachingJwtAuthenticationProvider(JwtDecoder jwtDecoder,
+            RefreshingJwkSource refreshingJwkSource, JwtAuthenticationConverter jwtAuthenticationConverterForKeycloak,
+            @Value("${diet-tracker.security.jwt-cache.maximum-size:10000}") long maximumSize,
+            @Value("${diet-tracker.security.jwt-cache.max-time-to-live:5m}") Duration maxTimeToLive) {
+        var jwtAuthenticationProvider = new JwtAuthenticationProvider(jwtDecoder);
+        jwtAuthenticationProvider.setJwtAuthenticationConverter(jwtAuthenticationConverterForKeycloak);
+        var cachingJwtAuthenticationProvider = new CachingJwtAuthenticationProvider(jwtAuthenticationProvider,
+                maximumSize, maxTimeToLive, Clock.systemUTC());
+        refreshingJwkSource.setKeysRemovedListener(cachingJwtAuthenticationProvider::invalidateKeys);
+        return cachingJwtAuthenticationProvider;
+    }
+
+    /**
+     * Provides the source of the token verification keys, loaded from the
+     * snapshot file and refreshed in the background from the JWK set URI.
+     *
+     * @param resourceServerProperties Resource server properties, providing the
+     *                                 JWK set URI
+     * @param snapshotFile             File the keys are loaded from on startup
+     *                                 and saved to, empty for none
+     * @param refreshInterval          Delay between two scheduled refreshes
+     * @param minRefreshInterval       Minimum delay between two refreshes caused
+     *                                 by unknown keys
+     * @return JWK source
+     */
+    @Bean
+    RefreshingJwkSource refreshingJwkSource(OAuth2ResourceServerProperties resourceServerProperties,
+            @Value("${diet-tracker.security.jwks.snapshot-file:}") String snapshotFile,
+            @Value("${diet-tracker.security.jwks.refresh-interval:5m}") Duration refreshInterval,
+            @Value("${diet-tracker.security.jwks.min-refresh-interval:30s}") Duration minRefreshInterval) {
+        return new RefreshingJwkSource(URI.create(resourceServerProperties.getJwt().getJwkSetUri()),
+                StringUtils.hasText(snapshotFile) ? Path.of(snapshotFile) : null, refreshInterval,
+                minRefreshInterval);
+    }
+
+    /**
+     * Provides the JWT decoder, verifying the token signatures with the keys of
+     * the JWK source and validating their timestamps and issuer.
+     * Unlike the issuer-uri based decoder, it never calls the identity provider
+     * on startup nor on a request thread.
+     *
+     * @param refreshingJwkSource      Source of the verification keys
+     * @param resourceServerProperties Resource server properties, providing the
+     *                                 expected issuer
+     * @return JWT decoder
+     */
+    @Bean
+    JwtDecoder jwtDecoder(RefreshingJwkSource refreshingJwkSource,
+            OAuth2ResourceServerProperties resourceServerProperties) {
+        var jwtProcessor = new DefaultJWTProcessor<SecurityContext>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, refreshingJwkSource));
+        // Claims are validated by the Spring Security validators instead
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+
+        var jwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        jwtDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(resourceServerProperties.getJwt().getIssuerUri()));
+        return jwtDecoder;
+    }
 }
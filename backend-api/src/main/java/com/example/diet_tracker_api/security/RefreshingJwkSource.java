@@ -0,0 +1,307 @@
+package com.example.diet_tracker_api.security;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.springframework.context.SmartLifecycle;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Source of the keys verifying the bearer tokens, never fetching them on a
+ * request thread.
+ * Keys are served from memory: they are first loaded from an optional
+ * snapshot file, then refreshed from the JWK set URI by a background thread,
+ * on a fixed schedule and whenever a token is signed by an unknown key.
+ * Until a refresh succeeds, the current keys keep being served (stale while
+ * revalidate); each successful refresh is saved to the snapshot file, so that
+ * the next startup does not depend on the identity provider. A snapshot
+ * someone else could have written is ignored, see isTrusted.
+ * Keys a refresh removes are reported to the keys removed listener, so that
+ * the authentications they verified stop being honored.
+ */
+@Slf4j
+public class RefreshingJwkSource implements JWKSource<SecurityContext>, SmartLifecycle {
+    /**
+     * Timeout of the JWK set requests.
+     */
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * URI the JWK set is fetched from.
+     */
+    private final URI jwkSetUri;
+
+    /**
+     * File the JWK set is loaded from on startup and saved to after each
+     * refresh, null for none.
+     */
+    private final Path snapshotFile;
+
+    /**
+     * Delay between two scheduled refreshes.
+     */
+    private final Duration refreshInterval;
+
+    /**
+     * Minimum delay between two refreshes caused by unknown keys.
+     */
+    private final Duration minRefreshInterval;
+
+    /**
+     * Client fetching the JWK set.
+     */
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(FETCH_TIMEOUT).build();
+
+    /**
+     * Keys currently served.
+     */
+    private final AtomicReference<JWKSet> jwkSet = new AtomicReference<>(new JWKSet());
+
+    /**
+     * Whether a refresh caused by an unknown key is waiting to be run.
+     */
+    private final AtomicBoolean refreshRequested = new AtomicBoolean();
+
+    /**
+     * Listener of the ids of the keys removed by a refresh.
+     */
+    private volatile Consumer<Set<String>> keysRemovedListener = keyIds -> {
+    };
+
+    /**
+     * System.nanoTime() of the last refresh attempt.
+     */
+    private volatile long lastRefreshNanos;
+
+    /**
+     * Thread refreshing the keys, null when stopped.
+     */
+    private volatile ScheduledExecutorService refresher;
+
+    /**
+     * Constructor for the source, loading the snapshot file if it exists.
+     *
+     * @param jwkSetUri          URI the JWK set is fetched from
+     * @param snapshotFile       File the JWK set is loaded from on startup and
+     *                           saved to after each refresh, null for none
+     * @param refreshInterval    Delay between two scheduled refreshes
+     * @param minRefreshInterval Minimum delay between two refreshes caused by
+     *                           unknown keys
+     */
+    public RefreshingJwkSource(URI jwkSetUri, Path snapshotFile, Duration refreshInterval,
+            Duration minRefreshInterval) {
+        this.jwkSetUri = jwkSetUri;
+        this.snapshotFile = snapshotFile;
+        this.refreshInterval = refreshInterval;
+        this.minRefreshInterval = minRefreshInterval;
+        this.lastRefreshNanos = System.nanoTime() - minRefreshInterval.toNanos();
+        loadSnapshot();
+    }
+
+    /**
+     * Returns the current keys matching the selector.
+     * When none matches (e.g. the signing key was just rotated), a background
+     * refresh is requested and no key is returned: the token is rejected
+     * instead of waiting for the identity provider.
+     *
+     * @param jwkSelector Key selector
+     * @param context     Unused
+     * @return Matching keys
+     */
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+        var keys = jwkSelector.select(jwkSet.get());
+        if (keys.isEmpty()) {
+            requestRefresh();
+        }
+        return keys;
+    }
+
+    /**
+     * Asks the background thread to refresh the keys, unless the last refresh
+     * attempt is more recent than minRefreshInterval.
+     */
+    public void requestRefresh() {
+        var currentRefresher = refresher;
+        if (currentRefresher == null || System.nanoTime() - lastRefreshNanos < minRefreshInterval.toNanos()) {
+            return;
+        }
+        if (refreshRequested.compareAndSet(false, true)) {
+            currentRefresher.execute(() -> {
+                refreshRequested.set(false);
+                refresh();
+            });
+        }
+    }
+
+    /**
+     * Fetches the JWK set and serves it, keeping the current keys on failure.
+     * Only called by the background thread (or tests).
+     */
+    void refresh() {
+        lastRefreshNanos = System.nanoTime();
+        try {
+            var request = HttpRequest.newBuilder(jwkSetUri).timeout(FETCH_TIMEOUT).GET().build();
+            var response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("Unexpected status " + response.statusCode());
+            }
+            var fetched = JWKSet.parse(response.body());
+            var removedKeyIds = keyIds(jwkSet.getAndSet(fetched));
+            removedKeyIds.removeAll(keyIds(fetched));
+            if (!removedKeyIds.isEmpty()) {
+                log.info("Keys {} removed from the JWK set", removedKeyIds);
+                keysRemovedListener.accept(removedKeyIds);
+            }
+            saveSnapshot(fetched);
+        } catch (IOException | ParseException e) {
+            log.warn("JWK set refresh from {} failed, keeping the {} current keys: {}", jwkSetUri,
+                    jwkSet.get().size(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the keys currently served.
+     *
+     * @return Current JWK set
+     */
+    public JWKSet getJwkSet() {
+        return jwkSet.get();
+    }
+
+    /**
+     * Sets the listener of the ids of the keys removed by a refresh, called by
+     * the refreshing thread once the removed keys are no longer served.
+     *
+     * @param keysRemovedListener Listener of the removed key ids
+     */
+    public void setKeysRemovedListener(Consumer<Set<String>> keysRemovedListener) {
+        this.keysRemovedListener = keysRemovedListener;
+    }
+
+    /**
+     * Starts the background thread, which refreshes the keys right away and
+     * then every refreshInterval.
+     */
+    @Override
+    public void start() {
+        var newRefresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "jwk-set-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        newRefresher.scheduleWithFixedDelay(this::refresh, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        refresher = newRefresher;
+    }
+
+    @Override
+    public void stop() {
+        var currentRefresher = refresher;
+        refresher = null;
+        if (currentRefresher != null) {
+            currentRefresher.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return refresher != null;
+    }
+
+    private static Set<String> keyIds(JWKSet keys) {
+        // A key without an id is reported as a null id (it only verifies the tokens without one)
+        return keys.getKeys().stream().map(JWK::getKeyID).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private void loadSnapshot() {
+        if (snapshotFile == null || !Files.isReadable(snapshotFile)) {
+            return;
+        }
+        try {
+            if (!isTrusted(snapshotFile)) {
+                log.warn("Ignoring the JWK set snapshot {}: it must be owned by {} and neither it nor its directory "
+                        + "writable by others", snapshotFile, System.getProperty("user.name"));
+                return;
+            }
+            jwkSet.set(JWKSet.load(snapshotFile.toFile()));
+            log.info("Loaded {} keys from the JWK set snapshot {}", jwkSet.get().size(), snapshotFile);
+        } catch (IOException | ParseException e) {
+            log.warn("Could not load the JWK set snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns whether a snapshot can be trusted: its keys verify the tokens,
+     * so it must not have been written by anyone else than the application.
+     * It must be owned by the application's user, and neither it nor its
+     * directory may be group or world writable (when the file system has
+     * POSIX permissions).
+     *
+     * @param file Snapshot file
+     * @return Whether its keys can be served
+     * @throws IOException if its attributes cannot be read
+     */
+    static boolean isTrusted(Path file) throws IOException {
+        var owner = Files.getOwner(file);
+        var user = file.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!owner.equals(user)) {
+            return false;
+        }
+        var directory = file.toAbsolutePath().getParent();
+        return !isWritableByOthers(file) && (directory == null || !isWritableByOthers(directory));
+    }
+
+    private static boolean isWritableByOthers(Path path) throws IOException {
+        if (Files.getFileAttributeView(path, PosixFileAttributeView.class) == null) {
+            return false;
+        }
+        var permissions = Files.getPosixFilePermissions(path);
+        return permissions.contains(PosixFilePermission.GROUP_WRITE)
+                || permissions.contains(PosixFilePermission.OTHERS_WRITE);
+    }
+
+    private void saveSnapshot(JWKSet fetched) {
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            // Written aside then moved, so that a crash never leaves a truncated snapshot
+            // (temporary files are only readable and writable by their owner)
+            var tempFile = Files.createTempFile(snapshotFile.toAbsolutePath().getParent(), "jwks", ".tmp");
+            Files.writeString(tempFile, fetched.toString(true));
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not save the JWK set snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.diet_tracker_api.service;
+
+import java.time.LocalDate;
+
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+
+/**
+ * Year-long grid of a user's meals: for each day and meal time, the content
+ * of the meal logged, if any. Each slot holds a meal content code on 3 bits
+ * (0 for no meal), 7 days of 3 slots being packed in each long: a year fits
+ * in 53 longs.
+ * When several meals share a slot, the one with the highest code (the most
+ * meaty) is kept.
+ */
+public final class MealCalendar {
+    /**
+     * Approximate memory held by a calendar.
+     */
+    static final int FOOTPRINT_BYTES = 16 + 16 + 53 * Long.BYTES;
+
+    /**
+     * Number of bits of a meal content code.
+     */
+    private static final int SLOT_BITS = 3;
+
+    /**
+     * Bits of a slot.
+     */
+    private static final long SLOT_MASK = (1L << SLOT_BITS) - 1;
+
+    /**
+     * Number of bits of a day.
+     */
+    private static final int DAY_BITS = SLOT_BITS * MealTime.values().length;
+
+    /**
+     * Number of days packed in a long.
+     */
+    private static final int DAYS_PER_WORD = Long.SIZE / DAY_BITS;
+
+    /**
+     * Calendar year.
+     */
+    private final int year;
+
+    /**
+     * Number of days of the year.
+     */
+    private final int length;
+
+    /**
+     * Packed slots, by day of the year.
+     */
+    private final long[] words;
+
+    private MealCalendar(int year) {
+        this.year = year;
+        this.length = LocalDate.ofYearDay(year, 1).lengthOfYear();
+        this.words = new long[(length + DAYS_PER_WORD - 1) / DAYS_PER_WORD];
+    }
+
+    /**
+     * Builds the calendar of a year from a user's timeline.
+     *
+     * @param timeline User's timeline
+     * @param year     Calendar year
+     * @return Calendar of the year's meals
+     */
+    static MealCalendar of(MealTimeline timeline, int year) {
+        var calendar = new MealCalendar(year);
+        var first = LocalDate.ofYearDay(year, 1);
+        var firstDay = (int) first.toEpochDay();
+        var end = timeline.indexOf(first.plusYears(1));
+        for (int i = timeline.indexOf(first); i < end; i++) {
+            calendar.set(timeline.epochDay(i) - firstDay, timeline.mealTime(i), timeline.mealContent(i));
+        }
+        return calendar;
+    }
+
+    private void set(int day, MealTime mealTime, MealContent mealContent) {
+        var word = day / DAYS_PER_WORD;
+        var shift = shift(day, mealTime);
+        if (mealContent.getCode() > (words[word] >>> shift & SLOT_MASK)) {
+            words[word] = words[word] & ~(SLOT_MASK << shift) | (long) mealContent.getCode() << shift;
+        }
+    }
+
+    /**
+     * Returns the calendar year.
+     *
+     * @return Calendar year
+     */
+    public int year() {
+        return year;
+    }
+
+    /**
+     * Returns the number of days of the year.
+     *
+     * @return 365 or 366
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the content of a slot.
+     *
+     * @param day      Day of the year, from 0 (January 1st)
+     * @param mealTime Meal time
+     * @return Content of the meal logged, null if none
+     */
+    public MealContent mealContent(int day, MealTime mealTime) {
+        var code = (byte) (words[day / DAYS_PER_WORD] >>> shift(day, mealTime) & SLOT_MASK);
+        return code == 0 ? null : MealContent.fromCode(code);
+    }
+
+    /**
+     * Returns a hash of the calendar's slots, changed by any of them.
+     *
+     * @return Hash of the slots
+     */
+    public long fingerprint() {
+        long hash = year;
+        for (long word : words) {
+            hash = hash * 1_000_003 + word;
+        }
+        return hash;
+    }
+
+    private static int shift(int day, MealTime mealTime) {
+        return day % DAYS_PER_WORD * DAY_BITS + (mealTime.getCode() - 1) * SLOT_BITS;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.diet_tracker_api.service;
+
+import com.example.diet_tracker_api.model.Meal;
+
+/**
+ * Committed write to one of a user's meals, pushed to the user's change feed
+ * subscribers.
+ *
+ * @param type      Kind of write
+ * @param changeSeq Change sequence of the write, see MealChangeLog
+ * @param meal      Meal as written (upserts) or as last stored (deletes)
+ */
+public record MealChangeEvent(Type type, long changeSeq, Meal meal) {
+
+    /**
+     * Builds the event of a created or edited meal.
+     *
+     * @param meal Meal as written, holding its change sequence
+     * @return Upsert event
+     */
+    public static MealChangeEvent upsert(Meal meal) {
+        return new MealChangeEvent(Type.UPSERT, meal.getChangeSeq(), meal);
+    }
+
+    /**
+     * Builds the event of a deleted meal.
+     *
+     * @param meal      Meal as last stored
+     * @param changeSeq Change sequence of the delete
+     * @return Delete event
+     */
+    public static MealChangeEvent delete(Meal meal, long changeSeq) {
+        return new MealChangeEvent(Type.DELETE, changeSeq, meal);
+    }
+
+    /**
+     * Kind of write.
+     */
+    public enum Type {
+        /**
+         * Meal created or edited.
+         */
+        UPSERT,
+        /**
+         * Meal deleted.
+         */
+        DELETE
+    }
+}
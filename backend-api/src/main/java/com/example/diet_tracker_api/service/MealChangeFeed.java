@@ -0,0 +1,516 @@
+package com.example.diet_tracker_api.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.diet_tracker_api.exception.MealChangeFeedFullException;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.UserIdConverter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process fan-out of the committed meal writes to the change feed
+ * subscribers (GET /meals/stream) of their user.
+ * Each subscriber has its own queue of at most queue-capacity changes, sent
+ * to its connection by a small pool of delivery threads: publishing never
+ * waits for a client, and idle subscribers hold neither a thread nor a queue.
+ * A subscriber lagging queue-capacity changes behind has them dropped, and is
+ * sent a resync instead, telling it to catch up from the delta sync (GET
+ * /meals/changes); so is every new subscriber. Changes published while a
+ * resync is pending are dropped too, the client's sync following them.
+ * Subscribers sent nothing for half heartbeat-interval are sent a heartbeat,
+ * which keeps their connection open through proxies and detects the dead ones.
+ * Only the writes of this instance are published.
+ */
+@Slf4j
+@Component
+public class MealChangeFeed implements SmartLifecycle {
+    /**
+     * Maximum number of subscribers.
+     */
+    private final int maxSubscribers;
+
+    /**
+     * Maximum number of changes queued for a subscriber.
+     */
+    private final int queueCapacity;
+
+    /**
+     * Maximum delay between two messages sent to a subscriber.
+     */
+    private final Duration heartbeatInterval;
+
+    /**
+     * Subscriptions, by user id (in its stored form).
+     */
+    private final Map<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * Number of subscriptions.
+     */
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    /**
+     * Threads sending the queued changes to the subscribers.
+     */
+    private final ExecutorService deliveryExecutor;
+
+    /**
+     * Thread sending the heartbeats.
+     */
+    private final ScheduledExecutorService heartbeatScheduler;
+
+    /**
+     * Periodic heartbeat task, null when stopped.
+     */
+    private volatile ScheduledFuture<?> heartbeats;
+
+    /**
+     * Whether the feed was stopped, new subscribers being rejected.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Number of changes sent.
+     */
+    private final LongAdder sentEvents = new LongAdder();
+
+    /**
+     * Number of resyncs sent.
+     */
+    private final LongAdder sentResyncs = new LongAdder();
+
+    /**
+     * Number of heartbeats sent.
+     */
+    private final LongAdder sentHeartbeats = new LongAdder();
+
+    /**
+     * Number of times a lagging subscriber's queue was dropped.
+     */
+    private final LongAdder overflows = new LongAdder();
+
+    /**
+     * Number of connections closed by a failed send.
+     */
+    private final LongAdder failedSends = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param maxSubscribers    Maximum number of subscribers
+     * @param queueCapacity     Maximum number of changes queued for a
+     *                          subscriber
+     * @param heartbeatInterval Maximum delay between two messages sent to a
+     *                          subscriber
+     * @param deliveryThreads   Number of threads sending the changes
+     */
+    public MealChangeFeed(@Value("${diet-tracker.change-feed.max-subscribers:50000}") int maxSubscribers,
+            @Value("${diet-tracker.change-feed.queue-capacity:64}") int queueCapacity,
+            @Value("${diet-tracker.change-feed.heartbeat-interval:30s}") Duration heartbeatInterval,
+            @Value("${diet-tracker.change-feed.delivery-threads:4}") int deliveryThreads) {
+        this.maxSubscribers = maxSubscribers;
+        this.queueCapacity = queueCapacity;
+        this.heartbeatInterval = heartbeatInterval;
+        var threadCount = new AtomicInteger();
+        this.deliveryExecutor = Executors.newFixedThreadPool(deliveryThreads, runnable -> {
+            var thread = new Thread(runnable, "meal-feed-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "meal-feed-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Subscribes a connection to the changes of a user's meals. Its first
+     * message is a resync.
+     *
+     * @param userId User id to whom the meals belong
+     * @param sink   Connection of the subscriber
+     * @return Subscription, to be cancelled once the connection is closed
+     * @throws MealChangeFeedFullException if the feed holds max-subscribers
+     *                                     subscribers, or is stopped.
+     */
+    public Subscription subscribe(String userId, MealChangeSink sink) {
+        if (stopped || subscriberCount.incrementAndGet() > maxSubscribers) {
+            if (!stopped) {
+                subscriberCount.decrementAndGet();
+            }
+            throw new MealChangeFeedFullException(userId, heartbeatInterval.toSeconds());
+        }
+        var subscription = new Subscription(key(userId), sink);
+        subscriptions.compute(subscription.key, (key, userSubscriptions) -> {
+            var newSubscriptions = userSubscriptions != null ? userSubscriptions
+                    : ConcurrentHashMap.<Subscription>newKeySet();
+            newSubscriptions.add(subscription);
+            return newSubscriptions;
+        });
+        subscription.schedule();
+        return subscription;
+    }
+
+    /**
+     * Publishes created or edited meals to their owner's subscribers, once the
+     * current transaction (if any) is committed.
+     *
+     * @param userId User id to whom the meals belong
+     * @param meals  Meals as written, holding their change sequence
+     */
+    public void publishUpserts(String userId, List<Meal> meals) {
+        publish(userId, meals.stream().map(MealChangeEvent::upsert).toList());
+    }
+
+    /**
+     * Publishes a deleted meal to its owner's subscribers, once the current
+     * transaction (if any) is committed.
+     *
+     * @param userId    User id to whom the meal belongs
+     * @param meal      Meal as last stored
+     * @param changeSeq Change sequence of the delete
+     */
+    public void publishDelete(String userId, Meal meal, long changeSeq) {
+        publish(userId, List.of(MealChangeEvent.delete(meal, changeSeq)));
+    }
+
+    private void publish(String userId, List<MealChangeEvent> events) {
+        var key = key(userId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(key, events);
+            return;
+        }
+        // Subscribers connecting meanwhile may sync before the commit: the changes are kept until then
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deliver(key, events);
+            }
+        });
+    }
+
+    private void deliver(String key, List<MealChangeEvent> events) {
+        var userSubscriptions = subscriptions.get(key);
+        if (userSubscriptions != null) {
+            userSubscriptions.forEach(subscription -> subscription.offer(events));
+        }
+    }
+
+    /**
+     * Returns the stored form of a user id (see UserIdConverter), so that the
+     * subscribers and the writes of ids stored alike match.
+     */
+    private static String key(String userId) {
+        return UserIdConverter.normalize(userId);
+    }
+
+    private void remove(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.key, (key, userSubscriptions) -> {
+            if (userSubscriptions.remove(subscription)) {
+                subscriberCount.decrementAndGet();
+            }
+            return userSubscriptions.isEmpty() ? null : userSubscriptions;
+        });
+    }
+
+    /**
+     * Sends a heartbeat to the subscribers sent nothing for half the interval,
+     * so that none stays silent for more than the interval.
+     */
+    void sendHeartbeats() {
+        var threshold = System.nanoTime() - heartbeatInterval.toNanos() / 2;
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions
+                .forEach(subscription -> subscription.heartbeat(threshold)));
+    }
+
+    /**
+     * Returns the number of subscribers and of messages sent.
+     *
+     * @return Current statistics
+     */
+    public Statistics statistics() {
+        return new Statistics(
+                subscriberCount.get(),
+                subscriptions.size(),
+                sentEvents.sum(),
+                sentResyncs.sum(),
+                sentHeartbeats.sum(),
+                overflows.sum(),
+                failedSends.sum());
+    }
+
+    /**
+     * Number of subscribers and of messages sent.
+     *
+     * @param subscribers Number of subscribers
+     * @param users       Number of users having subscribers
+     * @param events      Number of changes sent
+     * @param resyncs     Number of resyncs sent
+     * @param heartbeats  Number of heartbeats sent
+     * @param overflows   Number of times a lagging subscriber's changes were
+     *                    dropped
+     * @param failedSends Number of connections closed by a failed send
+     */
+    public record Statistics(long subscribers, long users, long events, long resyncs, long heartbeats,
+            long overflows, long failedSends) {
+    }
+
+    /**
+     * Starts sending the heartbeats.
+     */
+    @Override
+    public void start() {
+        var interval = heartbeatInterval.toMillis() / 2;
+        heartbeats = heartbeatScheduler.scheduleWithFixedDelay(this::sendHeartbeats, interval, interval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Rejects new subscribers and closes the connections of the current ones.
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+        var currentHeartbeats = heartbeats;
+        heartbeats = null;
+        if (currentHeartbeats != null) {
+            currentHeartbeats.cancel(false);
+        }
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions.forEach(Subscription::close));
+        heartbeatScheduler.shutdown();
+        deliveryExecutor.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return heartbeats != null;
+    }
+
+    /**
+     * Stops before the web server's graceful shutdown, which would otherwise
+     * wait for the open connections.
+     *
+     * @return Phase higher than the web server ones
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE;
+    }
+
+    /**
+     * Subscriber of a user's changes. Its connection is written by one
+     * delivery thread at a time, while changes are queued.
+     */
+    public final class Subscription {
+        /**
+         * User id to whom the meals belong (in its stored form).
+         */
+        private final String key;
+
+        /**
+         * Connection of the subscriber.
+         */
+        private final MealChangeSink sink;
+
+        /**
+         * Lock guarding the queue and the flags below, never held while
+         * sending.
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Changes waiting to be sent, null when none.
+         */
+        private ArrayDeque<MealChangeEvent> events;
+
+        /**
+         * Whether a resync must be sent before any change.
+         */
+        private boolean resync = true;
+
+        /**
+         * Whether a heartbeat must be sent, unless anything else is.
+         */
+        private boolean heartbeat;
+
+        /**
+         * Whether a delivery thread is sending the queued messages.
+         */
+        private boolean draining;
+
+        /**
+         * Whether the subscription is over.
+         */
+        private boolean closed;
+
+        /**
+         * Time of the last message sent (System.nanoTime).
+         */
+        private volatile long lastSendNanos = System.nanoTime();
+
+        private Subscription(String key, MealChangeSink sink) {
+            this.key = key;
+            this.sink = sink;
+        }
+
+        private void offer(List<MealChangeEvent> newEvents) {
+            lock.lock();
+            try {
+                if (closed || resync) {
+                    return;
+                }
+                if (events == null) {
+                    events = new ArrayDeque<>(Math.min(newEvents.size(), queueCapacity));
+                }
+                if (events.size() + newEvents.size() > queueCapacity) {
+                    events = null;
+                    resync = true;
+                    overflows.increment();
+                } else {
+                    events.addAll(newEvents);
+                }
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            } finally {
+                lock.unlock();
+            }
+            execute();
+        }
+
+        private void heartbeat(long threshold) {
+            lock.lock();
+            try {
+                if (closed || lastSendNanos - threshold > 0) {
+                    return;
+                }
+                // Unless any other message is sent first
+                heartbeat = true;
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            } finally {
+                lock.unlock();
+            }
+            execute();
+        }
+
+        private void schedule() {
+            lock.lock();
+            try {
+                draining = true;
+            } finally {
+                lock.unlock();
+            }
+            execute();
+        }
+
+        private void execute() {
+            try {
+                deliveryExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Stopped: the connection is closed
+                close();
+            }
+        }
+
+        /**
+         * Sends the pending messages until none is left: a resync first if
+         * any, then the queued changes, or else a heartbeat.
+         */
+        private void drain() {
+            while (true) {
+                MealChangeEvent event = null;
+                boolean sendResync;
+                lock.lock();
+                try {
+                    sendResync = resync;
+                    if (closed || !sendResync && !heartbeat && events == null) {
+                        draining = false;
+                        return;
+                    }
+                    if (!sendResync && events != null) {
+                        event = events.poll();
+                        if (events.isEmpty()) {
+                            events = null;
+                        }
+                    }
+                    resync = false;
+                    heartbeat = false;
+                } finally {
+                    lock.unlock();
+                }
+                LongAdder sent;
+                try {
+                    if (sendResync) {
+                        sink.resync();
+                        sent = sentResyncs;
+                    } else if (event != null) {
+                        sink.send(event);
+                        sent = sentEvents;
+                    } else {
+                        sink.heartbeat();
+                        sent = sentHeartbeats;
+                    }
+                    lastSendNanos = System.nanoTime();
+                } catch (Exception e) {
+                    log.debug("Closing the meal change feed of a subscriber: {}", e.getMessage());
+                    failedSends.increment();
+                    close();
+                    return;
+                }
+                sent.increment();
+            }
+        }
+
+        /**
+         * Ends the subscription, its connection being closed by the client or
+         * timed out.
+         */
+        public void cancel() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                events = null;
+            } finally {
+                lock.unlock();
+            }
+            remove(this);
+        }
+
+        /**
+         * Ends the subscription and closes its connection.
+         */
+        private void close() {
+            cancel();
+            sink.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.diet_tracker_api.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealTombstone;
+import com.example.diet_tracker_api.repository.MealChangeCounterDAO;
+import com.example.diet_tracker_api.repository.MealDAO;
+import com.example.diet_tracker_api.repository.MealTombstoneDAO;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Service in charge of the change sequences of the meal writes, and of the
+ * tombstones of the deleted meals, from which clients sync their copy.
+ * Sequences must be taken before the meal rows are written, within the
+ * transaction writing them: the user's counter row is then always locked
+ * first, and concurrent writes to the same meals cannot deadlock.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class MealChangeLog {
+    /**
+     * Meal DAO.
+     */
+    private final MealDAO mealDAO;
+
+    /**
+     * Meal change counter DAO.
+     */
+    private final MealChangeCounterDAO mealChangeCounterDAO;
+
+    /**
+     * Meal tombstone DAO.
+     */
+    private final MealTombstoneDAO mealTombstoneDAO;
+
+    /**
+     * Sets a change sequence on meals to be written, in the list order.
+     *
+     * @param userId User id to whom the meals belong
+     * @param meals  Meals to be written
+     */
+    public void assign(String userId, List<Meal> meals) {
+        var last = mealChangeCounterDAO.allocate(userId, meals.size());
+        for (int i = 0; i < meals.size(); i++) {
+            meals.get(i).setChangeSeq(last - meals.size() + 1 + i);
+        }
+    }
+
+    /**
+     * Returns the change sequence of a meal edit or delete.
+     *
+     * @param userId User id to whom the meal belongs
+     * @return Change sequence
+     */
+    public long next(String userId) {
+        return mealChangeCounterDAO.allocate(userId, 1);
+    }
+
+    /**
+     * Leaves the tombstone of a deleted meal.
+     *
+     * @param meal      Deleted meal
+     * @param changeSeq Change sequence of the delete, see next
+     */
+    public void tombstone(Meal meal, long changeSeq) {
+        mealTombstoneDAO.insert(new MealTombstone(meal.getId(), meal.getUserId(), changeSeq));
+    }
+
+    /**
+     * Returns the first changes of a user's meals after a change sequence.
+     * The meals written and the tombstones are both read from their (user_id,
+     * change_seq) index, then merged in change sequence order.
+     *
+     * @param userId User id to whom the meals belong
+     * @param since  Last change sequence the client synced, null for all meals
+     * @param limit  Maximum number of changes
+     * @return Changes, in change sequence order
+     */
+    @Transactional(readOnly = true)
+    public MealChanges getChanges(String userId, Long since, int limit) {
+        // Meals written behind the application's back are at 0
+        var after = since == null ? -1L : since;
+        var meals = mealDAO.findByUserIdAndChangeSeqGreaterThanOrderByChangeSeq(userId, after, Limit.of(limit + 1));
+        var tombstones = mealTombstoneDAO.findByUserIdAndChangeSeqGreaterThanOrderByChangeSeq(userId, after,
+                Limit.of(limit + 1));
+        return merge(meals, tombstones, after, limit);
+    }
+
+    /**
+     * Merges the meals written and the tombstones read after a change
+     * sequence, both in change sequence order, into the first changes.
+     * Shared with ReactiveMealService.
+     *
+     * @param meals      First meals written after the change sequence
+     * @param tombstones First tombstones left after the change sequence
+     * @param after      Change sequence read after, -1 for all meals
+     * @param limit      Maximum number of changes
+     * @return Changes, in change sequence order
+     */
+    static MealChanges merge(List<Meal> meals, List<MealTombstone> tombstones, long after, int limit) {
+        var upserts = new ArrayList<Meal>();
+        var deletedIds = new ArrayList<Long>();
+        var changeSeq = Math.max(after, 0L);
+        int m = 0;
+        int t = 0;
+        while (m + t < limit && (m < meals.size() || t < tombstones.size())) {
+            if (t == tombstones.size()
+                    || m < meals.size() && meals.get(m).getChangeSeq() < tombstones.get(t).getChangeSeq()) {
+                changeSeq = meals.get(m).getChangeSeq();
+                upserts.add(meals.get(m++));
+            } else {
+                changeSeq = tombstones.get(t).getChangeSeq();
+                deletedIds.add(tombstones.get(t++).getId());
+            }
+        }
+        return new MealChanges(upserts, deletedIds, changeSeq, m < meals.size() || t < tombstones.size());
+    }
+}
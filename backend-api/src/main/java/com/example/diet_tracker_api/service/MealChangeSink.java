@@ -0,0 +1,39 @@
+package com.example.diet_tracker_api.service;
+
+import java.io.IOException;
+
+/**
+ * Connection of a change feed subscriber, written by one delivery thread at a
+ * time. A failed write closes the subscription.
+ */
+public interface MealChangeSink {
+
+    /**
+     * Sends a meal change.
+     *
+     * @param event Committed meal write
+     * @throws IOException if the connection is gone
+     */
+    void send(MealChangeEvent event) throws IOException;
+
+    /**
+     * Tells the client to sync its copy from the delta sync (GET
+     * /meals/changes), changes having been dropped or not sent yet.
+     *
+     * @throws IOException if the connection is gone
+     */
+    void resync() throws IOException;
+
+    /**
+     * Sends a no-op keeping the idle connection open through proxies, and
+     * detecting the dead ones.
+     *
+     * @throws IOException if the connection is gone
+     */
+    void heartbeat() throws IOException;
+
+    /**
+     * Ends the connection, e.g. on shutdown or after a failed write.
+     */
+    void close();
+}
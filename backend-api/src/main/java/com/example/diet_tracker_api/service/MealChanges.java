@@ -0,0 +1,16 @@
+package com.example.diet_tracker_api.service;
+
+import java.util.List;
+
+import com.example.diet_tracker_api.model.Meal;
+
+/**
+ * Changes of a user's meals since a change sequence.
+ *
+ * @param upserts    Meals created or edited, in their current state
+ * @param deletedIds Ids of the meals deleted
+ * @param changeSeq  Last change sequence included, to sync from next time
+ * @param more       Whether more changes follow changeSeq
+ */
+public record MealChanges(List<Meal> upserts, List<Long> deletedIds, long changeSeq, boolean more) {
+}
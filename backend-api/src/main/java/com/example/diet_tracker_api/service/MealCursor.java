@@ -0,0 +1,58 @@
+package com.example.diet_tracker_api.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+import com.example.diet_tracker_api.model.Meal;
+
+/**
+ * Position of a Meal in a user's meal list, ordered by (mealDate, id).
+ * Used as a keyset (seek) cursor: the next page starts right after this
+ * position.
+ *
+ * @param mealDate Meal date of the last returned Meal
+ * @param id       Meal id of the last returned Meal
+ */
+public record MealCursor(LocalDate mealDate, Long id) {
+
+    /**
+     * Builds the cursor pointing right after the provided Meal.
+     *
+     * @param meal Last Meal of a page
+     * @return Matching cursor
+     */
+    public static MealCursor after(Meal meal) {
+        return new MealCursor(meal.getMealDate(), meal.getId());
+    }
+
+    /**
+     * Encodes the cursor as an opaque, URL-safe token.
+     *
+     * @return Encoded cursor
+     */
+    public String encode() {
+        var raw = mealDate + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token previously built with {@link #encode()}.
+     *
+     * @param token Encoded cursor
+     * @return Decoded cursor
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static MealCursor decode(String token) {
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var parts = raw.split(",", -1);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            return new MealCursor(LocalDate.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.diet_tracker_api.service;
+
+import java.time.LocalDate;
+
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+
+/**
+ * Optional criteria restricting a user's meal list. A null criterion does not
+ * filter anything.
+ *
+ * @param from        First meal date to include
+ * @param to          Last meal date to include
+ * @param mealTime    Meal time to match
+ * @param mealContent Meal content to match
+ */
+public record MealFilter(LocalDate from, LocalDate to, MealTime mealTime, MealContent mealContent) {
+
+    /**
+     * Filter matching all meals.
+     */
+    public static final MealFilter NONE = new MealFilter(null, null, null, null);
+}
@@ -0,0 +1,46 @@
+package com.example.diet_tracker_api.service;
+
+import org.springframework.stereotype.Component;
+
+import com.example.diet_tracker_api.repository.MealChangeCounterDAO;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Version of each user's meal list: the last change sequence handed out to
+ * the user (see MealChangeLog), read from their meal_change_counter row.
+ * Every write to the user's meals moves it within its own transaction, so
+ * that all the instances read the same version once the write is committed,
+ * and rolled back writes leave it untouched.
+ */
+@Component
+@RequiredArgsConstructor
+public class MealListVersions {
+    /**
+     * Meal change counter DAO.
+     */
+    private final MealChangeCounterDAO mealChangeCounterDAO;
+
+    /**
+     * Returns the current version of a user's meal list, with a single primary
+     * key read.
+     * It must be read before the meal list: a list read afterwards is at least
+     * as recent as the version.
+     *
+     * @param userId User id to whom the meals belong
+     * @return Current version
+     */
+    public String get(String userId) {
+        return of(mealChangeCounterDAO.findChangeSeq(userId));
+    }
+
+    /**
+     * Returns the meal list version of a user's last change sequence.
+     *
+     * @param changeSeq Last change sequence handed out to the user
+     * @return Version
+     */
+    static String of(long changeSeq) {
+        return Long.toString(changeSeq);
+    }
+}
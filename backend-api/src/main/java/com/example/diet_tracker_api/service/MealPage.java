@@ -0,0 +1,14 @@
+package com.example.diet_tracker_api.service;
+
+import java.util.List;
+
+import com.example.diet_tracker_api.model.Meal;
+
+/**
+ * One page of a user's meal list.
+ *
+ * @param meals Meals of the page, ordered by (mealDate, id)
+ * @param next  Cursor to use to get the next page, null if this is the last one
+ */
+public record MealPage(List<Meal> meals, MealCursor next) {
+}
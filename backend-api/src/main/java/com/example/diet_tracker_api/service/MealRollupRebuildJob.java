@@ -0,0 +1,140 @@
+package com.example.diet_tracker_api.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.diet_tracker_api.repository.MealDAO;
+import com.example.diet_tracker_api.repository.MealRollupDAO;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Job recomputing or checking the meal rollups of all users from the meal
+ * table.
+ * Users are processed in parallel, each one in its own transaction.
+ */
+@Slf4j
+@Component
+public class MealRollupRebuildJob {
+    /**
+     * Meal rollup service.
+     */
+    private final MealRollupService mealRollupService;
+
+    /**
+     * Meal DAO.
+     */
+    private final MealDAO mealDAO;
+
+    /**
+     * Meal rollup DAO.
+     */
+    private final MealRollupDAO mealRollupDAO;
+
+    /**
+     * Number of users processed at the same time.
+     */
+    private final int parallelism;
+
+    /**
+     * Whether all rollups are rebuilt once the application is started.
+     */
+    private final boolean rebuildOnStartup;
+
+    /**
+     * Constructor for the job.
+     *
+     * @param mealRollupService Meal rollup service
+     * @param mealDAO           Meal DAO
+     * @param mealRollupDAO     Meal rollup DAO
+     * @param parallelism       Number of users processed at the same time
+     * @param rebuildOnStartup  Whether all rollups are rebuilt on startup
+     */
+    public MealRollupRebuildJob(MealRollupService mealRollupService, MealDAO mealDAO, MealRollupDAO mealRollupDAO,
+            @Value("${diet-tracker.rollups.rebuild-parallelism:4}") int parallelism,
+            @Value("${diet-tracker.rollups.rebuild-on-startup:false}") boolean rebuildOnStartup) {
+        this.mealRollupService = mealRollupService;
+        this.mealDAO = mealDAO;
+        this.mealRollupDAO = mealRollupDAO;
+        this.parallelism = parallelism;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    /**
+     * Rebuilds all rollups once the application is started, if enabled (e.g.
+     * when meals are loaded by SQL scripts).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            var report = rebuildAll();
+            log.info("Meal rollups rebuilt for {} users", report.users());
+        }
+    }
+
+    /**
+     * Recomputes the rollups of all users from the meal table.
+     * The meal writes of a user wait while their rollups are rebuilt (see
+     * MealRollupService.rebuild).
+     *
+     * @return Report of the rebuild
+     */
+    public MealRollupReport rebuildAll() {
+        return processAllUsers(userId -> {
+            mealRollupService.rebuild(userId);
+            return true;
+        });
+    }
+
+    /**
+     * Checks the rollups of all users against the meal table.
+     *
+     * @return Report listing the users whose rollups do not match their meals
+     */
+    public MealRollupReport verifyAll() {
+        return processAllUsers(mealRollupService::verify);
+    }
+
+    /**
+     * Runs the given task for every user having meals or rollups.
+     */
+    private MealRollupReport processAllUsers(Predicate<String> userTask) {
+        var userIds = new TreeSet<>(mealDAO.findDistinctUserIds());
+        userIds.addAll(mealRollupDAO.findDistinctUserIds());
+
+        var executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            var results = new ArrayList<Future<Boolean>>();
+            for (String userId : userIds) {
+                results.add(executor.submit(() -> userTask.test(userId)));
+            }
+
+            var mismatchingUserIds = new ArrayList<String>();
+            var userIdIterator = userIds.iterator();
+            for (Future<Boolean> result : results) {
+                var userId = userIdIterator.next();
+                if (!result.get()) {
+                    mismatchingUserIds.add(userId);
+                }
+            }
+            return new MealRollupReport(userIds.size(), List.copyOf(mismatchingUserIds));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Meal rollup job interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Meal rollup job failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.diet_tracker_api.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a meal rollup job run over all users.
+ *
+ * @param users              Number of processed users
+ * @param mismatchingUserIds Ids of the users whose rollups did not match their
+ *                           meals (always empty after a rebuild)
+ */
+public record MealRollupReport(int users, List<String> mismatchingUserIds) {
+}
@@ -0,0 +1,168 @@
+package com.example.diet_tracker_api.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealRollup;
+import com.example.diet_tracker_api.model.MealRollupId;
+import com.example.diet_tracker_api.repository.MealChangeCounterDAO;
+import com.example.diet_tracker_api.repository.MealDAO;
+import com.example.diet_tracker_api.repository.MealPeriodCount;
+import com.example.diet_tracker_api.repository.MealRollupDAO;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Service in charge of keeping the per-user meal rollups in line with the
+ * meals.
+ * Meal changes are applied to the rollups as count deltas, within the
+ * transaction changing the meals.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class MealRollupService {
+    /**
+     * Meal DAO.
+     */
+    private final MealDAO mealDAO;
+
+    /**
+     * Meal rollup DAO.
+     */
+    private final MealRollupDAO mealRollupDAO;
+
+    /**
+     * Meal change counter DAO, whose rows serialize the writes of each user.
+     */
+    private final MealChangeCounterDAO mealChangeCounterDAO;
+
+    /**
+     * Adds the given (already owned) meals to their rollups.
+     *
+     * @param meals Created meals
+     */
+    public void add(Collection<Meal> meals) {
+        mealRollupDAO.addToCounts(addedDeltas(meals));
+    }
+
+    /**
+     * Removes the given meal from its rollups.
+     *
+     * @param meal Deleted meal
+     */
+    public void remove(Meal meal) {
+        mealRollupDAO.addToCounts(removedDeltas(meal));
+    }
+
+    /**
+     * Moves a meal from the rollups of its previous values to the ones of its
+     * new values. Rollups common to both are left untouched.
+     *
+     * @param previous Meal before its edition
+     * @param edited   Meal after its edition
+     */
+    public void replace(Meal previous, Meal edited) {
+        mealRollupDAO.addToCounts(replacedDeltas(previous, edited));
+    }
+
+    /**
+     * Recomputes all the rollups of a user from the meal table.
+     * The user's change counter is locked first, as every meal write does (see
+     * MealChangeLog): the writes in progress commit before the meals are read,
+     * and the next ones wait for the rebuild to commit.
+     *
+     * @param userId Id of the user whose rollups are rebuilt
+     */
+    public void rebuild(String userId) {
+        mealChangeCounterDAO.lock(userId);
+        mealRollupDAO.deleteByUserId(userId);
+        mealRollupDAO.addToCounts(computeRollups(userId));
+    }
+
+    /**
+     * Checks the rollups of a user against the meal table.
+     * The user's change counter is locked first, as rebuild does: a write
+     * committing its meals and its rollups in between the two reads is not
+     * reported as a mismatch.
+     *
+     * @param userId Id of the user whose rollups are checked
+     * @return Whether the user's rollups match their meals
+     */
+    public boolean verify(String userId) {
+        mealChangeCounterDAO.lock(userId);
+        var stored = new HashMap<MealRollupId, Long>();
+        for (MealRollup rollup : mealRollupDAO.findNonZeroByUserId(userId)) {
+            stored.put(rollup.getId(), rollup.getMealCount());
+        }
+        return stored.equals(computeRollups(userId));
+    }
+
+    /**
+     * Computes the counts of all the rollups of a user from their daily meal
+     * counts.
+     */
+    private Map<MealRollupId, Long> computeRollups(String userId) {
+        var rollups = new HashMap<MealRollupId, Long>();
+        for (MealPeriodCount dailyCount : mealDAO.countByUserIdPerDay(userId, null, null)) {
+            for (MealPeriod period : MealPeriod.values()) {
+                rollups.merge(new MealRollupId(userId, period, period.periodStart(dailyCount.period()),
+                        dailyCount.mealTime(), dailyCount.mealContent()), dailyCount.count(), Long::sum);
+            }
+        }
+        return rollups;
+    }
+
+    /**
+     * Computes the rollup count deltas of created meals.
+     *
+     * @param meals Created meals
+     * @return Count delta of each rollup
+     */
+    static Map<MealRollupId, Long> addedDeltas(Collection<Meal> meals) {
+        var deltas = new HashMap<MealRollupId, Long>();
+        meals.forEach(meal -> addDeltas(deltas, meal, 1));
+        return deltas;
+    }
+
+    /**
+     * Computes the rollup count deltas of a deleted meal.
+     *
+     * @param meal Deleted meal
+     * @return Count delta of each rollup
+     */
+    static Map<MealRollupId, Long> removedDeltas(Meal meal) {
+        var deltas = new HashMap<MealRollupId, Long>();
+        addDeltas(deltas, meal, -1);
+        return deltas;
+    }
+
+    /**
+     * Computes the rollup count deltas of an edited meal, without the rollups
+     * common to its previous and new values.
+     *
+     * @param previous Meal before its edition
+     * @param edited   Meal after its edition
+     * @return Count delta of each rollup
+     */
+    static Map<MealRollupId, Long> replacedDeltas(Meal previous, Meal edited) {
+        var deltas = new HashMap<MealRollupId, Long>();
+        addDeltas(deltas, previous, -1);
+        addDeltas(deltas, edited, 1);
+        deltas.values().removeIf(delta -> delta == 0);
+        return deltas;
+    }
+
+    private static void addDeltas(Map<MealRollupId, Long> deltas, Meal meal, long delta) {
+        for (MealPeriod period : MealPeriod.values()) {
+            deltas.merge(new MealRollupId(meal.getUserId(), period, period.periodStart(meal.getMealDate()),
+                    meal.getMealTime(), meal.getMealContent()), delta, Long::sum);
+        }
+    }
+}
@@ -1,14 +1,22 @@
 package com.example.diet_tracker_api.service;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.example.diet_tracker_api.exception.MealNotFoundException;
+import com.example.diet_tracker_api.exception.MealVersionMismatchException;
 import com.example.diet_tracker_api.model.Meal;
 import com.example.diet_tracker_api.repository.MealDAO;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
 import lombok.RequiredArgsConstructor;
 
 /**
@@ -18,13 +26,56 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 @Transactional
 public class MealService {
+    /**
+     * Number of meals flushed at once by the batch creation, matching
+     * hibernate.jdbc.batch_size.
+     */
+    static final int INSERT_BATCH_SIZE = 50;
+
     /**
      * Meal DAO.
      */
     private final MealDAO mealDAO;
 
     /**
-     * Looks for a potential Meal in the DAO and returns it.
+     * Entity manager, used to detach streamed meals and flush batch-created
+     * ones.
+     */
+    private final EntityManager entityManager;
+
+    /**
+     * Meal rollup service, updated along with the meals.
+     */
+    private final MealRollupService mealRollupService;
+
+    /**
+     * Meal change log, sequencing the meal writes for the syncing clients.
+     */
+    private final MealChangeLog mealChangeLog;
+
+    /**
+     * In-memory meal timelines, updated along with the meals.
+     */
+    private final MealTimelines mealTimelines;
+
+    /**
+     * Versions of the users' meal lists, read from their change counters.
+     */
+    private final MealListVersions mealListVersions;
+
+    /**
+     * Meal change feed, pushing the meal writes to the connected clients.
+     */
+    private final MealChangeFeed mealChangeFeed;
+
+    /**
+     * Users recently written, whose reads are served by the primary database.
+     */
+    private final RecentMealWrites recentMealWrites;
+
+    /**
+     * Looks for a potential Meal in the DAO and returns it, as currently stored
+     * in the DB (bypassing the second-level cache).
      * Throws a MealNotFoundException if the element is not found.
      *
      * @param userId User id to whom the meal belongs
@@ -37,18 +88,83 @@ public class MealService {
     }
 
     /**
-     * Returns all registered Meal's as a List of MealOutDTO objects.
+     * Returns one page of the user's Meals matching the filter, ordered by
+     * (mealDate, id).
+     * One extra Meal is fetched to know whether a next page exists.
      *
      * @param userId User id to whom the meal belongs
-     * @return List of MealOutDTO representations of all Meals
+     * @param filter Filter criteria
+     * @param after  Cursor of the previous page, null to get the first page
+     * @param limit  Maximum number of Meals in the page
+     * @return Page of Meals, with the cursor of the next page if any
+     */
+    @Transactional(readOnly = true)
+    public MealPage getUserMeals(String userId, MealFilter filter, MealCursor after, int limit) {
+        recentMealWrites.routeReads(userId);
+        var meals = mealDAO.findPage(MealSpecifications.userMeals(userId, filter, after), Limit.of(limit + 1));
+
+        if (meals.size() <= limit) {
+            return new MealPage(meals, null);
+        }
+        var page = meals.subList(0, limit);
+        return new MealPage(page, MealCursor.after(page.get(limit - 1)));
+    }
+
+    /**
+     * Returns the first changes of the user's Meals after the last change
+     * sequence a client synced: the Meals created or edited since, and the ids
+     * of the ones deleted since.
+     *
+     * @param userId User id to whom the meals belong
+     * @param since  Last change sequence synced, null to get all the Meals
+     * @param limit  Maximum number of changes
+     * @return Changes, with the change sequence to sync from next time
+     */
+    @Transactional(readOnly = true)
+    public MealChanges getUserMealChanges(String userId, Long since, int limit) {
+        recentMealWrites.routeReads(userId);
+        return mealChangeLog.getChanges(userId, since, limit);
+    }
+
+    /**
+     * Returns the current version of the user's meal list, changed by every
+     * write to their Meals: a read of the user's change counter, from the same
+     * database as their meal list.
+     *
+     * @param userId User id to whom the meals belong
+     * @return Current version
      */
     @Transactional(readOnly = true)
-    public List<Meal> getUserMeals(String userId) {
-        return mealDAO.findByUserId(userId);
+    public String getUserMealsVersion(String userId) {
+        recentMealWrites.routeReads(userId);
+        return mealListVersions.get(userId);
+    }
+
+    /**
+     * Feeds all the user's Meals, ordered by (mealDate, id), to the provided
+     * consumer.
+     * Meals are read from the DB as a stream and detached once consumed, so that
+     * memory usage does not depend on the number of Meals.
+     *
+     * @param userId   User id to whom the meals belong
+     * @param consumer Consumer called once per Meal
+     */
+    @Transactional(readOnly = true)
+    public void exportUserMeals(String userId, Consumer<Meal> consumer) {
+        recentMealWrites.routeReads(userId);
+        try (var meals = mealDAO.streamByUserIdOrderByMealDateAscIdAsc(userId)) {
+            meals.forEach(meal -> {
+                consumer.accept(meal);
+                entityManager.detach(meal);
+            });
+        }
     }
 
     /**
      * Looks for a potential Meal and returns it as a MealOutDTO object.
+     * Meals are looked up by id in the Hibernate second-level cache (see
+     * HibernateCacheConfiguration), whose entries are only replaced or evicted
+     * by the writes of their own meal, then checked to belong to the user.
      *
      * @param userId User id to whom the meal belongs
      * @param id     Meal id in the DB.
@@ -56,7 +172,10 @@ public class MealService {
      */
     @Transactional(readOnly = true)
     public Meal getUserMealById(String userId, Long id) {
-        return findUserMealById(userId, id);
+        recentMealWrites.routeReads(userId);
+        return mealDAO.findById(id)
+                .filter(meal -> userId.equals(meal.getUserId()))
+                .orElseThrow(() -> new MealNotFoundException(userId, id));
     }
 
     /**
@@ -69,41 +188,225 @@ public class MealService {
      */
     public Meal createMeal(String userId, Meal meal) {
         meal.setUserId(userId);
-        return mealDAO.save(meal);
+        mealChangeLog.assign(userId, List.of(meal));
+        var createdMeal = mealDAO.save(meal);
+        mealRollupService.add(List.of(createdMeal));
+        mealTimelines.add(List.of(createdMeal));
+        mealChangeFeed.publishUpserts(userId, List.of(createdMeal));
+        recentMealWrites.recordWrite(userId);
+        return createdMeal;
+    }
+
+    /**
+     * Creates all the provided meals in a single transaction.
+     * Meals are persisted by chunks of INSERT_BATCH_SIZE, each chunk being
+     * flushed as one JDBC batch and then cleared from the persistence context.
+     *
+     * @param userId User id to whom the meals belong
+     * @param meals  Meals containing the information to be used.
+     * @return Created instances, in the input order.
+     */
+    public List<Meal> createMeals(String userId, List<Meal> meals) {
+        mealChangeLog.assign(userId, meals);
+        for (int start = 0; start < meals.size(); start += INSERT_BATCH_SIZE) {
+            var chunk = meals.subList(start, Math.min(start + INSERT_BATCH_SIZE, meals.size()));
+            chunk.forEach(meal -> meal.setUserId(userId));
+            mealDAO.saveAll(chunk);
+            entityManager.flush();
+            entityManager.clear();
+        }
+        mealRollupService.add(meals);
+        mealTimelines.add(meals);
+        mealChangeFeed.publishUpserts(userId, meals);
+        recentMealWrites.recordWrite(userId);
+        return meals;
+    }
+
+    /**
+     * Inserts meals buffered by the write-behind ingestion, whose ids were
+     * allocated beforehand, in a single transaction: the meals of several
+     * users share the commit.
+     *
+     * @param meals Meals to insert, each holding its id and user id
+     */
+    public void insertMeals(List<Meal> meals) {
+        // Counters are locked in user id order, so that concurrent inserts cannot deadlock
+        var mealsByUser = meals.stream()
+                .collect(Collectors.groupingBy(Meal::getUserId, TreeMap::new, Collectors.toList()));
+        mealsByUser.forEach(mealChangeLog::assign);
+        mealDAO.insertAll(meals);
+        mealRollupService.add(meals);
+        mealTimelines.add(meals);
+        mealsByUser.forEach((userId, userMeals) -> {
+            mealChangeFeed.publishUpserts(userId, userMeals);
+            recentMealWrites.recordWrite(userId);
+        });
     }
 
     /**
      * Deletes the meal matching the provided Id.
+     * The meal is read from the database, then removed through its entity by
+     * a single DELETE statement conditioned on the version it was read at:
+     * only this meal leaves the second-level cache.
      *
-     * @param userId Id of the user owning the meal.
-     * @param id     Meal id in the DB.
+     * @param userId  Id of the user owning the meal.
+     * @param id      Meal id in the DB.
+     * @param version Version the meal is expected to be at, null for any.
+     * @throws MealNotFoundException        if id does not match an existing Meal
+     *                                      in the DB.
+     * @throws MealVersionMismatchException if the meal is not at the expected
+     *                                      version, or changed meanwhile.
      */
-    public void deleteMealById(String userId, Long id) {
-        mealDAO.delete(findUserMealById(userId, id));
+    public void deleteMealById(String userId, Long id, Long version) {
+        var meal = findUserMealById(userId, id);
+        checkVersion(meal, version);
+        var changeSeq = mealChangeLog.next(userId);
+        mealDAO.delete(meal);
+        flush(meal);
+        mealChangeLog.tombstone(meal, changeSeq);
+        mealRollupService.remove(meal);
+        mealTimelines.remove(meal);
+        mealChangeFeed.publishDelete(userId, meal, changeSeq);
+        recentMealWrites.recordWrite(userId);
     }
 
     /**
      * Edits an existing meal found based on the provided Id with the input
      * MealInDTO instance.
+     * When the input Meal holds a version, the edit only happens if the meal is
+     * still at that version.
      *
      * @param userId Id of the user owning the meal.
      * @param id     Meal id in the DB.
-     * @param meal   Meal object containing the wanted new information.
-     * @return MealOutDTO representation of the edited instance.
-     * @throws MealNotFoundException if id does not match an existing Meal in the
-     *                               DB.
+     * @param meal   Meal object containing the wanted new information, and the
+     *               version it is expected to replace (null for any).
+     * @return Edited instance, with its new version.
+     * @throws MealNotFoundException        if id does not match an existing Meal
+     *                                      in the DB.
+     * @throws MealVersionMismatchException if the meal is not at the expected
+     *                                      version, or changed meanwhile.
      */
     public Meal editMealById(String userId, Long id, Meal meal) {
         // Checking that the provided id & userId matches an instance in the DB.
-        if (!mealDAO.existsByIdAndUserId(id, userId)) {
-            throw new MealNotFoundException(userId, id);
-        }
-        // The provided Meal does not contain an Id value (null).
-        // By setting it, we are asking the DAO to override the existing item.
+        // The previous values are needed anyway to update the rollups.
+        var storedMeal = findUserMealById(userId, id);
+        checkVersion(storedMeal, meal.getVersion());
         meal.setId(id);
-
         meal.setUserId(userId);
-        return mealDAO.save(meal);
+        return updateMeal(storedMeal, meal);
+    }
+
+    /**
+     * Partially edits an existing meal found based on the provided Id: only the
+     * non-null values of the input Meal are changed.
+     * When the input Meal holds a version, the edit only happens if the meal is
+     * still at that version.
+     *
+     * @param userId Id of the user owning the meal.
+     * @param id     Meal id in the DB.
+     * @param patch  Meal object containing the values to change, null for the
+     *               ones to keep, and the version it is expected to replace
+     *               (null for any).
+     * @return Edited instance, with its new version.
+     * @throws MealNotFoundException        if id does not match an existing Meal
+     *                                      in the DB.
+     * @throws MealVersionMismatchException if the meal is not at the expected
+     *                                      version, or changed meanwhile.
+     */
+    public Meal patchMealById(String userId, Long id, Meal patch) {
+        var storedMeal = findUserMealById(userId, id);
+        checkVersion(storedMeal, patch.getVersion());
+        var meal = Meal.builder()
+                .id(id)
+                .userId(userId)
+                .mealDate(patch.getMealDate() != null ? patch.getMealDate() : storedMeal.getMealDate())
+                .mealTime(patch.getMealTime() != null ? patch.getMealTime() : storedMeal.getMealTime())
+                .mealContent(patch.getMealContent() != null ? patch.getMealContent() : storedMeal.getMealContent())
+                .build();
+        return updateMeal(storedMeal, meal);
     }
 
+    /**
+     * Checks that a meal is at the expected version.
+     *
+     * @param meal    Meal as currently stored
+     * @param version Expected version, null for any
+     * @throws MealVersionMismatchException if the meal is at another version.
+     */
+    private void checkVersion(Meal meal, Long version) {
+        if (version != null && !version.equals(meal.getVersion())) {
+            throw new MealVersionMismatchException(meal.getUserId(), meal.getId());
+        }
+    }
+
+    /**
+     * Writes the new values of a meal through its entity, with a single UPDATE
+     * statement, and nothing at all when they equal the previous ones.
+     * The UPDATE is conditioned on the version the stored meal was read at: no
+     * lock is taken, and a zero affected row count tells that the meal changed
+     * (or was deleted) meanwhile, in which case the rollup deltas computed from
+     * the previous meal would be wrong. Only this meal is replaced in the
+     * second-level cache.
+     *
+     * @param storedMeal Meal entity, as currently stored
+     * @param meal       Meal with the same id & userId, holding the new values
+     * @return Edited instance, with its new version.
+     * @throws MealVersionMismatchException if the meal changed meanwhile.
+     */
+    private Meal updateMeal(Meal storedMeal, Meal meal) {
+        if (Objects.equals(storedMeal.getMealDate(), meal.getMealDate())
+                && storedMeal.getMealTime() == meal.getMealTime()
+                && storedMeal.getMealContent() == meal.getMealContent()) {
+            meal.setVersion(storedMeal.getVersion());
+            return meal;
+        }
+        var previousMeal = copyOf(storedMeal);
+        var changeSeq = mealChangeLog.next(meal.getUserId());
+        storedMeal.setMealDate(meal.getMealDate());
+        storedMeal.setMealTime(meal.getMealTime());
+        storedMeal.setMealContent(meal.getMealContent());
+        storedMeal.setChangeSeq(changeSeq);
+        flush(storedMeal);
+        meal.setVersion(previousMeal.getVersion() + 1);
+        meal.setChangeSeq(changeSeq);
+        mealRollupService.replace(previousMeal, meal);
+        mealTimelines.replace(previousMeal, meal);
+        mealChangeFeed.publishUpserts(meal.getUserId(), List.of(meal));
+        recentMealWrites.recordWrite(meal.getUserId());
+        return meal;
+    }
+
+    /**
+     * Flushes the write of a meal entity, checked against the version it was
+     * read at.
+     *
+     * @param meal Meal entity written
+     * @throws MealVersionMismatchException if the meal changed (or was deleted)
+     *                                      since it was read.
+     */
+    private void flush(Meal meal) {
+        try {
+            entityManager.flush();
+        } catch (OptimisticLockException e) {
+            throw new MealVersionMismatchException(meal.getUserId(), meal.getId());
+        }
+    }
+
+    /**
+     * Copies the values of a meal entity, which are about to change.
+     *
+     * @param meal Meal entity
+     * @return Detached copy
+     */
+    private static Meal copyOf(Meal meal) {
+        return Meal.builder()
+                .id(meal.getId())
+                .userId(meal.getUserId())
+                .mealDate(meal.getMealDate())
+                .mealTime(meal.getMealTime())
+                .mealContent(meal.getMealContent())
+                .version(meal.getVersion())
+                .changeSeq(meal.getChangeSeq())
+                .build();
+    }
 }
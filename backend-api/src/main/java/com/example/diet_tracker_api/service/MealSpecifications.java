@@ -0,0 +1,58 @@
+package com.example.diet_tracker_api.service;
+
+import java.util.ArrayList;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.example.diet_tracker_api.model.Meal;
+
+import jakarta.persistence.criteria.Predicate;
+
+/**
+ * Builds the JPA specifications used to select a page of a user's meals.
+ * Only the criteria actually provided end up in the SQL query, so that the
+ * DB can pick the most selective index.
+ */
+public final class MealSpecifications {
+
+    private MealSpecifications() {
+    }
+
+    /**
+     * Selects the meals of a user matching the filter and located after the
+     * cursor (if any).
+     *
+     * @param userId User id to whom the meals belong
+     * @param filter Filter criteria
+     * @param after  Cursor of the previous page, null for the first page
+     * @return Matching specification
+     */
+    public static Specification<Meal> userMeals(String userId, MealFilter filter, MealCursor after) {
+        return (root, query, criteriaBuilder) -> {
+            var predicates = new ArrayList<Predicate>();
+            predicates.add(criteriaBuilder.equal(root.get("userId"), userId));
+
+            if (filter.from() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("mealDate"), filter.from()));
+            }
+            if (filter.to() != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("mealDate"), filter.to()));
+            }
+            if (filter.mealTime() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("mealTime"), filter.mealTime()));
+            }
+            if (filter.mealContent() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("mealContent"), filter.mealContent()));
+            }
+            if (after != null) {
+                // Seek predicate: (mealDate, id) > (after.mealDate, after.id)
+                predicates.add(criteriaBuilder.or(
+                        criteriaBuilder.greaterThan(root.get("mealDate"), after.mealDate()),
+                        criteriaBuilder.and(
+                                criteriaBuilder.equal(root.get("mealDate"), after.mealDate()),
+                                criteriaBuilder.greaterThan(root.get("id"), after.id()))));
+            }
+            return criteriaBuilder.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+}
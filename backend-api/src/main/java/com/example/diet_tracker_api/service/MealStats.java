@@ -0,0 +1,26 @@
+package com.example.diet_tracker_api.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+
+/**
+ * Meal counts of a user over one period.
+ *
+ * @param period       First day of the period
+ * @param mealContents Number of meals per meal content, for all meal contents
+ * @param mealTimes    Number of meals per meal time, for all meal times
+ */
+public record MealStats(LocalDate period, Map<MealContent, Long> mealContents, Map<MealTime, Long> mealTimes) {
+
+    /**
+     * Returns the number of meals over the period.
+     *
+     * @return Total number of meals
+     */
+    public long total() {
+        return mealContents.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.diet_tracker_api.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.repository.MealPeriodCount;
+import com.example.diet_tracker_api.repository.MealRollupDAO;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Service in charge of computing meal statistics.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class MealStatsService {
+    /**
+     * Meal rollup DAO.
+     */
+    private final MealRollupDAO mealRollupDAO;
+
+    /**
+     * In-memory meal timelines.
+     */
+    private final MealTimelines mealTimelines;
+
+    /**
+     * Users recently written, whose reads are served by the primary database.
+     */
+    private final RecentMealWrites recentMealWrites;
+
+    /**
+     * Counts the user's meals per meal content and meal time, for each period
+     * between two dates.
+     * Counts are read from the rollups of the requested period, so the cost
+     * depends on the number of periods, not on the number of meals. Periods
+     * only partly between the two dates are counted from the daily rollups.
+     *
+     * @param userId  User id to whom the meals belong
+     * @param from    First meal date to include, null for no lower bound
+     * @param to      Last meal date to include, null for no upper bound
+     * @param groupBy Period to group the meals by
+     * @return Statistics of each period containing at least one meal, ordered by
+     *         period
+     */
+    public List<MealStats> getUserMealStats(String userId, LocalDate from, LocalDate to, MealPeriod groupBy) {
+        recentMealWrites.routeReads(userId);
+        var counts = new ArrayList<MealPeriodCount>();
+        for (RollupRange range : rollupRanges(from, to, groupBy)) {
+            counts.addAll(mealRollupDAO.findCounts(userId, range.period(), range.from(), range.until()));
+        }
+        return toStats(counts, groupBy);
+    }
+
+    /**
+     * Finds the user's runs of consecutive days with at least one meal, between
+     * two dates.
+     * Runs are scanned from the user's in-memory timeline (see MealTimelines):
+     * no SQL is run once the timeline is built.
+     *
+     * @param userId User id to whom the meals belong
+     * @param from   First meal date to include, null for no lower bound
+     * @param to     Last meal date to include, null for no upper bound
+     * @return Longest and latest streaks
+     */
+    public MealStreaks getUserMealStreaks(String userId, LocalDate from, LocalDate to) {
+        recentMealWrites.routeReads(userId);
+        return toStreaks(mealTimelines.get(userId), from, to);
+    }
+
+    /**
+     * Returns the grid of a user's meals of a year.
+     * The calendar is built from the user's in-memory timeline (see
+     * MealTimelines) on first access, then kept with it until one of its meals
+     * is written.
+     *
+     * @param userId User id to whom the meals belong
+     * @param year   Calendar year
+     * @return Calendar of the year's meals
+     */
+    public MealCalendar getUserMealCalendar(String userId, int year) {
+        recentMealWrites.routeReads(userId);
+        return mealTimelines.get(userId).calendar(year);
+    }
+
+    /**
+     * Scans a timeline for its runs of consecutive days with meals.
+     *
+     * @param timeline User's timeline
+     * @param from     First meal date to include, null for no lower bound
+     * @param to       Last meal date to include, null for no upper bound
+     * @return Longest and latest streaks
+     */
+    static MealStreaks toStreaks(MealTimeline timeline, LocalDate from, LocalDate to) {
+        var end = to == null ? timeline.size() : timeline.indexOf(to.plusDays(1));
+        var index = from == null ? 0 : timeline.indexOf(from);
+        if (index >= end) {
+            return new MealStreaks(null, null);
+        }
+        int longestStart = 0;
+        int longestEnd = -1;
+        int start;
+        int last;
+        do {
+            start = timeline.epochDay(index);
+            last = start;
+            while (++index < end && timeline.epochDay(index) <= last + 1) {
+                last = timeline.epochDay(index);
+            }
+            if (last - start > longestEnd - longestStart) {
+                longestStart = start;
+                longestEnd = last;
+            }
+        } while (index < end);
+        return new MealStreaks(
+                new MealStreak(LocalDate.ofEpochDay(longestStart), LocalDate.ofEpochDay(longestEnd)),
+                new MealStreak(LocalDate.ofEpochDay(start), LocalDate.ofEpochDay(last)));
+    }
+
+    /**
+     * Range of rollups to read.
+     *
+     * @param period Kind of period
+     * @param from   First period start to include, null for no lower bound
+     * @param until  First period start to exclude, null for no upper bound
+     */
+    record RollupRange(MealPeriod period, LocalDate from, LocalDate until) {
+    }
+
+    /**
+     * Returns the ranges of rollups covering the meals between two dates, in
+     * period order: the rollups of the requested period for the periods
+     * entirely between the two dates, and the daily rollups for the periods only
+     * partly between them.
+     *
+     * @param from    First meal date to include, null for no lower bound
+     * @param to      Last meal date to include, null for no upper bound
+     * @param groupBy Period to group the meals by
+     * @return Rollup ranges
+     */
+    static List<RollupRange> rollupRanges(LocalDate from, LocalDate to, MealPeriod groupBy) {
+        // Periods starting in [fullFrom, fullUntil) are entirely between from and to
+        var fullFrom = from == null || groupBy.periodStart(from).equals(from) ? from : groupBy.nextPeriodStart(from);
+        var fullUntil = to == null ? null : groupBy.periodStart(to.plusDays(1));
+        var until = to == null ? null : to.plusDays(1);
+
+        var ranges = new ArrayList<RollupRange>();
+        if (fullFrom != null && fullUntil != null && !fullFrom.isBefore(fullUntil)) {
+            ranges.add(new RollupRange(MealPeriod.DAY, from, until));
+        } else {
+            if (from != null && from.isBefore(fullFrom)) {
+                ranges.add(new RollupRange(MealPeriod.DAY, from, fullFrom));
+            }
+            ranges.add(new RollupRange(groupBy, fullFrom, fullUntil));
+            if (to != null && !to.isBefore(fullUntil)) {
+                ranges.add(new RollupRange(MealPeriod.DAY, fullUntil, until));
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Sums meal counts ordered by period into the statistics of each period.
+     *
+     * @param counts  Meal counts, ordered by period
+     * @param groupBy Period to group the meals by
+     * @return Statistics of each period containing at least one meal, ordered by
+     *         period
+     */
+    static List<MealStats> toStats(List<MealPeriodCount> counts, MealPeriod groupBy) {
+        // Counts are ordered by period, so are the stats
+        var stats = new LinkedHashMap<LocalDate, MealStats>();
+        for (MealPeriodCount count : counts) {
+            var periodStats = stats.computeIfAbsent(groupBy.periodStart(count.period()),
+                    period -> new MealStats(period, zeroCounts(MealContent.class), zeroCounts(MealTime.class)));
+            periodStats.mealContents().merge(count.mealContent(), count.count(), Long::sum);
+            periodStats.mealTimes().merge(count.mealTime(), count.count(), Long::sum);
+        }
+        return List.copyOf(stats.values());
+    }
+
+    private static <E extends Enum<E>> Map<E, Long> zeroCounts(Class<E> enumClass) {
+        var counts = new EnumMap<E, Long>(enumClass);
+        for (E value : enumClass.getEnumConstants()) {
+            counts.put(value, 0L);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.diet_tracker_api.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Run of consecutive days on which a user logged at least one meal.
+ *
+ * @param start First day of the run
+ * @param end   Last day of the run
+ */
+public record MealStreak(LocalDate start, LocalDate end) {
+
+    /**
+     * Returns the number of days of the run.
+     *
+     * @return Number of days, at least 1
+     */
+    public long days() {
+        return ChronoUnit.DAYS.between(start, end) + 1;
+    }
+}
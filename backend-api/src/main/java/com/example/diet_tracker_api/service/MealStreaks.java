@@ -0,0 +1,11 @@
+package com.example.diet_tracker_api.service;
+
+/**
+ * Streaks of a user between two dates.
+ *
+ * @param longest Longest streak (the earliest one among the longest), null if
+ *                no meal was logged
+ * @param latest  Latest streak, null if no meal was logged
+ */
+public record MealStreaks(MealStreak longest, MealStreak latest) {
+}
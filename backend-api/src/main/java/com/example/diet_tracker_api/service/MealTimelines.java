@@ -0,0 +1,369 @@
+package com.example.diet_tracker_api.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.UserIdConverter;
+import com.example.diet_tracker_api.repository.MealDAO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * In-memory meal timelines of the active users, for analytics.
+ * A user's timeline is built from their daily meal counts on first access,
+ * then kept up to date by the meal writes of this instance, once committed.
+ * Timelines are evicted once they hold more than the memory budget in all, and
+ * expire after time-to-live, since the writes of other instances do not
+ * change them.
+ * A timeline being built may or may not read the writes not committed yet when
+ * it starts: if any, or if one completes meanwhile, the timeline is returned
+ * but not kept, so that no write is ever missed or applied twice.
+ */
+@Component
+public class MealTimelines {
+    /**
+     * Meal DAO, reading the daily meal counts.
+     */
+    private final MealDAO mealDAO;
+
+    /**
+     * Maximum memory held by the timelines.
+     */
+    private final DataSize memoryBudget;
+
+    /**
+     * Timelines, by user id (in its stored form).
+     */
+    private final Cache<String, MealTimeline> timelines;
+
+    /**
+     * Number of uncommitted writes, by user id (absent when none).
+     */
+    private final Map<String, Integer> pendingWrites = new ConcurrentHashMap<>();
+
+    /**
+     * Timelines being built, by user id.
+     */
+    private final Map<String, Build> builds = new ConcurrentHashMap<>();
+
+    /**
+     * Number of timelines built.
+     */
+    private final LongAdder buildCount = new LongAdder();
+
+    /**
+     * Time spent building timelines.
+     */
+    private final LongAdder buildNanos = new LongAdder();
+
+    /**
+     * Longest time spent building a timeline.
+     */
+    private final AtomicLong maxBuildNanos = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param mealDAO      Meal DAO
+     * @param memoryBudget Maximum memory held by the timelines
+     * @param timeToLive   Time after which a timeline is built again
+     */
+    public MealTimelines(MealDAO mealDAO,
+            @Value("${diet-tracker.timelines.memory-budget:64MB}") DataSize memoryBudget,
+            @Value("${diet-tracker.timelines.time-to-live:10m}") Duration timeToLive) {
+        this.mealDAO = mealDAO;
+        this.memoryBudget = memoryBudget;
+        this.timelines = Caffeine.newBuilder()
+                .maximumWeight(memoryBudget.toBytes())
+                .weigher((String userId, MealTimeline timeline) -> (int) Math.min(timeline.footprint(),
+                        Integer.MAX_VALUE))
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns a user's timeline, building it if needed. Builds read the
+     * database within the current (read-only) transaction, whose reads must
+     * already be routed, see RecentMealWrites.
+     *
+     * @param userId User id to whom the meals belong
+     * @return User's timeline
+     */
+    public MealTimeline get(String userId) {
+        var key = key(userId);
+        var timeline = timelines.getIfPresent(key);
+        return timeline != null ? timeline : build(userId, key);
+    }
+
+    /**
+     * Returns the stored form of a user id (see UserIdConverter), so that the
+     * meals read back and the ones written select the same timeline.
+     */
+    private static String key(String userId) {
+        return UserIdConverter.normalize(userId);
+    }
+
+    /**
+     * Builds a user's timeline, outside of the cache's compute lock (which would
+     * hold the threads looking up the other users of the same hash bin).
+     * Concurrent first accesses of a user all read the database, only the
+     * first build being kept.
+     */
+    private MealTimeline build(String userId, String key) {
+        var build = new Build(key);
+        var registered = builds.putIfAbsent(key, build) == null;
+        try {
+            if (pendingWrites.containsKey(key)) {
+                build.discard();
+            }
+            var start = System.nanoTime();
+            var timeline = MealTimeline.of(mealDAO.countByUserIdPerDay(userId, null, null));
+            recordBuild(System.nanoTime() - start);
+            if (registered) {
+                build.keep(timeline);
+            }
+            return timeline;
+        } finally {
+            if (registered) {
+                builds.remove(key, build);
+            }
+        }
+    }
+
+    /**
+     * Adds created meals to their owners' timelines, once the current
+     * transaction (if any) is committed.
+     *
+     * @param meals Created meals, owned by any users
+     */
+    public void add(Collection<Meal> meals) {
+        meals.stream()
+                .collect(Collectors.groupingBy(Meal::getUserId))
+                .forEach((userId, userMeals) -> change(userId, MealTimeline.keys(userMeals), new long[0]));
+    }
+
+    /**
+     * Removes a deleted meal from its owner's timeline, once the current
+     * transaction (if any) is committed.
+     *
+     * @param meal Deleted meal
+     */
+    public void remove(Meal meal) {
+        change(meal.getUserId(), new long[0], MealTimeline.keys(List.of(meal)));
+    }
+
+    /**
+     * Replaces the previous values of an edited meal with its new ones in its
+     * owner's timeline, once the current transaction (if any) is committed.
+     *
+     * @param previousMeal Meal as previously stored
+     * @param meal         Meal holding the new values
+     */
+    public void replace(Meal previousMeal, Meal meal) {
+        change(meal.getUserId(), MealTimeline.keys(List.of(meal)), MealTimeline.keys(List.of(previousMeal)));
+    }
+
+    private void change(String userId, long[] added, long[] removed) {
+        var key = key(userId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(key, added, removed);
+            return;
+        }
+        var change = new PendingChange(key, added, removed);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.commit();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                change.complete(status == STATUS_UNKNOWN);
+            }
+        });
+    }
+
+    /**
+     * Starts a change of a user's timeline within a transaction not bound to
+     * the current thread (see ReactiveMealService): the caller commits it once
+     * the transaction is committed, then completes it in any case.
+     *
+     * @param userId  User id to whom the meals belong
+     * @param added   Meals created, or edited meals with their new values
+     * @param removed Meals deleted, or edited meals with their previous values
+     * @return Pending change
+     */
+    PendingChange begin(String userId, List<Meal> added, List<Meal> removed) {
+        return new PendingChange(key(userId), MealTimeline.keys(added), MealTimeline.keys(removed));
+    }
+
+    private void apply(String key, long[] added, long[] removed) {
+        timelines.asMap().computeIfPresent(key, (id, timeline) -> timeline.apply(added, removed));
+    }
+
+    private void discardBuild(String key) {
+        var build = builds.get(key);
+        if (build != null) {
+            build.discard();
+        }
+    }
+
+    private void recordBuild(long nanos) {
+        buildCount.increment();
+        buildNanos.add(nanos);
+        maxBuildNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Drops all timelines: they are built again on their next access.
+     */
+    public void invalidateAll() {
+        timelines.invalidateAll();
+    }
+
+    /**
+     * Returns the memory footprint of the timelines and their build times.
+     *
+     * @return Current statistics
+     */
+    public Statistics statistics() {
+        // Applies the pending weight changes & evictions
+        timelines.cleanUp();
+        var stats = timelines.stats();
+        var built = buildCount.sum();
+        return new Statistics(
+                timelines.estimatedSize(),
+                timelines.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L),
+                memoryBudget.toBytes(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.evictionCount(),
+                built,
+                built == 0 ? 0 : buildNanos.sum() / built / 1e6,
+                maxBuildNanos.get() / 1e6);
+    }
+
+    /**
+     * Memory footprint of the timelines and their build times.
+     *
+     * @param users              Number of timelines held
+     * @param footprintBytes     Memory held by the timelines
+     * @param memoryBudgetBytes  Maximum memory held by the timelines
+     * @param hits               Number of accesses served by a held timeline
+     * @param misses             Number of accesses building a timeline
+     * @param evictions          Number of timelines evicted (budget or expiry)
+     * @param builds             Number of timelines built
+     * @param averageBuildMillis Average build time
+     * @param maxBuildMillis     Longest build time
+     */
+    public record Statistics(long users, long footprintBytes, long memoryBudgetBytes, long hits, long misses,
+            long evictions, long builds, double averageBuildMillis, double maxBuildMillis) {
+    }
+
+    /**
+     * Change of a user's timeline by an uncommitted write: the timelines built
+     * until it completes are not kept.
+     */
+    final class PendingChange {
+        private final String key;
+
+        private final long[] added;
+
+        private final long[] removed;
+
+        private PendingChange(String key, long[] added, long[] removed) {
+            this.key = key;
+            this.added = added;
+            this.removed = removed;
+            pendingWrites.merge(key, 1, Integer::sum);
+            discardBuild(key);
+        }
+
+        /**
+         * Applies the change once its write is committed.
+         */
+        void commit() {
+            apply(key, added, removed);
+        }
+
+        /**
+         * Ends the change once its write is committed or rolled back.
+         *
+         * @param outcomeUnknown Whether the write may or may not be committed
+         */
+        void complete(boolean outcomeUnknown) {
+            // After the write is applied: later builds read it, earlier ones are discarded
+            if (outcomeUnknown) {
+                timelines.invalidate(key);
+            }
+            pendingWrites.computeIfPresent(key, (id, count) -> count == 1 ? null : count - 1);
+            discardBuild(key);
+        }
+    }
+
+    /**
+     * Timeline being built, discarded by the writes that may or may not be
+     * read by the build.
+     */
+    private final class Build {
+        /**
+         * User id to whom the meals belong (in its stored form).
+         */
+        private final String key;
+
+        /**
+         * Lock guarding discarded, so that no write is discarding the build
+         * while its timeline is kept.
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Whether the built timeline must not be kept.
+         */
+        private boolean discarded;
+
+        private Build(String key) {
+            this.key = key;
+        }
+
+        private void discard() {
+            lock.lock();
+            try {
+                discarded = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Keeps the built timeline unless discarded. Writes completing
+         * afterwards were not read by the build, and apply to the kept
+         * timeline.
+         */
+        private void keep(MealTimeline timeline) {
+            lock.lock();
+            try {
+                if (!discarded) {
+                    timelines.put(key, timeline);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.diet_tracker_api.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import com.example.diet_tracker_api.exception.MealIngestionBufferFullException;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.repository.MealDAO;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind ingestion of the created meals, enabled by
+ * diet-tracker.ingestion.write-behind.enabled: a meal is given its id and
+ * buffered right away, then inserted by a background writer along with the
+ * other buffered meals, in one transaction per flush-size meals. The commit
+ * rate no longer follows the request rate.
+ * Producers never lock: the buffer is a lock-free queue, bounded by a counter
+ * of reserved slots. Once it holds capacity meals, meals are rejected
+ * (MealIngestionBufferFullException) until the writer catches up.
+ * Durability: an accepted meal is only stored once its flush is committed,
+ * at most flush-interval later while the database is available. Failed
+ * flushes are retried (the meals staying in the buffer), and the buffer is
+ * flushed on shutdown; but the meals still buffered when the process dies
+ * are lost. Until then, the meal is neither listed nor found by its id.
+ * A batch failing max-attempts times is inserted meal by meal instead, and
+ * the meals that still fail for another reason than the database being
+ * unavailable are dropped and logged: a single bad meal cannot hold the
+ * buffer forever.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "diet-tracker.ingestion.write-behind.enabled", havingValue = "true")
+public class MealWriteBehindBuffer implements SmartLifecycle {
+    /**
+     * Maximum time the shutdown waits for the writer.
+     */
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Meal service, inserting the flushed meals.
+     */
+    private final MealService mealService;
+
+    /**
+     * Meal DAO, allocating the meal ids.
+     */
+    private final MealDAO mealDAO;
+
+    /**
+     * Maximum number of buffered meals.
+     */
+    private final int capacity;
+
+    /**
+     * Maximum number of meals inserted by one transaction, and number of
+     * buffered meals triggering a flush before the interval elapses.
+     */
+    private final int flushSize;
+
+    /**
+     * Delay between two flushes.
+     */
+    private final Duration flushInterval;
+
+    /**
+     * Number of failed inserts of a batch after which its meals are inserted
+     * one by one.
+     */
+    private final int maxAttempts;
+
+    /**
+     * Buffered meals, in arrival order.
+     */
+    private final Queue<Meal> meals = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Number of slots taken in the buffer, by the queued meals, the meals being
+     * queued and the meals of the pending flush.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Whether a flush caused by a full batch is waiting to be run.
+     */
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    /**
+     * Meals taken from the queue whose flush failed, retried first. Only
+     * accessed by the writer thread.
+     */
+    private List<Meal> pending = List.of();
+
+    /**
+     * Number of failed inserts of the pending meals. Only accessed by the
+     * writer thread.
+     */
+    private int failedAttempts;
+
+    /**
+     * Thread flushing the buffer, null when stopped.
+     */
+    private volatile ScheduledExecutorService writer;
+
+    /**
+     * Constructor for the buffer.
+     *
+     * @param mealService   Meal service
+     * @param mealDAO       Meal DAO
+     * @param capacity      Maximum number of buffered meals
+     * @param flushSize     Maximum number of meals inserted by one transaction
+     * @param flushInterval Delay between two flushes
+     * @param maxAttempts   Number of failed inserts of a batch after which its
+     *                      meals are inserted one by one
+     */
+    public MealWriteBehindBuffer(MealService mealService, MealDAO mealDAO,
+            @Value("${diet-tracker.ingestion.write-behind.capacity:10000}") int capacity,
+            @Value("${diet-tracker.ingestion.write-behind.flush-size:500}") int flushSize,
+            @Value("${diet-tracker.ingestion.write-behind.flush-interval:200ms}") Duration flushInterval,
+            @Value("${diet-tracker.ingestion.write-behind.max-attempts:3}") int maxAttempts) {
+        this.mealService = mealService;
+        this.mealDAO = mealDAO;
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+        this.flushInterval = flushInterval;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Buffers a new meal, to be inserted by the writer.
+     *
+     * @param userId User id to whom the meal belongs
+     * @param meal   Meal containing the information to be used.
+     * @return Meal to be created, holding its id and version.
+     * @throws MealIngestionBufferFullException if the buffer is full or
+     *                                          stopped.
+     */
+    public Meal enqueue(String userId, Meal meal) {
+        var currentWriter = writer;
+        if (currentWriter == null || size.incrementAndGet() > capacity) {
+            if (currentWriter != null) {
+                size.decrementAndGet();
+            }
+            throw new MealIngestionBufferFullException(userId, retryAfterSeconds());
+        }
+        try {
+            meal.setId(mealDAO.allocateId());
+        } catch (RuntimeException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+        meal.setUserId(userId);
+        meal.setVersion(0L);
+        meals.add(meal);
+        if (size.get() >= flushSize && flushRequested.compareAndSet(false, true)) {
+            currentWriter.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+        return meal;
+    }
+
+    /**
+     * Returns the number of buffered meals, including the ones of a failed
+     * flush.
+     *
+     * @return Number of buffered meals
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Inserts the buffered meals, by transactions of at most flushSize meals.
+     * A failed transaction is retried on the next flush, before the meals
+     * buffered since; after maxAttempts failures, one meal at a time. Only
+     * called by the writer thread (or tests).
+     */
+    void flush() {
+        try {
+            while (!pending.isEmpty() || !meals.isEmpty()) {
+                if (pending.isEmpty()) {
+                    pending = poll();
+                    failedAttempts = 0;
+                }
+                if (failedAttempts < maxAttempts) {
+                    mealService.insertMeals(pending);
+                    size.addAndGet(-pending.size());
+                    pending = List.of();
+                } else {
+                    insertOneByOne();
+                }
+            }
+        } catch (RuntimeException e) {
+            failedAttempts++;
+            log.warn("Flush of {} buffered meals failed ({} attempts), retrying in {}: {}", pending.size(),
+                    failedAttempts, flushInterval, e.getMessage());
+        }
+    }
+
+    /**
+     * Inserts the pending meals one transaction per meal. A meal whose insert
+     * fails is dropped and logged, unless the database is unavailable: the
+     * remaining meals then stay pending.
+     */
+    private void insertOneByOne() {
+        while (!pending.isEmpty()) {
+            var meal = pending.get(0);
+            try {
+                mealService.insertMeals(List.of(meal));
+            } catch (RuntimeException e) {
+                if (isUnavailable(e)) {
+                    throw e;
+                }
+                log.error("Dropped buffered meal {} of user {} ({} {} {}), its insert keeps failing: {}",
+                        meal.getId(), meal.getUserId(), meal.getMealDate(), meal.getMealTime(),
+                        meal.getMealContent(), e.getMessage());
+            }
+            pending = pending.subList(1, pending.size());
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * Tells whether a failed insert may succeed later as is, the database
+     * being unreachable or the failure transient (e.g. deadlock, timeout).
+     */
+    private static boolean isUnavailable(RuntimeException e) {
+        return e instanceof TransientDataAccessException || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    /**
+     * Takes the next meals to insert out of the queue.
+     *
+     * @return At most flushSize meals
+     */
+    private List<Meal> poll() {
+        var batch = new ArrayList<Meal>(Math.min(flushSize, meals.size()));
+        Meal meal;
+        while (batch.size() < flushSize && (meal = meals.poll()) != null) {
+            batch.add(meal);
+        }
+        return batch;
+    }
+
+    /**
+     * Delay after which a rejected client may retry: the writer should have
+     * freed the buffer by then.
+     *
+     * @return Number of seconds, at least 1
+     */
+    private long retryAfterSeconds() {
+        return Math.max(1, (flushInterval.toMillis() + 999) / 1000);
+    }
+
+    /**
+     * Starts the writer thread, which flushes the buffer every flushInterval,
+     * and as soon as it holds flushSize meals.
+     */
+    @Override
+    public void start() {
+        var newWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "meal-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        newWriter.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        writer = newWriter;
+    }
+
+    /**
+     * Stops accepting meals, then flushes the remaining ones once the writer
+     * thread is done.
+     */
+    @Override
+    public void stop() {
+        var currentWriter = writer;
+        writer = null;
+        if (currentWriter == null) {
+            return;
+        }
+        currentWriter.shutdown();
+        try {
+            if (!currentWriter.awaitTermination(STOP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.error("Meal writer still running after {}, {} buffered meals may be lost", STOP_TIMEOUT,
+                        size.get());
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        flush();
+        if (size.get() > 0) {
+            log.error("{} buffered meals could not be inserted before shutdown", size.get());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer != null;
+    }
+
+    /**
+     * Stops after the web server, so that no request is accepted once the
+     * buffer is flushed for the last time.
+     *
+     * @return Phase lower than the web server ones
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 4096;
+    }
+}
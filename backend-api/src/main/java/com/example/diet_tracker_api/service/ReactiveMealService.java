@@ -0,0 +1,354 @@
+package com.example.diet_tracker_api.service;
+
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.example.diet_tracker_api.exception.MealNotFoundException;
+import com.example.diet_tracker_api.exception.MealVersionMismatchException;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.repository.ReactiveMealDAO;
+import com.example.diet_tracker_api.repository.ReactiveMealRollupDAO;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of MealService, used by the reactive variant of the
+ * API: same rules, with the meals and their rollups written within one R2DBC
+ * transaction.
+ * The user's timeline and change feed subscribers are updated once the
+ * transaction is committed, as MealService does for JDBC transactions.
+ * Meals are not cached: a lookup by id is a single primary key read, which
+ * does not hold any thread here.
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveMealService {
+    /**
+     * Reactive meal DAO.
+     */
+    private final ReactiveMealDAO mealDAO;
+
+    /**
+     * Reactive meal rollup DAO, updated along with the meals.
+     */
+    private final ReactiveMealRollupDAO mealRollupDAO;
+
+    /**
+     * Timelines of the active users, changed by every write.
+     */
+    private final MealTimelines mealTimelines;
+
+    /**
+     * Feed of the meal changes, sent every write.
+     */
+    private final MealChangeFeed mealChangeFeed;
+
+    /**
+     * Transactional operator of the R2DBC connection factory.
+     */
+    private final TransactionalOperator transactionalOperator;
+
+    /**
+     * Looks for a potential Meal in the DAO and returns it.
+     * Signals a MealNotFoundException if the element is not found.
+     */
+    private Mono<Meal> findUserMealById(String userId, Long id) {
+        return mealDAO.findByIdAndUserId(id, userId)
+                .switchIfEmpty(Mono.error(() -> new MealNotFoundException(userId, id)));
+    }
+
+    /**
+     * Returns one page of the user's Meals matching the filter, ordered by
+     * (mealDate, id).
+     * One extra Meal is fetched to know whether a next page exists.
+     *
+     * @param userId User id to whom the meal belongs
+     * @param filter Filter criteria
+     * @param after  Cursor of the previous page, null to get the first page
+     * @param limit  Maximum number of Meals in the page
+     * @return Page of Meals, with the cursor of the next page if any
+     */
+    public Mono<MealPage> getUserMeals(String userId, MealFilter filter, MealCursor after, int limit) {
+        return mealDAO.findPage(userId, filter, after, limit + 1)
+                .collectList()
+                .map(meals -> {
+                    if (meals.size() <= limit) {
+                        return new MealPage(meals, null);
+                    }
+                    var page = meals.subList(0, limit);
+                    return new MealPage(page, MealCursor.after(page.get(limit - 1)));
+                });
+    }
+
+    /**
+     * Returns the current version of the user's meal list, changed by every
+     * write to their Meals, as MealListVersions does.
+     *
+     * @param userId User id to whom the meals belong
+     * @return Current version
+     */
+    public Mono<String> getUserMealsVersion(String userId) {
+        return mealDAO.findChangeSeq(userId).map(MealListVersions::of);
+    }
+
+    /**
+     * Returns the first changes of the user's Meals after the last change
+     * sequence they synced, as MealChangeLog.getChanges does: the meals
+     * written and the tombstones are read within one R2DBC transaction, then
+     * merged in change sequence order.
+     *
+     * @param userId User id to whom the meals belong
+     * @param since  Last change sequence the client synced, null for all meals
+     * @param limit  Maximum number of changes
+     * @return Changes, with the change sequence to sync from next time
+     */
+    public Mono<MealChanges> getUserMealChanges(String userId, Long since, int limit) {
+        // Meals written behind the application's back are at 0
+        var after = since == null ? -1L : since;
+        return mealDAO.findByUserIdAndChangeSeqGreaterThanOrderByChangeSeq(userId, after, limit + 1)
+                .collectList()
+                .zipWith(mealDAO.findTombstonesByUserIdAndChangeSeqGreaterThanOrderByChangeSeq(userId, after,
+                        limit + 1).collectList())
+                .map(changes -> MealChangeLog.merge(changes.getT1(), changes.getT2(), after, limit))
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Streams all the user's Meals, ordered by (mealDate, id).
+     * Meals are read from the DB as they are requested downstream, so that
+     * memory usage does not depend on the number of Meals.
+     *
+     * @param userId User id to whom the meals belong
+     * @return Meals of the user
+     */
+    public Flux<Meal> exportUserMeals(String userId) {
+        return mealDAO.streamByUserIdOrderByMealDateAscIdAsc(userId);
+    }
+
+    /**
+     * Looks for a potential Meal and returns it.
+     *
+     * @param userId User id to whom the meal belongs
+     * @param id     Meal id in the DB.
+     * @return Matching Meal instance, or a MealNotFoundException error.
+     */
+    public Mono<Meal> getUserMealById(String userId, Long id) {
+        return findUserMealById(userId, id);
+    }
+
+    /**
+     * Creates a new meal.
+     *
+     * @param userId User id to whom the meal belongs
+     * @param meal   Meal containing the information to be used.
+     * @return Created instance.
+     */
+    public Mono<Meal> createMeal(String userId, Meal meal) {
+        return createMeals(userId, List.of(meal)).map(meals -> meals.get(0));
+    }
+
+    /**
+     * Creates all the provided meals in a single transaction.
+     * Ids are taken from meal_seq beforehand, then meals are inserted by
+     * multi-row INSERT statements.
+     *
+     * @param userId User id to whom the meals belong
+     * @param meals  Meals containing the information to be used.
+     * @return Created instances, in the input order.
+     */
+    public Mono<List<Meal>> createMeals(String userId, List<Meal> meals) {
+        return mealDAO.allocateIds(meals.size())
+                .flatMap(ids -> {
+                    for (int i = 0; i < meals.size(); i++) {
+                        var meal = meals.get(i);
+                        meal.setId(ids.get(i));
+                        meal.setUserId(userId);
+                        meal.setVersion(0L);
+                    }
+                    return mealDAO.allocateChangeSeqs(userId, meals.size())
+                            .doOnNext(last -> {
+                                for (int i = 0; i < meals.size(); i++) {
+                                    meals.get(i).setChangeSeq(last - meals.size() + 1 + i);
+                                }
+                            })
+                            .then(mealDAO.insertAll(meals))
+                            .then(mealRollupDAO.addToCounts(MealRollupService.addedDeltas(meals)))
+                            .then(registerWrite(userId, meals, List.of(),
+                                    () -> mealChangeFeed.publishUpserts(userId, meals)))
+                            .as(transactionalOperator::transactional);
+                })
+                .thenReturn(meals);
+    }
+
+    /**
+     * Deletes the meal matching the provided Id, with a single DELETE
+     * statement, provided it has not changed since it was read.
+     *
+     * @param userId  Id of the user owning the meal.
+     * @param id      Meal id in the DB.
+     * @param version Version the meal is expected to be at, null for any.
+     * @return Completion signal, or a MealNotFoundException error if id does not
+     *         match an existing Meal, or a MealVersionMismatchException error if
+     *         the meal is not at the expected version, or changed meanwhile.
+     */
+    public Mono<Void> deleteMealById(String userId, Long id, Long version) {
+        return findUserMealById(userId, id)
+                .flatMap(meal -> checkVersion(meal, version)
+                        .then(mealDAO.allocateChangeSeqs(userId, 1))
+                        .flatMap(changeSeq -> mealDAO.deleteByIdAndUserIdAndVersion(id, userId, meal.getVersion())
+                                .flatMap(deleted -> deleted == 0
+                                        ? Mono.error(new MealVersionMismatchException(userId, id))
+                                        : mealDAO.insertTombstone(meal, changeSeq)
+                                                .then(mealRollupDAO.addToCounts(MealRollupService.removedDeltas(meal)))
+                                                .then(registerWrite(userId, List.of(), List.of(meal),
+                                                        () -> mealChangeFeed.publishDelete(userId, meal, changeSeq))))))
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Edits an existing meal found based on the provided Id.
+     * When the input Meal holds a version, the edit only happens if the meal is
+     * still at that version.
+     *
+     * @param userId Id of the user owning the meal.
+     * @param id     Meal id in the DB.
+     * @param meal   Meal object containing the wanted new information, and the
+     *               version it is expected to replace (null for any).
+     * @return Edited instance, with its new version, or the errors of
+     *         deleteMealById.
+     */
+    public Mono<Meal> editMealById(String userId, Long id, Meal meal) {
+        return findUserMealById(userId, id)
+                .flatMap(previousMeal -> checkVersion(previousMeal, meal.getVersion())
+                        .then(Mono.defer(() -> {
+                            meal.setId(id);
+                            meal.setUserId(userId);
+                            return updateMeal(previousMeal, meal);
+                        })))
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Partially edits an existing meal found based on the provided Id: only the
+     * non-null values of the input Meal are changed.
+     * When the input Meal holds a version, the edit only happens if the meal is
+     * still at that version.
+     *
+     * @param userId Id of the user owning the meal.
+     * @param id     Meal id in the DB.
+     * @param patch  Meal object containing the values to change, null for the
+     *               ones to keep, and the version it is expected to replace
+     *               (null for any).
+     * @return Edited instance, with its new version, or the errors of
+     *         deleteMealById.
+     */
+    public Mono<Meal> patchMealById(String userId, Long id, Meal patch) {
+        return findUserMealById(userId, id)
+                .flatMap(previousMeal -> checkVersion(previousMeal, patch.getVersion())
+                        .then(Mono.defer(() -> updateMeal(previousMeal, Meal.builder()
+                                .id(id)
+                                .userId(userId)
+                                .mealDate(patch.getMealDate() != null ? patch.getMealDate()
+                                        : previousMeal.getMealDate())
+                                .mealTime(patch.getMealTime() != null ? patch.getMealTime()
+                                        : previousMeal.getMealTime())
+                                .mealContent(patch.getMealContent() != null ? patch.getMealContent()
+                                        : previousMeal.getMealContent())
+                                .build()))))
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Checks that a meal is at the expected version.
+     *
+     * @param meal    Meal as currently stored
+     * @param version Expected version, null for any
+     * @return Completion signal, or a MealVersionMismatchException error if the
+     *         meal is at another version.
+     */
+    private Mono<Void> checkVersion(Meal meal, Long version) {
+        if (version != null && !version.equals(meal.getVersion())) {
+            return Mono.error(new MealVersionMismatchException(meal.getUserId(), meal.getId()));
+        }
+        return Mono.empty();
+    }
+
+    /**
+     * Writes the new values of a meal with a single UPDATE statement
+     * conditioned on the version the previous meal was read at, and nothing at
+     * all when they equal the previous ones (see MealService.updateMeal).
+     *
+     * @param previousMeal Meal as currently stored
+     * @param meal         Meal with the same id & userId, holding the new
+     *                     values
+     * @return Edited instance, with its new version, or a
+     *         MealVersionMismatchException error if the meal changed meanwhile.
+     */
+    private Mono<Meal> updateMeal(Meal previousMeal, Meal meal) {
+        if (Objects.equals(previousMeal.getMealDate(), meal.getMealDate())
+                && previousMeal.getMealTime() == meal.getMealTime()
+                && previousMeal.getMealContent() == meal.getMealContent()) {
+            meal.setVersion(previousMeal.getVersion());
+            return Mono.just(meal);
+        }
+        return mealDAO.allocateChangeSeqs(meal.getUserId(), 1)
+                .doOnNext(meal::setChangeSeq)
+                .flatMap(changeSeq -> mealDAO.updateByIdAndUserIdAndVersion(meal.getId(), meal.getUserId(),
+                        previousMeal.getVersion(), meal.getMealDate(), meal.getMealTime(), meal.getMealContent(),
+                        changeSeq))
+                .flatMap(updated -> {
+                    if (updated == 0) {
+                        return Mono.error(new MealVersionMismatchException(meal.getUserId(), meal.getId()));
+                    }
+                    meal.setVersion(previousMeal.getVersion() + 1);
+                    return mealRollupDAO.addToCounts(MealRollupService.replacedDeltas(previousMeal, meal))
+                            .then(registerWrite(meal.getUserId(), List.of(meal), List.of(previousMeal),
+                                    () -> mealChangeFeed.publishUpserts(meal.getUserId(), List.of(meal))))
+                            .thenReturn(meal);
+                });
+    }
+
+    /**
+     * Registers a write of a user's meals with the current reactive
+     * transaction. Once committed, it is applied to the user's timeline, then
+     * published to their change feed subscribers; rolled back writes leave them
+     * untouched. The timelines built meanwhile are not kept (see
+     * MealTimelines).
+     *
+     * @param userId  User id to whom the meals belong
+     * @param added   Meals created, or edited meals with their new values
+     * @param removed Meals deleted, or edited meals with their previous values
+     * @param publish Publication of the write to the change feed
+     */
+    private Mono<Void> registerWrite(String userId, List<Meal> added, List<Meal> removed, Runnable publish) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .doOnNext(synchronizationManager -> {
+                    var timelineChange = mealTimelines.begin(userId, added, removed);
+                    synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public Mono<Void> afterCommit() {
+                            return Mono.fromRunnable(() -> {
+                                timelineChange.commit();
+                                publish.run();
+                            });
+                        }
+
+                        @Override
+                        public Mono<Void> afterCompletion(int status) {
+                            return Mono.fromRunnable(() -> timelineChange.complete(status == STATUS_UNKNOWN));
+                        }
+                    });
+                })
+                .then();
+    }
+}
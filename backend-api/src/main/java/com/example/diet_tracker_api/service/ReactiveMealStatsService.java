@@ -0,0 +1,48 @@
+package com.example.diet_tracker_api.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Service;
+
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.repository.ReactiveMealRollupDAO;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of MealStatsService, reading the same rollup ranges
+ * with R2DBC.
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveMealStatsService {
+    /**
+     * Reactive meal rollup DAO.
+     */
+    private final ReactiveMealRollupDAO mealRollupDAO;
+
+    /**
+     * Counts the user's meals per meal content and meal time, for each period
+     * between two dates (see MealStatsService.getUserMealStats).
+     *
+     * @param userId  User id to whom the meals belong
+     * @param from    First meal date to include, null for no lower bound
+     * @param to      Last meal date to include, null for no upper bound
+     * @param groupBy Period to group the meals by
+     * @return Statistics of each period containing at least one meal, ordered by
+     *         period
+     */
+    public Mono<List<MealStats>> getUserMealStats(String userId, LocalDate from, LocalDate to, MealPeriod groupBy) {
+        // Ranges are read one after the other, keeping the period order
+        return Flux.fromIterable(MealStatsService.rollupRanges(from, to, groupBy))
+                .concatMap(range -> mealRollupDAO.findCounts(userId, range.period(), range.from(), range.until()))
+                .collectList()
+                .map(counts -> MealStatsService.toStats(counts, groupBy));
+    }
+}
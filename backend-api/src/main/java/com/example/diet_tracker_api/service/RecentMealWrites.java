@@ -0,0 +1,105 @@
+package com.example.diet_tracker_api.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Users whose meals were written in the last read-your-writes window, whose
+ * reads are served by the primary database rather than by the replica (see
+ * DataSourceConfiguration), so that they never miss a recent write because of
+ * the replication lag.
+ * Users are tracked by meals owner rather than by caller: an admin reading a
+ * user's meals is served as consistently as the user, and the meal cache and
+ * list versions are never paired with a lagging read.
+ */
+@Component
+public class RecentMealWrites {
+    /**
+     * Transaction resource marking a read-only transaction whose reads need
+     * the primary database.
+     */
+    private static final Object PRIMARY_READS = RecentMealWrites.class.getName() + ".PRIMARY_READS";
+
+    /**
+     * Users written in the window, null if the window is zero.
+     */
+    private final Cache<String, Boolean> writtenUserIds;
+
+    /**
+     * Constructor.
+     *
+     * @param window      Time during which the reads of a user's meals stay on
+     *                    the primary after a write, zero to always read from the
+     *                    replica
+     * @param maximumSize Maximum number of users tracked at once
+     */
+    public RecentMealWrites(
+            @Value("${diet-tracker.datasource.read-your-writes-window:0s}") Duration window,
+            @Value("${diet-tracker.datasource.read-your-writes-maximum-size:100000}") long maximumSize) {
+        this.writtenUserIds = window.isZero() ? null
+                : Caffeine.newBuilder()
+                        .expireAfterWrite(window)
+                        .maximumSize(maximumSize)
+                        .build();
+    }
+
+    /**
+     * Records a write to a user's meals. The window starts at once, and again
+     * once the current transaction (if any) is committed.
+     *
+     * @param userId User id to whom the written meals belong
+     */
+    public void recordWrite(String userId) {
+        if (writtenUserIds == null) {
+            return;
+        }
+        writtenUserIds.put(userId, Boolean.TRUE);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    writtenUserIds.put(userId, Boolean.TRUE);
+                }
+            });
+        }
+    }
+
+    /**
+     * Routes the reads of the current read-only transaction to the primary
+     * database if the user's meals were written in the window. It must be
+     * called before the transaction's first statement.
+     *
+     * @param userId User id to whom the read meals belong
+     */
+    public void routeReads(String userId) {
+        if (writtenUserIds == null || writtenUserIds.getIfPresent(userId) == null
+                || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(PRIMARY_READS)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(PRIMARY_READS, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PRIMARY_READS);
+            }
+        });
+    }
+
+    /**
+     * Tells whether the reads of the current transaction need the primary
+     * database.
+     *
+     * @return true if routeReads pinned the current transaction to the primary
+     */
+    public static boolean arePrimaryReadsRequired() {
+        return TransactionSynchronizationManager.hasResource(PRIMARY_READS);
+    }
+}
@@ -1,3 +1,20 @@
-INSERT INTO meal (meal_content, meal_date, user_id, meal_time) VALUES ('VEGETARIAN', '1978-05-04', '5669d3a8-edd4-4d9d-a737-7e9cb21fa974', 'LUNCH'); -- belongs to diet-app-user
-INSERT INTO meal (meal_content, meal_date, user_id, meal_time) VALUES ('BEEF', '1878-06-03', '8c79eecb-69fe-4edf-a8b1-8cec870a6326', 'LUNCH'); -- belongs to diet-app-admin
-INSERT INTO meal (meal_content, meal_date, user_id, meal_time) VALUES ('BEEF', '1878-06-03', '7a4378b4-e9b3-40ae-8bdf-2bdc0d30f56e', 'LUNCH'); -- belongs to another, non-existing user
\ No newline at end of file
+-- user ids are stored as their 16 UUID bytes, meal times & contents as their codes (see UserIdConverter, MealTime, MealContent)
+INSERT INTO meal (id, meal_content, meal_date, user_id, meal_time, change_seq) VALUES (1, 2, '1978-05-04', X'5669d3a8edd44d9da7377e9cb21fa974', 2, 1); -- VEGETARIAN LUNCH, belongs to diet-app-user
+INSERT INTO meal (id, meal_content, meal_date, user_id, meal_time, change_seq) VALUES (2, 7, '1878-06-03', X'8c79eecb69fe4edfa8b18cec870a6326', 2, 1); -- BEEF LUNCH, belongs to diet-app-admin
+INSERT INTO meal (id, meal_content, meal_date, user_id, meal_time, change_seq) VALUES (3, 7, '1878-06-03', X'7a4378b4e9b340ae8bdf2bdc0d30f56e', 2, 1); -- BEEF LUNCH, belongs to another, non-existing user
+-- each user's meals above are their first change (see MealChangeLog)
+INSERT INTO meal_change_counter (user_id, change_seq) VALUES (X'5669d3a8edd44d9da7377e9cb21fa974', 1);
+INSERT INTO meal_change_counter (user_id, change_seq) VALUES (X'8c79eecb69fe4edfa8b18cec870a6326', 1);
+INSERT INTO meal_change_counter (user_id, change_seq) VALUES (X'7a4378b4e9b340ae8bdf2bdc0d30f56e', 1);
+-- rollups of the meals above, one per period (see MealRollupService): they are not rebuilt on startup
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'5669d3a8edd44d9da7377e9cb21fa974', 1, '1978-05-04', 2, 2, 1);
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'5669d3a8edd44d9da7377e9cb21fa974', 2, '1978-05-01', 2, 2, 1);
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'5669d3a8edd44d9da7377e9cb21fa974', 3, '1978-05-01', 2, 2, 1);
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'8c79eecb69fe4edfa8b18cec870a6326', 1, '1878-06-03', 2, 7, 1);
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'8c79eecb69fe4edfa8b18cec870a6326', 2, '1878-06-03', 2, 7, 1);
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'8c79eecb69fe4edfa8b18cec870a6326', 3, '1878-06-01', 2, 7, 1);
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'7a4378b4e9b340ae8bdf2bdc0d30f56e', 1, '1878-06-03', 2, 7, 1);
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'7a4378b4e9b340ae8bdf2bdc0d30f56e', 2, '1878-06-03', 2, 7, 1);
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'7a4378b4e9b340ae8bdf2bdc0d30f56e', 3, '1878-06-01', 2, 7, 1);
+-- next meal ids are allocated after the ones above (meal_seq is a table on MySQL)
+UPDATE meal_seq SET next_val = 4;
\ No newline at end of file
@@ -58,8 +58,8 @@ public class KeycloakTestContainerIT {
             .withRealmImportFile(realmImportFile);
 
     /**
-     * Sets the jwt.issuer-uri property based on the KC TestContainer actual URL at
-     * runtime.
+     * Sets the jwt.issuer-uri & jwt.jwk-set-uri properties based on the KC
+     * TestContainer actual URL at runtime.
      *
      * @param registry
      */
@@ -67,6 +67,10 @@ public class KeycloakTestContainerIT {
     static void keycloakProperties(DynamicPropertyRegistry registry) {
         registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri",
                 () -> keycloakContainer.getAuthServerUrl() + "/realms/" + realmName);
+        registry.add("spring.security.oauth2.resourceserver.jwt.jwk-set-uri",
+                () -> keycloakContainer.getAuthServerUrl() + "/realms/" + realmName + "/protocol/openid-connect/certs");
+        // No snapshot: keys of another realm must not be served
+        registry.add("diet-tracker.security.jwks.snapshot-file", () -> "");
     };
 
     @BeforeEach
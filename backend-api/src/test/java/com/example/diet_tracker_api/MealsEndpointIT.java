@@ -1,24 +1,35 @@
 package com.example.diet_tracker_api;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import org.json.JSONException;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.skyscreamer.jsonassert.JSONAssert;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 
+import com.example.diet_tracker_api.api.AbstractMealController;
 import com.example.diet_tracker_api.dto.MealInDTO;
+import com.example.diet_tracker_api.dto.MealPatchDTO;
 import com.example.diet_tracker_api.model.MealContent;
 import com.example.diet_tracker_api.model.MealTime;
 
@@ -38,10 +49,22 @@ public class MealsEndpointIT extends KeycloakTestContainerIT {
     @LocalServerPort
     private int port;
 
+    @Autowired
+    private Environment environment;
+
     private String createURLWithPort(String uri) {
         return "https://localhost:" + port + uri;
     }
 
+    /**
+     * Skips the tests of the endpoints not served by the reactive variant: the
+     * change feed, calendars and streaks (see README, Reactive variant).
+     */
+    private void assumeNotReactive() {
+        assumeFalse(environment.acceptsProfiles(Profiles.of("reactive")),
+                "Endpoint not served by the reactive variant");
+    }
+
     @BeforeEach
     void setupRequestSpecification() {
         anonymousRequestSpecification = given()
@@ -74,6 +97,17 @@ public class MealsEndpointIT extends KeycloakTestContainerIT {
                 .statusCode(HttpStatus.FORBIDDEN.value());
     }
 
+    @Test
+    void shouldGetForbidden_WhenStreamMealChangesWithNonUserToken() {
+        assumeNotReactive();
+        given(authenticatedNonUserRequestSpecification)
+                .accept("text/event-stream")
+                .when()
+                .get(createURLWithPort("/meals/stream"))
+                .then()
+                .statusCode(HttpStatus.FORBIDDEN.value());
+    }
+
     @Test
     void shouldGetItem_WhenGetMealByIdWithNonUserToken() throws JSONException {
         Response response = given(authenticatedNonUserRequestSpecification)
@@ -119,6 +153,60 @@ public class MealsEndpointIT extends KeycloakTestContainerIT {
                 .statusCode(HttpStatus.FORBIDDEN.value());
     }
 
+    @Test
+    @DirtiesContext
+    void shouldGetItemIdsInOrder_WhenCreateMealsBatchWithUserToken() {
+        var mealInDTO = MealInDTO.builder()
+                .mealContent(MealContent.FISH)
+                .mealTime(MealTime.DINNER)
+                .mealDate(LocalDate.of(2020, 11, 29))
+                .build();
+        given(authenticatedUserRequestSpecification)
+                .body(List.of(mealInDTO, mealInDTO, mealInDTO))
+                .when()
+                .post(createURLWithPort("/meals/batch"))
+                .then()
+                .statusCode(HttpStatus.CREATED.value())
+                .body("id", contains(3, 4, 5));
+
+        given(authenticatedUserRequestSpecification)
+                .when()
+                .get(createURLWithPort("/meals"))
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("size()", is(4));
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldGetDeletedIds_WhenGetMealChangesSinceLastSyncWithUserToken() {
+        given(authenticatedUserRequestSpecification)
+                .when()
+                .get(createURLWithPort("/meals/changes"))
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("upserts.id", contains(1))
+                .body("deletedIds.size()", is(0))
+                .body("changeSeq", is(1))
+                .body("more", is(false));
+
+        given(authenticatedUserRequestSpecification)
+                .when()
+                .delete(createURLWithPort("/meals/1"))
+                .then()
+                .statusCode(HttpStatus.NO_CONTENT.value());
+
+        given(authenticatedUserRequestSpecification)
+                .queryParam("since", 1)
+                .when()
+                .get(createURLWithPort("/meals/changes"))
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("upserts.size()", is(0))
+                .body("deletedIds", contains(1))
+                .body("changeSeq", is(2));
+    }
+
     /**
      * Tests of the admin endpoint with an admin account
      */
@@ -142,6 +230,75 @@ public class MealsEndpointIT extends KeycloakTestContainerIT {
         JSONAssert.assertEquals(expected, response.getBody().asString(), false);
     }
 
+    @Test
+    void shouldGetFilteredUserMeals_WhenGetAdminMealsWithFilters() {
+        given(authenticatedAdminRequestSpecification)
+                .queryParam("userId", "another-user")
+                .queryParam("from", "1978-01-01")
+                .queryParam("to", "1978-12-31")
+                .queryParam("mealTime", "DINNER")
+                .when()
+                .get(createURLWithPort("/admin/meals"))
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("size()", is(1));
+        given(authenticatedAdminRequestSpecification)
+                .queryParam("userId", "another-user")
+                .queryParam("mealContent", "BEEF")
+                .when()
+                .get(createURLWithPort("/admin/meals"))
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("size()", is(0));
+    }
+
+    @Test
+    void shouldGetMonthlyStats_WhenGetAdminMealStatsWithAdminUserToken() {
+        given(authenticatedAdminRequestSpecification)
+                .queryParam("userId", "another-user")
+                .queryParam("groupBy", "month")
+                .when()
+                .get(createURLWithPort("/admin/meals/stats"))
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("size()", is(1))
+                .body("[0].period", equalTo("1978-04-01"))
+                .body("[0].total", is(1))
+                .body("[0].mealContents.CHICKEN", is(1))
+                .body("[0].mealContents.BEEF", is(0))
+                .body("[0].mealTimes.DINNER", is(1));
+    }
+
+    @Test
+    void shouldGetCalendar_WhenGetAdminMealCalendarWithAdminUserToken() {
+        assumeNotReactive();
+        // 1978-04-14 is the 104th day of the year: its dinner is the 312th slot
+        given(authenticatedAdminRequestSpecification)
+                .queryParam("userId", "another-user")
+                .queryParam("year", 1978)
+                .when()
+                .get(createURLWithPort("/admin/meals/calendar"))
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("year", is(1978))
+                .body("days.length()", is(365 * 3))
+                .body("days", equalTo("0".repeat(311) + "4" + "0".repeat(365 * 3 - 312)));
+    }
+
+    @Test
+    void shouldGetStreaks_WhenGetAdminMealStreaksWithAdminUserToken() {
+        assumeNotReactive();
+        given(authenticatedAdminRequestSpecification)
+                .queryParam("userId", "another-user")
+                .when()
+                .get(createURLWithPort("/admin/meals/streaks"))
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body("longest.start", equalTo("1978-04-14"))
+                .body("longest.days", is(1))
+                .body("latest.end", equalTo("1978-04-14"));
+    }
+
     @Test
     void shouldGetItem_WhenGetAdminMealByIdWithAdminUserToken() throws JSONException {
         Response response = given(authenticatedAdminRequestSpecification)
@@ -373,6 +530,57 @@ public class MealsEndpointIT extends KeycloakTestContainerIT {
         JSONAssert.assertEquals(expected, response.getBody().asString(), false);
     }
 
+    @Test
+    @DirtiesContext
+    void shouldGetAllPages_WhenGetMealsWithLimitAndCursor() throws JSONException {
+        for (var mealDate : new LocalDate[] { LocalDate.of(2020, 11, 29), LocalDate.of(2020, 11, 30) }) {
+            given(authenticatedUserRequestSpecification)
+                    .body(MealInDTO.builder()
+                            .mealContent(MealContent.BEEF)
+                            .mealTime(MealTime.DINNER)
+                            .mealDate(mealDate)
+                            .build())
+                    .when()
+                    .post(createURLWithPort("/meals"))
+                    .then()
+                    .statusCode(HttpStatus.CREATED.value());
+        }
+
+        Response response = given(authenticatedUserRequestSpecification)
+                .queryParam("limit", 2)
+                .when()
+                .get(createURLWithPort("/meals"));
+        response.then()
+                .statusCode(HttpStatus.OK.value())
+                .body("size()", is(2))
+                .body("[0].mealDate", equalTo("1968-05-04"))
+                .body("[1].mealDate", equalTo("2020-11-29"));
+
+        response = given(authenticatedUserRequestSpecification)
+                .queryParam("limit", 2)
+                .queryParam("after", response.getHeader(AbstractMealController.NEXT_CURSOR_HEADER))
+                .when()
+                .get(createURLWithPort("/meals"));
+        response.then()
+                .statusCode(HttpStatus.OK.value())
+                .header(AbstractMealController.NEXT_CURSOR_HEADER, nullValue())
+                .body("size()", is(1))
+                .body("[0].mealDate", equalTo("2020-11-30"));
+    }
+
+    @Test
+    void shouldGetCsv_WhenExportMealsWithToken() {
+        given(authenticatedUserRequestSpecification)
+                .accept("text/csv")
+                .queryParam("format", "CSV")
+                .when()
+                .get(createURLWithPort("/meals/export"))
+                .then()
+                .statusCode(HttpStatus.OK.value())
+                .body(equalTo("id,userId,mealDate,mealTime,mealContent\n"
+                        + "1,5669d3a8-edd4-4d9d-a737-7e9cb21fa974,1968-05-04,LUNCH,VEGETARIAN\n"));
+    }
+
     @Test
     void shouldGetItem_WhenGetMealByIdWithToken() throws JSONException {
         Response response = given(authenticatedUserRequestSpecification)
@@ -465,6 +673,63 @@ public class MealsEndpointIT extends KeycloakTestContainerIT {
                 .body("mealContent", equalTo("BEEF"));
     }
 
+    @Test
+    @DirtiesContext
+    void shouldEditOnlyProvidedFields_WhenPatchMealWithToken() throws JSONException {
+        Response response = given(authenticatedUserRequestSpecification)
+                .body(MealPatchDTO.builder()
+                        .mealContent(MealContent.BEEF)
+                        .build())
+                .when()
+                .patch(createURLWithPort("/meals/1"));
+        response.then()
+                .statusCode(HttpStatus.OK.value())
+                .body("id", is(1))
+                .body("userId", equalTo("5669d3a8-edd4-4d9d-a737-7e9cb21fa974"))
+                .body("mealContent", equalTo("BEEF"));
+
+        // Only the provided field has changed
+        response = given(authenticatedUserRequestSpecification)
+                .when()
+                .get(createURLWithPort("/meals/1"));
+        response.then()
+                .statusCode(HttpStatus.OK.value())
+                .body("mealContent", equalTo("BEEF"));
+    }
+
+    @Test
+    @DirtiesContext
+    void shouldEditItemOnce_WhenEditMealWithSameETagTwice() throws JSONException {
+        Response response = given(authenticatedUserRequestSpecification)
+                .when()
+                .get(createURLWithPort("/meals/1"));
+        response.then()
+                .statusCode(HttpStatus.OK.value());
+        String eTag = response.getHeader(HttpHeaders.ETAG);
+
+        response = given(authenticatedUserRequestSpecification)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .body(MealPatchDTO.builder()
+                        .mealContent(MealContent.BEEF)
+                        .build())
+                .when()
+                .patch(createURLWithPort("/meals/1"));
+        response.then()
+                .statusCode(HttpStatus.OK.value())
+                .header(HttpHeaders.ETAG, not(equalTo(eTag)));
+
+        // The second device still holds the previous ETag
+        response = given(authenticatedUserRequestSpecification)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .body(MealPatchDTO.builder()
+                        .mealContent(MealContent.LAMB)
+                        .build())
+                .when()
+                .patch(createURLWithPort("/meals/1"));
+        response.then()
+                .statusCode(HttpStatus.PRECONDITION_FAILED.value());
+    }
+
     /**
      * NOT_FOUND-related tests
      */
@@ -496,6 +761,18 @@ public class MealsEndpointIT extends KeycloakTestContainerIT {
                 .statusCode(HttpStatus.NOT_FOUND.value());
     }
 
+    @Test
+    void shouldGet404_WhenPatchMealCreatedByOtherUser() throws JSONException {
+        Response response = given(authenticatedUserRequestSpecification)
+                .body(MealPatchDTO.builder()
+                        .mealContent(MealContent.LAMB)
+                        .build())
+                .when()
+                .patch(createURLWithPort("/meals/2")); // This meal id belongs to another user
+        response.then()
+                .statusCode(HttpStatus.NOT_FOUND.value());
+    }
+
     @Test
     void shouldGet404_WhenGetMealByIdNotFound() throws JSONException {
         Response response = given(authenticatedUserRequestSpecification)
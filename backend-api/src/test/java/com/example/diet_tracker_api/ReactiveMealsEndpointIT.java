@@ -0,0 +1,32 @@
+package com.example.diet_tracker_api;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.diet_tracker_api.dto.MealInDTO;
+
+/**
+ * Runs the same endpoint tests against the reactive variant of the API. The
+ * tests of the endpoints it does not serve (change feed, calendars and
+ * streaks) skip themselves, see MealsEndpointIT.assumeNotReactive.
+ */
+@ActiveProfiles({ "it", "reactive" })
+public class ReactiveMealsEndpointIT extends MealsEndpointIT {
+
+    /**
+     * Netty closes plain HTTP connections on its TLS port, without a response.
+     */
+    @Override
+    @Test
+    void shouldGet400_WhenUsingHTTPEndpoint() {
+        assertThrows(IOException.class, () -> given()
+                .body(MealInDTO.builder().build())
+                .when()
+                .get("/api-docs")); // no https, testing with http
+    }
+}
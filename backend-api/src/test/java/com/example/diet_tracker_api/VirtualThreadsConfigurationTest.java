@@ -0,0 +1,23 @@
+package com.example.diet_tracker_api;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the virtual-thread mode is refused on runtimes that would
+ * silently ignore it.
+ */
+public class VirtualThreadsConfigurationTest {
+    @Test
+    void givenJava17_whenRequireVirtualThreads_thenRefused() {
+        assertThrows(IllegalStateException.class,
+                () -> VirtualThreadsConfiguration.requireVirtualThreads(Runtime.Version.parse("17.0.9")));
+    }
+
+    @Test
+    void givenJava21_whenRequireVirtualThreads_thenAccepted() {
+        assertDoesNotThrow(() -> VirtualThreadsConfiguration.requireVirtualThreads(Runtime.Version.parse("21.0.2")));
+    }
+}
@@ -1,11 +1,13 @@
 package com.example.diet_tracker_api.api;
 
 import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
-import org.junit.jupiter.api.BeforeEach;
 import org.mockito.Mockito;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
@@ -13,22 +15,31 @@ import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequ
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
-import com.example.diet_tracker_api.dto.MealIdDTO;
 import com.example.diet_tracker_api.dto.MealInDTO;
-import com.example.diet_tracker_api.dto.MealOutDTO;
 import com.example.diet_tracker_api.model.Meal;
 import com.example.diet_tracker_api.model.MealContent;
 import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.service.MealCalendar;
+import com.example.diet_tracker_api.service.MealChangeFeed;
+import com.example.diet_tracker_api.service.MealChanges;
 import com.example.diet_tracker_api.service.MealService;
+import com.example.diet_tracker_api.service.MealStats;
+import com.example.diet_tracker_api.service.MealStatsService;
+import com.example.diet_tracker_api.service.MealStreak;
+import com.example.diet_tracker_api.service.MealStreaks;
 
 @EnableMethodSecurity(prePostEnabled = true)
+@Import({ MealMapper.class, MealExporter.class, MealChangeStreamer.class })
 public abstract class AbstractMealControllerTest {
 
     @MockitoBean
     MealService mockMealService;
 
     @MockitoBean
-    ModelMapper mockModelMapper;
+    MealStatsService mockMealStatsService;
+
+    @MockitoBean
+    MealChangeFeed mockMealChangeFeed;
 
     @Autowired
     MockMvc mockMvc;
@@ -46,6 +57,7 @@ public abstract class AbstractMealControllerTest {
             .userId("someUser")
             .mealDate(LocalDate.of(1985, 5, 18))
             .mealTime(MealTime.BREAKFAST)
+            .version(3L)
             .build();
     Meal meal2 = Meal.builder()
             .id(52L)
@@ -54,20 +66,20 @@ public abstract class AbstractMealControllerTest {
             .mealDate(LocalDate.of(1885, 6, 18))
             .mealTime(MealTime.LUNCH)
             .build();
-    MealIdDTO meal1IdDTO = new MealIdDTO(42L);
-    MealOutDTO meal1Out = MealOutDTO.builder()
-            .id(42L)
-            .mealContent(MealContent.BEEF)
-            .userId("someUser")
-            .mealDate(LocalDate.of(1985, 5, 18))
-            .mealTime(MealTime.BREAKFAST)
-            .build();
-    MealOutDTO meal2Out = MealOutDTO.builder()
-            .id(52L)
-            .mealContent(MealContent.CHICKEN)
-            .userId("someOtherUser")
+    /**
+     * Meal entity mapped from mealInDTOStr.
+     */
+    Meal mealFromInDTO = Meal.builder()
             .mealDate(LocalDate.of(1885, 6, 18))
             .mealTime(MealTime.LUNCH)
+            .mealContent(MealContent.CHICKEN)
+            .build();
+
+    /**
+     * Meal entity mapped from mealPatchDTOStr.
+     */
+    Meal mealFromPatchDTO = Meal.builder()
+            .mealContent(MealContent.BEEF)
             .build();
 
     String meal1OutStr = "{  " +
@@ -92,6 +104,10 @@ public abstract class AbstractMealControllerTest {
             "\"mealContent\": \"CHICKEN\" " +
             "} ";
 
+    String mealPatchDTOStr = "{  " +
+            "\"mealContent\": \"BEEF\" " +
+            "} ";
+
     MealInDTO mealInDTO = MealInDTO.builder()
             .mealDate(LocalDate.of(1885, 6, 18))
             .mealTime(MealTime.LUNCH)
@@ -102,14 +118,58 @@ public abstract class AbstractMealControllerTest {
             "\"id\": 42" +
             "}";
 
-    MealInDTO mockMealIn = Mockito.mock(MealInDTO.class);
-    Long mockMealId = 42L;
+    String mealInDTOsStr = "[" + mealInDTOStr + ", " + mealInDTOStr + "]";
+
+    String mealIdsStr = "[{\"id\": 42}, {\"id\": 52}]";
+
+    MealStats mealStats = new MealStats(LocalDate.of(1985, 5, 13),
+            new EnumMap<>(Map.of(MealContent.BEEF, 1L, MealContent.CHICKEN, 1L)),
+            new EnumMap<>(Map.of(MealTime.BREAKFAST, 1L, MealTime.LUNCH, 1L)));
+
+    String mealStatsStr = "[{" +
+            "\"period\": \"1985-05-13\", " +
+            "\"total\": 2, " +
+            "\"mealContents\": {\"BEEF\": 1, \"CHICKEN\": 1}, " +
+            "\"mealTimes\": {\"BREAKFAST\": 1, \"LUNCH\": 1}" +
+            "}]";
+
+    MealStreaks mealStreaks = new MealStreaks(
+            new MealStreak(LocalDate.of(1985, 5, 1), LocalDate.of(1985, 5, 12)),
+            new MealStreak(LocalDate.of(1985, 5, 13), LocalDate.of(1985, 5, 13)));
+
+    String mealStreaksStr = "{" +
+            "\"longest\": {\"start\": \"1985-05-01\", \"end\": \"1985-05-12\", \"days\": 12}, " +
+            "\"latest\": {\"start\": \"1985-05-13\", \"end\": \"1985-05-13\", \"days\": 1}" +
+            "}";
+
+    // Beef lunch on January 2nd
+    MealChanges mealChanges = new MealChanges(List.of(meal1), List.of(52L), 7L, true);
 
-    @BeforeEach
-    void setupCommonMocks() {
-        Mockito.when(mockModelMapper.map(meal1, MealOutDTO.class)).thenReturn(meal1Out);
-        Mockito.when(mockModelMapper.map(meal2, MealOutDTO.class)).thenReturn(meal2Out);
-        Mockito.when(mockModelMapper.map(meal1, MealIdDTO.class)).thenReturn(meal1IdDTO);
-        Mockito.when(mockModelMapper.map(mealInDTO, Meal.class)).thenReturn(meal1);
+    String mealChangesStr = "{" +
+            "\"upserts\": [" + meal1OutStr + "], " +
+            "\"deletedIds\": [52], " +
+            "\"changeSeq\": 7, " +
+            "\"more\": true" +
+            "}";
+
+    MealCalendar mealCalendar = mockMealCalendar();
+
+    String mealCalendarStr = "{" +
+            "\"year\": 1985, " +
+            "\"mealTimes\": [\"BREAKFAST\", \"LUNCH\", \"DINNER\"], " +
+            "\"mealContents\": [\"VEGAN\", \"VEGETARIAN\", \"FISH\", \"CHICKEN\", \"PORK\", \"LAMB\", \"BEEF\"], " +
+            "\"days\": \"000070" + "0".repeat(363 * 3) + "\"" +
+            "}";
+
+    private static MealCalendar mockMealCalendar() {
+        var mealCalendar = Mockito.mock(MealCalendar.class);
+        Mockito.when(mealCalendar.year()).thenReturn(1985);
+        Mockito.when(mealCalendar.length()).thenReturn(365);
+        Mockito.when(mealCalendar.mealContent(1, MealTime.LUNCH)).thenReturn(MealContent.BEEF);
+        Mockito.when(mealCalendar.fingerprint()).thenReturn(42L);
+        return mealCalendar;
     }
+
+    MealInDTO mockMealIn = Mockito.mock(MealInDTO.class);
+    Long mockMealId = 42L;
 }
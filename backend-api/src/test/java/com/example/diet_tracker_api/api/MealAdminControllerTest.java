@@ -1,17 +1,24 @@
 package com.example.diet_tracker_api.api;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.skyscreamer.jsonassert.JSONAssert;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.service.MealFilter;
+import com.example.diet_tracker_api.service.MealPage;
+
 @WebMvcTest(controllers = { MealAdminController.class })
 public class MealAdminControllerTest extends AbstractMealControllerTest {
 
@@ -73,9 +80,32 @@ public class MealAdminControllerTest extends AbstractMealControllerTest {
                         status().isForbidden());
     }
 
+    @Test
+    void whenPatchMeal_givenJWTWithNoRole_thenForbidden() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/admin/meals/42")
+                        .param("userId", mockUserId)
+                        .content(mealPatchDTOStr)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(noRoleJwt))
+                .andExpectAll(
+                        status().isForbidden());
+    }
+
+    @Test
+    void whenExportUserMeals_givenJWTWithNoRole_thenForbidden() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/admin/meals/export")
+                        .param("userId", mockUserId)
+                        .with(noRoleJwt))
+                .andExpectAll(
+                        status().isForbidden());
+    }
+
     @Test
     void whenGetUserMeals_givenValidJWT_thenMealsReturned() throws Exception {
-        Mockito.when(mockMealService.getUserMeals(mockUserId)).thenReturn(List.of(meal1, meal2));
+        Mockito.when(mockMealService.getUserMeals(mockUserId, MealFilter.NONE, null, 100))
+                .thenReturn(new MealPage(List.of(meal1, meal2), null));
 
         var result = mockMvc.perform(
                 MockMvcRequestBuilders.get("/admin/meals")
@@ -89,6 +119,71 @@ public class MealAdminControllerTest extends AbstractMealControllerTest {
         JSONAssert.assertEquals(expected, result.getResponse().getContentAsString(), false);
     }
 
+    @Test
+    void whenGetUserMeals_givenCurrentETag_thenNotModifiedWithoutReadingMeals() throws Exception {
+        Mockito.when(mockMealService.getUserMealsVersion(mockUserId)).thenReturn("3");
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/admin/meals")
+                        .param("userId", mockUserId)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                        .with(adminJwt))
+                .andExpectAll(
+                        status().isNotModified(),
+                        header().string(HttpHeaders.ETAG, "\"3\""));
+        Mockito.verify(mockMealService, Mockito.never())
+                .getUserMeals(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(),
+                        ArgumentMatchers.anyInt());
+    }
+
+    @Test
+    void whenGetUserMealStats_givenValidJWT_thenStatsReturned() throws Exception {
+        Mockito.when(mockMealStatsService.getUserMealStats(mockUserId, null, null, MealPeriod.MONTH))
+                .thenReturn(List.of(mealStats));
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/admin/meals/stats")
+                        .param("userId", mockUserId)
+                        .param("groupBy", "MONTH")
+                        .with(adminJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        JSONAssert.assertEquals(mealStatsStr, result.getResponse().getContentAsString(), false);
+    }
+
+    @Test
+    void whenGetUserMealCalendar_givenValidJWT_thenCalendarReturned() throws Exception {
+        Mockito.when(mockMealStatsService.getUserMealCalendar(mockUserId, 1985)).thenReturn(mealCalendar);
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/admin/meals/calendar")
+                        .param("userId", mockUserId)
+                        .param("year", "1985")
+                        .with(adminJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        JSONAssert.assertEquals(mealCalendarStr, result.getResponse().getContentAsString(), true);
+    }
+
+    @Test
+    void whenGetUserMealStreaks_givenValidJWT_thenStreaksReturned() throws Exception {
+        Mockito.when(mockMealStatsService.getUserMealStreaks(mockUserId, null, null)).thenReturn(mealStreaks);
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/admin/meals/streaks")
+                        .param("userId", mockUserId)
+                        .with(adminJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        JSONAssert.assertEquals(mealStreaksStr, result.getResponse().getContentAsString(), true);
+    }
+
     @Test
     void whenGetUserMealById_givenUserOwnsMeal_thenMealReturned() throws Exception {
         Mockito.when(mockMealService.getUserMealById(mockUserId, mockMealId)).thenReturn(meal1);
@@ -106,7 +201,7 @@ public class MealAdminControllerTest extends AbstractMealControllerTest {
 
     @Test
     void whenCreateMeal_givenUserOwnsMeal_thenMealIdReturned() throws Exception {
-        Mockito.when(mockMealService.createMeal(mockUserId, meal1)).thenReturn(meal1);
+        Mockito.when(mockMealService.createMeal(mockUserId, mealFromInDTO)).thenReturn(meal1);
 
         var result = mockMvc.perform(
                 MockMvcRequestBuilders.post("/admin/meals")
@@ -121,6 +216,24 @@ public class MealAdminControllerTest extends AbstractMealControllerTest {
         JSONAssert.assertEquals(meal1IdStr, result.getResponse().getContentAsString(), false);
     }
 
+    @Test
+    void whenCreateMeals_givenValidJWT_thenMealIdsReturnedInOrder() throws Exception {
+        Mockito.when(mockMealService.createMeals(mockUserId, List.of(mealFromInDTO, mealFromInDTO)))
+                .thenReturn(List.of(meal1, meal2));
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.post("/admin/meals/batch")
+                        .param("userId", mockUserId)
+                        .content(mealInDTOsStr)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(adminJwt))
+                .andExpectAll(
+                        status().isCreated(),
+                        content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        JSONAssert.assertEquals(mealIdsStr, result.getResponse().getContentAsString(), true);
+    }
+
     @Test
     void whenDeleteMeal_givenUserOwnsMeal_thenMealDeleted() throws Exception {
 
@@ -131,13 +244,13 @@ public class MealAdminControllerTest extends AbstractMealControllerTest {
                 .andExpectAll(
                         status().isNoContent());
 
-        Mockito.verify(mockMealService).deleteMealById(mockUserId, mockMealId);
+        Mockito.verify(mockMealService).deleteMealById(mockUserId, mockMealId, null);
     }
 
     @Test
     void whenEditMeal_givenUserOwnsMeal_thenMealReturned() throws Exception {
         Mockito.when(mockMealService.editMealById(mockUserId, mockMealId,
-                meal1)).thenReturn(meal1);
+                mealFromInDTO)).thenReturn(meal1);
 
         var result = mockMvc.perform(
                 MockMvcRequestBuilders.put("/admin/meals/" + mockMealId.toString())
@@ -152,4 +265,36 @@ public class MealAdminControllerTest extends AbstractMealControllerTest {
 
         JSONAssert.assertEquals(meal1IdStr, result.getResponse().getContentAsString(), false);
     }
+
+    @Test
+    void whenPatchMeal_givenUserOwnsMeal_thenMealReturned() throws Exception {
+        Mockito.when(mockMealService.patchMealById(mockUserId, mockMealId,
+                mealFromPatchDTO)).thenReturn(meal1);
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.patch("/admin/meals/" + mockMealId.toString())
+                        .param("userId", mockUserId)
+                        .content(mealPatchDTOStr)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(adminJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        JSONAssert.assertEquals(meal1OutStr, result.getResponse().getContentAsString(), false);
+    }
+
+    @Test
+    void whenDeleteMeal_givenIfMatch_thenExpectedVersionProvided() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.delete("/admin/meals/" + mockMealId.toString())
+                        .param("userId", mockUserId)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .with(adminJwt))
+                .andExpectAll(
+                        status().isNoContent());
+
+        Mockito.verify(mockMealService).deleteMealById(mockUserId, mockMealId, 3L);
+    }
 }
@@ -3,39 +3,24 @@ package com.example.diet_tracker_api.api;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.context.TestConfiguration;
-import org.springframework.context.annotation.Bean;
-import org.springframework.test.context.bean.override.mockito.MockitoBean;
-import org.springframework.test.context.junit.jupiter.SpringExtension;
-
-import com.example.diet_tracker_api.ModelMapperConfiguration;
+
 import com.example.diet_tracker_api.dto.MealInDTO;
 import com.example.diet_tracker_api.model.Meal;
 import com.example.diet_tracker_api.model.MealContent;
 import com.example.diet_tracker_api.model.MealTime;
-import com.example.diet_tracker_api.service.MealService;
+import com.example.diet_tracker_api.service.MealChanges;
+import com.example.diet_tracker_api.service.MealStats;
+import com.example.diet_tracker_api.service.MealStreak;
+import com.example.diet_tracker_api.service.MealStreaks;
 
-@ExtendWith(SpringExtension.class)
 public class MealMapperTest {
 
-    @MockitoBean
-    private MealService mockMealService;
-
-    @Autowired
-    private MealUserController mealUserController;
-
-    @TestConfiguration
-    static class MealMapperTestContextConfiguration {
-        @Bean
-        MealUserController addTestMealUserController(MealService mockMealService) {
-            return new MealUserController(mockMealService, new ModelMapperConfiguration().modelMapper()) {
-            };
-        }
-    }
+    private final MealMapper mealMapper = new MealMapper();
 
     @Test
     void testMealFromMealInDTO() {
@@ -45,7 +30,7 @@ public class MealMapperTest {
                 .mealTime(MealTime.BREAKFAST)
                 .build();
 
-        var output = mealUserController.convertToEntity(mealInDTO);
+        var output = mealMapper.toEntity(mealInDTO);
 
         assertEquals(mealInDTO.getMealContent(), output.getMealContent());
         assertEquals(mealInDTO.getMealDate(), output.getMealDate());
@@ -64,7 +49,7 @@ public class MealMapperTest {
                 .mealTime(MealTime.BREAKFAST)
                 .build();
 
-        var output = mealUserController.convertToDTO(meal);
+        var output = mealMapper.toOutDTO(meal);
         assertEquals(meal.getId(), output.getId());
         assertEquals(meal.getUserId(), output.getUserId());
         assertEquals(meal.getMealContent(), output.getMealContent());
@@ -73,4 +58,56 @@ public class MealMapperTest {
 
     }
 
+    @Test
+    void testMealIdDTOFromEntity() {
+        var meal = Meal.builder()
+                .id(42L)
+                .userId("someUser")
+                .build();
+
+        assertEquals(42L, mealMapper.toIdDTO(meal).getId());
+    }
+
+    @Test
+    void testMealStatsDTOFromMealStats() {
+        var mealContents = new EnumMap<MealContent, Long>(Map.of(MealContent.BEEF, 2L, MealContent.VEGAN, 1L));
+        var mealTimes = new EnumMap<MealTime, Long>(Map.of(MealTime.LUNCH, 3L));
+        var mealStats = new MealStats(LocalDate.of(1900, 1, 1), mealContents, mealTimes);
+
+        var output = mealMapper.toStatsDTO(mealStats);
+        assertEquals(LocalDate.of(1900, 1, 1), output.getPeriod());
+        assertEquals(3L, output.getTotal());
+        assertEquals(mealContents, output.getMealContents());
+        assertEquals(mealTimes, output.getMealTimes());
+    }
+
+    @Test
+    void testMealStreaksDTOFromMealStreaks() {
+        var mealStreaks = new MealStreaks(new MealStreak(LocalDate.of(1900, 1, 1), LocalDate.of(1900, 1, 3)), null);
+
+        var output = mealMapper.toStreaksDTO(mealStreaks);
+        assertEquals(LocalDate.of(1900, 1, 1), output.getLongest().getStart());
+        assertEquals(LocalDate.of(1900, 1, 3), output.getLongest().getEnd());
+        assertEquals(3L, output.getLongest().getDays());
+        assertEquals(null, output.getLatest());
+    }
+
+    @Test
+    void testMealChangesDTOFromMealChanges() {
+        var meal = Meal.builder()
+                .id(42L)
+                .userId("someUser")
+                .mealContent(MealContent.BEEF)
+                .changeSeq(6L)
+                .build();
+        var mealChanges = new MealChanges(List.of(meal), List.of(43L), 7L, false);
+
+        var output = mealMapper.toChangesDTO(mealChanges);
+        assertEquals(List.of(42L), output.getUpserts().stream().map(upsert -> upsert.getId()).toList());
+        assertEquals(MealContent.BEEF, output.getUpserts().get(0).getMealContent());
+        assertEquals(List.of(43L), output.getDeletedIds());
+        assertEquals(7L, output.getChangeSeq());
+        assertEquals(false, output.isMore());
+    }
+
 }
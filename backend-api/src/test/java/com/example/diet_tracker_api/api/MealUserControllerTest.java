@@ -1,21 +1,42 @@
 package com.example.diet_tracker_api.api;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
-import org.modelmapper.MappingException;
-import org.modelmapper.spi.ErrorMessage;
 import org.skyscreamer.jsonassert.JSONAssert;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import com.example.diet_tracker_api.exception.MealChangeFeedFullException;
 import com.example.diet_tracker_api.exception.MealNotFoundException;
+import com.example.diet_tracker_api.exception.MealVersionMismatchException;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.service.MealChangeEvent;
+import com.example.diet_tracker_api.service.MealChangeFeed;
+import com.example.diet_tracker_api.service.MealChangeSink;
+import com.example.diet_tracker_api.service.MealCursor;
+import com.example.diet_tracker_api.service.MealFilter;
+import com.example.diet_tracker_api.service.MealPage;
+import com.example.diet_tracker_api.service.MealStreaks;
 
 @WebMvcTest(controllers = { MealUserController.class })
 public class MealUserControllerTest extends AbstractMealControllerTest {
@@ -72,13 +93,25 @@ public class MealUserControllerTest extends AbstractMealControllerTest {
                         status().isForbidden());
     }
 
+    @Test
+    void whenPatchMeal_givenJWTWithNoRole_thenForbidden() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/meals/" + mockMealId.toString())
+                        .content(mealPatchDTOStr)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(noRoleJwt))
+                .andExpectAll(
+                        status().isForbidden());
+    }
+
     /**
      * Nominal test cases
      */
 
     @Test
     void whenGetUserMeals_givenValidJWT_thenMealsReturned() throws Exception {
-        Mockito.when(mockMealService.getUserMeals(mockUserId)).thenReturn(List.of(meal1, meal2));
+        Mockito.when(mockMealService.getUserMeals(mockUserId, MealFilter.NONE, null, 100))
+                .thenReturn(new MealPage(List.of(meal1, meal2), null));
 
         var result = mockMvc.perform(
                 MockMvcRequestBuilders.get("/meals")
@@ -91,6 +124,398 @@ public class MealUserControllerTest extends AbstractMealControllerTest {
         JSONAssert.assertEquals(expected, result.getResponse().getContentAsString(), false);
     }
 
+    @Test
+    void whenGetUserMeals_givenNoIfNoneMatch_thenETagReturned() throws Exception {
+        Mockito.when(mockMealService.getUserMealsVersion(mockUserId)).thenReturn("3");
+        Mockito.when(mockMealService.getUserMeals(mockUserId, MealFilter.NONE, null, 100))
+                .thenReturn(new MealPage(List.of(meal1), null));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    @Test
+    void whenGetUserMeals_givenCurrentETag_thenNotModifiedWithoutReadingMeals() throws Exception {
+        Mockito.when(mockMealService.getUserMealsVersion(mockUserId)).thenReturn("3");
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isNotModified(),
+                        header().string(HttpHeaders.ETAG, "\"3\""),
+                        content().string(""));
+        Mockito.verify(mockMealService, Mockito.never())
+                .getUserMeals(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(),
+                        ArgumentMatchers.anyInt());
+    }
+
+    @Test
+    void whenGetUserMeals_givenOutdatedETag_thenMealsReturned() throws Exception {
+        Mockito.when(mockMealService.getUserMealsVersion(mockUserId)).thenReturn("4");
+        Mockito.when(mockMealService.getUserMeals(mockUserId, MealFilter.NONE, null, 100))
+                .thenReturn(new MealPage(List.of(meal1), null));
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        header().string(HttpHeaders.ETAG, "\"4\""))
+                .andReturn();
+        JSONAssert.assertEquals("[ " + meal1OutStr + "]", result.getResponse().getContentAsString(), false);
+    }
+
+    @Test
+    void whenGetUserMeals_givenMorePages_thenNextCursorReturned() throws Exception {
+        var nextCursor = new MealCursor(LocalDate.of(1985, 5, 18), 42L);
+        Mockito.when(mockMealService.getUserMeals(mockUserId, MealFilter.NONE, null, 1))
+                .thenReturn(new MealPage(List.of(meal1), nextCursor));
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals")
+                        .param("limit", "1")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        header().string(AbstractMealController.NEXT_CURSOR_HEADER, nextCursor.encode()))
+                .andReturn();
+        JSONAssert.assertEquals("[ " + meal1OutStr + "]", result.getResponse().getContentAsString(), false);
+    }
+
+    @Test
+    void whenGetUserMeals_givenCursor_thenNextPageReturned() throws Exception {
+        var cursor = new MealCursor(LocalDate.of(1985, 5, 18), 42L);
+        Mockito.when(mockMealService.getUserMeals(mockUserId, MealFilter.NONE, cursor, 100))
+                .thenReturn(new MealPage(List.of(meal2), null));
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals")
+                        .param("after", cursor.encode())
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        header().doesNotExist(AbstractMealController.NEXT_CURSOR_HEADER))
+                .andReturn();
+        JSONAssert.assertEquals("[ " + meal2OutStr + "]", result.getResponse().getContentAsString(), false);
+    }
+
+    @Test
+    void whenGetUserMeals_givenFilters_thenFilteredMealsReturned() throws Exception {
+        var filter = new MealFilter(LocalDate.of(1985, 1, 1), LocalDate.of(1985, 12, 31),
+                MealTime.BREAKFAST, MealContent.BEEF);
+        Mockito.when(mockMealService.getUserMeals(mockUserId, filter, null, 100))
+                .thenReturn(new MealPage(List.of(meal1), null));
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals")
+                        .param("from", "1985-01-01")
+                        .param("to", "1985-12-31")
+                        .param("mealTime", "BREAKFAST")
+                        .param("mealContent", "BEEF")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk())
+                .andReturn();
+        JSONAssert.assertEquals("[ " + meal1OutStr + "]", result.getResponse().getContentAsString(), false);
+    }
+
+    @Test
+    void whenGetUserMeals_givenInvalidFilterValue_thenBadRequest() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals")
+                        .param("mealTime", "BRUNCH")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isBadRequest(),
+                        jsonPath("mealTime").value("Invalid value for parameter 'mealTime': BRUNCH"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void whenGetUserMealStats_givenDatesAndGroupBy_thenStatsReturned() throws Exception {
+        Mockito.when(mockMealStatsService.getUserMealStats(mockUserId, LocalDate.of(1985, 5, 1),
+                LocalDate.of(1985, 5, 31), MealPeriod.WEEK)).thenReturn(List.of(mealStats));
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/stats")
+                        .param("from", "1985-05-01")
+                        .param("to", "1985-05-31")
+                        .param("groupBy", "week")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        JSONAssert.assertEquals(mealStatsStr, result.getResponse().getContentAsString(), false);
+    }
+
+    @Test
+    void whenGetUserMealStats_givenNoParameter_thenAllMealsGroupedByDay() throws Exception {
+        Mockito.when(mockMealStatsService.getUserMealStats(mockUserId, null, null, MealPeriod.DAY))
+                .thenReturn(List.of(mealStats));
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/stats")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk())
+                .andReturn();
+        JSONAssert.assertEquals(mealStatsStr, result.getResponse().getContentAsString(), false);
+    }
+
+    @Test
+    void whenGetUserMealStats_givenInvalidGroupBy_thenBadRequest() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/stats")
+                        .param("groupBy", "year")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isBadRequest(),
+                        jsonPath("groupBy").value("Invalid value for parameter 'groupBy': year"));
+    }
+
+    @Test
+    void whenGetUserMealStats_givenJWTWithNoRole_thenForbidden() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/stats")
+                        .with(noRoleJwt))
+                .andExpectAll(
+                        status().isForbidden());
+    }
+
+    @Test
+    void whenGetUserMealChanges_givenSince_thenChangesReturned() throws Exception {
+        Mockito.when(mockMealService.getUserMealChanges(mockUserId, 3L, 10)).thenReturn(mealChanges);
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/changes")
+                        .param("since", "3")
+                        .param("limit", "10")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        JSONAssert.assertEquals(mealChangesStr, result.getResponse().getContentAsString(), true);
+    }
+
+    @Test
+    void whenGetUserMealChanges_givenNoSince_thenAllChangesAsked() throws Exception {
+        Mockito.when(mockMealService.getUserMealChanges(mockUserId, null, 100)).thenReturn(mealChanges);
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/changes")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk());
+    }
+
+    @Test
+    void whenGetUserMealChanges_givenNegativeSince_thenBadRequest() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/changes")
+                        .param("since", "-1")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isBadRequest());
+        Mockito.verifyNoInteractions(mockMealService);
+    }
+
+    @Test
+    void whenGetUserMealCalendar_givenYear_thenDenseCalendarReturnedWithETag() throws Exception {
+        Mockito.when(mockMealStatsService.getUserMealCalendar(mockUserId, 1985)).thenReturn(mealCalendar);
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/calendar")
+                        .param("year", "1985")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        header().string(HttpHeaders.ETAG, "\"1985-2a\""),
+                        content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        JSONAssert.assertEquals(mealCalendarStr, result.getResponse().getContentAsString(), true);
+    }
+
+    @Test
+    void whenGetUserMealCalendar_givenCurrentETag_thenNotModified() throws Exception {
+        Mockito.when(mockMealStatsService.getUserMealCalendar(mockUserId, 1985)).thenReturn(mealCalendar);
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/calendar")
+                        .param("year", "1985")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"1985-2a\"")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isNotModified(),
+                        content().string(""));
+        Mockito.verifyNoInteractions(mockMealService);
+    }
+
+    @Test
+    void whenGetUserMealCalendar_givenInvalidYear_thenBadRequest() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/calendar")
+                        .param("year", "0")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isBadRequest());
+    }
+
+    @Test
+    void whenGetUserMealStreaks_givenDates_thenStreaksReturned() throws Exception {
+        Mockito.when(mockMealStatsService.getUserMealStreaks(mockUserId, LocalDate.of(1985, 5, 1),
+                LocalDate.of(1985, 5, 31))).thenReturn(mealStreaks);
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/streaks")
+                        .param("from", "1985-05-01")
+                        .param("to", "1985-05-31")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        JSONAssert.assertEquals(mealStreaksStr, result.getResponse().getContentAsString(), true);
+    }
+
+    @Test
+    void whenGetUserMealStreaks_givenNoMeals_thenNullStreaks() throws Exception {
+        Mockito.when(mockMealStatsService.getUserMealStreaks(mockUserId, null, null))
+                .thenReturn(new MealStreaks(null, null));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/streaks")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("longest").isEmpty(),
+                        jsonPath("latest").isEmpty());
+    }
+
+    @Test
+    void whenGetUserMealStreaks_givenJWTWithNoRole_thenForbidden() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/streaks")
+                        .with(noRoleJwt))
+                .andExpectAll(
+                        status().isForbidden());
+    }
+
+    @Test
+    void whenStreamUserMealChanges_givenValidJWT_thenChangesStreamedAsServerSentEvents() throws Exception {
+        var sink = ArgumentCaptor.forClass(MealChangeSink.class);
+        Mockito.when(mockMealChangeFeed.subscribe(ArgumentMatchers.eq(mockUserId), sink.capture()))
+                .thenReturn(Mockito.mock(MealChangeFeed.Subscription.class));
+        meal1.setChangeSeq(5L);
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/stream")
+                        .with(userJwt))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        sink.getValue().resync();
+        sink.getValue().send(MealChangeEvent.upsert(meal1));
+        sink.getValue().send(MealChangeEvent.delete(meal2, 6L));
+        sink.getValue().heartbeat();
+        sink.getValue().close();
+
+        assertTrue(result.getResponse().getContentType().startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+        var events = result.getResponse().getContentAsString().split("\n\n");
+        assertEquals(4, events.length);
+        assertEquals("event:resync\ndata:{}", events[0]);
+        assertTrue(events[1].startsWith("id:5\nevent:upsert\ndata:"));
+        JSONAssert.assertEquals(meal1OutStr, events[1].substring(events[1].indexOf("data:") + 5), true);
+        assertEquals("id:6\nevent:delete\ndata:{\"id\":52}", events[2]);
+        assertEquals(":heartbeat", events[3]);
+    }
+
+    @Test
+    void whenStreamUserMealChanges_givenFeedFull_thenServiceUnavailableWithRetryAfter() throws Exception {
+        Mockito.when(mockMealChangeFeed.subscribe(ArgumentMatchers.eq(mockUserId), ArgumentMatchers.any()))
+                .thenThrow(new MealChangeFeedFullException(mockUserId, 30));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/stream")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isServiceUnavailable(),
+                        header().string(HttpHeaders.RETRY_AFTER, "30"));
+    }
+
+    @Test
+    void whenStreamUserMealChanges_givenJWTWithNoRole_thenForbidden() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/stream")
+                        .with(noRoleJwt))
+                .andExpectAll(
+                        status().isForbidden());
+        Mockito.verifyNoInteractions(mockMealChangeFeed);
+    }
+
+    private void mockExportedMeals(Meal... meals) {
+        Mockito.doAnswer(invocation -> {
+            var consumer = (Consumer<Meal>) invocation.getArgument(1);
+            List.of(meals).forEach(consumer);
+            return null;
+        }).when(mockMealService).exportUserMeals(ArgumentMatchers.eq(mockUserId), ArgumentMatchers.any());
+    }
+
+    @Test
+    void whenExportUserMeals_givenNdjsonFormat_thenOneJsonObjectPerLine() throws Exception {
+        mockExportedMeals(meal1, meal2);
+
+        var asyncResult = mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/export")
+                        .with(userJwt))
+                .andReturn();
+        var result = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_NDJSON),
+                        header().string("Content-Disposition", "attachment; filename=\"meals.ndjson\""))
+                .andReturn();
+
+        var lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        JSONAssert.assertEquals(meal1OutStr, lines[0], true);
+        JSONAssert.assertEquals(meal2OutStr, lines[1], true);
+    }
+
+    @Test
+    void whenExportUserMeals_givenCsvFormat_thenHeaderThenOneLinePerMeal() throws Exception {
+        mockExportedMeals(meal1, meal2);
+
+        var asyncResult = mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/export")
+                        .param("format", "CSV")
+                        .with(userJwt))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType("text/csv"),
+                        content().string("id,userId,mealDate,mealTime,mealContent\n"
+                                + "42,someUser,1985-05-18,BREAKFAST,BEEF\n"
+                                + "52,someOtherUser,1885-06-18,LUNCH,CHICKEN\n"));
+    }
+
+    @Test
+    void whenExportUserMeals_givenJWTWithNoRole_thenForbidden() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/export")
+                        .with(noRoleJwt))
+                .andExpectAll(
+                        status().isForbidden());
+    }
+
     @Test
     void whenGetUserMealById_givenUserOwnsMeal_thenMealReturned() throws Exception {
         Mockito.when(mockMealService.getUserMealById(mockUserId, mockMealId)).thenReturn(meal1);
@@ -105,9 +530,34 @@ public class MealUserControllerTest extends AbstractMealControllerTest {
         JSONAssert.assertEquals(meal1OutStr, result.getResponse().getContentAsString(), false);
     }
 
+    @Test
+    void whenGetUserMealById_givenUserOwnsMeal_thenVersionReturnedAsETag() throws Exception {
+        Mockito.when(mockMealService.getUserMealById(mockUserId, mockMealId)).thenReturn(meal1);
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/" + mockMealId.toString())
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    @Test
+    void whenGetUserMealById_givenUpToDateETag_thenNotModified() throws Exception {
+        Mockito.when(mockMealService.getUserMealById(mockUserId, mockMealId)).thenReturn(meal1);
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals/" + mockMealId.toString())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isNotModified(),
+                        content().string(""));
+    }
+
     @Test
     void whenCreateMeal_givenUserOwnsMeal_thenMealIdReturned() throws Exception {
-        Mockito.when(mockMealService.createMeal(mockUserId, meal1)).thenReturn(meal1);
+        Mockito.when(mockMealService.createMeal(mockUserId, mealFromInDTO)).thenReturn(meal1);
 
         var result = mockMvc.perform(
                 MockMvcRequestBuilders.post("/meals")
@@ -121,6 +571,34 @@ public class MealUserControllerTest extends AbstractMealControllerTest {
         JSONAssert.assertEquals(meal1IdStr, result.getResponse().getContentAsString(), false);
     }
 
+    @Test
+    void whenCreateMeals_givenValidJWT_thenMealIdsReturnedInOrder() throws Exception {
+        Mockito.when(mockMealService.createMeals(mockUserId, List.of(mealFromInDTO, mealFromInDTO)))
+                .thenReturn(List.of(meal1, meal2));
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.post("/meals/batch")
+                        .content(mealInDTOsStr)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isCreated(),
+                        content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        JSONAssert.assertEquals(mealIdsStr, result.getResponse().getContentAsString(), true);
+    }
+
+    @Test
+    void whenCreateMeals_givenJWTWithNoRole_thenForbidden() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/meals/batch")
+                        .content(mealInDTOsStr)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(noRoleJwt))
+                .andExpectAll(
+                        status().isForbidden());
+    }
+
     @Test
     void whenDeleteMeal_givenUserOwnsMeal_thenMealDeleted() throws Exception {
 
@@ -130,13 +608,47 @@ public class MealUserControllerTest extends AbstractMealControllerTest {
                 .andExpectAll(
                         status().isNoContent());
 
-        Mockito.verify(mockMealService).deleteMealById(mockUserId, mockMealId);
+        Mockito.verify(mockMealService).deleteMealById(mockUserId, mockMealId, null);
+    }
+
+    @Test
+    void whenDeleteMeal_givenIfMatch_thenExpectedVersionProvided() throws Exception {
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.delete("/meals/" + mockMealId.toString())
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isNoContent());
+
+        Mockito.verify(mockMealService).deleteMealById(mockUserId, mockMealId, 3L);
+    }
+
+    @Test
+    void whenEditMeal_givenIfMatch_thenExpectedVersionProvidedAndNewVersionReturned() throws Exception {
+        var expectedMeal = Meal.builder()
+                .mealDate(mealFromInDTO.getMealDate())
+                .mealTime(mealFromInDTO.getMealTime())
+                .mealContent(mealFromInDTO.getMealContent())
+                .version(2L)
+                .build();
+        Mockito.when(mockMealService.editMealById(mockUserId, mockMealId, expectedMeal)).thenReturn(meal1);
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/meals/" + mockMealId.toString())
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .content(mealInDTOStr)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isCreated(),
+                        header().string(HttpHeaders.ETAG, "\"3\""));
     }
 
     @Test
     void whenEditMeal_givenUserOwnsMeal_thenMealReturned() throws Exception {
         Mockito.when(mockMealService.editMealById(mockUserId, mockMealId,
-                meal1)).thenReturn(meal1);
+                mealFromInDTO)).thenReturn(meal1);
 
         var result = mockMvc.perform(
                 MockMvcRequestBuilders.put("/meals/" + mockMealId.toString())
@@ -151,21 +663,75 @@ public class MealUserControllerTest extends AbstractMealControllerTest {
         JSONAssert.assertEquals(meal1IdStr, result.getResponse().getContentAsString(), false);
     }
 
+    @Test
+    void whenPatchMeal_givenUserOwnsMeal_thenMealReturned() throws Exception {
+        Mockito.when(mockMealService.patchMealById(mockUserId, mockMealId,
+                mealFromPatchDTO)).thenReturn(meal1);
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.patch("/meals/" + mockMealId.toString())
+                        .content(mealPatchDTOStr)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        JSONAssert.assertEquals(meal1OutStr, result.getResponse().getContentAsString(), false);
+    }
+
     /**
      * Testing exceptions
      */
     @Test
-    void whenGetUserMeals_givenMappingException_thenBadRequest() throws Exception {
-        Mockito.when(mockMealService.getUserMeals(mockUserId)).thenThrow(new MappingException(List.of(new ErrorMessage("MSG"))));
+    void whenGetUserMeals_givenInvalidCursor_thenBadRequest() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/meals")
+                        .param("after", "notACursor")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isBadRequest(),
+                        jsonPath("after").value("Invalid value for parameter 'after': notACursor"));
+    }
 
+    @Test
+    void whenGetUserMeals_givenLimitTooLarge_thenBadRequest() throws Exception {
         mockMvc.perform(
                 MockMvcRequestBuilders.get("/meals")
+                        .param("limit", "1001")
                         .with(userJwt))
                 .andExpectAll(
-                        status().isBadRequest());
+                        status().isBadRequest(),
+                        jsonPath("limit").value("must be less than or equal to 1000"));
+    }
+
+    @Test
+    void whenCreateMeals_givenInvalidMeal_thenBadRequestOnThatMeal() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/meals/batch")
+                        .content("[" + mealInDTOStr + ", {\"mealTime\": \"LUNCH\", \"mealContent\": \"FISH\"}]")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isBadRequest(),
+                        jsonPath("['mealInDTOs[1].mealDate']").value("must not be null"));
+
+        Mockito.verifyNoInteractions(mockMealService);
+    }
+
+    @Test
+    void whenCreateMeals_givenEmptyList_thenBadRequest() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/meals/batch")
+                        .content("[]")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isBadRequest(),
+                        jsonPath("mealInDTOs").value("size must be between 1 and 10000"));
     }
 
-    
     @Test
     void whenGetUserMealById_givenMealNotFoundException_thenNotFound() throws Exception {
         Mockito.when(mockMealService.getUserMealById(mockUserId, mockMealId)).thenThrow(new MealNotFoundException(mockUserId, mockMealId));
@@ -179,4 +745,50 @@ public class MealUserControllerTest extends AbstractMealControllerTest {
         assertEquals(result.getResponse().getContentAsString(), "Meal with id=42 not found for userId=user");
     }
 
+    @Test
+    void whenPatchMeal_givenMealNotFoundException_thenNotFound() throws Exception {
+        Mockito.when(mockMealService.patchMealById(mockUserId, mockMealId, mealFromPatchDTO))
+                .thenThrow(new MealNotFoundException(mockUserId, mockMealId));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/meals/" + mockMealId.toString())
+                        .content(mealPatchDTOStr)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isNotFound());
+    }
+
+    @Test
+    void whenPatchMeal_givenMealVersionMismatchException_thenPreconditionFailed() throws Exception {
+        var expectedPatch = Meal.builder()
+                .mealContent(MealContent.BEEF)
+                .version(2L)
+                .build();
+        Mockito.when(mockMealService.patchMealById(mockUserId, mockMealId, expectedPatch))
+                .thenThrow(new MealVersionMismatchException(mockUserId, mockMealId));
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.patch("/meals/" + mockMealId.toString())
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .content(mealPatchDTOStr)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isPreconditionFailed())
+                .andReturn();
+        assertEquals("Meal with id=42 for userId=user was modified meanwhile", result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void whenDeleteMeal_givenWeakETag_thenUnmatchableVersionProvided() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.delete("/meals/" + mockMealId.toString())
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isNoContent());
+
+        Mockito.verify(mockMealService).deleteMealById(mockUserId, mockMealId, -1L);
+    }
 }
@@ -0,0 +1,59 @@
+package com.example.diet_tracker_api.api;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.example.diet_tracker_api.exception.MealIngestionBufferFullException;
+import com.example.diet_tracker_api.service.MealWriteBehindBuffer;
+
+/**
+ * Meal creation with the write-behind ingestion enabled.
+ */
+@WebMvcTest(controllers = { MealUserController.class })
+public class MealUserControllerWriteBehindTest extends AbstractMealControllerTest {
+
+    @MockitoBean
+    MealWriteBehindBuffer mockMealWriteBehindBuffer;
+
+    @Test
+    void whenCreateMeal_thenMealBufferedAndIdReturned() throws Exception {
+        Mockito.when(mockMealWriteBehindBuffer.enqueue(mockUserId, mealFromInDTO)).thenReturn(meal1);
+
+        var result = mockMvc.perform(
+                MockMvcRequestBuilders.post("/meals")
+                        .content(mealInDTOStr)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isAccepted(),
+                        content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        JSONAssert.assertEquals(meal1IdStr, result.getResponse().getContentAsString(), false);
+        Mockito.verifyNoInteractions(mockMealService);
+    }
+
+    @Test
+    void whenCreateMeal_givenBufferFull_thenTooManyRequests() throws Exception {
+        Mockito.when(mockMealWriteBehindBuffer.enqueue(mockUserId, mealFromInDTO))
+                .thenThrow(new MealIngestionBufferFullException(mockUserId, 1));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/meals")
+                        .content(mealInDTOStr)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(userJwt))
+                .andExpectAll(
+                        status().isTooManyRequests(),
+                        header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+}
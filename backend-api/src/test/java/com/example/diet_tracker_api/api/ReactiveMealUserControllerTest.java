@@ -0,0 +1,435 @@
+package com.example.diet_tracker_api.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.csrf;
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.mockJwt;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.JwtMutator;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.diet_tracker_api.exception.MealNotFoundException;
+import com.example.diet_tracker_api.exception.MealVersionMismatchException;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.service.MealChanges;
+import com.example.diet_tracker_api.service.MealCursor;
+import com.example.diet_tracker_api.service.MealFilter;
+import com.example.diet_tracker_api.service.MealPage;
+import com.example.diet_tracker_api.service.MealStats;
+import com.example.diet_tracker_api.service.ReactiveMealService;
+import com.example.diet_tracker_api.service.ReactiveMealStatsService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@WebFluxTest(controllers = { ReactiveMealUserController.class })
+@EnableReactiveMethodSecurity
+@Import({ MealMapper.class, ReactiveMealExporter.class })
+public class ReactiveMealUserControllerTest {
+
+    @MockitoBean
+    ReactiveMealService mockMealService;
+
+    @MockitoBean
+    ReactiveMealStatsService mockMealStatsService;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    JwtMutator userJwt = mockJwt().authorities(new SimpleGrantedAuthority("DIET_APP_USER"));
+    JwtMutator noRoleJwt = mockJwt();
+    String mockUserId = "user";
+    Long mockMealId = 42L;
+
+    Meal meal1 = Meal.builder()
+            .id(42L)
+            .mealContent(MealContent.BEEF)
+            .userId("someUser")
+            .mealDate(LocalDate.of(1985, 5, 18))
+            .mealTime(MealTime.BREAKFAST)
+            .version(3L)
+            .build();
+    Meal meal2 = Meal.builder()
+            .id(52L)
+            .mealContent(MealContent.CHICKEN)
+            .userId("someOtherUser")
+            .mealDate(LocalDate.of(1885, 6, 18))
+            .mealTime(MealTime.LUNCH)
+            .build();
+    /**
+     * Meal entity mapped from mealInDTOStr.
+     */
+    Meal mealFromInDTO = Meal.builder()
+            .mealDate(LocalDate.of(1885, 6, 18))
+            .mealTime(MealTime.LUNCH)
+            .mealContent(MealContent.CHICKEN)
+            .build();
+
+    String meal1OutStr = "{  " +
+            "\"id\": 42, " +
+            "\"userId\": \"someUser\", " +
+            "\"mealDate\": \"1985-05-18\", " +
+            "\"mealTime\": \"BREAKFAST\", " +
+            "\"mealContent\": \"BEEF\" " +
+            "}";
+
+    String meal2OutStr = "{  " +
+            "\"id\": 52, " +
+            "\"userId\": \"someOtherUser\", " +
+            "\"mealDate\": \"1885-06-18\", " +
+            "\"mealTime\": \"LUNCH\", " +
+            "\"mealContent\": \"CHICKEN\" " +
+            "} ";
+
+    String mealInDTOStr = "{  " +
+            "\"mealDate\": \"1885-06-18\", " +
+            "\"mealTime\": \"LUNCH\", " +
+            "\"mealContent\": \"CHICKEN\" " +
+            "} ";
+
+    String mealPatchDTOStr = "{  " +
+            "\"mealContent\": \"BEEF\" " +
+            "} ";
+
+    MealStats mealStats = new MealStats(LocalDate.of(1985, 5, 13),
+            new EnumMap<>(Map.of(MealContent.BEEF, 1L, MealContent.CHICKEN, 1L)),
+            new EnumMap<>(Map.of(MealTime.BREAKFAST, 1L, MealTime.LUNCH, 1L)));
+
+    String mealStatsStr = "[{" +
+            "\"period\": \"1985-05-13\", " +
+            "\"total\": 2, " +
+            "\"mealContents\": {\"BEEF\": 1, \"CHICKEN\": 1}, " +
+            "\"mealTimes\": {\"BREAKFAST\": 1, \"LUNCH\": 1}" +
+            "}]";
+
+    /**
+     * All forbidden tests - for user without the required role
+     */
+
+    @Test
+    void whenGetUserMeals_givenJWTWithNoRole_thenForbidden() {
+        webTestClient.mutateWith(noRoleJwt)
+                .get().uri("/meals")
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    @Test
+    void whenPostMeal_givenJWTWithNoRole_thenForbidden() {
+        webTestClient.mutateWith(noRoleJwt).mutateWith(csrf())
+                .post().uri("/meals")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(mealInDTOStr)
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    @Test
+    void whenExportUserMeals_givenJWTWithNoRole_thenForbidden() {
+        webTestClient.mutateWith(noRoleJwt)
+                .get().uri("/meals/export")
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    /**
+     * Nominal test cases
+     */
+
+    @Test
+    void whenGetUserMeals_givenMorePages_thenNextCursorAndETagReturned() {
+        var nextCursor = new MealCursor(LocalDate.of(1985, 5, 18), 42L);
+        Mockito.when(mockMealService.getUserMealsVersion(mockUserId)).thenReturn(Mono.just("3"));
+        Mockito.when(mockMealService.getUserMeals(mockUserId, MealFilter.NONE, null, 2))
+                .thenReturn(Mono.just(new MealPage(List.of(meal1, meal2), nextCursor)));
+
+        webTestClient.mutateWith(userJwt)
+                .get().uri("/meals?limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectHeader().valueEquals(AbstractMealController.NEXT_CURSOR_HEADER, nextCursor.encode())
+                .expectBody().json("[ " + meal1OutStr + "," + meal2OutStr + "]");
+    }
+
+    @Test
+    void whenGetUserMeals_givenCurrentETag_thenNotModifiedWithoutReadingMeals() {
+        Mockito.when(mockMealService.getUserMealsVersion(mockUserId)).thenReturn(Mono.just("3"));
+
+        webTestClient.mutateWith(userJwt)
+                .get().uri("/meals")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        Mockito.verify(mockMealService, Mockito.never())
+                .getUserMeals(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(),
+                        ArgumentMatchers.anyInt());
+    }
+
+    @Test
+    void whenGetUserMeals_givenFilters_thenFilteredMealsReturned() {
+        var filter = new MealFilter(LocalDate.of(1985, 1, 1), LocalDate.of(1985, 12, 31),
+                MealTime.BREAKFAST, MealContent.BEEF);
+        Mockito.when(mockMealService.getUserMealsVersion(mockUserId)).thenReturn(Mono.just("3"));
+        Mockito.when(mockMealService.getUserMeals(mockUserId, filter, null, 100))
+                .thenReturn(Mono.just(new MealPage(List.of(meal1), null)));
+
+        webTestClient.mutateWith(userJwt)
+                .get().uri("/meals?from=1985-01-01&to=1985-12-31&mealTime=BREAKFAST&mealContent=BEEF")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(AbstractMealController.NEXT_CURSOR_HEADER)
+                .expectBody().json("[ " + meal1OutStr + "]");
+    }
+
+    @Test
+    void whenGetUserMealStats_givenDatesAndGroupBy_thenStatsReturned() {
+        Mockito.when(mockMealStatsService.getUserMealStats(mockUserId, LocalDate.of(1985, 5, 1),
+                LocalDate.of(1985, 5, 31), MealPeriod.WEEK)).thenReturn(Mono.just(List.of(mealStats)));
+
+        webTestClient.mutateWith(userJwt)
+                .get().uri("/meals/stats?from=1985-05-01&to=1985-05-31&groupBy=week")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json(mealStatsStr);
+    }
+
+    @Test
+    void whenGetUserMealChanges_givenSince_thenChangesReturned() {
+        Mockito.when(mockMealService.getUserMealChanges(mockUserId, 3L, 10))
+                .thenReturn(Mono.just(new MealChanges(List.of(meal1), List.of(7L), 9L, true)));
+
+        webTestClient.mutateWith(userJwt)
+                .get().uri("/meals/changes?since=3&limit=10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{ \"upserts\": [" + meal1OutStr + "], \"deletedIds\": [7], "
+                        + "\"changeSeq\": 9, \"more\": true }");
+    }
+
+    @Test
+    void whenGetUserMealChanges_givenNegativeSince_thenBadRequest() {
+        webTestClient.mutateWith(userJwt)
+                .get().uri("/meals/changes?since=-1")
+                .exchange()
+                .expectStatus().isBadRequest();
+        Mockito.verifyNoInteractions(mockMealService);
+    }
+
+    @Test
+    void whenExportUserMeals_givenNdjsonFormat_thenOneJsonObjectPerLine() throws Exception {
+        Mockito.when(mockMealService.exportUserMeals(mockUserId)).thenReturn(Flux.just(meal1, meal2));
+
+        var body = webTestClient.mutateWith(userJwt)
+                .get().uri("/meals/export")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectHeader().valueEquals("Content-Disposition", "attachment; filename=\"meals.ndjson\"")
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        var lines = body.split("\n");
+        assertEquals(2, lines.length);
+        JSONAssert.assertEquals(meal1OutStr, lines[0], true);
+        JSONAssert.assertEquals(meal2OutStr, lines[1], true);
+    }
+
+    @Test
+    void whenExportUserMeals_givenCsvFormat_thenHeaderThenOneLinePerMeal() {
+        Mockito.when(mockMealService.exportUserMeals(mockUserId)).thenReturn(Flux.just(meal1, meal2));
+
+        webTestClient.mutateWith(userJwt)
+                .get().uri("/meals/export?format=CSV")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("text/csv")
+                .expectBody(String.class).isEqualTo("id,userId,mealDate,mealTime,mealContent\n"
+                        + "42,someUser,1985-05-18,BREAKFAST,BEEF\n"
+                        + "52,someOtherUser,1885-06-18,LUNCH,CHICKEN\n");
+    }
+
+    @Test
+    void whenGetUserMealById_givenUserOwnsMeal_thenMealAndVersionReturned() {
+        Mockito.when(mockMealService.getUserMealById(mockUserId, mockMealId)).thenReturn(Mono.just(meal1));
+
+        webTestClient.mutateWith(userJwt)
+                .get().uri("/meals/" + mockMealId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody().json(meal1OutStr);
+    }
+
+    @Test
+    void whenGetUserMealById_givenUpToDateETag_thenNotModified() {
+        Mockito.when(mockMealService.getUserMealById(mockUserId, mockMealId)).thenReturn(Mono.just(meal1));
+
+        webTestClient.mutateWith(userJwt)
+                .get().uri("/meals/" + mockMealId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void whenCreateMeal_givenUserOwnsMeal_thenMealIdReturned() {
+        Mockito.when(mockMealService.createMeal(mockUserId, mealFromInDTO)).thenReturn(Mono.just(meal1));
+
+        webTestClient.mutateWith(userJwt).mutateWith(csrf())
+                .post().uri("/meals")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(mealInDTOStr)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().json("{\"id\": 42}");
+    }
+
+    @Test
+    void whenCreateMeals_givenValidJWT_thenMealIdsReturnedInOrder() {
+        Mockito.when(mockMealService.createMeals(mockUserId, List.of(mealFromInDTO, mealFromInDTO)))
+                .thenReturn(Mono.just(List.of(meal1, meal2)));
+
+        webTestClient.mutateWith(userJwt).mutateWith(csrf())
+                .post().uri("/meals/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[" + mealInDTOStr + ", " + mealInDTOStr + "]")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().json("[{\"id\": 42}, {\"id\": 52}]", true);
+    }
+
+    @Test
+    void whenEditMeal_givenIfMatch_thenExpectedVersionProvidedAndNewVersionReturned() {
+        var expectedMeal = Meal.builder()
+                .mealDate(LocalDate.of(1885, 6, 18))
+                .mealTime(MealTime.LUNCH)
+                .mealContent(MealContent.CHICKEN)
+                .version(2L)
+                .build();
+        Mockito.when(mockMealService.editMealById(mockUserId, mockMealId, expectedMeal)).thenReturn(Mono.just(meal1));
+
+        webTestClient.mutateWith(userJwt).mutateWith(csrf())
+                .put().uri("/meals/" + mockMealId)
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(mealInDTOStr)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody().json("{\"id\": 42}");
+    }
+
+    @Test
+    void whenDeleteMeal_givenWeakETag_thenUnmatchableVersionProvided() {
+        Mockito.when(mockMealService.deleteMealById(mockUserId, mockMealId, -1L)).thenReturn(Mono.empty());
+
+        webTestClient.mutateWith(userJwt).mutateWith(csrf())
+                .delete().uri("/meals/" + mockMealId)
+                .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        Mockito.verify(mockMealService).deleteMealById(mockUserId, mockMealId, -1L);
+    }
+
+    /**
+     * Testing exceptions
+     */
+
+    @Test
+    void whenGetUserMeals_givenInvalidFilterValue_thenBadRequest() {
+        webTestClient.mutateWith(userJwt)
+                .get().uri("/meals?mealTime=BRUNCH")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("mealTime").isEqualTo("Invalid value for parameter 'mealTime': BRUNCH");
+    }
+
+    @Test
+    void whenGetUserMeals_givenLimitTooLarge_thenBadRequest() {
+        webTestClient.mutateWith(userJwt)
+                .get().uri("/meals?limit=1001")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("limit").isEqualTo("must be less than or equal to 1000");
+    }
+
+    @Test
+    void whenCreateMeal_givenMissingField_thenBadRequest() {
+        webTestClient.mutateWith(userJwt).mutateWith(csrf())
+                .post().uri("/meals")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"mealTime\": \"LUNCH\", \"mealContent\": \"FISH\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("mealDate").isEqualTo("must not be null");
+
+        Mockito.verifyNoInteractions(mockMealService);
+    }
+
+    @Test
+    void whenCreateMeals_givenInvalidMeal_thenBadRequestOnThatMeal() {
+        webTestClient.mutateWith(userJwt).mutateWith(csrf())
+                .post().uri("/meals/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[" + mealInDTOStr + ", {\"mealTime\": \"LUNCH\", \"mealContent\": \"FISH\"}]")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("['mealInDTOs[1].mealDate']").isEqualTo("must not be null");
+
+        Mockito.verifyNoInteractions(mockMealService);
+    }
+
+    @Test
+    void whenGetUserMealById_givenMealNotFoundException_thenNotFound() {
+        Mockito.when(mockMealService.getUserMealById(mockUserId, mockMealId))
+                .thenReturn(Mono.error(new MealNotFoundException(mockUserId, mockMealId)));
+
+        webTestClient.mutateWith(userJwt)
+                .get().uri("/meals/" + mockMealId)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).isEqualTo("Meal with id=42 not found for userId=user");
+    }
+
+    @Test
+    void whenPatchMeal_givenMealVersionMismatchException_thenPreconditionFailed() {
+        var expectedPatch = Meal.builder()
+                .mealContent(MealContent.BEEF)
+                .version(2L)
+                .build();
+        Mockito.when(mockMealService.patchMealById(mockUserId, mockMealId, expectedPatch))
+                .thenReturn(Mono.error(new MealVersionMismatchException(mockUserId, mockMealId)));
+
+        webTestClient.mutateWith(userJwt).mutateWith(csrf())
+                .patch().uri("/meals/" + mockMealId)
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(mealPatchDTOStr)
+                .exchange()
+                .expectStatus().isEqualTo(412)
+                .expectBody(String.class).isEqualTo("Meal with id=42 for userId=user was modified meanwhile");
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.diet_tracker_api.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the stored form of the user ids and enums. The codes are pinned: the
+ * stored rows, data-dev.sql and the compact-meal-encoding migration script
+ * depend on them.
+ */
+public class StorageEncodingTest {
+
+    private final UserIdConverter userIdConverter = new UserIdConverter();
+
+    @Test
+    void givenUuid_whenConvertUserId_thenStoredAsItsBytes() {
+        var userId = "5669d3a8-edd4-4d9d-a737-7e9cb21fa974";
+
+        var bytes = userIdConverter.convertToDatabaseColumn(userId);
+
+        assertArrayEquals(HexFormat.of().parseHex("5669d3a8edd44d9da7377e9cb21fa974"), bytes);
+        assertEquals(userId, userIdConverter.convertToEntityAttribute(bytes));
+    }
+
+    @Test
+    void givenUpperCaseUuid_whenConvertUserId_thenStoredAsItsNameBasedUuid() {
+        var userId = "5669D3A8-EDD4-4D9D-A737-7E9CB21FA974";
+        var nameBasedUuid = UUID.nameUUIDFromBytes(userId.getBytes(StandardCharsets.UTF_8)).toString();
+
+        var bytes = userIdConverter.convertToDatabaseColumn(userId);
+
+        assertEquals(nameBasedUuid, userIdConverter.convertToEntityAttribute(bytes));
+    }
+
+    @Test
+    void givenOtherId_whenConvertUserId_thenStoredAsItsNameBasedUuid() {
+        var nameBasedUuid = UUID.nameUUIDFromBytes("another-user".getBytes(StandardCharsets.UTF_8)).toString();
+
+        var bytes = userIdConverter.convertToDatabaseColumn("another-user");
+
+        assertEquals(nameBasedUuid, userIdConverter.convertToEntityAttribute(bytes));
+        assertArrayEquals(bytes, userIdConverter.convertToDatabaseColumn(nameBasedUuid));
+    }
+
+    @Test
+    void whenTextOfUserId_thenKeptForTheIdsNotReadBackFromTheirBytes() {
+        assertNull(UserIdConverter.textOf("5669d3a8-edd4-4d9d-a737-7e9cb21fa974"));
+        assertEquals("5669D3A8-EDD4-4D9D-A737-7E9CB21FA974",
+                UserIdConverter.textOf("5669D3A8-EDD4-4D9D-A737-7E9CB21FA974"));
+        assertEquals("another-user", UserIdConverter.textOf("another-user"));
+    }
+
+    @Test
+    void givenIdNotReadBackFromItsBytes_whenSetMealUserId_thenReturnedAsWritten() {
+        var builtMeal = Meal.builder().userId("another-user").build();
+        var meal = new Meal();
+        meal.setUserId("5669D3A8-EDD4-4D9D-A737-7E9CB21FA974");
+
+        assertEquals("another-user", builtMeal.getUserId());
+        assertEquals("5669D3A8-EDD4-4D9D-A737-7E9CB21FA974", meal.getUserId());
+    }
+
+    @Test
+    void whenConvertEnums_thenStoredAsTheirPinnedCodes() {
+        assertEquals(List.of(1, 2, 3), Arrays.stream(MealTime.values())
+                .map(value -> (int) new MealTimeCodeConverter().convertToDatabaseColumn(value))
+                .toList());
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7), Arrays.stream(MealContent.values())
+                .map(value -> (int) new MealContentCodeConverter().convertToDatabaseColumn(value))
+                .toList());
+        assertEquals(List.of(1, 2, 3), Arrays.stream(MealPeriod.values())
+                .map(value -> (int) new MealPeriodCodeConverter().convertToDatabaseColumn(value))
+                .toList());
+    }
+
+    @Test
+    void whenReadEnumCodes_thenEnumsReturned() {
+        assertEquals(MealTime.DINNER, new MealTimeCodeConverter().convertToEntityAttribute((byte) 3));
+        assertEquals(MealContent.BEEF, new MealContentCodeConverter().convertToEntityAttribute((byte) 7));
+        assertEquals(MealPeriod.WEEK, new MealPeriodCodeConverter().convertToEntityAttribute((byte) 2));
+        assertThrows(IllegalArgumentException.class, () -> MealContent.fromCode((byte) 0));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.diet_tracker_api.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.diet_tracker_api.HibernateCacheConfiguration;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.service.MealCursor;
+import com.example.diet_tracker_api.service.MealFilter;
+import com.example.diet_tracker_api.service.MealSpecifications;
+
+@DataJpaTest
+@ActiveProfiles("it")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(HibernateCacheConfiguration.class)
+public class MealDAOTest {
+
+    @Autowired
+    private MealDAO mealDAO;
+
+    private final String userId = "paged-user";
+
+    private Meal meal1;
+    private Meal meal2;
+    private Meal meal3;
+
+    private Meal saveMeal(LocalDate mealDate, MealTime mealTime, MealContent mealContent) {
+        return mealDAO.save(Meal.builder()
+                .userId(userId)
+                .mealDate(mealDate)
+                .mealTime(mealTime)
+                .mealContent(mealContent)
+                .build());
+    }
+
+    private List<Meal> findPage(MealFilter filter, MealCursor after, int limit) {
+        return mealDAO.findPage(MealSpecifications.userMeals(userId, filter, after), Limit.of(limit));
+    }
+
+    @BeforeEach
+    void setupMeals() {
+        // Saved out of date order, two of them on the same date
+        meal3 = saveMeal(LocalDate.of(2020, 1, 3), MealTime.DINNER, MealContent.BEEF);
+        meal1 = saveMeal(LocalDate.of(2020, 1, 1), MealTime.LUNCH, MealContent.VEGAN);
+        meal2 = saveMeal(LocalDate.of(2020, 1, 1), MealTime.DINNER, MealContent.VEGAN);
+    }
+
+    @Test
+    void whenFindFirstPage_thenOrderedByDateThenId() {
+        assertEquals(List.of(meal1, meal2), findPage(MealFilter.NONE, null, 2));
+    }
+
+    @Test
+    void whenFindAfterPosition_thenOnlyFollowingMealsReturned() {
+        assertEquals(List.of(meal2, meal3), findPage(MealFilter.NONE, MealCursor.after(meal1), 10));
+        assertEquals(List.of(meal3), findPage(MealFilter.NONE, MealCursor.after(meal2), 10));
+        assertEquals(List.of(), findPage(MealFilter.NONE, MealCursor.after(meal3), 10));
+    }
+
+    @Test
+    void whenFindWithDateRange_thenOnlyMealsInRangeReturned() {
+        var filter = new MealFilter(LocalDate.of(2020, 1, 2), LocalDate.of(2020, 1, 3), null, null);
+
+        assertEquals(List.of(meal3), findPage(filter, null, 10));
+    }
+
+    @Test
+    void whenFindWithMealTimeAndContent_thenOnlyMatchingMealsReturned() {
+        assertEquals(List.of(meal2, meal3), findPage(new MealFilter(null, null, MealTime.DINNER, null), null, 10));
+        assertEquals(List.of(meal2), findPage(new MealFilter(null, null, MealTime.DINNER, MealContent.VEGAN), null, 10));
+    }
+
+    @Test
+    void whenFindWithFilterAndCursor_thenFilterStillApplied() {
+        var filter = new MealFilter(null, null, MealTime.DINNER, null);
+
+        assertEquals(List.of(meal3), findPage(filter, MealCursor.after(meal2), 10));
+    }
+
+    @Test
+    void whenCountPerDay_thenCountsPerDateTimeAndContent() {
+        saveMeal(LocalDate.of(2020, 1, 1), MealTime.LUNCH, MealContent.VEGAN);
+
+        assertEquals(List.of(
+                new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.DINNER, MealContent.VEGAN, 1L),
+                new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.LUNCH, MealContent.VEGAN, 2L),
+                new MealPeriodCount(LocalDate.of(2020, 1, 3), MealTime.DINNER, MealContent.BEEF, 1L)),
+                mealDAO.countByUserIdPerDay(userId, null, null).stream()
+                        .sorted(Comparator.comparing(MealPeriodCount::period)
+                                .thenComparing(MealPeriodCount::mealTime, Comparator.comparing(Enum::name)))
+                        .toList());
+    }
+
+    @Test
+    void whenCountPerDayWithDateRange_thenOnlyMealsInRangeCounted() {
+        assertEquals(List.of(new MealPeriodCount(LocalDate.of(2020, 1, 3), MealTime.DINNER, MealContent.BEEF, 1L)),
+                mealDAO.countByUserIdPerDay(userId, LocalDate.of(2020, 1, 2), LocalDate.of(2020, 1, 3)));
+        assertEquals(List.of(), mealDAO.countByUserIdPerDay(userId, null, LocalDate.of(2019, 12, 31)));
+        assertEquals(List.of(new MealPeriodCount(LocalDate.of(2020, 1, 3), MealTime.DINNER, MealContent.BEEF, 1L)),
+                mealDAO.countByUserIdPerDay(userId, LocalDate.of(2020, 1, 2), null));
+    }
+
+    @Test
+    void whenStreamUserMeals_thenAllMealsOrderedByDateThenId() {
+        try (var meals = mealDAO.streamByUserIdOrderByMealDateAscIdAsc(userId)) {
+            assertEquals(List.of(meal1, meal2, meal3), meals.toList());
+        }
+    }
+
+    @Test
+    void givenIdsNotStoredAsWritten_whenReadBack_thenSameIdsReturned() {
+        var upperCaseUserId = "5669D3A8-EDD4-4D9D-A737-7E9CB21FA974";
+        var upperCaseMeal = mealDAO.save(Meal.builder()
+                .userId(upperCaseUserId)
+                .mealDate(LocalDate.of(2020, 1, 1))
+                .mealTime(MealTime.LUNCH)
+                .mealContent(MealContent.VEGAN)
+                .build());
+
+        assertEquals(userId, mealDAO.findByIdAndUserId(meal1.getId(), userId).orElseThrow().getUserId());
+        assertEquals(upperCaseUserId,
+                mealDAO.findByIdAndUserId(upperCaseMeal.getId(), upperCaseUserId).orElseThrow().getUserId());
+        // Not the lower case UUID user's meal
+        assertEquals(List.of(), mealDAO.findByIdAndUserId(upperCaseMeal.getId(),
+                upperCaseUserId.toLowerCase()).stream().toList());
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.diet_tracker_api.repository;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.diet_tracker_api.HibernateCacheConfiguration;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.model.UserIdConverter;
+import com.example.diet_tracker_api.service.MealCursor;
+import com.example.diet_tracker_api.service.MealFilter;
+import com.example.diet_tracker_api.service.MealSpecifications;
+
+/**
+ * Checks that the per-user meal queries are answered through an index seek on
+ * user_id rather than a full table scan.
+ * The SQL statements explained are the ones Hibernate generates for the
+ * MealDAO methods, captured by a statement inspector, and their parameters
+ * are bound to the values the DAO methods were called with.
+ */
+@DataJpaTest
+@ActiveProfiles("it")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(HibernateCacheConfiguration.class)
+public class MealQueryPlanTest {
+
+    @TestConfiguration
+    static class MealQueryPlanTestContextConfiguration {
+        @Bean
+        CapturingStatementInspector capturingStatementInspector() {
+            return new CapturingStatementInspector();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementInspectorCustomizer(CapturingStatementInspector inspector) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+        }
+    }
+
+    /**
+     * Records the SQL statements Hibernate prepares, unchanged.
+     */
+    static class CapturingStatementInspector implements StatementInspector {
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    /**
+     * User whose meals are looked up.
+     */
+    private static final String USER_ID = "user-3";
+
+    /**
+     * Matches an H2 plan whose table access goes through an index looking up
+     * the user_id column.
+     */
+    private static final String USER_INDEX_SEEK = "(?s).*/\\* PUBLIC\\.IDX_MEAL_\\w+: [^*]*USER_ID = .*";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MealDAO mealDAO;
+
+    @Autowired
+    private CapturingStatementInspector inspector;
+
+    @BeforeEach
+    void setupMeals() {
+        // Enough meals spread over enough users for the optimizer to prefer an
+        // index over a table scan
+        var contents = new MealContent[] { MealContent.VEGAN, MealContent.FISH, MealContent.BEEF };
+        var times = MealTime.values();
+        var rows = new ArrayList<Object[]>();
+        for (int i = 0; i < 3000; i++) {
+            rows.add(new Object[] { UserIdConverter.toBytes("user-" + (i % 30)),
+                    LocalDate.of(2020, 1, 1).plusDays(i / 90), times[i % 3].getCode(), contents[i % 3].getCode(),
+                    i / 30 + 1 });
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO meal (id, user_id, meal_date, meal_time, meal_content, change_seq)"
+                        + " VALUES (NEXT VALUE FOR meal_seq, ?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.execute("ANALYZE");
+        inspector.statements.clear();
+    }
+
+    /**
+     * Explains the single statement run by the DAO method, with its
+     * parameters bound in the order they appear in the SQL.
+     *
+     * @param parameters Values of the statement parameters
+     * @return H2 plan
+     */
+    private String explainCaptured(Object... parameters) {
+        assertEquals(1, inspector.statements.size(), () -> "Expected a single statement: " + inspector.statements);
+        var sql = inspector.statements.get(0);
+        assertEquals(parameters.length, sql.chars().filter(c -> c == '?').count(), sql);
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters);
+    }
+
+    @Test
+    void whenFindFirstPage_thenUserIndexSeek() {
+        mealDAO.findPage(MealSpecifications.userMeals(USER_ID, MealFilter.NONE, null), Limit.of(101));
+
+        var plan = explainCaptured(UserIdConverter.toBytes(USER_ID), 101);
+
+        assertThat(plan, matchesPattern(USER_INDEX_SEEK));
+        assertThat(plan, not(containsString("tableScan")));
+    }
+
+    @Test
+    void whenFindPageAfterCursor_thenUserIndexSeek() {
+        var after = new MealCursor(LocalDate.of(2020, 2, 1), 42L);
+        mealDAO.findPage(MealSpecifications.userMeals(USER_ID, MealFilter.NONE, after), Limit.of(101));
+
+        var plan = explainCaptured(UserIdConverter.toBytes(USER_ID), after.mealDate(), after.mealDate(), after.id(),
+                101);
+
+        assertThat(plan, matchesPattern(USER_INDEX_SEEK));
+        assertThat(plan, not(containsString("tableScan")));
+    }
+
+    @Test
+    void whenFindPageWithFilters_thenUserIndexSeekOnDateRange() {
+        var filter = new MealFilter(LocalDate.of(2020, 1, 10), LocalDate.of(2020, 1, 20), MealTime.LUNCH,
+                MealContent.FISH);
+        mealDAO.findPage(MealSpecifications.userMeals(USER_ID, filter, null), Limit.of(101));
+
+        var plan = explainCaptured(UserIdConverter.toBytes(USER_ID), filter.from(), filter.to(),
+                MealTime.LUNCH.getCode(), MealContent.FISH.getCode(), 101);
+
+        assertThat(plan, matchesPattern(USER_INDEX_SEEK));
+        assertThat(plan, matchesPattern("(?s).*/\\* PUBLIC\\.IDX_MEAL_USER_DATE_TIME_CONTENT: [^*]*MEAL_DATE >= .*"));
+        assertThat(plan, not(containsString("tableScan")));
+    }
+
+    @Test
+    void whenStreamUserMeals_thenUserIndexSeek() {
+        try (var meals = mealDAO.streamByUserIdOrderByMealDateAscIdAsc(USER_ID)) {
+            meals.findFirst();
+        }
+
+        var plan = explainCaptured(UserIdConverter.toBytes(USER_ID));
+
+        assertThat(plan, matchesPattern(USER_INDEX_SEEK));
+        assertThat(plan, not(containsString("tableScan")));
+    }
+
+    @Test
+    void whenCountPerDay_thenCoveringIndexSeek() {
+        var from = LocalDate.of(2020, 1, 10);
+        var to = LocalDate.of(2020, 1, 20);
+        mealDAO.countByUserIdPerDay(USER_ID, from, to);
+
+        var plan = explainCaptured(UserIdConverter.toBytes(USER_ID), from, to);
+
+        assertThat(plan, matchesPattern("(?s).*/\\* PUBLIC\\.IDX_MEAL_USER_DATE_TIME_CONTENT: [^*]*USER_ID = .*"));
+        assertThat(plan, not(containsString("tableScan")));
+    }
+
+    @Test
+    void whenFindChangedSince_thenChangeSeqIndexSeek() {
+        mealDAO.findByUserIdAndChangeSeqGreaterThanOrderByChangeSeq(USER_ID, 50, Limit.of(101));
+
+        var plan = explainCaptured(UserIdConverter.toBytes(USER_ID), 50L, 101);
+
+        assertThat(plan, matchesPattern("(?s).*/\\* PUBLIC\\.IDX_MEAL_USER_CHANGE_SEQ: [^*]*CHANGE_SEQ > .*"));
+        assertThat(plan, not(containsString("tableScan")));
+    }
+
+    @Test
+    void whenFindByIdAndUserId_thenNoTableScan() {
+        mealDAO.findByIdAndUserId(42L, USER_ID);
+
+        var plan = explainCaptured(42L, UserIdConverter.toBytes(USER_ID));
+
+        assertThat(plan, not(containsString("tableScan")));
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.diet_tracker_api.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+public class CachingJwtAuthenticationProviderTest {
+
+    private final Instant now = Instant.parse("2020-01-01T10:00:00Z");
+
+    private final AuthenticationProvider mockDelegate = Mockito.mock(AuthenticationProvider.class);
+
+    private final CachingJwtAuthenticationProvider provider = new CachingJwtAuthenticationProvider(mockDelegate,
+            100, Duration.ofMinutes(5), Clock.fixed(now, ZoneOffset.UTC));
+
+    private BearerTokenAuthenticationToken bearer(String token, Object details) {
+        var bearer = new BearerTokenAuthenticationToken(token);
+        bearer.setDetails(details);
+        return bearer;
+    }
+
+    private JwtAuthenticationToken verified(String token, Instant expiresAt) {
+        return verified(token, expiresAt, "key1");
+    }
+
+    private JwtAuthenticationToken verified(String token, Instant expiresAt, String keyId) {
+        var jwt = Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .header("kid", keyId)
+                .subject("someUser")
+                .expiresAt(expiresAt)
+                .build();
+        return new JwtAuthenticationToken(jwt, List.of(new SimpleGrantedAuthority("DIET_APP_USER")));
+    }
+
+    private void givenDelegateVerifies(String token, Instant expiresAt) {
+        Mockito.when(mockDelegate.authenticate(
+                ArgumentMatchers.argThat(bearer -> bearer != null && token.equals(bearer.getCredentials()))))
+                .thenReturn(verified(token, expiresAt));
+    }
+
+    @Test
+    void givenTokenAlreadyVerified_whenAuthenticate_thenNotVerifiedAgain() {
+        givenDelegateVerifies("token", now.plusSeconds(60));
+
+        var first = (JwtAuthenticationToken) provider.authenticate(bearer("token", "request1"));
+        var second = (JwtAuthenticationToken) provider.authenticate(bearer("token", "request2"));
+
+        Mockito.verify(mockDelegate, Mockito.times(1)).authenticate(ArgumentMatchers.any());
+        assertEquals("someUser", second.getName());
+        assertEquals(first.getToken(), second.getToken());
+        assertEquals(List.of(new SimpleGrantedAuthority("DIET_APP_USER")), List.copyOf(second.getAuthorities()));
+        // Each request keeps its own details
+        assertNotSame(first, second);
+        assertEquals("request1", first.getDetails());
+        assertEquals("request2", second.getDetails());
+    }
+
+    @Test
+    void givenDistinctTokens_whenAuthenticate_thenEachVerified() {
+        givenDelegateVerifies("token1", now.plusSeconds(60));
+        givenDelegateVerifies("token2", now.plusSeconds(60));
+
+        provider.authenticate(bearer("token1", null));
+        provider.authenticate(bearer("token2", null));
+
+        Mockito.verify(mockDelegate, Mockito.times(2)).authenticate(ArgumentMatchers.any());
+        assertEquals(2, provider.estimatedSize());
+    }
+
+    @Test
+    void givenTokenExpiredForTheClock_whenAuthenticate_thenNotCached() {
+        givenDelegateVerifies("token", now.minusSeconds(1));
+
+        provider.authenticate(bearer("token", null));
+        provider.authenticate(bearer("token", null));
+
+        Mockito.verify(mockDelegate, Mockito.times(2)).authenticate(ArgumentMatchers.any());
+    }
+
+    @Test
+    void givenInvalidatedCache_whenAuthenticate_thenVerifiedAgain() {
+        givenDelegateVerifies("token", now.plusSeconds(60));
+        provider.authenticate(bearer("token", null));
+
+        provider.invalidateAll();
+        provider.authenticate(bearer("token", null));
+
+        Mockito.verify(mockDelegate, Mockito.times(2)).authenticate(ArgumentMatchers.any());
+    }
+
+    @Test
+    void givenKeyRemoved_whenAuthenticate_thenOnlyItsTokensVerifiedAgain() {
+        Mockito.when(mockDelegate.authenticate(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            var token = ((BearerTokenAuthenticationToken) invocation.getArgument(0)).getToken();
+            return verified(token, now.plusSeconds(60), token.startsWith("key1") ? "key1" : "key2");
+        });
+        provider.authenticate(bearer("key1-token", null));
+        provider.authenticate(bearer("key2-token", null));
+
+        provider.invalidateKeys(Set.of("key1"));
+        provider.authenticate(bearer("key1-token", null));
+        provider.authenticate(bearer("key2-token", null));
+
+        Mockito.verify(mockDelegate, Mockito.times(2)).authenticate(
+                ArgumentMatchers.argThat(bearer -> bearer != null && "key1-token".equals(bearer.getCredentials())));
+        Mockito.verify(mockDelegate, Mockito.times(1)).authenticate(
+                ArgumentMatchers.argThat(bearer -> bearer != null && "key2-token".equals(bearer.getCredentials())));
+    }
+
+    @Test
+    void givenKeyRemovedDuringVerification_whenAuthenticate_thenNotCached() {
+        Mockito.when(mockDelegate.authenticate(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            provider.invalidateKeys(Set.of("key1"));
+            return verified("token", now.plusSeconds(60));
+        });
+
+        provider.authenticate(bearer("token", null));
+        provider.authenticate(bearer("token", null));
+
+        Mockito.verify(mockDelegate, Mockito.times(2)).authenticate(ArgumentMatchers.any());
+    }
+
+    @Test
+    void givenInvalidToken_whenAuthenticate_thenRejectedEveryTime() {
+        Mockito.when(mockDelegate.authenticate(ArgumentMatchers.any()))
+                .thenThrow(new InvalidBearerTokenException("invalid"));
+
+        assertThrows(InvalidBearerTokenException.class, () -> provider.authenticate(bearer("token", null)));
+        assertThrows(InvalidBearerTokenException.class, () -> provider.authenticate(bearer("token", null)));
+
+        Mockito.verify(mockDelegate, Mockito.times(2)).authenticate(ArgumentMatchers.any());
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.diet_tracker_api.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks the JWK source against a local stub JWK set server.
+ */
+public class RefreshingJwkSourceTest {
+
+    private static final String ISSUER = "http://localhost/realms/test-realm";
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer jwksServer;
+
+    private URI jwkSetUri;
+
+    /**
+     * JWK set served by the stub server, null to answer 500.
+     */
+    private volatile JWKSet servedJwkSet;
+
+    /**
+     * Latch the stub server waits for before answering, null for none.
+     */
+    private volatile CountDownLatch serverLatch;
+
+    private RefreshingJwkSource jwkSource;
+
+    private static final RSAKey KEY1 = generateKey("key1");
+
+    private static final RSAKey KEY2 = generateKey("key2");
+
+    private static RSAKey generateKey(String keyId) {
+        try {
+            return new RSAKeyGenerator(2048).keyID(keyId).generate();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @BeforeEach
+    void startJwksServer() throws IOException {
+        jwksServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        jwksServer.createContext("/certs", exchange -> {
+            try {
+                var latch = serverLatch;
+                if (latch != null) {
+                    latch.await(10, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            var jwkSet = servedJwkSet;
+            var body = (jwkSet == null ? "error" : jwkSet.toString(true)).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(jwkSet == null ? 500 : 200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        jwksServer.start();
+        jwkSetUri = URI.create("http://localhost:" + jwksServer.getAddress().getPort() + "/certs");
+    }
+
+    @AfterEach
+    void stopAll() {
+        if (jwkSource != null) {
+            jwkSource.stop();
+        }
+        jwksServer.stop(0);
+    }
+
+    private RefreshingJwkSource newJwkSource(Path snapshotFile) {
+        jwkSource = new RefreshingJwkSource(jwkSetUri, snapshotFile, Duration.ofHours(1), Duration.ZERO);
+        return jwkSource;
+    }
+
+    /**
+     * Writes a snapshot only the current user can write to, whatever the umask.
+     */
+    private static void writeSnapshot(Path snapshotFile, JWKSet jwkSet) throws IOException {
+        Files.writeString(snapshotFile, jwkSet.toString(true));
+        if (Files.getFileAttributeView(snapshotFile, PosixFileAttributeView.class) != null) {
+            Files.setPosixFilePermissions(snapshotFile, PosixFilePermissions.fromString("rw-r--r--"));
+        }
+    }
+
+    private List<String> keyIds() {
+        return jwkSource.getJwkSet().getKeys().stream().map(key -> key.getKeyID()).toList();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        var deadline = Instant.now().plusSeconds(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(Instant.now().isBefore(deadline), "Condition not met in time");
+            Thread.sleep(20);
+        }
+    }
+
+    private static String signedToken(RSAKey key, String issuer) throws JOSEException {
+        var claims = new JWTClaimsSet.Builder()
+                .subject("someUser")
+                .issuer(issuer)
+                .expirationTime(Date.from(Instant.now().plusSeconds(60)))
+                .build();
+        var jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    @Test
+    void givenSnapshotFile_whenCreated_thenSnapshotKeysServedWithoutFetch() throws IOException {
+        var snapshotFile = tempDir.resolve("jwks.json");
+        writeSnapshot(snapshotFile, new JWKSet(KEY1));
+        jwksServer.stop(0);
+
+        newJwkSource(snapshotFile);
+
+        assertEquals(List.of("key1"), keyIds());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void givenSnapshotWritableByOthers_whenCreated_thenSnapshotIgnored() throws IOException {
+        var snapshotFile = tempDir.resolve("jwks.json");
+        Files.writeString(snapshotFile, new JWKSet(KEY1).toString(true));
+        Files.setPosixFilePermissions(snapshotFile, PosixFilePermissions.fromString("rw-rw-r--"));
+
+        newJwkSource(snapshotFile);
+
+        assertEquals(List.of(), keyIds());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void givenSnapshotInDirectoryWritableByOthers_whenCreated_thenSnapshotIgnored() throws IOException {
+        var sharedDir = Files.createDirectory(tempDir.resolve("shared"));
+        var snapshotFile = sharedDir.resolve("jwks.json");
+        Files.writeString(snapshotFile, new JWKSet(KEY1).toString(true));
+        Files.setPosixFilePermissions(snapshotFile, PosixFilePermissions.fromString("rw-------"));
+        Files.setPosixFilePermissions(sharedDir, PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        newJwkSource(snapshotFile);
+
+        assertEquals(List.of(), keyIds());
+    }
+
+    @Test
+    void givenStubServer_whenRefresh_thenServedKeysReplacedAndSnapshotSaved() throws Exception {
+        var snapshotFile = tempDir.resolve("jwks.json");
+        writeSnapshot(snapshotFile, new JWKSet(KEY1));
+        servedJwkSet = new JWKSet(KEY2);
+
+        newJwkSource(snapshotFile).refresh();
+
+        assertEquals(List.of("key2"), keyIds());
+        assertEquals(List.of("key2"), JWKSet.load(snapshotFile.toFile()).getKeys().stream()
+                .map(key -> key.getKeyID()).toList());
+        // Only the public part of the keys is saved
+        assertTrue(JWKSet.load(snapshotFile.toFile()).getKeys().stream().noneMatch(key -> key.isPrivate()));
+    }
+
+    @Test
+    void givenKeyRotatedOut_whenRefresh_thenRemovedKeyIdsReported() throws Exception {
+        servedJwkSet = new JWKSet(List.of(KEY1, KEY2));
+        var removedKeyIds = new AtomicReference<Set<String>>();
+        newJwkSource(null).setKeysRemovedListener(removedKeyIds::set);
+        jwkSource.refresh();
+        assertEquals(null, removedKeyIds.get());
+
+        servedJwkSet = new JWKSet(KEY2);
+        jwkSource.refresh();
+
+        assertEquals(Set.of("key1"), removedKeyIds.get());
+    }
+
+    @Test
+    void givenKeyRemovedFromJwkSet_whenAuthenticateCachedToken_thenRejected() throws Exception {
+        servedJwkSet = new JWKSet(List.of(KEY1, KEY2));
+        newJwkSource(null).refresh();
+        var resourceServerProperties = new OAuth2ResourceServerProperties();
+        resourceServerProperties.getJwt().setIssuerUri(ISSUER);
+        var configuration = new GlobalSecurityConfiguration();
+        var provider = configuration.cachingJwtAuthenticationProvider(
+                configuration.jwtDecoder(jwkSource, resourceServerProperties), jwkSource,
+                new JwtAuthenticationConverter(), 100, Duration.ofMinutes(5));
+        var key1Token = signedToken(KEY1, ISSUER);
+        var key2Token = signedToken(KEY2, ISSUER);
+        provider.authenticate(new BearerTokenAuthenticationToken(key1Token));
+        provider.authenticate(new BearerTokenAuthenticationToken(key2Token));
+
+        servedJwkSet = new JWKSet(KEY2);
+        jwkSource.refresh();
+
+        assertThrows(InvalidBearerTokenException.class,
+                () -> provider.authenticate(new BearerTokenAuthenticationToken(key1Token)));
+        assertEquals("someUser", provider.authenticate(new BearerTokenAuthenticationToken(key2Token)).getName());
+    }
+
+    @Test
+    void givenServerFailing_whenRefresh_thenStaleKeysKept() throws Exception {
+        servedJwkSet = new JWKSet(KEY1);
+        newJwkSource(null).refresh();
+
+        servedJwkSet = null;
+        jwkSource.refresh();
+
+        assertEquals(List.of("key1"), keyIds());
+    }
+
+    @Test
+    void givenUnknownKey_whenGet_thenNoKeyReturnedWithoutWaitingThenRefreshedInBackground() throws Exception {
+        servedJwkSet = new JWKSet(KEY1);
+        newJwkSource(null).start();
+        await(() -> keyIds().equals(List.of("key1")));
+
+        // Key rotation, answered slowly by the server
+        servedJwkSet = new JWKSet(List.of(KEY1, KEY2));
+        serverLatch = new CountDownLatch(1);
+        var start = System.nanoTime();
+        var keys = jwkSource.get(new JWKSelector(new JWKMatcher.Builder().keyID("key2").build()), null);
+
+        assertEquals(List.of(), keys);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        serverLatch.countDown();
+        await(() -> keyIds().equals(List.of("key1", "key2")));
+    }
+
+    @Test
+    void givenKnownAndUnknownKeys_whenDecode_thenOnlyKnownKeySignaturesAccepted() throws Exception {
+        servedJwkSet = new JWKSet(KEY1);
+        newJwkSource(null).refresh();
+        var resourceServerProperties = new OAuth2ResourceServerProperties();
+        resourceServerProperties.getJwt().setIssuerUri(ISSUER);
+        var jwtDecoder = new GlobalSecurityConfiguration().jwtDecoder(jwkSource, resourceServerProperties);
+
+        assertEquals("someUser", jwtDecoder.decode(signedToken(KEY1, ISSUER)).getSubject());
+        assertThrows(BadJwtException.class, () -> jwtDecoder.decode(signedToken(KEY2, ISSUER)));
+        assertThrows(BadJwtException.class, () -> jwtDecoder.decode(signedToken(KEY1, "http://other-issuer")));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.diet_tracker_api.HibernateCacheConfiguration;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.repository.MealDAO;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Checks that batch-created meals are inserted through JDBC batches: the
+ * INSERT statement is prepared once per batch, not once per meal.
+ */
+@DataJpaTest
+@ActiveProfiles("it")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ HibernateCacheConfiguration.class, MealService.class, MealRollupService.class, MealChangeLog.class,
+        MealTimelines.class, MealListVersions.class, RecentMealWrites.class,
+        MealChangeFeed.class })
+public class MealBatchInsertTest {
+
+    @Autowired
+    private MealService mealService;
+
+    @Autowired
+    private MealDAO mealDAO;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private final String userId = UUID.randomUUID().toString();
+
+    @BeforeEach
+    void setupStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private List<Meal> newMeals(int count) {
+        var meals = new ArrayList<Meal>();
+        for (int i = 0; i < count; i++) {
+            meals.add(Meal.builder()
+                    .mealDate(LocalDate.of(2020, 1, 1).plusDays(i))
+                    .mealTime(MealTime.LUNCH)
+                    .mealContent(MealContent.VEGAN)
+                    .build());
+        }
+        return meals;
+    }
+
+    @Test
+    void whenCreateMeals_thenInsertsSentAsBatches() {
+        int count = 3 * MealService.INSERT_BATCH_SIZE;
+
+        mealService.createMeals(userId, newMeals(count));
+
+        assertEquals(count, statistics.getEntityInsertCount());
+        // One INSERT per batch, plus one sequence call per block of ids
+        assertTrue(statistics.getPrepareStatementCount() <= 2 * 3,
+                "Too many statements prepared: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void whenCreateMeals_thenIdsReturnedInInputOrder() {
+        var meals = newMeals(MealService.INSERT_BATCH_SIZE + 10);
+
+        var created = mealService.createMeals(userId, meals);
+
+        assertEquals(meals, created);
+        IntStream.range(1, created.size())
+                .forEach(i -> assertTrue(created.get(i - 1).getId() < created.get(i).getId()));
+        var saved = mealDAO.findAllById(created.stream().map(Meal::getId).toList());
+        assertEquals(created.size(), saved.size());
+        assertTrue(saved.stream().allMatch(meal -> userId.equals(meal.getUserId())));
+    }
+}
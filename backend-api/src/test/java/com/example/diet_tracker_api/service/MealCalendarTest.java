@@ -0,0 +1,70 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.repository.MealPeriodCount;
+
+public class MealCalendarTest {
+
+    private final MealTimeline timeline = MealTimeline.of(List.of(
+            new MealPeriodCount(LocalDate.of(2019, 12, 31), MealTime.DINNER, MealContent.PORK, 1L),
+            new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.BREAKFAST, MealContent.VEGAN, 1L),
+            new MealPeriodCount(LocalDate.of(2020, 1, 7), MealTime.DINNER, MealContent.BEEF, 1L),
+            new MealPeriodCount(LocalDate.of(2020, 1, 8), MealTime.BREAKFAST, MealContent.LAMB, 1L),
+            new MealPeriodCount(LocalDate.of(2020, 12, 31), MealTime.LUNCH, MealContent.FISH, 1L),
+            new MealPeriodCount(LocalDate.of(2020, 12, 31), MealTime.LUNCH, MealContent.CHICKEN, 1L),
+            new MealPeriodCount(LocalDate.of(2020, 12, 31), MealTime.LUNCH, MealContent.VEGETARIAN, 1L)));
+
+    @Test
+    void givenTimeline_whenBuildCalendar_thenOnlyTheYearsMealsInTheirSlots() {
+        var calendar = MealCalendar.of(timeline, 2020);
+
+        assertEquals(2020, calendar.year());
+        assertEquals(366, calendar.length());
+        assertEquals(MealContent.VEGAN, calendar.mealContent(0, MealTime.BREAKFAST));
+        assertNull(calendar.mealContent(0, MealTime.DINNER));
+        // Last day of a packed long, then first day of the next one
+        assertEquals(MealContent.BEEF, calendar.mealContent(6, MealTime.DINNER));
+        assertEquals(MealContent.LAMB, calendar.mealContent(7, MealTime.BREAKFAST));
+        assertNull(calendar.mealContent(6, MealTime.LUNCH));
+    }
+
+    @Test
+    void givenSeveralMealsInSlot_whenBuildCalendar_thenMostMeatyOneKept() {
+        var calendar = MealCalendar.of(timeline, 2020);
+
+        assertEquals(MealContent.CHICKEN, calendar.mealContent(365, MealTime.LUNCH));
+    }
+
+    @Test
+    void givenYearWithoutMeals_whenBuildCalendar_thenEmptySlots() {
+        var calendar = MealCalendar.of(timeline, 2021);
+
+        assertEquals(365, calendar.length());
+        for (int day = 0; day < calendar.length(); day++) {
+            for (var mealTime : MealTime.values()) {
+                assertNull(calendar.mealContent(day, mealTime));
+            }
+        }
+    }
+
+    @Test
+    void givenSameSlots_whenFingerprint_thenSameFingerprintUntilASlotChanges() {
+        var calendar = MealCalendar.of(timeline, 2020);
+        var changed = MealCalendar.of(MealTimeline.of(List.of(
+                new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.BREAKFAST, MealContent.FISH, 1L))), 2020);
+
+        assertEquals(calendar.fingerprint(), MealCalendar.of(timeline, 2020).fingerprint());
+        assertNotEquals(calendar.fingerprint(), changed.fingerprint());
+        assertNotEquals(calendar.fingerprint(), MealCalendar.of(timeline, 2021).fingerprint());
+    }
+}
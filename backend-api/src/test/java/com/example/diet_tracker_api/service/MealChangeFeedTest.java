@@ -0,0 +1,255 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.diet_tracker_api.exception.MealChangeFeedFullException;
+import com.example.diet_tracker_api.model.Meal;
+
+/**
+ * Checks the fan-out of the meal changes to the subscribers. Messages are
+ * sent by the delivery threads: each sink records them as they are sent.
+ */
+public class MealChangeFeedTest {
+
+    private static final String USER_ID = "5669d3a8-edd4-4d9d-a737-7e9cb21fa974";
+
+    private MealChangeFeed mealChangeFeed = newFeed(10, 10, Duration.ofHours(1));
+
+    private static MealChangeFeed newFeed(int maxSubscribers, int queueCapacity, Duration heartbeatInterval) {
+        return new MealChangeFeed(maxSubscribers, queueCapacity, heartbeatInterval, 2);
+    }
+
+    @AfterEach
+    void stopFeed() {
+        mealChangeFeed.stop();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static Meal meal(long changeSeq) {
+        return Meal.builder().id(changeSeq * 10).userId(USER_ID).changeSeq(changeSeq).build();
+    }
+
+    /**
+     * Sink recording the messages sent, each one waiting for a permit first.
+     */
+    private static class RecordingSink implements MealChangeSink {
+        private final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+
+        private final Semaphore permits = new Semaphore(Integer.MAX_VALUE);
+
+        private boolean failing;
+
+        private void record(String message) throws IOException {
+            permits.acquireUninterruptibly();
+            messages.add(message);
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+        }
+
+        @Override
+        public void send(MealChangeEvent event) throws IOException {
+            record(event.type().name().toLowerCase() + ":" + event.changeSeq());
+        }
+
+        @Override
+        public void resync() throws IOException {
+            record("resync");
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            record("heartbeat");
+        }
+
+        @Override
+        public void close() {
+            messages.add("close");
+        }
+
+        private String next() throws InterruptedException {
+            return messages.poll(5, TimeUnit.SECONDS);
+        }
+
+        private String none() throws InterruptedException {
+            return messages.poll(100, TimeUnit.MILLISECONDS);
+        }
+
+        private void awaitBlocked() {
+            while (!permits.hasQueuedThreads()) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Messages are counted once the sink returns (after they are recorded) and
+     * their send time is kept.
+     */
+    private void assertStatistics(MealChangeFeed.Statistics expected) throws InterruptedException {
+        for (var i = 0; i < 50 && !expected.equals(mealChangeFeed.statistics()); i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(expected, mealChangeFeed.statistics());
+    }
+
+    @Test
+    void whenSubscribe_thenResyncSentFirst() throws Exception {
+        var sink = new RecordingSink();
+
+        mealChangeFeed.subscribe(USER_ID, sink);
+
+        assertEquals("resync", sink.next());
+        assertNull(sink.none());
+    }
+
+    @Test
+    void givenSubscribersOfSeveralUsers_whenPublish_thenSentToTheUserSubscribersOnly() throws Exception {
+        var sink = new RecordingSink();
+        var otherSink = new RecordingSink();
+        var otherUserSink = new RecordingSink();
+        mealChangeFeed.subscribe(USER_ID, sink);
+        mealChangeFeed.subscribe(USER_ID, otherSink);
+        mealChangeFeed.subscribe("otherUser", otherUserSink);
+        assertEquals("resync", sink.next());
+        assertEquals("resync", otherSink.next());
+        assertEquals("resync", otherUserSink.next());
+
+        mealChangeFeed.publishUpserts(USER_ID, List.of(meal(1), meal(2)));
+        mealChangeFeed.publishDelete(USER_ID, meal(1), 3);
+
+        for (var recordingSink : List.of(sink, otherSink)) {
+            assertEquals("upsert:1", recordingSink.next());
+            assertEquals("upsert:2", recordingSink.next());
+            assertEquals("delete:3", recordingSink.next());
+        }
+        assertNull(otherUserSink.none());
+        assertStatistics(new MealChangeFeed.Statistics(3, 2, 6, 3, 0, 0, 0));
+    }
+
+    @Test
+    void givenLaggingSubscriber_whenQueueFull_thenChangesDroppedForAResync() throws Exception {
+        mealChangeFeed = newFeed(10, 2, Duration.ofHours(1));
+        var sink = new RecordingSink();
+        mealChangeFeed.subscribe(USER_ID, sink);
+        assertEquals("resync", sink.next());
+        sink.permits.drainPermits();
+        mealChangeFeed.publishUpserts(USER_ID, List.of(meal(1)));
+        // Blocked sending the first change
+        sink.awaitBlocked();
+
+        mealChangeFeed.publishUpserts(USER_ID, List.of(meal(2), meal(3)));
+        mealChangeFeed.publishUpserts(USER_ID, List.of(meal(4)));
+        // Covered by the resync
+        mealChangeFeed.publishUpserts(USER_ID, List.of(meal(5)));
+        sink.permits.release(Integer.MAX_VALUE);
+
+        assertEquals("upsert:1", sink.next());
+        assertEquals("resync", sink.next());
+        assertNull(sink.none());
+        mealChangeFeed.publishUpserts(USER_ID, List.of(meal(6)));
+        assertEquals("upsert:6", sink.next());
+        assertEquals(1, mealChangeFeed.statistics().overflows());
+    }
+
+    @Test
+    void givenIdleSubscriber_whenSendHeartbeats_thenHeartbeatSent() throws Exception {
+        mealChangeFeed = newFeed(10, 10, Duration.ZERO);
+        var sink = new RecordingSink();
+        mealChangeFeed.subscribe(USER_ID, sink);
+        assertEquals("resync", sink.next());
+        assertStatistics(new MealChangeFeed.Statistics(1, 1, 0, 1, 0, 0, 0));
+
+        mealChangeFeed.sendHeartbeats();
+
+        assertEquals("heartbeat", sink.next());
+        assertStatistics(new MealChangeFeed.Statistics(1, 1, 0, 1, 1, 0, 0));
+    }
+
+    @Test
+    void givenRecentlySentSubscriber_whenSendHeartbeats_thenNoHeartbeat() throws Exception {
+        var sink = new RecordingSink();
+        mealChangeFeed.subscribe(USER_ID, sink);
+        assertEquals("resync", sink.next());
+
+        mealChangeFeed.sendHeartbeats();
+
+        assertNull(sink.none());
+    }
+
+    @Test
+    void givenFailingSink_whenSend_thenSubscriptionClosed() throws Exception {
+        var sink = new RecordingSink();
+        mealChangeFeed.subscribe(USER_ID, sink);
+        assertEquals("resync", sink.next());
+        sink.failing = true;
+
+        mealChangeFeed.publishUpserts(USER_ID, List.of(meal(1)));
+
+        assertEquals("upsert:1", sink.next());
+        assertEquals("close", sink.next());
+        mealChangeFeed.publishUpserts(USER_ID, List.of(meal(2)));
+        assertNull(sink.none());
+        assertEquals(new MealChangeFeed.Statistics(0, 0, 0, 1, 0, 0, 1), mealChangeFeed.statistics());
+    }
+
+    @Test
+    void givenMaxSubscribers_whenSubscribe_thenRejectedUntilOneCancelled() throws Exception {
+        mealChangeFeed = newFeed(1, 10, Duration.ofSeconds(30));
+        var subscription = mealChangeFeed.subscribe(USER_ID, new RecordingSink());
+
+        var exception = assertThrows(MealChangeFeedFullException.class,
+                () -> mealChangeFeed.subscribe("otherUser", new RecordingSink()));
+
+        assertEquals(30, exception.getRetryAfterSeconds());
+        subscription.cancel();
+        var sink = new RecordingSink();
+        mealChangeFeed.subscribe("otherUser", sink);
+        assertEquals("resync", sink.next());
+    }
+
+    @Test
+    void givenTransaction_whenPublish_thenSentOnlyOnceCommitted() throws Exception {
+        var sink = new RecordingSink();
+        mealChangeFeed.subscribe(USER_ID, sink);
+        assertEquals("resync", sink.next());
+        TransactionSynchronizationManager.initSynchronization();
+
+        mealChangeFeed.publishUpserts(USER_ID, List.of(meal(1)));
+
+        assertNull(sink.none());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals("upsert:1", sink.next());
+    }
+
+    @Test
+    void whenStop_thenSubscribersClosedAndNewOnesRejected() throws Exception {
+        var sink = new RecordingSink();
+        mealChangeFeed.subscribe(USER_ID, sink);
+        assertEquals("resync", sink.next());
+
+        mealChangeFeed.stop();
+
+        assertEquals("close", sink.next());
+        assertEquals(0, mealChangeFeed.statistics().subscribers());
+        assertThrows(MealChangeFeedFullException.class,
+                () -> mealChangeFeed.subscribe(USER_ID, new RecordingSink()));
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.diet_tracker_api.HibernateCacheConfiguration;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+
+/**
+ * Checks the change sequences of the meal writes, and the changes a syncing
+ * client reads from them. Rows are committed, so each test writes the meals of
+ * its own user.
+ */
+@DataJpaTest
+@ActiveProfiles("it")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ HibernateCacheConfiguration.class, MealService.class, MealRollupService.class, MealChangeLog.class,
+        MealTimelines.class, MealListVersions.class, RecentMealWrites.class,
+        MealChangeFeed.class })
+public class MealChangesTest {
+
+    @Autowired
+    private MealService mealService;
+
+    @Autowired
+    private MealRollupService mealRollupService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final String userId = UUID.randomUUID().toString();
+
+    private List<Meal> newMeals(int count) {
+        var meals = new ArrayList<Meal>();
+        for (var day = 1; day <= count; day++) {
+            meals.add(Meal.builder()
+                    .mealDate(LocalDate.of(2020, 1, day))
+                    .mealTime(MealTime.LUNCH)
+                    .mealContent(MealContent.VEGAN)
+                    .build());
+        }
+        return meals;
+    }
+
+    private static List<Long> ids(List<Meal> meals) {
+        return meals.stream().map(Meal::getId).toList();
+    }
+
+    @Test
+    void givenMealsWritten_whenGetUserMealChanges_thenChangesInChangeSeqOrder() {
+        var meals = mealService.createMeals(userId, newMeals(3));
+        var edit = newMeals(1).get(0);
+        edit.setMealContent(MealContent.BEEF);
+        mealService.editMealById(userId, meals.get(0).getId(), edit);
+        mealService.deleteMealById(userId, meals.get(1).getId(), null);
+
+        var changes = mealService.getUserMealChanges(userId, null, 100);
+
+        assertEquals(List.of(meals.get(2).getId(), meals.get(0).getId()), ids(changes.upserts()));
+        assertEquals(MealContent.BEEF, changes.upserts().get(1).getMealContent());
+        assertEquals(List.of(meals.get(1).getId()), changes.deletedIds());
+        assertEquals(5L, changes.changeSeq());
+        assertFalse(changes.more());
+    }
+
+    @Test
+    void givenSyncedChanges_whenGetUserMealChanges_thenOnlyLaterChanges() {
+        var meals = mealService.createMeals(userId, newMeals(2));
+        var synced = mealService.getUserMealChanges(userId, null, 100);
+        mealService.deleteMealById(userId, meals.get(0).getId(), null);
+        var created = mealService.createMeal(userId, newMeals(1).get(0));
+
+        var changes = mealService.getUserMealChanges(userId, synced.changeSeq(), 100);
+
+        assertEquals(List.of(created.getId()), ids(changes.upserts()));
+        assertEquals(List.of(meals.get(0).getId()), changes.deletedIds());
+        assertEquals(4L, changes.changeSeq());
+        var unchanged = mealService.getUserMealChanges(userId, changes.changeSeq(), 100);
+        assertTrue(unchanged.upserts().isEmpty());
+        assertTrue(unchanged.deletedIds().isEmpty());
+        assertEquals(4L, unchanged.changeSeq());
+    }
+
+    @Test
+    void givenMoreChangesThanLimit_whenGetUserMealChanges_thenPagedByChangeSeq() {
+        var meals = mealService.createMeals(userId, newMeals(3));
+        mealService.deleteMealById(userId, meals.get(0).getId(), null);
+
+        var first = mealService.getUserMealChanges(userId, null, 2);
+        var second = mealService.getUserMealChanges(userId, first.changeSeq(), 2);
+
+        assertEquals(ids(meals.subList(1, 3)), ids(first.upserts()));
+        assertEquals(3L, first.changeSeq());
+        assertTrue(first.more());
+        assertTrue(second.upserts().isEmpty());
+        assertEquals(List.of(meals.get(0).getId()), second.deletedIds());
+        assertEquals(4L, second.changeSeq());
+        assertFalse(second.more());
+    }
+
+    @Test
+    void givenRolledBackWrite_whenCreateMeal_thenChangeSeqNotSkipped() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            mealService.createMeal(userId, newMeals(1).get(0));
+            status.setRollbackOnly();
+        });
+
+        var meal = mealService.createMeal(userId, newMeals(1).get(0));
+
+        assertEquals(1L, meal.getChangeSeq());
+    }
+
+    @Test
+    void givenRollupRebuildInProgress_whenCreateMeal_thenWaitsForItsCommit() throws Exception {
+        mealService.createMeal(userId, newMeals(1).get(0));
+        var rebuilt = new CountDownLatch(1);
+        var commit = new CountDownLatch(1);
+        var rebuild = CompletableFuture.runAsync(
+                () -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    mealRollupService.rebuild(userId);
+                    rebuilt.countDown();
+                    awaitUninterruptibly(commit);
+                }));
+        awaitUninterruptibly(rebuilt);
+
+        var creation = CompletableFuture.supplyAsync(() -> mealService.createMeal(userId, newMeals(2).get(1)));
+
+        assertThrows(TimeoutException.class, () -> creation.get(200, TimeUnit.MILLISECONDS));
+        commit.countDown();
+        rebuild.get(5, TimeUnit.SECONDS);
+        assertEquals(2L, creation.get(5, TimeUnit.SECONDS).getChangeSeq());
+        assertTrue(mealRollupService.verify(userId));
+    }
+
+    @Test
+    void givenMealWriteInProgress_whenVerifyRollups_thenWaitsForItsCommit() throws Exception {
+        var written = new CountDownLatch(1);
+        var commit = new CountDownLatch(1);
+        var creation = CompletableFuture.runAsync(
+                () -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    mealService.createMeal(userId, newMeals(1).get(0));
+                    written.countDown();
+                    awaitUninterruptibly(commit);
+                }));
+        awaitUninterruptibly(written);
+
+        var verification = CompletableFuture.supplyAsync(() -> mealRollupService.verify(userId));
+
+        assertThrows(TimeoutException.class, () -> verification.get(200, TimeUnit.MILLISECONDS));
+        commit.countDown();
+        creation.get(5, TimeUnit.SECONDS);
+        assertTrue(verification.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.example.diet_tracker_api.repository.MealChangeCounterDAO;
+
+public class MealListVersionsTest {
+
+    private final MealChangeCounterDAO mockMealChangeCounterDAO = Mockito.mock(MealChangeCounterDAO.class);
+
+    private final MealListVersions mealListVersions = new MealListVersions(mockMealChangeCounterDAO);
+
+    private final String userId = "someUser";
+
+    @Test
+    void givenNoCounter_whenGet_thenInitialVersion() {
+        assertEquals("0", mealListVersions.get(userId));
+    }
+
+    @Test
+    void givenCounterMoved_whenGet_thenVersionChanged() {
+        Mockito.when(mockMealChangeCounterDAO.findChangeSeq(userId)).thenReturn(3L);
+        var version = mealListVersions.get(userId);
+
+        Mockito.when(mockMealChangeCounterDAO.findChangeSeq(userId)).thenReturn(5L);
+
+        assertNotEquals(version, mealListVersions.get(userId));
+    }
+
+    @Test
+    void givenAnotherInstance_whenGet_thenSameVersion() {
+        Mockito.when(mockMealChangeCounterDAO.findChangeSeq(userId)).thenReturn(3L);
+
+        assertEquals(new MealListVersions(mockMealChangeCounterDAO).get(userId), mealListVersions.get(userId));
+    }
+}
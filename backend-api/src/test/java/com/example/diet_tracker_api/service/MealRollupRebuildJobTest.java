@@ -0,0 +1,64 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.example.diet_tracker_api.repository.MealDAO;
+import com.example.diet_tracker_api.repository.MealRollupDAO;
+
+@ExtendWith(SpringExtension.class)
+public class MealRollupRebuildJobTest {
+
+    @TestConfiguration
+    static class MealRollupRebuildJobTestContextConfiguration {
+        @Bean
+        MealRollupRebuildJob addTestMealRollupRebuildJob(MealRollupService mockMealRollupService,
+                MealDAO mockMealDAO, MealRollupDAO mockMealRollupDAO) {
+            return new MealRollupRebuildJob(mockMealRollupService, mockMealDAO, mockMealRollupDAO, 2, false);
+        }
+    }
+
+    @MockitoBean
+    private MealRollupService mockMealRollupService;
+
+    @MockitoBean
+    private MealDAO mockMealDAO;
+
+    @MockitoBean
+    private MealRollupDAO mockMealRollupDAO;
+
+    @Autowired
+    private MealRollupRebuildJob mealRollupRebuildJob;
+
+    @Test
+    void givenUsersWithMealsOrRollups_whenRebuildAll_thenEachUserRebuiltOnce() {
+        Mockito.when(mockMealDAO.findDistinctUserIds()).thenReturn(List.of("user1", "user2"));
+        Mockito.when(mockMealRollupDAO.findDistinctUserIds()).thenReturn(List.of("user2", "user3"));
+
+        assertEquals(new MealRollupReport(3, List.of()), mealRollupRebuildJob.rebuildAll());
+
+        Mockito.verify(mockMealRollupService).rebuild("user1");
+        Mockito.verify(mockMealRollupService).rebuild("user2");
+        Mockito.verify(mockMealRollupService).rebuild("user3");
+    }
+
+    @Test
+    void givenMismatchingUsers_whenVerifyAll_thenListedInReport() {
+        Mockito.when(mockMealDAO.findDistinctUserIds()).thenReturn(List.of("user3", "user1", "user2"));
+        Mockito.when(mockMealRollupService.verify("user1")).thenReturn(false);
+        Mockito.when(mockMealRollupService.verify("user2")).thenReturn(true);
+        Mockito.when(mockMealRollupService.verify("user3")).thenReturn(false);
+
+        assertEquals(new MealRollupReport(3, List.of("user1", "user3")), mealRollupRebuildJob.verifyAll());
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.diet_tracker_api.HibernateCacheConfiguration;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealRollupId;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.repository.MealDAO;
+import com.example.diet_tracker_api.repository.MealPeriodCount;
+import com.example.diet_tracker_api.repository.MealRollupDAO;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Checks that the rollups follow the meal changes, and that they can be
+ * checked against and rebuilt from the meal table.
+ */
+@DataJpaTest
+@ActiveProfiles("it")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ HibernateCacheConfiguration.class, MealRollupService.class })
+public class MealRollupServiceTest {
+
+    @Autowired
+    private MealRollupService mealRollupService;
+
+    @Autowired
+    private MealRollupDAO mealRollupDAO;
+
+    @Autowired
+    private MealDAO mealDAO;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final String userId = UUID.randomUUID().toString();
+
+    private Meal newMeal(LocalDate mealDate, MealTime mealTime, MealContent mealContent) {
+        return Meal.builder()
+                .userId(userId)
+                .mealDate(mealDate)
+                .mealTime(mealTime)
+                .mealContent(mealContent)
+                .build();
+    }
+
+    private List<MealPeriodCount> findCounts(MealPeriod period) {
+        return mealRollupDAO.findCounts(userId, period, null, null);
+    }
+
+    @Test
+    void givenAddedMeals_whenFindCounts_thenCountedInEachPeriod() {
+        // Thursday 2020-01-02 and Saturday 2020-01-04, same week & month
+        mealRollupService.add(List.of(
+                newMeal(LocalDate.of(2020, 1, 2), MealTime.LUNCH, MealContent.VEGAN),
+                newMeal(LocalDate.of(2020, 1, 4), MealTime.LUNCH, MealContent.VEGAN)));
+        mealRollupService.add(List.of(newMeal(LocalDate.of(2020, 1, 4), MealTime.LUNCH, MealContent.VEGAN)));
+
+        assertEquals(List.of(
+                new MealPeriodCount(LocalDate.of(2020, 1, 2), MealTime.LUNCH, MealContent.VEGAN, 1L),
+                new MealPeriodCount(LocalDate.of(2020, 1, 4), MealTime.LUNCH, MealContent.VEGAN, 2L)),
+                findCounts(MealPeriod.DAY));
+        assertEquals(List.of(new MealPeriodCount(LocalDate.of(2019, 12, 30), MealTime.LUNCH, MealContent.VEGAN, 3L)),
+                findCounts(MealPeriod.WEEK));
+        assertEquals(List.of(new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.LUNCH, MealContent.VEGAN, 3L)),
+                findCounts(MealPeriod.MONTH));
+    }
+
+    @Test
+    void givenReplacedAndRemovedMeals_whenFindCounts_thenZeroCountsNotReturned() {
+        var meal = newMeal(LocalDate.of(2020, 1, 2), MealTime.LUNCH, MealContent.VEGAN);
+        var edited = newMeal(LocalDate.of(2020, 1, 3), MealTime.LUNCH, MealContent.VEGAN);
+        mealRollupService.add(List.of(meal));
+
+        mealRollupService.replace(meal, edited);
+
+        assertEquals(List.of(new MealPeriodCount(LocalDate.of(2020, 1, 3), MealTime.LUNCH, MealContent.VEGAN, 1L)),
+                findCounts(MealPeriod.DAY));
+        assertEquals(List.of(new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.LUNCH, MealContent.VEGAN, 1L)),
+                findCounts(MealPeriod.MONTH));
+
+        mealRollupService.remove(edited);
+
+        assertEquals(List.of(), findCounts(MealPeriod.DAY));
+        assertEquals(List.of(), findCounts(MealPeriod.MONTH));
+    }
+
+    @Test
+    void givenCountsInRange_whenFindCounts_thenOnlyPeriodsStartingInRangeReturned() {
+        mealRollupService.add(List.of(
+                newMeal(LocalDate.of(2020, 1, 31), MealTime.DINNER, MealContent.FISH),
+                newMeal(LocalDate.of(2020, 2, 1), MealTime.DINNER, MealContent.FISH),
+                newMeal(LocalDate.of(2020, 3, 1), MealTime.DINNER, MealContent.FISH)));
+
+        assertEquals(List.of(new MealPeriodCount(LocalDate.of(2020, 2, 1), MealTime.DINNER, MealContent.FISH, 1L)),
+                mealRollupDAO.findCounts(userId, MealPeriod.MONTH, LocalDate.of(2020, 1, 15),
+                        LocalDate.of(2020, 3, 1)));
+    }
+
+    @Test
+    void givenRollupsOutOfSync_whenRebuild_thenVerified() {
+        mealDAO.saveAll(List.of(
+                newMeal(LocalDate.of(2020, 1, 2), MealTime.LUNCH, MealContent.VEGAN),
+                newMeal(LocalDate.of(2020, 1, 2), MealTime.LUNCH, MealContent.VEGAN),
+                newMeal(LocalDate.of(2020, 2, 10), MealTime.BREAKFAST, MealContent.PORK)));
+        mealRollupService.add(List.of(newMeal(LocalDate.of(2020, 5, 5), MealTime.DINNER, MealContent.LAMB)));
+
+        assertFalse(mealRollupService.verify(userId));
+
+        mealRollupService.rebuild(userId);
+        entityManager.clear();
+
+        assertTrue(mealRollupService.verify(userId));
+        assertEquals(List.of(
+                new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.LUNCH, MealContent.VEGAN, 2L),
+                new MealPeriodCount(LocalDate.of(2020, 2, 1), MealTime.BREAKFAST, MealContent.PORK, 1L)),
+                findCounts(MealPeriod.MONTH));
+    }
+
+    @Test
+    void givenZeroRollup_whenVerify_thenIgnored() {
+        var meal = newMeal(LocalDate.of(2020, 1, 2), MealTime.LUNCH, MealContent.VEGAN);
+        mealRollupService.add(List.of(meal));
+        mealRollupService.remove(meal);
+
+        assertTrue(mealRollupDAO.existsById(new MealRollupId(userId, MealPeriod.DAY, LocalDate.of(2020, 1, 2),
+                MealTime.LUNCH, MealContent.VEGAN)));
+        assertTrue(mealRollupService.verify(userId));
+    }
+}
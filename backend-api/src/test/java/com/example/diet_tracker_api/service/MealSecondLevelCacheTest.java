@@ -0,0 +1,169 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.diet_tracker_api.HibernateCacheConfiguration;
+import com.example.diet_tracker_api.api.HibernateCacheEndpoint;
+import com.example.diet_tracker_api.exception.MealNotFoundException;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Checks that the meal lookups are served by the Hibernate second-level cache,
+ * and that the meal writes only replace or evict the written meal.
+ * The caches only hold committed data, so each test commits the meals of its
+ * own user.
+ */
+@DataJpaTest
+@ActiveProfiles("it")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ HibernateCacheConfiguration.class, HibernateCacheEndpoint.class, MealService.class, MealRollupService.class,
+        MealChangeLog.class, MealTimelines.class, MealListVersions.class, RecentMealWrites.class,
+        MealChangeFeed.class })
+public class MealSecondLevelCacheTest {
+
+    @Autowired
+    private MealService mealService;
+
+    @Autowired
+    private HibernateCacheEndpoint hibernateCacheEndpoint;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterBinder hibernateCacheMetrics;
+
+    private Statistics statistics;
+
+    private final String userId = "cached-" + UUID.randomUUID();
+
+    private Long mealId;
+
+    @BeforeEach
+    void setupMeal() {
+        mealId = mealService.createMeal(userId, Meal.builder()
+                .mealDate(LocalDate.of(2020, 1, 1))
+                .mealTime(MealTime.LUNCH)
+                .mealContent(MealContent.VEGAN)
+                .build()).getId();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Looks the meal up, returning the number of SQL statements it took.
+     */
+    private long countLookupStatements() {
+        var statements = statistics.getPrepareStatementCount();
+        mealService.getUserMealById(userId, mealId);
+        return statistics.getPrepareStatementCount() - statements;
+    }
+
+    @Test
+    void givenMealLookedUp_whenGetMealById_thenServedWithoutStatement() {
+        mealService.getUserMealById(userId, mealId);
+        var hits = hibernateCacheEndpoint.statistics().get(Meal.CACHE_REGION).hits();
+
+        assertEquals(0, countLookupStatements());
+        assertEquals(hits + 1, hibernateCacheEndpoint.statistics().get(Meal.CACHE_REGION).hits());
+    }
+
+    @Test
+    void givenMealLookedUp_whenGetMealById_thenHitCountedByMetrics() {
+        var registry = new SimpleMeterRegistry();
+        hibernateCacheMetrics.bindTo(registry);
+        mealService.getUserMealById(userId, mealId);
+        var hits = registry.get("cache.gets").tag("cache", Meal.CACHE_REGION).tag("result", "hit")
+                .functionCounter().count();
+
+        mealService.getUserMealById(userId, mealId);
+
+        assertEquals(hits + 1, registry.get("cache.gets").tag("cache", Meal.CACHE_REGION).tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void givenMealOfAnotherUser_whenGetMealById_thenNotServedFromCache() {
+        mealService.getUserMealById(userId, mealId);
+
+        assertThrows(MealNotFoundException.class, () -> mealService.getUserMealById("someone-else", mealId));
+    }
+
+    @Test
+    void givenMealLookedUp_whenEditMealById_thenNewValuesLookedUp() {
+        mealService.getUserMealById(userId, mealId);
+
+        mealService.editMealById(userId, mealId, Meal.builder()
+                .mealDate(LocalDate.of(2020, 1, 1))
+                .mealTime(MealTime.LUNCH)
+                .mealContent(MealContent.FISH)
+                .build());
+
+        assertEquals(MealContent.FISH, mealService.getUserMealById(userId, mealId).getMealContent());
+    }
+
+    @Test
+    void givenMealLookedUp_whenEditMealById_thenNewValuesServedWithoutStatement() {
+        mealService.getUserMealById(userId, mealId);
+
+        mealService.patchMealById(userId, mealId, Meal.builder().mealContent(MealContent.FISH).build());
+
+        assertEquals(0, countLookupStatements());
+    }
+
+    @Test
+    void givenMealLookedUp_whenOtherMealsWritten_thenStillServedWithoutStatement() {
+        mealService.getUserMealById(userId, mealId);
+        var otherMealId = mealService.createMeal(userId, Meal.builder()
+                .mealDate(LocalDate.of(2020, 1, 2))
+                .mealTime(MealTime.DINNER)
+                .mealContent(MealContent.VEGAN)
+                .build()).getId();
+
+        mealService.patchMealById(userId, otherMealId, Meal.builder().mealContent(MealContent.FISH).build());
+        mealService.deleteMealById(userId, otherMealId, null);
+
+        assertEquals(0, countLookupStatements());
+    }
+
+    @Test
+    void givenMealLookedUp_whenDeleteMealById_thenNotFound() {
+        mealService.getUserMealById(userId, mealId);
+
+        mealService.deleteMealById(userId, mealId, null);
+
+        assertThrows(MealNotFoundException.class, () -> mealService.getUserMealById(userId, mealId));
+    }
+
+    @Test
+    void givenMealLookedUp_whenEvictAll_thenReadFromDatabase() {
+        mealService.getUserMealById(userId, mealId);
+
+        hibernateCacheEndpoint.evictAll();
+
+        assertEquals(1, countLookupStatements());
+        assertEquals(0, countLookupStatements());
+    }
+}
@@ -2,32 +2,48 @@ package com.example.diet_tracker_api.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.transaction.TransactionSystemException;
 
 import com.example.diet_tracker_api.exception.MealNotFoundException;
+import com.example.diet_tracker_api.exception.MealVersionMismatchException;
 import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
 import com.example.diet_tracker_api.repository.MealDAO;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+
 @ExtendWith(SpringExtension.class)
 public class MealServiceTest {
 
     @TestConfiguration
     static class MealServiceTestContextConfiguration {
         @Bean
-        MealService addTestMealService(MealDAO mockMealDAO) {
-            return new MealService(mockMealDAO) {
+        MealService addTestMealService(MealDAO mockMealDAO, EntityManager mockEntityManager,
+                MealRollupService mockMealRollupService, MealChangeLog mockMealChangeLog,
+                MealTimelines mockMealTimelines, MealListVersions mockMealListVersions,
+                RecentMealWrites mockRecentMealWrites, MealChangeFeed mockMealChangeFeed) {
+            return new MealService(mockMealDAO, mockEntityManager, mockMealRollupService, mockMealChangeLog,
+                    mockMealTimelines, mockMealListVersions, mockMealChangeFeed, mockRecentMealWrites) {
             };
         }
     }
@@ -35,6 +51,27 @@ public class MealServiceTest {
     @MockitoBean
     private MealDAO mockMealDAO;
 
+    @MockitoBean
+    private EntityManager mockEntityManager;
+
+    @MockitoBean
+    private MealRollupService mockMealRollupService;
+
+    @MockitoBean
+    private MealChangeLog mockMealChangeLog;
+
+    @MockitoBean
+    private MealTimelines mockMealTimelines;
+
+    @MockitoBean
+    private MealListVersions mockMealListVersions;
+
+    @MockitoBean
+    private MealChangeFeed mockMealChangeFeed;
+
+    @MockitoBean
+    private RecentMealWrites mockRecentMealWrites;
+
     @Autowired
     private MealService mealService;
 
@@ -43,26 +80,87 @@ public class MealServiceTest {
     private final String userId = "someUser";
 
     @Test
-    void testGetAllMeals() {
+    void givenSinglePage_whenGetUserMeals_thenNoNextCursor() {
         var mockMeal = Mockito.mock(Meal.class);
 
-        Mockito.when(mockMealDAO.findByUserId(userId)).thenReturn(List.of(mockMeal));
+        Mockito.when(mockMealDAO.findPage(ArgumentMatchers.any(), ArgumentMatchers.eq(Limit.of(3))))
+                .thenReturn(List.of(mockMeal));
+
+        assertEquals(new MealPage(List.of(mockMeal), null),
+                mealService.getUserMeals(userId, MealFilter.NONE, null, 2));
+    }
+
+    @Test
+    void givenMorePages_whenGetUserMeals_thenNextCursorPointsToLastMeal() {
+        var meal1 = Meal.builder().id(1L).mealDate(LocalDate.of(2020, 1, 1)).build();
+        var meal2 = Meal.builder().id(7L).mealDate(LocalDate.of(2020, 1, 2)).build();
+        var meal3 = Meal.builder().id(3L).mealDate(LocalDate.of(2020, 1, 3)).build();
+
+        Mockito.when(mockMealDAO.findPage(ArgumentMatchers.any(), ArgumentMatchers.eq(Limit.of(3))))
+                .thenReturn(List.of(meal1, meal2, meal3));
 
-        assertEquals(List.of(mockMeal), mealService.getUserMeals(userId));
+        assertEquals(new MealPage(List.of(meal1, meal2), new MealCursor(LocalDate.of(2020, 1, 2), 7L)),
+                mealService.getUserMeals(userId, MealFilter.NONE, null, 2));
+    }
+
+    @Test
+    void givenEncodedCursor_whenDecode_thenSameCursor() {
+        var cursor = new MealCursor(LocalDate.of(2020, 1, 2), 7L);
+
+        assertEquals(cursor, MealCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void givenInvalidToken_whenDecodeCursor_thenExceptionRaised() {
+        assertThrows(IllegalArgumentException.class, () -> MealCursor.decode("notACursor"));
+    }
+
+    @Test
+    void whenGetUserMealsVersion_thenCurrentVersionReturned() {
+        Mockito.when(mockMealListVersions.get(userId)).thenReturn("3");
+
+        assertEquals("3", mealService.getUserMealsVersion(userId));
+        Mockito.verifyNoInteractions(mockMealDAO);
+    }
+
+    @Test
+    void givenMeals_whenExportUserMeals_thenEachMealConsumedThenDetached() {
+        var mockMeal1 = Mockito.mock(Meal.class);
+        var mockMeal2 = Mockito.mock(Meal.class);
+        var closed = new boolean[] { false };
+        var consumed = new ArrayList<Meal>();
+
+        Mockito.when(mockMealDAO.streamByUserIdOrderByMealDateAscIdAsc(userId))
+                .thenReturn(Stream.of(mockMeal1, mockMeal2).onClose(() -> closed[0] = true));
+
+        mealService.exportUserMeals(userId, consumed::add);
+
+        assertEquals(List.of(mockMeal1, mockMeal2), consumed);
+        var inOrder = Mockito.inOrder(mockEntityManager);
+        inOrder.verify(mockEntityManager).detach(mockMeal1);
+        inOrder.verify(mockEntityManager).detach(mockMeal2);
+        assertTrue(closed[0]);
     }
 
     @Test
     void givenMealExists_whenGetMealById_thenReturned() {
-        var mockMeal = Mockito.mock(Meal.class);
+        var meal = storedMeal();
+
+        Mockito.when(mockMealDAO.findById(id)).thenReturn(Optional.of(meal));
 
-        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(mockMeal));
+        assertEquals(meal, mealService.getUserMealById(userId, id));
+    }
+
+    @Test
+    void givenMealOfAnotherUser_whenGetMealById_thenExceptionRaised() {
+        Mockito.when(mockMealDAO.findById(id)).thenReturn(Optional.of(storedMeal()));
 
-        assertEquals(mockMeal, mealService.getUserMealById(userId, id));
+        assertThrows(MealNotFoundException.class, () -> mealService.getUserMealById("otherUser", id));
     }
 
     @Test
     void givenMealDoesNotExist_whenGetMealById_thenExceptionRaised() {
-        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.empty());
+        Mockito.when(mockMealDAO.findById(id)).thenReturn(Optional.empty());
 
         assertThrows(
                 MealNotFoundException.class,
@@ -80,6 +178,11 @@ public class MealServiceTest {
         Mockito.when(mockMealDAO.save(mockInputMeal)).thenReturn(mockCreatedMeal);
 
         assertEquals(mockCreatedMeal, mealService.createMeal(userId, mockInputMeal));
+        var inOrder = Mockito.inOrder(mockMealChangeLog, mockMealDAO);
+        inOrder.verify(mockMealChangeLog).assign(userId, List.of(mockInputMeal));
+        inOrder.verify(mockMealDAO).save(mockInputMeal);
+        Mockito.verify(mockMealRollupService).add(List.of(mockCreatedMeal));
+        Mockito.verify(mockMealChangeFeed).publishUpserts(userId, List.of(mockCreatedMeal));
     }
 
     @Test
@@ -96,15 +199,62 @@ public class MealServiceTest {
 
     }
 
+    @Test
+    void givenMoreMealsThanBatchSize_whenCreateMeals_thenSavedAndFlushedByChunks() {
+        var meals = new ArrayList<Meal>();
+        for (int i = 0; i < MealService.INSERT_BATCH_SIZE + 1; i++) {
+            meals.add(new Meal());
+        }
+
+        assertEquals(meals, mealService.createMeals(userId, meals));
+
+        assertTrue(meals.stream().allMatch(meal -> userId.equals(meal.getUserId())));
+        var inOrder = Mockito.inOrder(mockMealDAO, mockEntityManager);
+        inOrder.verify(mockMealDAO).saveAll(meals.subList(0, MealService.INSERT_BATCH_SIZE));
+        inOrder.verify(mockEntityManager).flush();
+        inOrder.verify(mockEntityManager).clear();
+        inOrder.verify(mockMealDAO).saveAll(meals.subList(MealService.INSERT_BATCH_SIZE, meals.size()));
+        inOrder.verify(mockEntityManager).flush();
+        inOrder.verify(mockEntityManager).clear();
+        Mockito.verify(mockMealRollupService).add(meals);
+        Mockito.verify(mockMealChangeFeed).publishUpserts(userId, meals);
+    }
+
+    private Meal storedMeal() {
+        return Meal.builder()
+                .id(id)
+                .userId(userId)
+                .mealDate(LocalDate.of(2020, 1, 1))
+                .mealTime(MealTime.LUNCH)
+                .mealContent(MealContent.VEGAN)
+                .version(3L)
+                .build();
+    }
+
+    private Meal newMeal() {
+        return Meal.builder()
+                .mealDate(LocalDate.of(2020, 1, 2))
+                .mealTime(MealTime.DINNER)
+                .mealContent(MealContent.BEEF)
+                .build();
+    }
+
     @Test
     void givenMealExists_whenDeleteMealById_thenMealDeleted() {
-        var mockMeal = Mockito.mock(Meal.class);
+        var meal = storedMeal();
 
-        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(mockMeal));
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(meal));
+        Mockito.when(mockMealChangeLog.next(userId)).thenReturn(12L);
 
-        mealService.deleteMealById(userId, id);
+        mealService.deleteMealById(userId, id, null);
 
-        Mockito.verify(mockMealDAO).delete(mockMeal);
+        var inOrder = Mockito.inOrder(mockMealChangeLog, mockMealDAO, mockEntityManager, mockMealRollupService);
+        inOrder.verify(mockMealChangeLog).next(userId);
+        inOrder.verify(mockMealDAO).delete(meal);
+        inOrder.verify(mockEntityManager).flush();
+        inOrder.verify(mockMealChangeLog).tombstone(meal, 12L);
+        inOrder.verify(mockMealRollupService).remove(meal);
+        Mockito.verify(mockMealChangeFeed).publishDelete(userId, meal, 12L);
     }
 
     @Test
@@ -114,42 +264,100 @@ public class MealServiceTest {
         assertThrows(
                 MealNotFoundException.class,
                 () -> {
-                    mealService.deleteMealById(userId, id);
+                    mealService.deleteMealById(userId, id, null);
                 },
                 String.format("Meal with id=%d not found", id));
+        Mockito.verify(mockMealDAO, Mockito.never()).delete(ArgumentMatchers.any(Meal.class));
+    }
+
+    @Test
+    void givenOtherVersionExpected_whenDeleteMealById_thenVersionMismatch() {
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(storedMeal()));
+
+        assertThrows(MealVersionMismatchException.class, () -> mealService.deleteMealById(userId, id, 2L));
+
+        Mockito.verify(mockMealDAO, Mockito.never()).delete(ArgumentMatchers.any(Meal.class));
+        Mockito.verifyNoInteractions(mockMealRollupService, mockMealListVersions);
+    }
+
+    @Test
+    void givenMealChangedMeanwhile_whenDeleteMealById_thenVersionMismatch() {
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(storedMeal()));
+        Mockito.doThrow(new OptimisticLockException()).when(mockEntityManager).flush();
+
+        assertThrows(MealVersionMismatchException.class, () -> mealService.deleteMealById(userId, id, 3L));
+
+        Mockito.verifyNoInteractions(mockMealRollupService, mockMealListVersions);
+        Mockito.verify(mockMealChangeFeed, Mockito.never()).publishDelete(ArgumentMatchers.any(),
+                ArgumentMatchers.any(), ArgumentMatchers.anyLong());
     }
 
     @Test
     void givenDAODeleteFails_whenDeleteMealById_thenExceptionIsNotCatched() {
-        var mockMeal = Mockito.mock(Meal.class);
-        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(mockMeal));
-        Mockito.doThrow(new TransactionSystemException("toto")).when(mockMealDAO).delete(mockMeal);
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(storedMeal()));
+        Mockito.doThrow(new TransactionSystemException("toto")).when(mockEntityManager).flush();
 
         assertThrows(
                 TransactionSystemException.class,
                 () -> {
-                    mealService.deleteMealById(userId, id);
+                    mealService.deleteMealById(userId, id, null);
                 },
                 String.format("toto"));
+        Mockito.verifyNoInteractions(mockMealListVersions);
     }
 
     @Test
     void givenEverythingOK_whenEditMealById_thenMealEdited() {
-        var mockMealInput = Mockito.mock(Meal.class);
-        var mockMealSaved = Mockito.mock(Meal.class);
+        var mealPrevious = storedMeal();
+        var mealInput = newMeal();
+
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(mealPrevious));
+        Mockito.when(mockMealChangeLog.next(userId)).thenReturn(12L);
+
+        var editedMeal = mealService.editMealById(userId, id, mealInput);
+
+        assertEquals(id, editedMeal.getId());
+        assertEquals(userId, editedMeal.getUserId());
+        assertEquals(MealContent.BEEF, editedMeal.getMealContent());
+        assertEquals(4L, editedMeal.getVersion());
+        assertEquals(12L, editedMeal.getChangeSeq());
+        // The stored entity is written and flushed
+        assertEquals(MealContent.BEEF, mealPrevious.getMealContent());
+        assertEquals(12L, mealPrevious.getChangeSeq());
+        var inOrder = Mockito.inOrder(mockMealChangeLog, mockEntityManager, mockMealRollupService);
+        inOrder.verify(mockMealChangeLog).next(userId);
+        inOrder.verify(mockEntityManager).flush();
+        inOrder.verify(mockMealRollupService).replace(storedMeal(), mealInput);
+        Mockito.verify(mockMealDAO, Mockito.never()).save(ArgumentMatchers.any());
+        Mockito.verify(mockMealChangeFeed).publishUpserts(userId, List.of(mealInput));
+    }
+
+    @Test
+    void givenExpectedVersion_whenEditMealById_thenMealEdited() {
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(storedMeal()));
+        var mealInput = newMeal();
+        mealInput.setVersion(3L);
 
-        Mockito.when(mockMealDAO.existsByIdAndUserId(id, userId)).thenReturn(true);
-        Mockito.when(mockMealDAO.save(mockMealInput)).thenReturn(mockMealSaved);
+        assertEquals(4L, mealService.editMealById(userId, id, mealInput).getVersion());
+    }
 
-        assertEquals(mockMealSaved, mealService.editMealById(userId, id, mockMealInput));
+    @Test
+    void givenUnchangedMeal_whenEditMealById_thenNothingWritten() {
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(storedMeal()));
+        var mealInput = storedMeal();
+        mealInput.setId(null);
+        mealInput.setUserId(null);
+        mealInput.setVersion(null);
 
-        Mockito.verify(mockMealInput).setId(id);
+        assertEquals(storedMeal(), mealService.editMealById(userId, id, mealInput));
 
+        Mockito.verify(mockEntityManager, Mockito.never()).flush();
+        Mockito.verifyNoInteractions(mockMealRollupService, mockMealListVersions);
     }
 
     @Test
     void givenMealDoesNotExist_whenEditMealById_thenCorrectExceptionThrown() {
-        Mockito.when(mockMealDAO.existsByIdAndUserId(id, userId)).thenReturn(false);
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.empty());
 
         assertThrows(
                 MealNotFoundException.class,
@@ -161,17 +369,88 @@ public class MealServiceTest {
     }
 
     @Test
-    void givenDAOSaveFails_whenEditMealById_thenExceptionIsNotCatched() {
-        Mockito.when(mockMealDAO.existsByIdAndUserId(id, userId)).thenReturn(true);
-        var mockMeal = Mockito.mock(Meal.class);
-        Mockito.when(mockMealDAO.save(mockMeal)).thenThrow(new TransactionSystemException("toto"));
+    void givenOtherVersionExpected_whenEditMealById_thenVersionMismatch() {
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(storedMeal()));
+        var mealInput = newMeal();
+        mealInput.setVersion(2L);
+
+        assertThrows(MealVersionMismatchException.class, () -> mealService.editMealById(userId, id, mealInput));
+
+        Mockito.verify(mockEntityManager, Mockito.never()).flush();
+        Mockito.verifyNoInteractions(mockMealRollupService, mockMealListVersions);
+    }
+
+    @Test
+    void givenMealChangedMeanwhile_whenEditMealById_thenVersionMismatch() {
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(storedMeal()));
+        Mockito.doThrow(new OptimisticLockException()).when(mockEntityManager).flush();
+
+        assertThrows(MealVersionMismatchException.class, () -> mealService.editMealById(userId, id, newMeal()));
+
+        Mockito.verifyNoInteractions(mockMealRollupService, mockMealListVersions);
+    }
+
+    @Test
+    void givenDAOUpdateFails_whenEditMealById_thenExceptionIsNotCatched() {
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(storedMeal()));
+        Mockito.doThrow(new TransactionSystemException("toto")).when(mockEntityManager).flush();
 
         assertThrows(
                 TransactionSystemException.class,
                 () -> {
-                    mealService.editMealById(userId, id, mockMeal);
+                    mealService.editMealById(userId, id, newMeal());
                 },
                 String.format("toto"));
 
     }
+
+    @Test
+    void givenPartialMeal_whenPatchMealById_thenOnlyProvidedValuesChanged() {
+        var mealPrevious = storedMeal();
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(mealPrevious));
+
+        var editedMeal = mealService.patchMealById(userId, id, Meal.builder().mealContent(MealContent.BEEF).build());
+
+        assertEquals(Meal.builder()
+                .id(id)
+                .userId(userId)
+                .mealDate(LocalDate.of(2020, 1, 1))
+                .mealTime(MealTime.LUNCH)
+                .mealContent(MealContent.BEEF)
+                .version(4L)
+                .build(), editedMeal);
+        Mockito.verify(mockMealRollupService).replace(storedMeal(), editedMeal);
+    }
+
+    @Test
+    void givenEmptyPatch_whenPatchMealById_thenNothingWritten() {
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(storedMeal()));
+
+        assertEquals(storedMeal(), mealService.patchMealById(userId, id, new Meal()));
+
+        Mockito.verify(mockEntityManager, Mockito.never()).flush();
+        Mockito.verifyNoInteractions(mockMealRollupService, mockMealListVersions);
+    }
+
+    @Test
+    void givenOtherVersionExpected_whenPatchMealById_thenVersionMismatch() {
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.of(storedMeal()));
+
+        assertThrows(MealVersionMismatchException.class,
+                () -> mealService.patchMealById(userId, id, Meal.builder().version(2L).build()));
+
+        Mockito.verifyNoInteractions(mockMealRollupService, mockMealListVersions);
+    }
+
+    @Test
+    void givenMealDoesNotExist_whenPatchMealById_thenCorrectExceptionThrown() {
+        Mockito.when(mockMealDAO.findByIdAndUserId(id, userId)).thenReturn(Optional.empty());
+
+        assertThrows(
+                MealNotFoundException.class,
+                () -> {
+                    mealService.patchMealById(userId, id, new Meal());
+                },
+                String.format("Meal with id=%d not found", id));
+    }
 }
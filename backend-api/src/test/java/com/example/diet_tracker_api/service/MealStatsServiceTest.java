@@ -0,0 +1,199 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.repository.MealPeriodCount;
+import com.example.diet_tracker_api.repository.MealRollupDAO;
+
+@ExtendWith(SpringExtension.class)
+public class MealStatsServiceTest {
+
+    @TestConfiguration
+    static class MealStatsServiceTestContextConfiguration {
+        @Bean
+        MealStatsService addTestMealStatsService(MealRollupDAO mockMealRollupDAO,
+                MealTimelines mockMealTimelines, RecentMealWrites mockRecentMealWrites) {
+            return new MealStatsService(mockMealRollupDAO, mockMealTimelines, mockRecentMealWrites) {
+            };
+        }
+    }
+
+    @MockitoBean
+    private MealRollupDAO mockMealRollupDAO;
+
+    @MockitoBean
+    private MealTimelines mockMealTimelines;
+
+    @MockitoBean
+    private RecentMealWrites mockRecentMealWrites;
+
+    @Autowired
+    private MealStatsService mealStatsService;
+
+    private final String userId = "someUser";
+
+    private final LocalDate from = LocalDate.of(2020, 1, 1);
+
+    private final LocalDate to = LocalDate.of(2020, 2, 29);
+
+    private final LocalDate until = LocalDate.of(2020, 3, 1);
+
+    // Wednesday 2020-01-01 to Monday 2020-02-03
+    private final List<MealPeriodCount> dailyCounts = List.of(
+            new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.LUNCH, MealContent.VEGAN, 2L),
+            new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.DINNER, MealContent.BEEF, 1L),
+            new MealPeriodCount(LocalDate.of(2020, 1, 5), MealTime.LUNCH, MealContent.VEGAN, 1L),
+            new MealPeriodCount(LocalDate.of(2020, 1, 6), MealTime.BREAKFAST, MealContent.VEGETARIAN, 1L),
+            new MealPeriodCount(LocalDate.of(2020, 2, 3), MealTime.DINNER, MealContent.FISH, 3L));
+
+    private static Map<MealContent, Long> mealContents(long vegan, long vegetarian, long fish, long beef) {
+        return Map.of(MealContent.VEGAN, vegan, MealContent.VEGETARIAN, vegetarian, MealContent.FISH, fish,
+                MealContent.CHICKEN, 0L, MealContent.PORK, 0L, MealContent.LAMB, 0L, MealContent.BEEF, beef);
+    }
+
+    private static Map<MealTime, Long> mealTimes(long breakfast, long lunch, long dinner) {
+        return Map.of(MealTime.BREAKFAST, breakfast, MealTime.LUNCH, lunch, MealTime.DINNER, dinner);
+    }
+
+    @Test
+    void givenDailyRollups_whenGetStatsByDay_thenOneStatsPerDay() {
+        Mockito.when(mockMealRollupDAO.findCounts(userId, MealPeriod.DAY, from, until)).thenReturn(dailyCounts);
+
+        var stats = mealStatsService.getUserMealStats(userId, from, to, MealPeriod.DAY);
+
+        assertEquals(List.of(
+                new MealStats(LocalDate.of(2020, 1, 1), mealContents(2, 0, 0, 1), mealTimes(0, 2, 1)),
+                new MealStats(LocalDate.of(2020, 1, 5), mealContents(1, 0, 0, 0), mealTimes(0, 1, 0)),
+                new MealStats(LocalDate.of(2020, 1, 6), mealContents(0, 1, 0, 0), mealTimes(1, 0, 0)),
+                new MealStats(LocalDate.of(2020, 2, 3), mealContents(0, 0, 3, 0), mealTimes(0, 0, 3))),
+                stats);
+        assertEquals(3L, stats.get(0).total());
+    }
+
+    @Test
+    void givenPartialWeeksAtEdges_whenGetStatsByWeek_thenEdgesReadFromDailyRollups() {
+        // Wednesday 2020-01-01 to Saturday 2020-02-29: full weeks from 2020-01-06 to 2020-02-23
+        var leadingDays = LocalDate.of(2020, 1, 6);
+        var trailingDays = LocalDate.of(2020, 2, 24);
+        Mockito.when(mockMealRollupDAO.findCounts(userId, MealPeriod.DAY, from, leadingDays))
+                .thenReturn(dailyCounts.subList(0, 3));
+        Mockito.when(mockMealRollupDAO.findCounts(userId, MealPeriod.WEEK, leadingDays, trailingDays))
+                .thenReturn(List.of(
+                        new MealPeriodCount(LocalDate.of(2020, 1, 6), MealTime.BREAKFAST, MealContent.VEGETARIAN, 1L),
+                        new MealPeriodCount(LocalDate.of(2020, 2, 3), MealTime.DINNER, MealContent.FISH, 3L)));
+        Mockito.when(mockMealRollupDAO.findCounts(userId, MealPeriod.DAY, trailingDays, until))
+                .thenReturn(List.of(
+                        new MealPeriodCount(LocalDate.of(2020, 2, 25), MealTime.LUNCH, MealContent.BEEF, 1L)));
+
+        var stats = mealStatsService.getUserMealStats(userId, from, to, MealPeriod.WEEK);
+
+        assertEquals(List.of(
+                new MealStats(LocalDate.of(2019, 12, 30), mealContents(3, 0, 0, 1), mealTimes(0, 3, 1)),
+                new MealStats(LocalDate.of(2020, 1, 6), mealContents(0, 1, 0, 0), mealTimes(1, 0, 0)),
+                new MealStats(LocalDate.of(2020, 2, 3), mealContents(0, 0, 3, 0), mealTimes(0, 0, 3)),
+                new MealStats(LocalDate.of(2020, 2, 24), mealContents(0, 0, 0, 1), mealTimes(0, 1, 0))),
+                stats);
+    }
+
+    @Test
+    void givenFullMonths_whenGetStatsByMonth_thenOnlyMonthlyRollupsRead() {
+        Mockito.when(mockMealRollupDAO.findCounts(userId, MealPeriod.MONTH, from, until))
+                .thenReturn(List.of(
+                        new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.LUNCH, MealContent.VEGAN, 3L),
+                        new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.DINNER, MealContent.BEEF, 1L),
+                        new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.BREAKFAST, MealContent.VEGETARIAN, 1L),
+                        new MealPeriodCount(LocalDate.of(2020, 2, 1), MealTime.DINNER, MealContent.FISH, 3L)));
+
+        var stats = mealStatsService.getUserMealStats(userId, from, to, MealPeriod.MONTH);
+
+        assertEquals(List.of(
+                new MealStats(LocalDate.of(2020, 1, 1), mealContents(3, 1, 0, 1), mealTimes(1, 3, 1)),
+                new MealStats(LocalDate.of(2020, 2, 1), mealContents(0, 0, 3, 0), mealTimes(0, 0, 3))),
+                stats);
+        assertEquals(5L, stats.get(0).total());
+        Mockito.verify(mockMealRollupDAO).findCounts(userId, MealPeriod.MONTH, from, until);
+        Mockito.verifyNoMoreInteractions(mockMealRollupDAO);
+    }
+
+    @Test
+    void givenRangeWithinOneMonth_whenGetStatsByMonth_thenOnlyDailyRollupsRead() {
+        var monthFrom = LocalDate.of(2020, 1, 5);
+        var monthTo = LocalDate.of(2020, 1, 20);
+        Mockito.when(mockMealRollupDAO.findCounts(userId, MealPeriod.DAY, monthFrom, monthTo.plusDays(1)))
+                .thenReturn(dailyCounts.subList(2, 4));
+
+        var stats = mealStatsService.getUserMealStats(userId, monthFrom, monthTo, MealPeriod.MONTH);
+
+        assertEquals(List.of(
+                new MealStats(LocalDate.of(2020, 1, 1), mealContents(1, 1, 0, 0), mealTimes(1, 1, 0))),
+                stats);
+        Mockito.verify(mockMealRollupDAO).findCounts(userId, MealPeriod.DAY, monthFrom, monthTo.plusDays(1));
+        Mockito.verifyNoMoreInteractions(mockMealRollupDAO);
+    }
+
+    @Test
+    void givenNoMeals_whenGetStats_thenEmptyList() {
+        Mockito.when(mockMealRollupDAO.findCounts(userId, MealPeriod.DAY, null, null)).thenReturn(List.of());
+
+        assertEquals(List.of(), mealStatsService.getUserMealStats(userId, null, null, MealPeriod.DAY));
+    }
+
+    @Test
+    void givenTimeline_whenGetStreaks_thenLongestAndLatestRunsOfDays() {
+        // Runs: 2020-01-01, 2020-01-05 to 2020-01-06, 2020-02-03 (3 meals a day counts once)
+        Mockito.when(mockMealTimelines.get(userId)).thenReturn(MealTimeline.of(dailyCounts));
+
+        var streaks = mealStatsService.getUserMealStreaks(userId, null, null);
+
+        assertEquals(new MealStreak(LocalDate.of(2020, 1, 5), LocalDate.of(2020, 1, 6)), streaks.longest());
+        assertEquals(new MealStreak(LocalDate.of(2020, 2, 3), LocalDate.of(2020, 2, 3)), streaks.latest());
+        assertEquals(2, streaks.longest().days());
+        Mockito.verify(mockRecentMealWrites).routeReads(userId);
+    }
+
+    @Test
+    void givenRange_whenGetStreaks_thenRunsCutAtRangeEdges() {
+        Mockito.when(mockMealTimelines.get(userId)).thenReturn(MealTimeline.of(dailyCounts));
+
+        var streaks = mealStatsService.getUserMealStreaks(userId, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 5));
+
+        assertEquals(new MealStreak(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1)), streaks.longest());
+        assertEquals(new MealStreak(LocalDate.of(2020, 1, 5), LocalDate.of(2020, 1, 5)), streaks.latest());
+    }
+
+    @Test
+    void givenNoMealsInRange_whenGetStreaks_thenNoStreaks() {
+        Mockito.when(mockMealTimelines.get(userId)).thenReturn(MealTimeline.of(dailyCounts));
+
+        assertEquals(new MealStreaks(null, null),
+                mealStatsService.getUserMealStreaks(userId, LocalDate.of(2020, 1, 7), LocalDate.of(2020, 2, 2)));
+    }
+
+    @Test
+    void givenTimeline_whenGetCalendar_thenYearsMealsInTheirSlots() {
+        Mockito.when(mockMealTimelines.get(userId)).thenReturn(MealTimeline.of(dailyCounts));
+
+        var calendar = mealStatsService.getUserMealCalendar(userId, 2020);
+
+        assertEquals(2020, calendar.year());
+        assertEquals(MealContent.BEEF, calendar.mealContent(0, MealTime.DINNER));
+        assertEquals(MealContent.FISH, calendar.mealContent(33, MealTime.DINNER));
+        Mockito.verify(mockRecentMealWrites).routeReads(userId);
+    }
+}
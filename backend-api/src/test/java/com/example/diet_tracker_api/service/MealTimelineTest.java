@@ -0,0 +1,89 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.repository.MealPeriodCount;
+
+public class MealTimelineTest {
+
+    private final MealTimeline timeline = MealTimeline.of(List.of(
+            new MealPeriodCount(LocalDate.of(2020, 1, 5), MealTime.LUNCH, MealContent.VEGAN, 1L),
+            new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.DINNER, MealContent.BEEF, 2L),
+            new MealPeriodCount(LocalDate.of(2020, 1, 1), MealTime.BREAKFAST, MealContent.FISH, 1L)));
+
+    private static Meal meal(LocalDate mealDate, MealTime mealTime, MealContent mealContent) {
+        return Meal.builder().mealDate(mealDate).mealTime(mealTime).mealContent(mealContent).build();
+    }
+
+    private static List<String> meals(MealTimeline timeline) {
+        var meals = new ArrayList<String>();
+        for (int i = 0; i < timeline.size(); i++) {
+            meals.add(LocalDate.ofEpochDay(timeline.epochDay(i)) + " " + timeline.mealTime(i) + " "
+                    + timeline.mealContent(i));
+        }
+        return meals;
+    }
+
+    @Test
+    void givenDailyCounts_whenBuildTimeline_thenOneEntryPerMealInOrder() {
+        assertEquals(List.of(
+                "2020-01-01 BREAKFAST FISH",
+                "2020-01-01 DINNER BEEF",
+                "2020-01-01 DINNER BEEF",
+                "2020-01-05 LUNCH VEGAN"), meals(timeline));
+        assertEquals(112 + 4 * 5, timeline.footprint());
+    }
+
+    @Test
+    void whenApplyChanges_thenMealsAddedAndRemovedInPlace() {
+        var changed = timeline.apply(
+                MealTimeline.keys(List.of(meal(LocalDate.of(2020, 1, 3), MealTime.LUNCH, MealContent.PORK),
+                        meal(LocalDate.of(1960, 1, 1), MealTime.DINNER, MealContent.LAMB))),
+                MealTimeline.keys(List.of(meal(LocalDate.of(2020, 1, 1), MealTime.DINNER, MealContent.BEEF),
+                        meal(LocalDate.of(2020, 1, 9), MealTime.LUNCH, MealContent.VEGAN))));
+
+        assertEquals(List.of(
+                "1960-01-01 DINNER LAMB",
+                "2020-01-01 BREAKFAST FISH",
+                "2020-01-01 DINNER BEEF",
+                "2020-01-03 LUNCH PORK",
+                "2020-01-05 LUNCH VEGAN"), meals(changed));
+        assertEquals(4, timeline.size());
+    }
+
+    @Test
+    void whenIndexOf_thenFirstMealOnOrAfterDate() {
+        assertEquals(0, timeline.indexOf(LocalDate.of(2019, 12, 31)));
+        assertEquals(0, timeline.indexOf(LocalDate.of(2020, 1, 1)));
+        assertEquals(3, timeline.indexOf(LocalDate.of(2020, 1, 2)));
+        assertEquals(4, timeline.indexOf(LocalDate.of(2020, 1, 6)));
+        assertEquals(0, MealTimeline.EMPTY.indexOf(LocalDate.of(2020, 1, 1)));
+    }
+
+    @Test
+    void whenApplyChanges_thenOnlyCalendarsOfChangedYearsBuiltAgain() {
+        var calendar2019 = timeline.calendar(2019);
+        var calendar2020 = timeline.calendar(2020);
+        assertSame(calendar2020, timeline.calendar(2020));
+
+        var changed = timeline.apply(new long[0],
+                MealTimeline.keys(List.of(meal(LocalDate.of(2020, 1, 5), MealTime.LUNCH, MealContent.VEGAN))));
+
+        assertSame(calendar2019, changed.calendar(2019));
+        assertNotSame(calendar2020, changed.calendar(2020));
+        assertNull(changed.calendar(2020).mealContent(4, MealTime.LUNCH));
+        assertEquals(MealContent.VEGAN, timeline.calendar(2020).mealContent(4, MealTime.LUNCH));
+    }
+}
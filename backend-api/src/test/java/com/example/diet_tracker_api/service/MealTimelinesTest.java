@@ -0,0 +1,144 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.diet_tracker_api.HibernateCacheConfiguration;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.repository.MealDAO;
+
+/**
+ * Checks that timelines are built once, then follow the committed meal writes
+ * only. Rows are committed, so each test writes the meals of its own user.
+ */
+@DataJpaTest
+@ActiveProfiles("it")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ HibernateCacheConfiguration.class, MealService.class, MealStatsService.class, MealRollupService.class,
+        MealChangeLog.class, MealTimelines.class, MealListVersions.class, RecentMealWrites.class,
+        MealChangeFeed.class })
+public class MealTimelinesTest {
+
+    @Autowired
+    private MealService mealService;
+
+    @Autowired
+    private MealStatsService mealStatsService;
+
+    @Autowired
+    private MealTimelines mealTimelines;
+
+    @Autowired
+    private MealDAO mealDAO;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final String userId = UUID.randomUUID().toString();
+
+    private MealTimelines.Statistics before;
+
+    private Meal newMeal(LocalDate mealDate) {
+        return Meal.builder()
+                .mealDate(mealDate)
+                .mealTime(MealTime.LUNCH)
+                .mealContent(MealContent.VEGAN)
+                .build();
+    }
+
+    private MealStreak longestStreak() {
+        return mealStatsService.getUserMealStreaks(userId, null, null).longest();
+    }
+
+    @BeforeEach
+    void setupMealsAndStatistics() {
+        // Saved through the DAO: only read by the timeline build
+        for (var day = 1; day <= 3; day++) {
+            var meal = newMeal(LocalDate.of(2020, 1, day));
+            meal.setUserId(userId);
+            mealDAO.save(meal);
+        }
+        before = mealTimelines.statistics();
+    }
+
+    @Test
+    void whenGetStreaksTwice_thenTimelineBuiltOnce() {
+        assertEquals(new MealStreak(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 3)), longestStreak());
+        assertEquals(new MealStreak(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 3)), longestStreak());
+
+        var after = mealTimelines.statistics();
+        assertEquals(1, after.builds() - before.builds());
+        assertEquals(1, after.hits() - before.hits());
+        assertEquals(3 * 5 + 112, after.footprintBytes() - before.footprintBytes());
+    }
+
+    @Test
+    void whenWriteMeals_thenTimelineUpdatedWithoutBuild() {
+        longestStreak();
+
+        var created = mealService.createMeal(userId, newMeal(LocalDate.of(2020, 1, 4)));
+        assertEquals(new MealStreak(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 4)), longestStreak());
+
+        var edited = newMeal(LocalDate.of(2020, 1, 5));
+        edited.setVersion(created.getVersion());
+        mealService.editMealById(userId, created.getId(), edited);
+        assertEquals(new MealStreak(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 3)), longestStreak());
+
+        mealService.deleteMealById(userId, created.getId(), null);
+        assertEquals(new MealStreak(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 3)),
+                mealStatsService.getUserMealStreaks(userId, null, null).latest());
+        assertEquals(1, mealTimelines.statistics().builds() - before.builds());
+    }
+
+    @Test
+    void whenWriteMeal_thenCalendarOfItsYearUpdated() {
+        assertNull(mealStatsService.getUserMealCalendar(userId, 2020).mealContent(3, MealTime.DINNER));
+
+        var meal = newMeal(LocalDate.of(2020, 1, 4));
+        meal.setMealTime(MealTime.DINNER);
+        mealService.createMeal(userId, meal);
+
+        assertEquals(MealContent.VEGAN, mealStatsService.getUserMealCalendar(userId, 2020)
+                .mealContent(3, MealTime.DINNER));
+        assertEquals(1, mealTimelines.statistics().builds() - before.builds());
+    }
+
+    @Test
+    void whenWriteRolledBack_thenTimelineUnchanged() {
+        longestStreak();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            mealService.createMeal(userId, newMeal(LocalDate.of(2020, 1, 4)));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(new MealStreak(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 3)), longestStreak());
+    }
+
+    @Test
+    void whenInvalidateAll_thenTimelineBuiltAgain() {
+        longestStreak();
+        mealTimelines.invalidateAll();
+        longestStreak();
+
+        assertEquals(2, mealTimelines.statistics().builds() - before.builds());
+    }
+}
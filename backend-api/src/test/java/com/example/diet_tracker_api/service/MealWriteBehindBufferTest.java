@@ -0,0 +1,149 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.diet_tracker_api.HibernateCacheConfiguration;
+import com.example.diet_tracker_api.exception.MealIngestionBufferFullException;
+import com.example.diet_tracker_api.exception.MealNotFoundException;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealTime;
+
+/**
+ * Checks the write-behind ingestion against the database. The writer thread
+ * never flushes by itself here (long interval, large flush size), the tests
+ * flushing the buffer instead.
+ * Flushes are committed, so each test writes the meals of its own user.
+ */
+@DataJpaTest(properties = {
+        "diet-tracker.ingestion.write-behind.enabled=true",
+        "diet-tracker.ingestion.write-behind.capacity=3",
+        "diet-tracker.ingestion.write-behind.flush-size=100",
+        "diet-tracker.ingestion.write-behind.flush-interval=1h",
+        "diet-tracker.ingestion.write-behind.max-attempts=2" })
+@ActiveProfiles("it")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ HibernateCacheConfiguration.class, MealWriteBehindBuffer.class, MealService.class, MealStatsService.class,
+        MealRollupService.class, MealChangeLog.class, MealTimelines.class, MealListVersions.class,
+        RecentMealWrites.class, MealChangeFeed.class })
+public class MealWriteBehindBufferTest {
+
+    @Autowired
+    private MealWriteBehindBuffer mealWriteBehindBuffer;
+
+    @Autowired
+    private MealService mealService;
+
+    @Autowired
+    private MealStatsService mealStatsService;
+
+    private final String userId = "buffered-" + UUID.randomUUID();
+
+    private Meal newMeal(MealContent mealContent) {
+        return Meal.builder()
+                .mealDate(LocalDate.of(2020, 1, 1))
+                .mealTime(MealTime.LUNCH)
+                .mealContent(mealContent)
+                .build();
+    }
+
+    @AfterEach
+    void emptyBuffer() {
+        mealWriteBehindBuffer.flush();
+    }
+
+    @Test
+    void whenEnqueueMeal_thenIdReturnedAndMealStoredOnFlush() {
+        var meal = mealWriteBehindBuffer.enqueue(userId, newMeal(MealContent.VEGAN));
+
+        assertThrows(MealNotFoundException.class, () -> mealService.getUserMealById(userId, meal.getId()));
+
+        mealWriteBehindBuffer.flush();
+
+        var stored = mealService.getUserMealById(userId, meal.getId());
+        assertEquals(MealContent.VEGAN, stored.getMealContent());
+        assertEquals(0L, stored.getVersion());
+        assertEquals(0, mealWriteBehindBuffer.size());
+    }
+
+    @Test
+    void whenFlush_thenRollupsAndListVersionUpdated() {
+        var version = mealService.getUserMealsVersion(userId);
+        mealWriteBehindBuffer.enqueue(userId, newMeal(MealContent.VEGAN));
+        mealWriteBehindBuffer.enqueue(userId, newMeal(MealContent.FISH));
+
+        mealWriteBehindBuffer.flush();
+
+        assertEquals(2, mealStatsService.getUserMealStats(userId, null, null, MealPeriod.DAY).get(0).total());
+        assertNotEquals(version, mealService.getUserMealsVersion(userId));
+    }
+
+    @Test
+    void whenEnqueueMeals_thenIdsDistinctFromTheOnesAssignedByJpa() {
+        var buffered = mealWriteBehindBuffer.enqueue(userId, newMeal(MealContent.VEGAN));
+        var created = mealService.createMeal(userId, newMeal(MealContent.FISH));
+
+        mealWriteBehindBuffer.flush();
+
+        assertNotEquals(buffered.getId(), created.getId());
+        assertEquals(List.of(MealContent.VEGAN, MealContent.FISH), List.of(
+                mealService.getUserMealById(userId, buffered.getId()).getMealContent(),
+                mealService.getUserMealById(userId, created.getId()).getMealContent()));
+    }
+
+    @Test
+    void whenFlush_givenMealFailingEveryTime_thenOtherMealsInsertedAndItDropped() {
+        var created = mealService.createMeal(userId, newMeal(MealContent.FISH));
+        var first = mealWriteBehindBuffer.enqueue(userId, newMeal(MealContent.VEGAN));
+        // Same id as an existing meal: its insert can never succeed
+        mealWriteBehindBuffer.enqueue(userId, newMeal(MealContent.BEEF)).setId(created.getId());
+        var last = mealWriteBehindBuffer.enqueue(userId, newMeal(MealContent.PORK));
+
+        mealWriteBehindBuffer.flush();
+        mealWriteBehindBuffer.flush();
+
+        assertEquals(3, mealWriteBehindBuffer.size());
+        assertThrows(MealNotFoundException.class, () -> mealService.getUserMealById(userId, first.getId()));
+
+        mealWriteBehindBuffer.flush();
+
+        assertEquals(0, mealWriteBehindBuffer.size());
+        assertEquals(List.of(MealContent.VEGAN, MealContent.FISH, MealContent.PORK), List.of(
+                mealService.getUserMealById(userId, first.getId()).getMealContent(),
+                mealService.getUserMealById(userId, created.getId()).getMealContent(),
+                mealService.getUserMealById(userId, last.getId()).getMealContent()));
+    }
+
+    @Test
+    void whenEnqueueMeal_givenBufferFull_thenRejectedUntilFlush() {
+        for (int i = 0; i < 3; i++) {
+            mealWriteBehindBuffer.enqueue(userId, newMeal(MealContent.VEGAN));
+        }
+
+        var exception = assertThrows(MealIngestionBufferFullException.class,
+                () -> mealWriteBehindBuffer.enqueue(userId, newMeal(MealContent.VEGAN)));
+        assertEquals(3600, exception.getRetryAfterSeconds());
+
+        mealWriteBehindBuffer.flush();
+        mealWriteBehindBuffer.enqueue(userId, newMeal(MealContent.VEGAN));
+        assertEquals(1, mealWriteBehindBuffer.size());
+    }
+}
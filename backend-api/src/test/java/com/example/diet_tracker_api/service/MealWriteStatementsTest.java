@@ -0,0 +1,147 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.diet_tracker_api.HibernateCacheConfiguration;
+import com.example.diet_tracker_api.exception.MealNotFoundException;
+import com.example.diet_tracker_api.exception.MealVersionMismatchException;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.repository.MealDAO;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Checks the number of SQL statements run by meal edits and deletes: one
+ * SELECT loading the stored meal and one UPDATE or DELETE of that meal,
+ * checked against its version.
+ * The rollup upsert and the change counter are run through JDBC and not
+ * counted by the Hibernate statistics.
+ */
+@DataJpaTest
+@ActiveProfiles("it")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ HibernateCacheConfiguration.class, MealService.class, MealRollupService.class, MealChangeLog.class,
+        MealTimelines.class, MealListVersions.class, RecentMealWrites.class,
+        MealChangeFeed.class })
+public class MealWriteStatementsTest {
+
+    @Autowired
+    private MealService mealService;
+
+    @Autowired
+    private MealDAO mealDAO;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private final String userId = "write-user";
+
+    private Long mealId;
+
+    @BeforeEach
+    void setupMealAndStatistics() {
+        mealId = mealDAO.saveAndFlush(Meal.builder()
+                .userId(userId)
+                .mealDate(LocalDate.of(2020, 1, 1))
+                .mealTime(MealTime.LUNCH)
+                .mealContent(MealContent.VEGAN)
+                .build()).getId();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private Meal newMeal(MealContent mealContent) {
+        return Meal.builder()
+                .mealDate(LocalDate.of(2020, 1, 1))
+                .mealTime(MealTime.LUNCH)
+                .mealContent(mealContent)
+                .build();
+    }
+
+    @Test
+    void givenChangedMeal_whenEditMealById_thenOneSelectAndOneUpdate() {
+        mealService.editMealById(userId, mealId, newMeal(MealContent.BEEF));
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        var meal = mealDAO.findById(mealId).orElseThrow();
+        assertEquals(MealContent.BEEF, meal.getMealContent());
+        assertEquals(1L, meal.getVersion());
+    }
+
+    @Test
+    void givenStaleVersion_whenEditMealById_thenOnlyOneSelect() {
+        mealService.editMealById(userId, mealId, newMeal(MealContent.BEEF));
+        statistics.clear();
+        var staleMeal = newMeal(MealContent.FISH);
+        staleMeal.setVersion(0L);
+
+        assertThrows(MealVersionMismatchException.class, () -> mealService.editMealById(userId, mealId, staleMeal));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(MealContent.BEEF, mealDAO.findById(mealId).orElseThrow().getMealContent());
+    }
+
+    @Test
+    void givenUnchangedMeal_whenEditMealById_thenOnlyOneSelect() {
+        mealService.editMealById(userId, mealId, newMeal(MealContent.VEGAN));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void givenPartialMeal_whenPatchMealById_thenOneSelectAndOneUpdate() {
+        mealService.patchMealById(userId, mealId, Meal.builder().mealTime(MealTime.DINNER).build());
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        var meal = mealDAO.findById(mealId).orElseThrow();
+        assertEquals(MealTime.DINNER, meal.getMealTime());
+        assertEquals(MealContent.VEGAN, meal.getMealContent());
+    }
+
+    @Test
+    void givenMealOfAnotherUser_whenEditMealById_thenOnlyOneSelect() {
+        assertThrows(MealNotFoundException.class,
+                () -> mealService.editMealById("other-user", mealId, newMeal(MealContent.BEEF)));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void givenMeal_whenDeleteMealById_thenOneSelectAndOneDelete() {
+        mealService.deleteMealById(userId, mealId, null);
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertTrue(mealDAO.findById(mealId).isEmpty());
+    }
+
+    @Test
+    void givenMealOfAnotherUser_whenDeleteMealById_thenOnlyOneSelect() {
+        assertThrows(MealNotFoundException.class, () -> mealService.deleteMealById("other-user", mealId, null));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(mealDAO.findById(mealId).isPresent());
+    }
+}
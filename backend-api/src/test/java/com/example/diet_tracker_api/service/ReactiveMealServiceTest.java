@@ -0,0 +1,270 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.example.diet_tracker_api.HibernateCacheConfiguration;
+import com.example.diet_tracker_api.exception.MealNotFoundException;
+import com.example.diet_tracker_api.exception.MealVersionMismatchException;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.repository.MealTombstoneDAO;
+import com.example.diet_tracker_api.repository.ReactiveMealDAO;
+import com.example.diet_tracker_api.repository.ReactiveMealRollupDAO;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+
+/**
+ * Runs the reactive service and DAOs on the R2DBC driver of the H2 database
+ * created for JPA. Those beans only exist in a reactive web application, so
+ * they are built here; and the test is not transactional, as the R2DBC
+ * connections would not see the rows of a JPA transaction.
+ */
+@DataJpaTest
+@ActiveProfiles("it")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ HibernateCacheConfiguration.class, MealTimelines.class, MealChangeFeed.class,
+        ReactiveMealServiceTest.ReactiveTestConfiguration.class })
+public class ReactiveMealServiceTest {
+
+    /**
+     * Only the client is a bean: a ConnectionFactory bean would have Boot run
+     * the SQL initialization with R2DBC, before JPA creates the schema.
+     */
+    @TestConfiguration
+    static class ReactiveTestConfiguration {
+        @Bean
+        DatabaseClient databaseClient(@Value("${spring.r2dbc.url}") String url,
+                @Value("${spring.r2dbc.username}") String username, @Value("${spring.r2dbc.password}") String password) {
+            return DatabaseClient.create(ConnectionFactories.get(ConnectionFactoryOptions.parse(url).mutate()
+                    .option(ConnectionFactoryOptions.USER, username)
+                    .option(ConnectionFactoryOptions.PASSWORD, password)
+                    .build()));
+        }
+
+        @Bean
+        TransactionalOperator transactionalOperator(DatabaseClient databaseClient) {
+            return TransactionalOperator.create(new R2dbcTransactionManager(databaseClient.getConnectionFactory()));
+        }
+
+        @Bean
+        ReactiveMealDAO reactiveMealDAO(DatabaseClient databaseClient, TransactionalOperator transactionalOperator) {
+            return new ReactiveMealDAO(databaseClient, transactionalOperator);
+        }
+
+        @Bean
+        ReactiveMealRollupDAO reactiveMealRollupDAO(DatabaseClient databaseClient) {
+            return new ReactiveMealRollupDAO(databaseClient);
+        }
+
+        @Bean
+        ReactiveMealService reactiveMealService(ReactiveMealDAO mealDAO, ReactiveMealRollupDAO mealRollupDAO,
+                MealTimelines mealTimelines, MealChangeFeed mealChangeFeed,
+                TransactionalOperator transactionalOperator) {
+            return new ReactiveMealService(mealDAO, mealRollupDAO, mealTimelines, mealChangeFeed,
+                    transactionalOperator);
+        }
+
+        @Bean
+        ReactiveMealStatsService reactiveMealStatsService(ReactiveMealRollupDAO mealRollupDAO) {
+            return new ReactiveMealStatsService(mealRollupDAO);
+        }
+    }
+
+    @Autowired
+    private ReactiveMealService mealService;
+
+    @Autowired
+    private ReactiveMealStatsService mealStatsService;
+
+    @Autowired
+    private MealTombstoneDAO mealTombstoneDAO;
+
+    @Autowired
+    private MealTimelines mealTimelines;
+
+    @Autowired
+    private MealChangeFeed mealChangeFeed;
+
+    /**
+     * Rows are committed, so each test writes the meals of its own user.
+     */
+    private final String userId = "reactive-" + UUID.randomUUID();
+
+    private Meal newMeal(LocalDate mealDate, MealTime mealTime, MealContent mealContent) {
+        return Meal.builder()
+                .mealDate(mealDate)
+                .mealTime(mealTime)
+                .mealContent(mealContent)
+                .build();
+    }
+
+    private List<Meal> createMeals() {
+        return mealService.createMeals(userId, List.of(
+                newMeal(LocalDate.of(2020, 1, 3), MealTime.DINNER, MealContent.BEEF),
+                newMeal(LocalDate.of(2020, 1, 1), MealTime.LUNCH, MealContent.VEGAN),
+                newMeal(LocalDate.of(2020, 1, 1), MealTime.DINNER, MealContent.VEGAN))).block();
+    }
+
+    private long countMeals() {
+        return mealStatsService.getUserMealStats(userId, null, null, MealPeriod.MONTH).block().stream()
+                .mapToLong(MealStats::total)
+                .sum();
+    }
+
+    @Test
+    void whenCreateMeals_thenIdsReturnedInInputOrderAndMealsPaged() {
+        var meals = createMeals();
+
+        var firstPage = mealService.getUserMeals(userId, MealFilter.NONE, null, 2).block();
+        assertEquals(List.of(meals.get(1).getId(), meals.get(2).getId()),
+                firstPage.meals().stream().map(Meal::getId).toList());
+        var lastPage = mealService.getUserMeals(userId, MealFilter.NONE, firstPage.next(), 2).block();
+        assertEquals(List.of(meals.get(0).getId()), lastPage.meals().stream().map(Meal::getId).toList());
+        assertEquals(null, lastPage.next());
+        assertEquals(List.of(1L, 2L, 3L), meals.stream().map(Meal::getChangeSeq).toList());
+    }
+
+    @Test
+    void whenCreateMeals_thenRollupsAndListVersionUpdated() {
+        var version = mealService.getUserMealsVersion(userId).block();
+
+        createMeals();
+
+        assertEquals(3, countMeals());
+        assertNotEquals(version, mealService.getUserMealsVersion(userId).block());
+    }
+
+    @Test
+    void whenPatchMeal_thenVersionIncrementedAndRollupsMoved() {
+        var meal = createMeals().get(0);
+
+        var patched = mealService.patchMealById(userId, meal.getId(), Meal.builder()
+                .mealContent(MealContent.FISH)
+                .version(meal.getVersion())
+                .build()).block();
+
+        assertEquals(meal.getVersion() + 1, patched.getVersion());
+        var stored = mealService.getUserMealById(userId, meal.getId()).block();
+        assertEquals(MealContent.FISH, stored.getMealContent());
+        assertEquals(4L, stored.getChangeSeq());
+        var stats = mealStatsService.getUserMealStats(userId, null, null, MealPeriod.MONTH).block();
+        assertEquals(1L, stats.get(0).mealContents().get(MealContent.FISH));
+        assertEquals(0L, stats.get(0).mealContents().get(MealContent.BEEF));
+    }
+
+    @Test
+    void whenEditMeal_givenStaleVersion_thenVersionMismatchAndNothingChanged() {
+        var meal = createMeals().get(0);
+        var edit = newMeal(LocalDate.of(2021, 1, 1), MealTime.LUNCH, MealContent.FISH);
+        edit.setVersion(meal.getVersion() + 1);
+
+        assertThrows(MealVersionMismatchException.class,
+                () -> mealService.editMealById(userId, meal.getId(), edit).block());
+        assertEquals(MealContent.BEEF, mealService.getUserMealById(userId, meal.getId()).block().getMealContent());
+    }
+
+    @Test
+    void whenDeleteMeal_thenMealAndItsRollupsRemovedAndTombstoneLeft() {
+        var meal = createMeals().get(0);
+
+        mealService.deleteMealById(userId, meal.getId(), null).block();
+
+        assertThrows(MealNotFoundException.class,
+                () -> mealService.getUserMealById(userId, meal.getId()).block());
+        assertEquals(2, countMeals());
+        assertEquals(4L, mealTombstoneDAO.findById(meal.getId()).orElseThrow().getChangeSeq());
+    }
+
+    @Test
+    void whenGetMealChanges_thenUpsertsAndDeletedIdsInChangeSequenceOrder() {
+        var meals = createMeals();
+        mealService.deleteMealById(userId, meals.get(0).getId(), null).block();
+
+        var changes = mealService.getUserMealChanges(userId, null, 10).block();
+
+        assertEquals(List.of(meals.get(1).getId(), meals.get(2).getId()),
+                changes.upserts().stream().map(Meal::getId).toList());
+        assertEquals(List.of(meals.get(0).getId()), changes.deletedIds());
+        assertEquals(4L, changes.changeSeq());
+        assertFalse(changes.more());
+
+        var nextChanges = mealService.getUserMealChanges(userId, 2L, 1).block();
+
+        assertEquals(List.of(meals.get(2).getId()), nextChanges.upserts().stream().map(Meal::getId).toList());
+        assertEquals(3L, nextChanges.changeSeq());
+        assertTrue(nextChanges.more());
+    }
+
+    @Test
+    void whenWriteMeals_thenTimelineChangedAndChangesPublished() throws Exception {
+        var messages = new LinkedBlockingQueue<String>();
+        var subscription = mealChangeFeed.subscribe(userId, new MealChangeSink() {
+            @Override
+            public void send(MealChangeEvent event) {
+                messages.add(event.type().name().toLowerCase() + ":" + event.changeSeq());
+            }
+
+            @Override
+            public void resync() {
+                messages.add("resync");
+            }
+
+            @Override
+            public void heartbeat() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        assertEquals("resync", messages.poll(5, TimeUnit.SECONDS));
+        // Built before the writes, then kept up to date by them
+        assertEquals(0, mealTimelines.get(userId).size());
+
+        var meal = createMeals().get(0);
+        mealService.deleteMealById(userId, meal.getId(), null).block();
+
+        assertEquals(2, mealTimelines.get(userId).size());
+        for (var message : List.of("upsert:1", "upsert:2", "upsert:3", "delete:4")) {
+            assertEquals(message, messages.poll(5, TimeUnit.SECONDS));
+        }
+        subscription.cancel();
+    }
+
+    @Test
+    void whenGetMeal_givenOtherUsersMeal_thenNotFound() {
+        var meal = createMeals().get(0);
+
+        assertThrows(MealNotFoundException.class,
+                () -> mealService.getUserMealById("someone-else", meal.getId()).block());
+    }
+}
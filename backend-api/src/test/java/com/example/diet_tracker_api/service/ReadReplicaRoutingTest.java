@@ -0,0 +1,149 @@
+package com.example.diet_tracker_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.diet_tracker_api.HibernateCacheConfiguration;
+import com.example.diet_tracker_api.DataSourceConfiguration;
+import com.example.diet_tracker_api.exception.MealNotFoundException;
+import com.example.diet_tracker_api.model.Meal;
+import com.example.diet_tracker_api.model.MealContent;
+import com.example.diet_tracker_api.model.MealPeriod;
+import com.example.diet_tracker_api.model.MealTime;
+import com.example.diet_tracker_api.repository.MealDAO;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Checks the read/write routing against two H2 databases, the replica being
+ * refreshed from a dump of the primary instead of being replicated.
+ * Rows are committed, so each test writes the meals of its own users.
+ */
+@DataJpaTest(properties = {
+        "diet-tracker.datasource.replica.jdbc-url=jdbc:h2:mem:replicaDb;DB_CLOSE_DELAY=-1;NON_KEYWORDS=KEY,VALUE,USER;MODE=MySQL",
+        "diet-tracker.datasource.read-your-writes-window=1m" })
+@ActiveProfiles("it")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ HibernateCacheConfiguration.class, DataSourceConfiguration.class, MealService.class, MealStatsService.class,
+        MealRollupService.class, MealChangeLog.class, MealTimelines.class, MealListVersions.class,
+        RecentMealWrites.class, MealChangeFeed.class })
+public class ReadReplicaRoutingTest {
+
+    @Autowired
+    private MealService mealService;
+
+    @Autowired
+    private MealStatsService mealStatsService;
+
+    @Autowired
+    private MealDAO mealDAO;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${diet-tracker.datasource.replica.jdbc-url}")
+    private String replicaUrl;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @TempDir
+    private Path dumpDirectory;
+
+    private final String writerId = "writer-" + UUID.randomUUID();
+
+    private final String otherUserId = "other-" + UUID.randomUUID();
+
+    /**
+     * Copies the primary database to the replica one. The replica changes
+     * behind Hibernate's back, so its caches are emptied.
+     */
+    private void replicate() {
+        var dump = dumpDirectory.resolve("primary.sql");
+        new JdbcTemplate(primaryDataSource).execute("SCRIPT TO '" + dump + "'");
+        var replica = new JdbcTemplate(new DriverManagerDataSource(replicaUrl, username, password));
+        replica.execute("DROP ALL OBJECTS");
+        replica.execute("RUNSCRIPT FROM '" + dump + "'");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    private Meal newMeal() {
+        return Meal.builder()
+                .mealDate(LocalDate.of(2020, 1, 1))
+                .mealTime(MealTime.LUNCH)
+                .mealContent(MealContent.VEGAN)
+                .build();
+    }
+
+    @BeforeEach
+    void setupReplica() {
+        replicate();
+    }
+
+    @Test
+    void whenReadMeals_givenNoRecentWrite_thenReadFromReplica() {
+        // Saved through the DAO: not recorded as a recent write
+        var meal = newMeal();
+        meal.setUserId(otherUserId);
+        var saved = mealDAO.save(meal);
+        // Nor cached, the lookup by id being served by the second-level cache otherwise
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictEntityData(Meal.class, saved.getId());
+
+        assertThrows(MealNotFoundException.class, () -> mealService.getUserMealById(otherUserId, saved.getId()));
+        assertEquals(List.of(), mealService.getUserMeals(otherUserId, MealFilter.NONE, null, 10).meals());
+
+        replicate();
+        assertEquals(saved.getId(), mealService.getUserMealById(otherUserId, saved.getId()).getId());
+    }
+
+    @Test
+    void whenReadMeals_givenRecentWrite_thenReadFromPrimary() {
+        var created = mealService.createMeal(writerId, newMeal());
+
+        assertEquals(created.getId(), mealService.getUserMealById(writerId, created.getId()).getId());
+        assertEquals(List.of(created.getId()), mealService.getUserMeals(writerId, MealFilter.NONE, null, 10).meals()
+                .stream().map(Meal::getId).toList());
+        assertEquals(1, mealStatsService.getUserMealStats(writerId, null, null, MealPeriod.DAY).get(0).total());
+    }
+
+    @Test
+    void whenReadMeals_givenOtherUsersRecentWrite_thenReadFromReplica() {
+        mealService.createMeal(writerId, newMeal());
+        var meal = newMeal();
+        meal.setUserId(otherUserId);
+        mealDAO.save(meal);
+
+        assertEquals(List.of(), mealService.getUserMeals(otherUserId, MealFilter.NONE, null, 10).meals());
+    }
+}
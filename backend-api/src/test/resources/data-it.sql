@@ -1,2 +1,16 @@
-INSERT INTO meal (meal_content, meal_date, user_id, meal_time) VALUES ('VEGETARIAN', '1968-05-04', '5669d3a8-edd4-4d9d-a737-7e9cb21fa974', 'LUNCH');
-INSERT INTO meal (meal_content, meal_date, user_id, meal_time) VALUES ('CHICKEN', '1978-04-14', 'another-user', 'DINNER');
\ No newline at end of file
+-- user ids are stored as their 16 UUID bytes, meal times & contents as their codes (see UserIdConverter, MealTime, MealContent)
+INSERT INTO meal (id, meal_content, meal_date, user_id, meal_time, change_seq) VALUES (1, 2, '1968-05-04', X'5669d3a8edd44d9da7377e9cb21fa974', 2, 1); -- VEGETARIAN LUNCH
+-- 'another-user' is not a UUID: stored as its name-based UUID, the id itself kept aside
+INSERT INTO meal (id, meal_content, meal_date, user_id, user_id_text, meal_time, change_seq) VALUES (2, 4, '1978-04-14', X'c823c5e4dcc73a16a8563db84d0efb17', 'another-user', 3, 1); -- CHICKEN DINNER
+-- each user's meals above are their first change (see MealChangeLog)
+INSERT INTO meal_change_counter (user_id, change_seq) VALUES (X'5669d3a8edd44d9da7377e9cb21fa974', 1);
+INSERT INTO meal_change_counter (user_id, change_seq) VALUES (X'c823c5e4dcc73a16a8563db84d0efb17', 1);
+-- rollups of the meals above, one per period (see MealRollupService): they are not rebuilt on startup
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'5669d3a8edd44d9da7377e9cb21fa974', 1, '1968-05-04', 2, 2, 1);
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'5669d3a8edd44d9da7377e9cb21fa974', 2, '1968-04-29', 2, 2, 1);
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'5669d3a8edd44d9da7377e9cb21fa974', 3, '1968-05-01', 2, 2, 1);
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'c823c5e4dcc73a16a8563db84d0efb17', 1, '1978-04-14', 3, 4, 1);
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'c823c5e4dcc73a16a8563db84d0efb17', 2, '1978-04-10', 3, 4, 1);
+INSERT INTO meal_rollup (user_id, period_type, period_start, meal_time, meal_content, meal_count) VALUES (X'c823c5e4dcc73a16a8563db84d0efb17', 3, '1978-04-01', 3, 4, 1);
+-- next meal ids are allocated after the ones above
+ALTER SEQUENCE meal_seq RESTART WITH 3;
\ No newline at end of file
@@ -0,0 +1,72 @@
+-- Rewrites the meal and meal_rollup tables of an existing MySQL database from the former layout
+-- (VARCHAR user ids, ENUM meal times, meal contents & periods) to the compact one:
+-- user ids as BINARY(16), see UserIdConverter; meal times, meal contents & periods as TINYINT codes,
+-- see MealTime, MealContent and MealPeriod (codes never change, the CASE expressions below stay valid).
+--
+-- Only needed when the schema outlives the application (spring.jpa.hibernate.ddl-auto other than create).
+-- Stop the application (and its writes), then run:
+--   mysql -u myuser -p api_diet_db < dev-tools/migrations/compact-meal-encoding.sql
+-- Each table is copied into its new layout, then swapped with it: the former tables are kept as
+-- meal_legacy and meal_rollup_legacy, to be dropped once the application runs on the new ones.
+--
+-- Stored user id: the 16 bytes of a lower case UUID, or those of the name-based (MD5) UUID of any other
+-- id, as UserIdConverter.toBytes does. The meals of the other ids keep them in user_id_text, so that they
+-- read back as written (see UserIdConverter.textOf).
+
+CREATE TABLE meal_compact (
+    meal_content TINYINT NOT NULL,
+    meal_date DATE NOT NULL,
+    meal_time TINYINT NOT NULL,
+    id BIGINT NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL,
+    user_id BINARY(16) NOT NULL,
+    user_id_text VARCHAR(255),
+    PRIMARY KEY (id),
+    INDEX idx_meal_user_date_id (user_id, meal_date, id),
+    INDEX idx_meal_user_date_time_content (user_id, meal_date, meal_time, meal_content)
+) ENGINE = InnoDB;
+
+INSERT INTO meal_compact (id, user_id, user_id_text, meal_date, meal_time, meal_content, version)
+SELECT id,
+    IF(REGEXP_LIKE(user_id, '^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$', 'c'),
+        UNHEX(REPLACE(user_id, '-', '')),
+        UNHEX(CONCAT(SUBSTRING(MD5(user_id), 1, 12), '3', SUBSTRING(MD5(user_id), 14, 3),
+            HEX((CONV(SUBSTRING(MD5(user_id), 17, 1), 16, 10) & 3) | 8), SUBSTRING(MD5(user_id), 18)))),
+    IF(REGEXP_LIKE(user_id, '^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$', 'c'), NULL, user_id),
+    meal_date,
+    CASE meal_time WHEN 'BREAKFAST' THEN 1 WHEN 'LUNCH' THEN 2 WHEN 'DINNER' THEN 3 END,
+    CASE meal_content WHEN 'VEGAN' THEN 1 WHEN 'VEGETARIAN' THEN 2 WHEN 'FISH' THEN 3 WHEN 'CHICKEN' THEN 4
+        WHEN 'PORK' THEN 5 WHEN 'LAMB' THEN 6 WHEN 'BEEF' THEN 7 END,
+    version
+FROM meal
+ORDER BY id;
+
+CREATE TABLE meal_rollup_compact (
+    meal_content TINYINT NOT NULL,
+    meal_time TINYINT NOT NULL,
+    period_start DATE NOT NULL,
+    period_type TINYINT NOT NULL,
+    meal_count BIGINT NOT NULL,
+    user_id BINARY(16) NOT NULL,
+    PRIMARY KEY (meal_content, meal_time, period_start, period_type, user_id),
+    INDEX idx_meal_rollup_user_period (user_id, period_type, period_start, meal_time, meal_content, meal_count)
+) ENGINE = InnoDB;
+
+INSERT INTO meal_rollup_compact (user_id, period_type, period_start, meal_time, meal_content, meal_count)
+SELECT IF(REGEXP_LIKE(user_id, '^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$', 'c'),
+        UNHEX(REPLACE(user_id, '-', '')),
+        UNHEX(CONCAT(SUBSTRING(MD5(user_id), 1, 12), '3', SUBSTRING(MD5(user_id), 14, 3),
+            HEX((CONV(SUBSTRING(MD5(user_id), 17, 1), 16, 10) & 3) | 8), SUBSTRING(MD5(user_id), 18)))),
+    CASE period_type WHEN 'DAY' THEN 1 WHEN 'WEEK' THEN 2 WHEN 'MONTH' THEN 3 END,
+    period_start,
+    CASE meal_time WHEN 'BREAKFAST' THEN 1 WHEN 'LUNCH' THEN 2 WHEN 'DINNER' THEN 3 END,
+    CASE meal_content WHEN 'VEGAN' THEN 1 WHEN 'VEGETARIAN' THEN 2 WHEN 'FISH' THEN 3 WHEN 'CHICKEN' THEN 4
+        WHEN 'PORK' THEN 5 WHEN 'LAMB' THEN 6 WHEN 'BEEF' THEN 7 END,
+    meal_count
+FROM meal_rollup;
+
+-- Atomic swap: the application sees either the former tables or the new ones
+RENAME TABLE meal TO meal_legacy, meal_compact TO meal,
+    meal_rollup TO meal_rollup_legacy, meal_rollup_compact TO meal_rollup;
+
+ANALYZE TABLE meal, meal_rollup;
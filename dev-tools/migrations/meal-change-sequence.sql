@@ -0,0 +1,42 @@
+-- Adds the change sequences of the delta sync (GET /meals/changes) to an existing MySQL database:
+-- the meal.change_seq column and its index, the per-user meal_change_counter and the meal_tombstone
+-- tables, see MealChangeLog.
+--
+-- Only needed when the schema outlives the application (spring.jpa.hibernate.ddl-auto other than create).
+-- Stop the application (and its writes), then run:
+--   mysql -u myuser -p api_diet_db < dev-tools/migrations/meal-change-sequence.sql
+-- Existing meals are numbered 1, 2, ... per user in id order, and each counter starts after its
+-- user's last meal: clients' first sync (without since) returns all their meals anyway.
+
+ALTER TABLE meal
+    ADD COLUMN change_seq BIGINT DEFAULT 0 NOT NULL,
+    ALGORITHM = INSTANT;
+
+UPDATE meal
+JOIN (SELECT id, ROW_NUMBER() OVER (PARTITION BY user_id ORDER BY id) AS change_seq FROM meal) numbered
+    ON numbered.id = meal.id
+SET meal.change_seq = numbered.change_seq;
+
+ALTER TABLE meal
+    ADD INDEX idx_meal_user_change_seq (user_id, change_seq);
+
+CREATE TABLE meal_change_counter (
+    change_seq BIGINT NOT NULL,
+    user_id BINARY(16) NOT NULL,
+    PRIMARY KEY (user_id)
+) ENGINE = InnoDB;
+
+INSERT INTO meal_change_counter (user_id, change_seq)
+SELECT user_id, MAX(change_seq)
+FROM meal
+GROUP BY user_id;
+
+CREATE TABLE meal_tombstone (
+    change_seq BIGINT NOT NULL,
+    id BIGINT NOT NULL,
+    user_id BINARY(16) NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_meal_tombstone_user_change_seq (user_id, change_seq)
+) ENGINE = InnoDB;
+
+ANALYZE TABLE meal, meal_change_counter;